@@ -609,6 +609,11 @@ public class CalgamesMech extends SubsystemBase implements Music, PositionSubsys
 
     }
 
+    /** Load precomputed trajectories; see MechTrajectories.loadLibrary(). */
+    public void loadTrajectories() {
+        m_transit.loadLibrary();
+    }
+
     /** Not too far extended in any direction. */
     public boolean isSafeToDrive() {
         double x = m_elevatorBack.getPositionM();
@@ -1,5 +1,7 @@
 package org.team100.frc2025.CalgamesArm;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -11,22 +13,36 @@ import org.team100.lib.subsystems.prr.ElevatorArmWristKinematics;
 import org.team100.lib.subsystems.prr.JointAccelerations;
 import org.team100.lib.subsystems.prr.JointVelocities;
 import org.team100.lib.subsystems.r3.commands.GoToPosePosition;
+import org.team100.lib.trajectory.TrajectoryLibrary;
 import org.team100.lib.trajectory.TrajectoryPlanner;
+import org.team100.lib.trajectory.TrajectoryPlanningService;
 import org.team100.lib.trajectory.timing.ConstantConstraint;
 import org.team100.lib.trajectory.timing.JointConstraint;
 import org.team100.lib.trajectory.timing.TimingConstraint;
 import org.team100.lib.trajectory.timing.TorqueConstraint;
 import org.team100.lib.trajectory.timing.YawRateConstraint;
 
+import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj2.command.Command;
 
 /** Make a trajectory from the start to the end and follow it. */
 public class MechTrajectories extends Command {
     private static final boolean USE_JOINT_CONSTRAINT = false;
+    /**
+     * Precomputed trajectories, in the operating directory, i.e. /home/lvuser on
+     * the RoboRIO, or the project directory in simulation (see .gitignore). Not
+     * the deploy directory: that's the source tree in simulation, and a deploy
+     * would replace it.
+     */
+    private static final String LIBRARY = "mech_trajectories.bin";
 
     private final LoggerFactory m_log;
     private final CalgamesMech m_subsystem;
     private final TrajectoryPlanner m_planner;
+    /** Plans in the background, and remembers repeated moves. */
+    private final TrajectoryPlanningService m_service;
+    /** Every move this has made a command for, for the library. */
+    private final List<TrajectoryLibrary.Entry> m_moves;
 
     public MechTrajectories(
             LoggerFactory parent,
@@ -59,14 +75,17 @@ public class MechTrajectories extends Command {
         // numbers bigger!
         m_planner = new TrajectoryPlanner(0.01, 0.1, 0.05, c);
         // m_planner = new TrajectoryPlanner(0.02, 0.2, 0.1, c);
+        m_service = new TrajectoryPlanningService(m_planner);
+        m_moves = new ArrayList<>();
     }
 
     /** A command that goes from the start to the end and then finishes. */
     public Command terminal(String name, HolonomicPose2d start, HolonomicPose2d end) {
 
+        register(name, start, end);
         /** Use the start course and ignore the start pose for now */
         MoveAndHold f = new GoToPosePosition(
-                m_log, m_subsystem, start.course(), end, m_planner);
+                m_log, m_subsystem, start.course(), end, m_service);
         return f
                 .until(f::isDone)
                 .withName(name);
@@ -75,12 +94,75 @@ public class MechTrajectories extends Command {
     /** A command that goes from the start to the end and then waits forever. */
     public MoveAndHold endless(String name, HolonomicPose2d start, HolonomicPose2d end) {
 
+        register(name, start, end);
         /** Use the start course and ignore the start pose for now */
         GoToPosePosition c = new GoToPosePosition(
-                m_log, m_subsystem, start.course(), end, m_planner);
+                m_log, m_subsystem, start.course(), end, m_service);
         c.setName(name);
         return c;
 
     }
 
+    /**
+     * Load precomputed trajectories for all the moves made so far, so they don't
+     * need to be planned while enabled. Call this at startup, after the commands
+     * are made.
+     *
+     * Moves missing from the library file are planned now, and the file is
+     * rewritten, so the first boot after a change is slow, and later ones are
+     * fast. If the planner or the constraints have changed, the whole file is
+     * stale, so everything is planned again.
+     */
+    public void loadLibrary() {
+        Path path = Filesystem.getOperatingDirectory().toPath().resolve(LIBRARY);
+        long fingerprint = m_planner.fingerprint();
+        List<TrajectoryLibrary.Entry> library = new ArrayList<>();
+        try {
+            library.addAll(TrajectoryLibrary.read(path, fingerprint));
+        } catch (IOException e) {
+            System.out.printf("WARNING: no trajectory library: %s\n", e.getMessage());
+        }
+        List<TrajectoryLibrary.Entry> current = new ArrayList<>();
+        List<TrajectoryLibrary.Entry> missing = new ArrayList<>();
+        for (TrajectoryLibrary.Entry move : m_moves) {
+            TrajectoryLibrary.Entry entry = find(library, move);
+            if (entry == null)
+                missing.add(move);
+            else
+                current.add(entry);
+        }
+        if (!missing.isEmpty()) {
+            System.out.printf("Planning %d mech trajectories\n", missing.size());
+            current.addAll(TrajectoryLibrary.plan(m_planner, missing));
+            try {
+                // Only the current moves, so old ones don't accumulate.
+                TrajectoryLibrary.write(path, fingerprint, current);
+            } catch (IOException e) {
+                System.out.printf("WARNING: can't write trajectory library: %s\n", e.getMessage());
+            }
+        }
+        for (TrajectoryLibrary.Entry entry : current) {
+            m_service.preload(entry);
+        }
+    }
+
+    ////////////////////////////////////////////////////
+
+    private void register(String name, HolonomicPose2d start, HolonomicPose2d end) {
+        TrajectoryLibrary.Entry move = new TrajectoryLibrary.Entry(
+                name, List.of(start, end), 0, 0, null);
+        if (find(m_moves, move) == null)
+            m_moves.add(move);
+    }
+
+    /** The entry with the same waypoints as the move, or null. */
+    private static TrajectoryLibrary.Entry find(
+            List<TrajectoryLibrary.Entry> entries, TrajectoryLibrary.Entry move) {
+        for (TrajectoryLibrary.Entry e : entries) {
+            if (e.waypoints().equals(move.waypoints()))
+                return e;
+        }
+        return null;
+    }
+
 }
@@ -9,6 +9,7 @@ import org.team100.lib.coherence.Takt;
 import org.team100.lib.config.Identity;
 import org.team100.lib.experiments.Experiment;
 import org.team100.lib.experiments.Experiments;
+import org.team100.lib.framework.LoopProfiler;
 import org.team100.lib.framework.TimedRobot100;
 import org.team100.lib.logging.RobotLog;
 import org.team100.lib.util.Banner;
@@ -22,6 +23,11 @@ import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 
 public class Robot extends TimedRobot100 {
+    private static final LoopProfiler PROFILER = LoopProfiler.instance;
+    private static final int TAKT = PROFILER.phase("Takt.update");
+    private static final int CACHE = PROFILER.phase("Cache.refresh");
+    private static final int SCHEDULER = PROFILER.phase("CommandScheduler");
+    private static final int MACHINERY = PROFILER.phase("Machinery.periodic");
 
     private final RobotLog m_robotLog;
     private final Machinery m_machinery;
@@ -55,18 +61,32 @@ public class Robot extends TimedRobot100 {
         m_binder.bind();
 
         Prewarmer.init(m_machinery);
+
+        // Work the control loop doesn't depend on, in the middle of the cycle.
+        addPeriodic(m_machinery::visualize, LOOP_PERIOD_S, LOOP_PERIOD_S / 2,
+                "visualization", Priority.BEST_EFFORT);
+        addPeriodic(m_robotLog::periodic, LOOP_PERIOD_S, LOOP_PERIOD_S / 2,
+                "RobotLog", Priority.BEST_EFFORT);
     }
 
     @Override
     public void robotPeriodic() {
         // Advance the drumbeat.
+        PROFILER.begin(TAKT);
         Takt.update();
+        PROFILER.end(TAKT);
         // Take all the measurements we can, as soon and quickly as possible.
+        PROFILER.begin(CACHE);
         Cache.refresh();
-        // Run one iteration of the command scheduler.
+        PROFILER.end(CACHE);
+        // Run one iteration of the command scheduler, including subsystem
+        // periodic().
+        PROFILER.begin(SCHEDULER);
         CommandScheduler.getInstance().run();
+        PROFILER.end(SCHEDULER);
+        PROFILER.begin(MACHINERY);
         m_machinery.periodic();
-        m_robotLog.periodic();
+        PROFILER.end(MACHINERY);
         if (Experiments.instance.enabled(Experiment.FlushOften)) {
             // StrUtil.warn("FLUSHING EVERY LOOP, DO NOT USE IN COMP");
             NetworkTableInstance.getDefault().flush();
@@ -128,7 +128,8 @@ public class Machinery {
                 driveLog,
                 layout,
                 history,
-                visionUpdater);
+                visionUpdater,
+                true);
         m_targets = new Targets(driveLog, fieldLogger, history);
 
         ////////////////////////////////////////////////////////////
@@ -171,6 +172,10 @@ public class Machinery {
         // show the closest target on field2d
         m_targets.periodic();
         m_leds.periodic();
+    }
+
+    /** Runs as best-effort work, outside the main loop. */
+    public void visualize() {
         m_combinedViz.run();
         m_climberViz.run();
     }
@@ -40,6 +40,9 @@ public class Prewarmer {
                 new TimingConstraintFactory(machinery.m_swerveKinodynamics).medium(logger));
         planner.restToRest(waypoints);
 
+        // Load (or make) the mech trajectories, now that the commands exist.
+        machinery.m_mech.loadTrajectories();
+
         // Exercise the drive motors.
         machinery.m_drive.setVelocity(new GlobalVelocityR3(0, 0, 0));
 
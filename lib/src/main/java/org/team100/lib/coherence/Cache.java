@@ -7,10 +7,10 @@ import java.util.function.Supplier;
 
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
 import org.team100.lib.logging.Logging;
 
 import com.ctre.phoenix6.BaseStatusSignal;
-import com.ctre.phoenix6.StatusCode;
 
 /**
  * List of caches to be managed coherently.
@@ -25,16 +25,37 @@ import com.ctre.phoenix6.StatusCode;
  * observations we actually cache seem to be from motors. On the other hand,
  * it doesn't hurt anything to cache at multiple levels -- the updater makes
  * everything consistent.
+ * 
+ * Lazy caches (see ofLazy()) are reset with the others, but not updated: they
+ * are evaluated on the first read in each cycle, if any. Use these for
+ * quantities that aren't read every cycle. Dependencies between caches take
+ * care of themselves, since evaluating one cache reads (and so evaluates)
+ * whatever it depends on.
+ * 
+ * Instrumentation (see setInstrumented()) records, for each cache, the time
+ * spent evaluating it, the number of evaluations, and the number of reads by
+ * user code, and logs them under "Cache/<name>". An eager cache with zero
+ * reads is a candidate for removal, or for becoming lazy.
  */
 public class Cache {
     private static final boolean DEBUG = false;
     /** How long it takes to update the cache. */
     private static final DoubleLogger m_log_update = Logging.instance().rootLogger.name("Cache")
             .doubleLogger(Level.COMP, "update time (s)");
+    /** Eager caches with no reads in the previous cycle. */
+    private static final IntLogger m_log_unread = Logging.instance().rootLogger.name("Cache")
+            .intLogger(Level.DEBUG, "unread");
     private static final List<ObjectCache<?>> caches = new ArrayList<>();
     private static final List<DoubleCache> doubles = new ArrayList<>();
     private static final List<SideEffect> sideEffects = new ArrayList<>();
-    private static final List<BaseStatusSignal> signals = new ArrayList<>();
+    private static final List<ObjectCache<?>> lazyCaches = new ArrayList<>();
+    private static final List<DoubleCache> lazyDoubles = new ArrayList<>();
+    private static final SignalRefresher signals = new SignalRefresher(SignalRefresher.PHOENIX);
+
+    /** Record per-cache costs. Read by the caches, so package-private. */
+    static boolean instrumented = false;
+    /** Never reused, so unnamed caches can't collide, even after removal. */
+    private static int unnamed = 0;
 
     /**
      * Adds the delegate to the set that is reset and updated synchronously by
@@ -43,33 +64,103 @@ public class Cache {
      * consistent and constant through the whole cycle.
      */
     public static <T> ObjectCache<T> of(Supplier<T> delegate) {
-        ObjectCache<T> cache = new ObjectCache<>(delegate);
+        return of(name(delegate), delegate);
+    }
+
+    /** The name is used to log instrumentation. */
+    public static <T> ObjectCache<T> of(String name, Supplier<T> delegate) {
+        ObjectCache<T> cache = new ObjectCache<>(name, delegate);
         caches.add(cache);
         return cache;
     }
 
+    /**
+     * Reset with the others in Robot.robotPeriodic(), but evaluated only on the
+     * first read in each cycle, if any.
+     */
+    public static <T> ObjectCache<T> ofLazy(String name, Supplier<T> delegate) {
+        ObjectCache<T> cache = new ObjectCache<>(name, delegate);
+        lazyCaches.add(cache);
+        return cache;
+    }
+
     public static void removeObjectCache(ObjectCache<?> obj) {
         caches.remove(obj);
+        lazyCaches.remove(obj);
     }
 
     public static DoubleCache ofDouble(DoubleSupplier delegate) {
-        DoubleCache cache = new DoubleCache(delegate);
+        return ofDouble(name(delegate), delegate);
+    }
+
+    /** The name is used to log instrumentation. */
+    public static DoubleCache ofDouble(String name, DoubleSupplier delegate) {
+        DoubleCache cache = new DoubleCache(name, delegate);
         doubles.add(cache);
         return cache;
     }
 
+    /**
+     * Reset with the others in Robot.robotPeriodic(), but evaluated only on the
+     * first read in each cycle, if any.
+     */
+    public static DoubleCache ofLazyDouble(String name, DoubleSupplier delegate) {
+        DoubleCache cache = new DoubleCache(name, delegate);
+        lazyDoubles.add(cache);
+        return cache;
+    }
+
     public static SideEffect ofSideEffect(Runnable delegate) {
-        SideEffect sideEffect = new SideEffect(delegate);
+        return ofSideEffect(name(delegate), delegate);
+    }
+
+    /** The name is used to log instrumentation. */
+    public static SideEffect ofSideEffect(String name, Runnable delegate) {
+        SideEffect sideEffect = new SideEffect(name, delegate);
         sideEffects.add(sideEffect);
         return sideEffect;
     }
 
+    /**
+     * Record and log per-cache evaluation time, evaluation count, and read
+     * count. This costs a little time for every read, so leave it off unless
+     * you're looking for something.
+     */
+    public static void setInstrumented(boolean enabled) {
+        instrumented = enabled;
+    }
+
     /**
      * There's a "resetter" that calls CTRE's refreshAll; add the supplied signal to
-     * the list in the refresh.
+     * the list in the refresh. The signal is on the RoboRIO CAN bus.
      */
     public static void registerSignal(BaseStatusSignal signal) {
-        signals.add(signal);
+        registerSignal("", signal);
+    }
+
+    /**
+     * Add the signal to the refresh group for its bus, e.g. "" or "rio" for the
+     * RoboRIO bus, or the name of a CANivore. Each bus is refreshed separately,
+     * and concurrently.
+     */
+    public static void registerSignal(String bus, BaseStatusSignal signal) {
+        signals.register(bus, signal);
+    }
+
+    /**
+     * Refresh the CAN bus groups concurrently (the default), or one at a time.
+     */
+    public static void setParallelSignalRefresh(boolean parallel) {
+        signals.setParallel(parallel);
+    }
+
+    /**
+     * If positive, the refresh waits for new signal data (see Phoenix
+     * waitForAll()), up to this many seconds after the Takt time. Zero (the
+     * default) takes the latest data without waiting.
+     */
+    public static void setSignalWait(double waitS) {
+        signals.setWait(waitS);
     }
 
     /**
@@ -82,10 +173,12 @@ public class Cache {
     public static void refresh() {
         if (DEBUG)
             System.out.println("Cache refresh");
+        if (instrumented)
+            logStats();
         double startUpdateS = Takt.actual();
         reset();
         update();
-        m_log_update.log(() -> (Takt.actual() - startUpdateS));
+        m_log_update.log(Takt.actual() - startUpdateS);
     }
 
     /** For testing only */
@@ -93,6 +186,8 @@ public class Cache {
         caches.clear();
         doubles.clear();
         sideEffects.clear();
+        lazyCaches.clear();
+        lazyDoubles.clear();
     }
 
     /////////////////////////////////////////////////
@@ -110,6 +205,12 @@ public class Cache {
         for (SideEffect r : sideEffects) {
             r.reset();
         }
+        for (ObjectCache<?> r : lazyCaches) {
+            r.reset();
+        }
+        for (DoubleCache r : lazyDoubles) {
+            r.reset();
+        }
     }
 
     /** Fetches fresh values for every stale cache. Should be called after reset. */
@@ -117,29 +218,68 @@ public class Cache {
         if (DEBUG) {
             System.out.printf("Cache update %d\n", caches.size());
         }
-        if (!signals.isEmpty()) {
-            StatusCode result = BaseStatusSignal.refreshAll(signals.toArray(new BaseStatusSignal[0]));
-            if (result != StatusCode.OK) {
-                System.out.printf("WARNING: RefreshAll failed: %s: %s\n",
-                        result.toString(), result.getDescription());
-            }
-        }
+        // Wait for all the buses here, before any cache reads a signal.
+        signals.refresh();
         for (ObjectCache<?> r : caches) {
             if (DEBUG) {
-                System.out.printf("update %s\n", r.get().getClass().getSimpleName());
+                System.out.printf("update %s\n", r.update().getClass().getSimpleName());
             }
-            r.get();
+            r.update();
         }
         for (DoubleCache r : doubles) {
             if (DEBUG)
                 System.out.println("double update");
-            r.getAsDouble();
+            r.update();
         }
         for (SideEffect r : sideEffects) {
-            r.run();
+            r.update();
         }
     }
 
+    /**
+     * Log and clear the stats for the previous cycle, i.e. the refresh and
+     * everything that happened after it.
+     */
+    private static void logStats() {
+        int unread = 0;
+        for (ObjectCache<?> r : caches) {
+            unread += logStats(r.getStats());
+        }
+        for (DoubleCache r : doubles) {
+            unread += logStats(r.getStats());
+        }
+        for (SideEffect r : sideEffects) {
+            unread += logStats(r.getStats());
+        }
+        for (ObjectCache<?> r : lazyCaches) {
+            logStats(r.getStats());
+        }
+        for (DoubleCache r : lazyDoubles) {
+            logStats(r.getStats());
+        }
+        m_log_unread.log(unread);
+    }
+
+    /** @return 1 if unread */
+    private static int logStats(CacheStats stats) {
+        stats.log();
+        int unread = stats.getReads() == 0 ? 1 : 0;
+        stats.clear();
+        return unread;
+    }
+
+    /**
+     * A name for an unnamed cache: the class that made the delegate, e.g.
+     * "Kraken6Motor" for a lambda written there, and a serial number.
+     */
+    static String name(Object delegate) {
+        String name = delegate.getClass().getSimpleName();
+        int lambda = name.indexOf("$$Lambda");
+        if (lambda > 0)
+            name = name.substring(0, lambda);
+        return name + " " + unnamed++;
+    }
+
     private Cache() {
         //
     }
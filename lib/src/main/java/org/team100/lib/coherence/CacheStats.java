@@ -0,0 +1,78 @@
+package org.team100.lib.coherence;
+
+import org.team100.lib.logging.Level;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
+import org.team100.lib.logging.Logging;
+
+/**
+ * Per-cache cost accounting, used when Cache instrumentation is on.
+ *
+ * Counts are accumulated over one loop, logged at the start of the next
+ * refresh, and then cleared.
+ *
+ * Evaluation time is inclusive: if evaluating one cache reads another stale
+ * one, the time for both is counted here.
+ */
+class CacheStats {
+    private final String m_name;
+    /** Nanoseconds spent in the delegate. */
+    private long m_nanos;
+    /** Calls to the delegate. */
+    private int m_evaluations;
+    /** Reads by user code, i.e. not including the refresh itself. */
+    private int m_reads;
+
+    // Created on first use, so uninstrumented caches don't make log entries.
+    private DoubleLogger m_log_time;
+    private IntLogger m_log_evaluations;
+    private IntLogger m_log_reads;
+
+    CacheStats(String name) {
+        m_name = name;
+    }
+
+    String getName() {
+        return m_name;
+    }
+
+    void evaluated(long nanos) {
+        m_nanos += nanos;
+        m_evaluations++;
+    }
+
+    void read() {
+        m_reads++;
+    }
+
+    double getTimeS() {
+        return m_nanos / 1e9;
+    }
+
+    int getEvaluations() {
+        return m_evaluations;
+    }
+
+    int getReads() {
+        return m_reads;
+    }
+
+    void log() {
+        if (m_log_time == null) {
+            LoggerFactory log = Logging.instance().rootLogger.name("Cache").name(m_name);
+            m_log_time = log.doubleLogger(Level.DEBUG, "eval time (s)");
+            m_log_evaluations = log.intLogger(Level.DEBUG, "evaluations");
+            m_log_reads = log.intLogger(Level.DEBUG, "reads");
+        }
+        m_log_time.log(getTimeS());
+        m_log_evaluations.log(m_evaluations);
+        m_log_reads.log(m_reads);
+    }
+
+    void clear() {
+        m_nanos = 0;
+        m_evaluations = 0;
+        m_reads = 0;
+    }
+}
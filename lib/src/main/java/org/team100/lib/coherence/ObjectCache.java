@@ -5,11 +5,13 @@ import java.util.function.Supplier;
 /** Cache an object supplier */
 public class ObjectCache<T> implements Supplier<T> {
     private final Supplier<T> m_delegate;
+    private final CacheStats m_stats;
     private T m_value;
 
     /** Do not call this directly, use Cache.of(). */
-    ObjectCache(Supplier<T> delegate) {
+    ObjectCache(String name, Supplier<T> delegate) {
         m_delegate = delegate;
+        m_stats = new CacheStats(name);
         m_value = null;
     }
 
@@ -20,10 +22,9 @@ public class ObjectCache<T> implements Supplier<T> {
     @Override
     public synchronized T get() {
         // synchronized adds ~20ns.
-        if (m_value == null)
-            m_value = m_delegate.get();
-
-        return m_value;
+        if (Cache.instrumented)
+            m_stats.read();
+        return update();
     }
 
     /**
@@ -51,4 +52,22 @@ public class ObjectCache<T> implements Supplier<T> {
     public void end() {
         Cache.removeObjectCache(this);
     }
-}
\ No newline at end of file
+
+    /** Like get() but not counted as a read; for the refresher. */
+    synchronized T update() {
+        if (m_value == null) {
+            if (Cache.instrumented) {
+                long startNs = System.nanoTime();
+                m_value = m_delegate.get();
+                m_stats.evaluated(System.nanoTime() - startNs);
+            } else {
+                m_value = m_delegate.get();
+            }
+        }
+        return m_value;
+    }
+
+    CacheStats getStats() {
+        return m_stats;
+    }
+}
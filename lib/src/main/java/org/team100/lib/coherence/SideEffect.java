@@ -12,24 +12,43 @@ package org.team100.lib.coherence;
  */
 public class SideEffect implements Runnable {
     private final Runnable m_delegate;
+    private final CacheStats m_stats;
     private boolean m_valid;
 
     /** Do not use this, use Cache.ofSideEffect(). */
-    SideEffect(Runnable delegate) {
+    SideEffect(String name, Runnable delegate) {
         m_delegate = delegate;
+        m_stats = new CacheStats(name);
         m_valid = false;
     }
 
     @Override
     public synchronized void run() {
+        if (Cache.instrumented)
+            m_stats.read();
+        update();
+    }
+
+    public synchronized void reset() {
+        m_valid = false;
+    }
+
+    /** Like run() but not counted as a read; for the refresher. */
+    synchronized void update() {
         if (m_valid)
             return;
-        m_delegate.run();
+        if (Cache.instrumented) {
+            long startNs = System.nanoTime();
+            m_delegate.run();
+            m_stats.evaluated(System.nanoTime() - startNs);
+        } else {
+            m_delegate.run();
+        }
         m_valid = true;
     }
 
-    public synchronized void reset() {
-        m_valid = false;
+    CacheStats getStats() {
+        return m_stats;
     }
 
 }
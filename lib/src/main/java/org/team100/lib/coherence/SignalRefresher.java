@@ -0,0 +1,210 @@
+package org.team100.lib.coherence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusCode;
+
+/**
+ * Refreshes CTRE status signals, grouped by CAN bus.
+ *
+ * Each group's signals are kept in an array built at registration time, so
+ * refresh() doesn't allocate. Phoenix refreshes each bus separately anyway, so
+ * the groups can be refreshed concurrently: the first group runs on the
+ * caller's thread, and each of the others has its own worker thread. The
+ * caller waits for all of them before returning, so the signals are fresh
+ * when the caches read them.
+ *
+ * Optionally, instead of taking whatever the latest frames are, refresh() can
+ * wait for new frames (see Phoenix waitForAll()), but never past a deadline
+ * relative to the Takt time, i.e. the start of the cycle.
+ */
+class SignalRefresher {
+    /** Phoenix treats "" and "rio" as the same bus. */
+    private static final String RIO = "rio";
+
+    /** Refreshes one group of signals. */
+    interface Refresh {
+        /**
+         * @param timeoutS if positive, wait up to this long for new data.
+         */
+        StatusCode refresh(double timeoutS, BaseStatusSignal[] signals);
+    }
+
+    /** The real one. */
+    static final Refresh PHOENIX = (timeoutS, signals) -> {
+        if (timeoutS > 0)
+            return BaseStatusSignal.waitForAll(timeoutS, signals);
+        return BaseStatusSignal.refreshAll(signals);
+    };
+
+    private final Refresh m_refresh;
+    private final List<Group> m_groups;
+    private boolean m_parallel;
+    private double m_waitS;
+
+    SignalRefresher(Refresh refresh) {
+        m_refresh = refresh;
+        m_groups = new ArrayList<>();
+        m_parallel = true;
+        m_waitS = 0;
+    }
+
+    /**
+     * Add the signal to the group for its bus. Registration should happen at
+     * startup, on the same thread as refresh().
+     */
+    void register(String bus, BaseStatusSignal signal) {
+        group(bus).add(signal);
+    }
+
+    /** Refresh the bus groups concurrently. */
+    void setParallel(boolean parallel) {
+        m_parallel = parallel;
+    }
+
+    /**
+     * If positive, wait for new data, up to this long after the Takt time.
+     * Otherwise, just take the latest data without waiting.
+     */
+    void setWait(double waitS) {
+        m_waitS = waitS;
+    }
+
+    int groupCount() {
+        return m_groups.size();
+    }
+
+    /** Refresh all the groups, and return when they're all done. */
+    void refresh() {
+        if (m_groups.isEmpty())
+            return;
+        double timeoutS = timeout();
+        if (m_parallel) {
+            for (int i = 1; i < m_groups.size(); ++i) {
+                m_groups.get(i).start(timeoutS);
+            }
+            m_groups.get(0).run(timeoutS);
+            for (int i = 1; i < m_groups.size(); ++i) {
+                m_groups.get(i).join();
+            }
+        } else {
+            for (Group g : m_groups) {
+                g.run(timeoutS);
+            }
+        }
+        for (Group g : m_groups) {
+            g.report();
+        }
+    }
+
+    /** Stop the worker threads. For testing. */
+    void close() {
+        for (Group g : m_groups) {
+            g.close();
+        }
+    }
+
+    /////////////////////////////////////////////////
+
+    /** Time remaining before the deadline, or zero if we're not waiting. */
+    private double timeout() {
+        if (m_waitS <= 0)
+            return 0;
+        return Math.max(0, Takt.get() + m_waitS - Takt.actual());
+    }
+
+    private Group group(String bus) {
+        if (bus == null || bus.isEmpty())
+            bus = RIO;
+        for (Group g : m_groups) {
+            if (g.m_bus.equals(bus))
+                return g;
+        }
+        Group g = new Group(bus);
+        m_groups.add(g);
+        return g;
+    }
+
+    /** The signals on one bus, and the thread that refreshes them. */
+    private class Group {
+        private final String m_bus;
+        private final Semaphore m_start;
+        private final Semaphore m_done;
+        private BaseStatusSignal[] m_signals;
+        /** Created on first use, since the first group doesn't need it. */
+        private Thread m_thread;
+        private double m_timeoutS;
+        private StatusCode m_result;
+
+        Group(String bus) {
+            m_bus = bus;
+            m_start = new Semaphore(0);
+            m_done = new Semaphore(0);
+            m_signals = new BaseStatusSignal[0];
+            m_result = StatusCode.OK;
+        }
+
+        void add(BaseStatusSignal signal) {
+            m_signals = Arrays.copyOf(m_signals, m_signals.length + 1);
+            m_signals[m_signals.length - 1] = signal;
+        }
+
+        /** Refresh on the caller's thread. */
+        void run(double timeoutS) {
+            try {
+                m_result = m_refresh.refresh(timeoutS, m_signals);
+            } catch (RuntimeException e) {
+                System.out.printf("WARNING: signal refresh failed on bus %s: %s\n", m_bus, e);
+                // already reported
+                m_result = StatusCode.OK;
+            }
+        }
+
+        /** Refresh on the worker thread; use join() to wait for it. */
+        void start(double timeoutS) {
+            if (m_thread == null) {
+                m_thread = new Thread(this::work, "SignalRefresher " + m_bus);
+                m_thread.setDaemon(true);
+                m_thread.start();
+            }
+            // the semaphore publishes this to the worker.
+            m_timeoutS = timeoutS;
+            m_start.release();
+        }
+
+        void join() {
+            m_done.acquireUninterruptibly();
+        }
+
+        void report() {
+            if (m_result != StatusCode.OK) {
+                System.out.printf("WARNING: RefreshAll failed on bus %s: %s: %s\n",
+                        m_bus, m_result.toString(), m_result.getDescription());
+            }
+        }
+
+        void close() {
+            if (m_thread != null)
+                m_thread.interrupt();
+        }
+
+        private void work() {
+            while (true) {
+                try {
+                    m_start.acquire();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    run(m_timeoutS);
+                } finally {
+                    m_done.release();
+                }
+            }
+        }
+    }
+}
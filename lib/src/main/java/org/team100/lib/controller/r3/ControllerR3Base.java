@@ -5,11 +5,10 @@ import org.team100.lib.geometry.GlobalVelocityR3;
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.LoggerFactory.BooleanLogger;
-import org.team100.lib.logging.LoggerFactory.ControlR3Logger;
 import org.team100.lib.logging.LoggerFactory.DoubleLogger;
 import org.team100.lib.logging.LoggerFactory.GlobaDeltaR3Logger;
 import org.team100.lib.logging.LoggerFactory.GlobalVelocityR3Logger;
-import org.team100.lib.logging.LoggerFactory.ModelR3Logger;
+import org.team100.lib.logging.LoggerFactory.StructLogger;
 import org.team100.lib.state.ControlR3;
 import org.team100.lib.state.ModelR3;
 
@@ -22,9 +21,9 @@ import edu.wpi.first.math.geometry.Rotation2d;
  */
 public abstract class ControllerR3Base implements ControllerR3 {
 
-    private final ModelR3Logger m_log_measurement;
-    private final ModelR3Logger m_log_currentReference;
-    private final ControlR3Logger m_log_nextReference;
+    private final StructLogger<ModelR3> m_log_measurement;
+    private final StructLogger<ModelR3> m_log_currentReference;
+    private final StructLogger<ControlR3> m_log_nextReference;
 
     private final GlobaDeltaR3Logger m_log_position_error;
     private final GlobalVelocityR3Logger m_log_velocity_error;
@@ -55,9 +54,9 @@ public abstract class ControllerR3Base implements ControllerR3 {
             double omegaTolerance) {
         LoggerFactory log = parent.type(this);
 
-        m_log_measurement = log.modelR3Logger(Level.DEBUG, "measurement");
-        m_log_currentReference = log.modelR3Logger(Level.DEBUG, "current reference");
-        m_log_nextReference = log.controlR3Logger(Level.DEBUG, "next reference");
+        m_log_measurement = log.modelR3StructLogger(Level.DEBUG, "measurement");
+        m_log_currentReference = log.modelR3StructLogger(Level.DEBUG, "current reference");
+        m_log_nextReference = log.controlR3StructLogger(Level.DEBUG, "next reference");
 
         m_log_position_error = log.globalDeltaR3Logger(Level.TRACE, "position error");
         m_log_velocity_error = log.globalVelocityR3Logger(Level.TRACE, "velocity error");
@@ -0,0 +1,346 @@
+package org.team100.lib.framework;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.team100.lib.logging.Level;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
+import org.team100.lib.logging.Logging;
+
+/**
+ * Latency histograms for named phases of the robot loop, so that when we
+ * overrun, we can tell which phase did it.
+ *
+ * Register each phase once, at startup, and keep the handle:
+ *
+ * <pre>
+ * private static final int CACHE = LoopProfiler.instance.phase("Cache.refresh");
+ * ...
+ * LoopProfiler.instance.begin(CACHE);
+ * Cache.refresh();
+ * LoopProfiler.instance.end(CACHE);
+ * </pre>
+ *
+ * Each marker is a call to System.nanoTime() and a few array operations, with
+ * no allocation, so the profiler can stay on at competition.
+ *
+ * The histogram buckets are logarithmic, with 16 buckets per octave, so the
+ * percentiles are within about 6%. The maximum is exact.
+ *
+ * Once a second, periodic() logs the p50, p99, max, overrun count, and
+ * deferral count (see defer()) for each phase, under "LoopProfiler/<name>",
+ * and starts a new window. The totals since the last dump are kept
+ * separately, and written to a file by dump(), which TimedRobot100 does
+ * whenever the robot is disabled. Only the last few dumps are kept.
+ *
+ * This is not thread-safe: use it only from the main loop thread.
+ */
+public class LoopProfiler {
+    /** Buckets below this are one nanosecond wide. */
+    private static final int SUB_BUCKETS = 16;
+    private static final int SUB_BITS = 4;
+    /** The last bucket starts at 2^30 ns, about one second. */
+    private static final int MAX_EXPONENT = 30;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+    private static final long PUBLISH_PERIOD_NS = 1_000_000_000;
+    /** Older dumps are deleted, so they don't fill the RoboRIO disk. */
+    static final int MAX_DUMPS = 10;
+    private static final String DUMP_PREFIX = "profile-";
+    private static final String DUMP_SUFFIX = ".txt";
+
+    public static final LoopProfiler instance = new LoopProfiler(Logging.instance().rootLogger);
+
+    private final LoggerFactory m_log;
+    private Phase[] m_phases = new Phase[0];
+    private long m_lastPublishNs;
+    private boolean m_enabled = true;
+
+    LoopProfiler(LoggerFactory parent) {
+        m_log = parent.type(this);
+        m_lastPublishNs = System.nanoTime();
+    }
+
+    /**
+     * Register a phase with the whole loop period as its budget. Registering the
+     * same name twice returns the same handle.
+     *
+     * @return handle for begin() and end()
+     */
+    public int phase(String name) {
+        return phase(name, TimedRobot100.LOOP_PERIOD_S);
+    }
+
+    /**
+     * Register a phase. Registering the same name twice returns the same handle
+     * and ignores the new budget.
+     *
+     * @param name    for logging
+     * @param budgetS durations longer than this count as overruns.
+     * @return handle for begin() and end()
+     */
+    public int phase(String name, double budgetS) {
+        for (int i = 0; i < m_phases.length; ++i) {
+            if (m_phases[i].m_name.equals(name))
+                return i;
+        }
+        m_phases = Arrays.copyOf(m_phases, m_phases.length + 1);
+        m_phases[m_phases.length - 1] = new Phase(m_log.name(name), name, (long) (budgetS * 1e9));
+        return m_phases.length - 1;
+    }
+
+    /** Turn the markers on or off. Off, they do nothing. */
+    public void setEnabled(boolean enabled) {
+        m_enabled = enabled;
+    }
+
+    /** Mark the start of the phase. Phases may nest, but not recurse. */
+    public void begin(int phase) {
+        if (!m_enabled)
+            return;
+        m_phases[phase].m_startNs = System.nanoTime();
+    }
+
+    /** Mark the end of the phase, and record its duration. */
+    public void end(int phase) {
+        if (!m_enabled)
+            return;
+        Phase p = m_phases[phase];
+        p.record(System.nanoTime() - p.m_startNs);
+    }
+
+    /** Record a duration measured some other way. */
+    public void record(int phase, long durationNs) {
+        if (!m_enabled)
+            return;
+        m_phases[phase].record(durationNs);
+    }
+
+    /** Record that the phase was due, but was put off for lack of time. */
+    public void defer(int phase) {
+        if (!m_enabled)
+            return;
+        m_phases[phase].defer();
+    }
+
+    /** Publish, if it's been a second since the last time. */
+    public void periodic() {
+        long now = System.nanoTime();
+        if (now - m_lastPublishNs < PUBLISH_PERIOD_NS)
+            return;
+        m_lastPublishNs = now;
+        publish();
+    }
+
+    /**
+     * Write the totals since the previous dump to a text file in the directory,
+     * and start new totals. The file is named by the wall clock, so it doesn't
+     * overwrite previous dumps, and all but the newest MAX_DUMPS are deleted.
+     *
+     * @return the file
+     */
+    public Path dump(Path dir) throws IOException {
+        StringBuilder b = new StringBuilder();
+        b.append(String.format("%-40s %10s %10s %10s %10s %10s %10s %10s\n",
+                "phase", "count", "mean (ms)", "p50 (ms)", "p99 (ms)", "max (ms)", "overruns", "deferred"));
+        for (Phase p : m_phases) {
+            b.append(String.format("%-40s %10d %10.3f %10.3f %10.3f %10.3f %10d %10d\n",
+                    p.m_name,
+                    p.m_total.m_count,
+                    p.m_total.m_count == 0 ? 0 : p.m_total.m_sumNs / 1e6 / p.m_total.m_count,
+                    p.m_total.percentile(0.5) / 1e6,
+                    p.m_total.percentile(0.99) / 1e6,
+                    p.m_total.m_maxNs / 1e6,
+                    p.m_total.m_overruns,
+                    p.m_total.m_deferred));
+            p.m_total.clear();
+        }
+        Path path = dir.resolve(DUMP_PREFIX + System.currentTimeMillis() + DUMP_SUFFIX);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.writeString(tmp, b);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        prune(dir);
+        return path;
+    }
+
+    /** Delete all but the newest MAX_DUMPS dumps in the directory. */
+    private static void prune(Path dir) throws IOException {
+        List<Path> dumps = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(
+                dir, DUMP_PREFIX + "*" + DUMP_SUFFIX)) {
+            for (Path p : stream) {
+                if (dumpTime(p) >= 0)
+                    dumps.add(p);
+            }
+        }
+        dumps.sort(Comparator.comparingLong(LoopProfiler::dumpTime));
+        for (int i = 0; i < dumps.size() - MAX_DUMPS; ++i) {
+            Files.deleteIfExists(dumps.get(i));
+        }
+    }
+
+    /** The wall clock time in the name of a dump, or -1 if it's not a dump. */
+    static long dumpTime(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(DUMP_PREFIX) || !name.endsWith(DUMP_SUFFIX))
+            return -1;
+        try {
+            return Long.parseLong(name.substring(
+                    DUMP_PREFIX.length(), name.length() - DUMP_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Log the current window for each phase, and start a new window. */
+    void publish() {
+        for (Phase p : m_phases) {
+            p.publish();
+        }
+    }
+
+    /** Percentile of the current window, in seconds. */
+    double percentile(int phase, double p) {
+        return m_phases[phase].m_window.percentile(p) / 1e9;
+    }
+
+    /** Max of the current window, in seconds. */
+    double max(int phase) {
+        return m_phases[phase].m_window.m_maxNs / 1e9;
+    }
+
+    /** Overruns in the current window. */
+    int overruns(int phase) {
+        return m_phases[phase].m_window.m_overruns;
+    }
+
+    /** Deferrals in the current window. */
+    int deferred(int phase) {
+        return m_phases[phase].m_window.m_deferred;
+    }
+
+    /** Histogram bucket for the duration. */
+    static int bucket(long ns) {
+        if (ns < SUB_BUCKETS)
+            return (int) Math.max(0, ns);
+        int exponent = 63 - Long.numberOfLeadingZeros(ns);
+        if (exponent > MAX_EXPONENT)
+            return BUCKETS - 1;
+        int mantissa = (int) (ns >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + mantissa;
+    }
+
+    /** Smallest duration in the bucket. */
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        int mantissa = bucket % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + mantissa) << (exponent - SUB_BITS);
+    }
+
+    ////////////////////////////////////////////////////
+
+    /** Counts by bucket, plus the exact max and sum. */
+    private static class Histogram {
+        private final long[] m_counts = new long[BUCKETS];
+        private int m_count;
+        private long m_sumNs;
+        private long m_maxNs;
+        private int m_overruns;
+        private int m_deferred;
+
+        void record(long ns, boolean overrun) {
+            m_counts[bucket(ns)]++;
+            m_count++;
+            m_sumNs += ns;
+            if (ns > m_maxNs)
+                m_maxNs = ns;
+            if (overrun)
+                m_overruns++;
+        }
+
+        /**
+         * The top of the bucket containing the percentile, but not more than the
+         * max, in nanoseconds.
+         */
+        long percentile(double p) {
+            if (m_count == 0)
+                return 0;
+            long rank = (long) Math.ceil(p * m_count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; ++i) {
+                seen += m_counts[i];
+                if (seen >= rank) {
+                    if (i == BUCKETS - 1)
+                        return m_maxNs;
+                    return Math.min(lowerBound(i + 1) - 1, m_maxNs);
+                }
+            }
+            return m_maxNs;
+        }
+
+        void clear() {
+            Arrays.fill(m_counts, 0);
+            m_count = 0;
+            m_sumNs = 0;
+            m_maxNs = 0;
+            m_overruns = 0;
+            m_deferred = 0;
+        }
+    }
+
+    private static class Phase {
+        private final String m_name;
+        private final long m_budgetNs;
+        private final Histogram m_window = new Histogram();
+        private final Histogram m_total = new Histogram();
+        private final DoubleLogger m_log_p50;
+        private final DoubleLogger m_log_p99;
+        private final DoubleLogger m_log_max;
+        private final IntLogger m_log_count;
+        private final IntLogger m_log_overruns;
+        private final IntLogger m_log_deferred;
+        private long m_startNs;
+
+        Phase(LoggerFactory log, String name, long budgetNs) {
+            m_name = name;
+            m_budgetNs = budgetNs;
+            m_log_p50 = log.doubleLogger(Level.COMP, "p50 (s)");
+            m_log_p99 = log.doubleLogger(Level.COMP, "p99 (s)");
+            m_log_max = log.doubleLogger(Level.COMP, "max (s)");
+            m_log_count = log.intLogger(Level.COMP, "count");
+            m_log_overruns = log.intLogger(Level.COMP, "overruns");
+            m_log_deferred = log.intLogger(Level.COMP, "deferred");
+        }
+
+        void record(long ns) {
+            boolean overrun = ns > m_budgetNs;
+            m_window.record(ns, overrun);
+            m_total.record(ns, overrun);
+        }
+
+        void defer() {
+            m_window.m_deferred++;
+            m_total.m_deferred++;
+        }
+
+        void publish() {
+            m_log_p50.log(m_window.percentile(0.5) / 1e9);
+            m_log_p99.log(m_window.percentile(0.99) / 1e9);
+            m_log_max.log(m_window.m_maxNs / 1e9);
+            m_log_count.log(m_window.m_count);
+            m_log_overruns.log(m_window.m_overruns);
+            m_log_deferred.log(m_window.m_deferred);
+            m_window.clear();
+        }
+    }
+}
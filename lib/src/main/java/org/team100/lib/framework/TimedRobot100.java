@@ -1,5 +1,8 @@
 package org.team100.lib.framework;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.PriorityQueue;
 
 import org.team100.lib.coherence.Takt;
@@ -7,25 +10,56 @@ import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.LoggerFactory.DoubleLogger;
 import org.team100.lib.logging.Logging;
+import org.team100.lib.tuning.Mutable;
 
 import edu.wpi.first.hal.DriverStationJNI;
 import edu.wpi.first.hal.FRCNetComm.tInstances;
 import edu.wpi.first.hal.FRCNetComm.tResourceType;
 import edu.wpi.first.hal.HAL;
 import edu.wpi.first.hal.NotifierJNI;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.IterativeRobotBase;
 
 /**
  * Copy of {@link edu.wpi.first.wpilibj.TimedRobot} in an effort to improve
  * instrumentation.
+ * 
+ * Each callback, and each part of the main loop, is a LoopProfiler phase, and
+ * the profile is written to the operating directory whenever the real robot
+ * is disabled.
+ * 
+ * Callbacks are either CONTROL or BEST_EFFORT. CONTROL callbacks always run
+ * when they're due, as in TimedRobot. A BEST_EFFORT callback runs only if it
+ * fits in the time remaining before the next CONTROL deadline; otherwise it's
+ * deferred to its next period, and counted by the profiler. When we fall
+ * behind, BEST_EFFORT callbacks skip the periods they missed, rather than
+ * running back-to-back to catch up. So visualization, tuning, and diagnostics
+ * can't make the control loop late.
  */
 public class TimedRobot100 extends IterativeRobotBase {
+    /** Keep at least this much time free before the next CONTROL deadline. */
+    private static final double MIN_SLACK_S = 0.001;
+    /** Per-period decay of the cost estimate, so one slow run is forgotten. */
+    private static final double COST_DECAY = 0.9;
+
+    public enum Priority {
+        /** Always runs when due. */
+        CONTROL,
+        /** Runs when due, if there's time. */
+        BEST_EFFORT
+    }
 
     static class Callback implements Comparable<Callback> {
         public Runnable func;
         public double period;
         public double expirationTime;
         public DoubleLogger logger;
+        /** LoopProfiler handle. */
+        public int phase;
+        public Priority priority;
+        /** Decaying peak duration in seconds, to predict the next run. */
+        public double cost;
 
         /**
          * Construct a callback container.
@@ -36,9 +70,10 @@ public class TimedRobot100 extends IterativeRobotBase {
          * @param periodSeconds    The period at which to run the callback in seconds.
          * @param offsetSeconds    The offset from the common starting time in seconds.
          * @param name             for logging
+         * @param priority         CONTROL callbacks are never deferred.
          */
         Callback(LoggerFactory logger, Runnable func, double startTimeSeconds, double periodSeconds,
-                double offsetSeconds, String name) {
+                double offsetSeconds, String name, Priority priority) {
             this.func = func;
             this.period = periodSeconds;
             this.expirationTime = startTimeSeconds
@@ -47,16 +82,45 @@ public class TimedRobot100 extends IterativeRobotBase {
                             * this.period
                     + this.period;
             this.logger = logger.doubleLogger(Level.COMP, "duration (s)/" + name);
+            this.phase = LoopProfiler.instance.phase(name, periodSeconds);
+            this.priority = priority;
         }
 
         public void run() {
-
-            double startWaitingS = Takt.actual();
+            long startNs = System.nanoTime();
             func.run();
-            double endWaitingS = Takt.actual();
-            double durationS = endWaitingS - startWaitingS;
-            this.logger.log(() -> durationS);
+            record(System.nanoTime() - startNs);
+        }
 
+        /** Account for a run that took this long. Package-private for testing. */
+        void record(long durationNs) {
+            LoopProfiler.instance.record(phase, durationNs);
+            double durationS = durationNs / 1e9;
+            this.logger.log(durationS);
+            this.cost = Math.max(durationS, this.cost * COST_DECAY);
+        }
+
+        /** True if the predicted duration fits in the slack. */
+        public boolean fits(double slackS) {
+            return slackS > this.cost + MIN_SLACK_S;
+        }
+
+        /** Skip this period. */
+        public void defer() {
+            LoopProfiler.instance.defer(phase);
+            this.cost *= COST_DECAY;
+        }
+
+        /**
+         * Schedule the next run. BEST_EFFORT callbacks skip any periods that are
+         * already past.
+         */
+        public void advance(double nowS) {
+            this.expirationTime += this.period;
+            if (priority == Priority.BEST_EFFORT && this.expirationTime <= nowS) {
+                this.expirationTime += (Math.floor((nowS - this.expirationTime) / this.period) + 1)
+                        * this.period;
+            }
         }
 
         @Override
@@ -96,15 +160,26 @@ public class TimedRobot100 extends IterativeRobotBase {
     private double m_startTime;
 
     private final PriorityQueue<Callback> m_callbacks = new PriorityQueue<>();
+    /** Also in m_callbacks, for finding the next CONTROL deadline. */
+    private final List<Callback> m_control = new ArrayList<>();
 
     private final DoubleLogger m_log_slack;
 
+    private final LoopProfiler m_profiler = LoopProfiler.instance;
+    private final int m_loggingUpdate = m_profiler.phase("Logging.update");
+    private final int m_loopFunc = m_profiler.phase("loopFunc");
+    private final int m_loggingPeriodic = m_profiler.phase("Logging.periodic");
+    /** Start disabled, so there's no dump at startup. */
+    private boolean m_wasDisabled = true;
+
     protected TimedRobot100() {
         super(LOOP_PERIOD_S);
         m_robotLogger = Logging.instance().rootLogger.type(this);
         m_log_slack = m_robotLogger.doubleLogger(Level.COMP, "slack time (s)");
         m_startTime = Takt.actual();
-        addPeriodic(this::loopFunc, TimedRobot100.LOOP_PERIOD_S, "main loop");
+        addPeriodic(this::mainLoop, TimedRobot100.LOOP_PERIOD_S, "main loop");
+        // Tuning values don't need to change in any particular loop.
+        addPeriodic(Mutable::pollAll, 5 * LOOP_PERIOD_S, LOOP_PERIOD_S / 2, "Mutable", Priority.BEST_EFFORT);
         NotifierJNI.setNotifierName(m_notifier, "TimedRobot");
         HAL.report(tResourceType.kResourceType_Framework, tInstances.kFramework_Timed);
     }
@@ -150,24 +225,75 @@ public class TimedRobot100 extends IterativeRobotBase {
             if (Logging.instance().getLevel().admit(Level.TRACE) && slackS < 0.001) {
                 System.out.printf("WARNING: Slack time %f is too low!\n", slackS);
             }
-            m_log_slack.log(() -> slackS);
-
-            callback.run();
+            m_log_slack.log(slackS);
 
-            callback.expirationTime += callback.period;
-            m_callbacks.add(callback);
+            dispatch(callback, curTime);
 
             // Process all other callbacks that are ready to run
             // note when we're falling behind, we stay in this inner loop,
-            // perhaps never touching the outer loop.
+            // perhaps never touching the outer loop, but only for CONTROL
+            // callbacks, since BEST_EFFORT ones are deferred.
             while ((long) (m_callbacks.peek().expirationTime * 1e6) <= curTime) {
-                callback = m_callbacks.poll();
+                dispatch(m_callbacks.poll(), curTime);
+            }
+        }
+    }
+
+    /**
+     * Run the callback, or defer it if it's BEST_EFFORT and it doesn't fit, and
+     * put it back in the queue.
+     * 
+     * @param curTime notifier time in microseconds
+     */
+    private void dispatch(Callback callback, long curTime) {
+        if (callback.priority == Priority.BEST_EFFORT && !callback.fits(controlSlack())) {
+            callback.defer();
+        } else {
+            callback.run();
+        }
+        callback.advance(curTime / 1e6);
+        m_callbacks.add(callback);
+    }
 
-                callback.run();
+    /** Time until the next CONTROL callback is due, in seconds. */
+    private double controlSlack() {
+        double next = Double.MAX_VALUE;
+        for (int i = 0; i < m_control.size(); ++i) {
+            next = Math.min(next, m_control.get(i).expirationTime);
+        }
+        return next - Takt.actual();
+    }
 
-                callback.expirationTime += callback.period;
-                m_callbacks.add(callback);
-            }
+    /**
+     * Snapshots the log level, runs the usual robot callbacks, and then writes out
+     * everything they logged, so the buffered transport publishes once per loop.
+     */
+    private void mainLoop() {
+        m_profiler.begin(m_loggingUpdate);
+        Logging.instance().update();
+        m_profiler.end(m_loggingUpdate);
+        m_profiler.begin(m_loopFunc);
+        loopFunc();
+        m_profiler.end(m_loopFunc);
+        // Publish the histograms before the flush, so they go out this loop.
+        m_profiler.periodic();
+        m_profiler.begin(m_loggingPeriodic);
+        Logging.instance().periodic();
+        m_profiler.end(m_loggingPeriodic);
+        boolean disabled = DriverStation.isDisabled();
+        if (disabled && !m_wasDisabled && isReal()) {
+            dumpProfile();
+        }
+        m_wasDisabled = disabled;
+    }
+
+    /** Write the profile of the enabled period that just ended. */
+    private void dumpProfile() {
+        try {
+            System.out.printf("Wrote profile %s\n",
+                    m_profiler.dump(Filesystem.getOperatingDirectory().toPath()));
+        } catch (IOException e) {
+            System.out.printf("WARNING: profile dump failed: %s\n", e.getMessage());
         }
     }
 
@@ -189,7 +315,7 @@ public class TimedRobot100 extends IterativeRobotBase {
      * @param periodSeconds The period at which to run the callback in seconds.
      */
     public void addPeriodic(Runnable callback, double periodSeconds, String name) {
-        m_callbacks.add(new Callback(m_robotLogger, callback, m_startTime, periodSeconds, 0.0, name));
+        addPeriodic(callback, periodSeconds, 0.0, name, Priority.CONTROL);
     }
 
     /**
@@ -208,7 +334,27 @@ public class TimedRobot100 extends IterativeRobotBase {
      *                      to TimedRobot.
      */
     public void addPeriodic(Runnable callback, double periodSeconds, double offsetSeconds, String name) {
-        m_callbacks.add(new Callback(m_robotLogger, callback, m_startTime, periodSeconds, offsetSeconds, name));
+        addPeriodic(callback, periodSeconds, offsetSeconds, name, Priority.CONTROL);
+    }
+
+    /**
+     * Add a callback with a priority. BEST_EFFORT callbacks are deferred when
+     * there's not enough time before the next CONTROL deadline, so give them an
+     * offset that puts them away from the main loop, e.g. half the period.
+     *
+     * @param callback      The callback to run.
+     * @param periodSeconds The period at which to run the callback in seconds.
+     * @param offsetSeconds The offset from the common starting time in seconds.
+     * @param name          for logging
+     * @param priority      CONTROL or BEST_EFFORT
+     */
+    public void addPeriodic(Runnable callback, double periodSeconds, double offsetSeconds, String name,
+            Priority priority) {
+        Callback c = new Callback(m_robotLogger, callback, m_startTime, periodSeconds, offsetSeconds, name,
+                priority);
+        m_callbacks.add(c);
+        if (priority == Priority.CONTROL)
+            m_control.add(c);
     }
 
 }
@@ -0,0 +1,348 @@
+package org.team100.lib.kinematics.urdf;
+
+import java.util.List;
+
+import org.ejml.data.DMatrixRMaj;
+
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Quaternion;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Translation3d;
+
+/**
+ * The joints of a URDFRobot, compiled into arrays for fast forward kinematics.
+ *
+ * The joints are sorted once, parents first, so that forward kinematics is a
+ * single pass, with no name lookups, no maps, and no allocation. Poses are
+ * packed into a double array, STRIDE per joint, as translation (x, y, z)
+ * followed by quaternion (w, x, y, z), indexed the same as the joint list.
+ *
+ * The configuration array is also indexed the same as the joint list, so the
+ * fixed joints should be at the end, as in URDFAL5D.
+ *
+ * Not thread-safe: callers supply the output arrays, so use one per thread.
+ */
+class URDFChain {
+    /** Doubles per pose: translation xyz, quaternion wxyz. */
+    static final int STRIDE = 7;
+
+    private static final int REVOLUTE = 0;
+    private static final int PRISMATIC = 1;
+    private static final int FIXED = 2;
+
+    private final int m_size;
+    /** Joint indices, parents first. */
+    private final int[] m_order;
+    /** Parent joint index, or -1 for a root. */
+    private final int[] m_parent;
+    private final int[] m_type;
+    /** Origin transform, STRIDE per joint. */
+    private final double[] m_origin;
+    /** Unit joint axis, three per joint. */
+    private final double[] m_axis;
+
+    URDFChain(List<URDFJoint> joints) {
+        m_size = joints.size();
+        m_parent = new int[m_size];
+        m_type = new int[m_size];
+        m_origin = new double[m_size * STRIDE];
+        m_axis = new double[m_size * 3];
+        for (int i = 0; i < m_size; ++i) {
+            URDFJoint joint = joints.get(i);
+            m_parent[i] = -1;
+            for (int p = 0; p < m_size; ++p) {
+                if (joints.get(p).child() == joint.parent())
+                    m_parent[i] = p;
+            }
+            m_type[i] = switch (joint.type()) {
+                case revolute, continuous -> REVOLUTE;
+                case prismatic -> PRISMATIC;
+                case fixed -> FIXED;
+                default -> throw new UnsupportedOperationException();
+            };
+            set(joint.origin(), m_origin, i);
+            if (m_type[i] != FIXED) {
+                double x = joint.axis().get(0);
+                double y = joint.axis().get(1);
+                double z = joint.axis().get(2);
+                double norm = Math.sqrt(x * x + y * y + z * z);
+                m_axis[3 * i] = x / norm;
+                m_axis[3 * i + 1] = y / norm;
+                m_axis[3 * i + 2] = z / norm;
+            }
+        }
+        m_order = new int[m_size];
+        int[] state = new int[m_size];
+        int n = 0;
+        for (int i = 0; i < m_size; ++i) {
+            n = visit(i, state, n);
+        }
+    }
+
+    int size() {
+        return m_size;
+    }
+
+    /** Parent joint index, or -1 for a root. */
+    int parent(int i) {
+        return m_parent[i];
+    }
+
+    /**
+     * Poses of all the joints.
+     *
+     * @param q     configuration, indexed by joint; fixed joints are ignored.
+     * @param poses output, STRIDE per joint
+     */
+    void forward(double[] q, double[] poses) {
+        for (int k = 0; k < m_size; ++k) {
+            int i = m_order[k];
+            int o = i * STRIDE;
+            // origin transform, in the parent frame
+            double tx = m_origin[o];
+            double ty = m_origin[o + 1];
+            double tz = m_origin[o + 2];
+            double qw = m_origin[o + 3];
+            double qx = m_origin[o + 4];
+            double qy = m_origin[o + 5];
+            double qz = m_origin[o + 6];
+            // then the joint motion, in the origin frame
+            double ax = m_axis[3 * i];
+            double ay = m_axis[3 * i + 1];
+            double az = m_axis[3 * i + 2];
+            if (m_type[i] == REVOLUTE) {
+                double half = q[i] / 2;
+                double c = Math.cos(half);
+                double s = Math.sin(half);
+                double w = qw * c - (qx * ax + qy * ay + qz * az) * s;
+                double x = (qw * ax + qy * az - qz * ay) * s + qx * c;
+                double y = (qw * ay + qz * ax - qx * az) * s + qy * c;
+                double z = (qw * az + qx * ay - qy * ax) * s + qz * c;
+                qw = w;
+                qx = x;
+                qy = y;
+                qz = z;
+            } else if (m_type[i] == PRISMATIC) {
+                // origin rotation applied to the axis
+                double vx = ax * q[i];
+                double vy = ay * q[i];
+                double vz = az * q[i];
+                double cx = 2 * (qy * vz - qz * vy);
+                double cy = 2 * (qz * vx - qx * vz);
+                double cz = 2 * (qx * vy - qy * vx);
+                tx += vx + qw * cx + qy * cz - qz * cy;
+                ty += vy + qw * cy + qz * cx - qx * cz;
+                tz += vz + qw * cz + qx * cy - qy * cx;
+            }
+            int p = m_parent[i];
+            int out = i * STRIDE;
+            if (p < 0) {
+                poses[out] = tx;
+                poses[out + 1] = ty;
+                poses[out + 2] = tz;
+                poses[out + 3] = qw;
+                poses[out + 4] = qx;
+                poses[out + 5] = qy;
+                poses[out + 6] = qz;
+                continue;
+            }
+            int po = p * STRIDE;
+            double pw = poses[po + 3];
+            double px = poses[po + 4];
+            double py = poses[po + 5];
+            double pz = poses[po + 6];
+            // parent rotation applied to the local translation
+            double cx = 2 * (py * tz - pz * ty);
+            double cy = 2 * (pz * tx - px * tz);
+            double cz = 2 * (px * ty - py * tx);
+            poses[out] = poses[po] + tx + pw * cx + py * cz - pz * cy;
+            poses[out + 1] = poses[po + 1] + ty + pw * cy + pz * cx - px * cz;
+            poses[out + 2] = poses[po + 2] + tz + pw * cz + px * cy - py * cx;
+            // parent rotation then local rotation
+            poses[out + 3] = pw * qw - px * qx - py * qy - pz * qz;
+            poses[out + 4] = pw * qx + px * qw + py * qz - pz * qy;
+            poses[out + 5] = pw * qy - px * qz + py * qw + pz * qx;
+            poses[out + 6] = pw * qz + px * qy - py * qx + pz * qw;
+        }
+    }
+
+    /**
+     * Body Jacobian of the specified joint, i.e. the twist of the joint frame,
+     * expressed in that frame, per unit motion of each configuration variable,
+     * in the twist order of GeometryUtil.toVec(): translation then rotation.
+     *
+     * Columns for joints that aren't ancestors of the specified joint are zero.
+     *
+     * @param poses from forward()
+     * @param end   joint index at the end of the chain, e.g. the tool point
+     * @param j     output, 6 x (number of active joints)
+     */
+    void jacobian(double[] poses, int end, DMatrixRMaj j) {
+        j.zero();
+        int e = end * STRIDE;
+        for (int i = end; i >= 0; i = m_parent[i]) {
+            if (m_type[i] == FIXED)
+                continue;
+            int o = i * STRIDE;
+            // joint axis in the world frame; the joint's own motion doesn't
+            // change it.
+            double ax = m_axis[3 * i];
+            double ay = m_axis[3 * i + 1];
+            double az = m_axis[3 * i + 2];
+            double w = poses[o + 3];
+            double x = poses[o + 4];
+            double y = poses[o + 5];
+            double z = poses[o + 6];
+            double cx = 2 * (y * az - z * ay);
+            double cy = 2 * (z * ax - x * az);
+            double cz = 2 * (x * ay - y * ax);
+            double wx = ax + w * cx + y * cz - z * cy;
+            double wy = ay + w * cy + z * cx - x * cz;
+            double wz = az + w * cz + x * cy - y * cx;
+            if (m_type[i] == PRISMATIC) {
+                // pure translation along the axis
+                setColumn(poses, e, j, i, 0, wx, wy, wz);
+                continue;
+            }
+            // rotation about the axis, which also moves the end around it:
+            // v = w x (p_end - p_joint)
+            double px = poses[e] - poses[o];
+            double py = poses[e + 1] - poses[o + 1];
+            double pz = poses[e + 2] - poses[o + 2];
+            setColumn(poses, e, j, i, 0,
+                    wy * pz - wz * py,
+                    wz * px - wx * pz,
+                    wx * py - wy * px);
+            setColumn(poses, e, j, i, 3, wx, wy, wz);
+        }
+    }
+
+    /**
+     * The twist from pose a to pose b, i.e. the log of a^-1 b, the same as
+     * Pose3d.log(), in the order of GeometryUtil.toVec().
+     *
+     * @param a     packed poses
+     * @param ia    index of the pose in a
+     * @param b     packed poses
+     * @param ib    index of the pose in b
+     * @param twist output, length 6 or more
+     */
+    static void log(double[] a, int ia, double[] b, int ib, double[] twist) {
+        int oa = ia * STRIDE;
+        int ob = ib * STRIDE;
+        // inverse of the a rotation
+        double aw = a[oa + 3];
+        double ax = -a[oa + 4];
+        double ay = -a[oa + 5];
+        double az = -a[oa + 6];
+        double bw = b[ob + 3];
+        double bx = b[ob + 4];
+        double by = b[ob + 5];
+        double bz = b[ob + 6];
+        // relative rotation
+        double w = aw * bw - ax * bx - ay * by - az * bz;
+        double x = aw * bx + ax * bw + ay * bz - az * by;
+        double y = aw * by - ax * bz + ay * bw + az * bx;
+        double z = aw * bz + ax * by - ay * bx + az * bw;
+        // relative translation, in the a frame
+        double dx = b[ob] - a[oa];
+        double dy = b[ob + 1] - a[oa + 1];
+        double dz = b[ob + 2] - a[oa + 2];
+        double cx = 2 * (ay * dz - az * dy);
+        double cy = 2 * (az * dx - ax * dz);
+        double cz = 2 * (ax * dy - ay * dx);
+        double tx = dx + aw * cx + ay * cz - az * cy;
+        double ty = dy + aw * cy + az * cx - ax * cz;
+        double tz = dz + aw * cz + ax * cy - ay * cx;
+        // rotation vector, same as Quaternion.toRotationVector()
+        double norm = Math.sqrt(x * x + y * y + z * z);
+        double coeff;
+        if (norm < 1e-9) {
+            coeff = 2.0 / w - 2.0 / 3.0 * norm * norm / (w * w * w);
+        } else if (w < 0.0) {
+            coeff = 2.0 * Math.atan2(-norm, -w) / norm;
+        } else {
+            coeff = 2.0 * Math.atan2(norm, w) / norm;
+        }
+        double rx = coeff * x;
+        double ry = coeff * y;
+        double rz = coeff * z;
+        // translation, V^-1 t = t - 1/2 r x t + C r x (r x t)
+        double thetaSq = rx * rx + ry * ry + rz * rz;
+        double c;
+        if (thetaSq < 1e-9 * 1e-9) {
+            c = 1 / 12.0 + thetaSq / 720.0 + thetaSq * thetaSq / 30240.0;
+        } else {
+            double theta = Math.sqrt(thetaSq);
+            double A = Math.sin(theta) / theta;
+            double B = (1 - Math.cos(theta)) / thetaSq;
+            c = (1 - A / (2 * B)) / thetaSq;
+        }
+        double rtx = ry * tz - rz * ty;
+        double rty = rz * tx - rx * tz;
+        double rtz = rx * ty - ry * tx;
+        twist[0] = tx - 0.5 * rtx + c * (ry * rtz - rz * rty);
+        twist[1] = ty - 0.5 * rty + c * (rz * rtx - rx * rtz);
+        twist[2] = tz - 0.5 * rtz + c * (rx * rty - ry * rtx);
+        twist[3] = rx;
+        twist[4] = ry;
+        twist[5] = rz;
+    }
+
+    /** Pack the pose into the array at index i. */
+    static void set(Pose3d pose, double[] poses, int i) {
+        int o = i * STRIDE;
+        Quaternion q = pose.getRotation().getQuaternion();
+        poses[o] = pose.getX();
+        poses[o + 1] = pose.getY();
+        poses[o + 2] = pose.getZ();
+        poses[o + 3] = q.getW();
+        poses[o + 4] = q.getX();
+        poses[o + 5] = q.getY();
+        poses[o + 6] = q.getZ();
+    }
+
+    /** Unpack the pose at index i. */
+    static Pose3d get(double[] poses, int i) {
+        int o = i * STRIDE;
+        return new Pose3d(
+                new Translation3d(poses[o], poses[o + 1], poses[o + 2]),
+                new Rotation3d(new Quaternion(poses[o + 3], poses[o + 4], poses[o + 5], poses[o + 6])));
+    }
+
+    ///////////////////////////////////////////////////
+
+    /** Depth-first, so that parents come first. */
+    private int visit(int i, int[] state, int n) {
+        if (state[i] == 2)
+            return n;
+        if (state[i] == 1)
+            throw new IllegalArgumentException("joint cycle");
+        state[i] = 1;
+        if (m_parent[i] >= 0)
+            n = visit(m_parent[i], state, n);
+        state[i] = 2;
+        m_order[n] = i;
+        return n + 1;
+    }
+
+    /**
+     * Rotate the world-frame vector v into the frame of the end pose, and put
+     * it in three rows of column col of j.
+     */
+    private static void setColumn(
+            double[] poses, int e, DMatrixRMaj j, int col, int row,
+            double vx, double vy, double vz) {
+        // inverse of the end rotation
+        double w = poses[e + 3];
+        double x = -poses[e + 4];
+        double y = -poses[e + 5];
+        double z = -poses[e + 6];
+        double cx = 2 * (y * vz - z * vy);
+        double cy = 2 * (z * vx - x * vz);
+        double cz = 2 * (x * vy - y * vx);
+        j.set(row, col, vx + w * cx + y * cz - z * cy);
+        j.set(row + 1, col, vy + w * cy + z * cx - x * cz);
+        j.set(row + 2, col, vz + w * cz + x * cy - y * cx);
+    }
+}
@@ -3,17 +3,14 @@ package org.team100.lib.kinematics.urdf;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
 
-import org.team100.lib.geometry.GeometryUtil;
-import org.team100.lib.optimization.NewtonsMethod;
+import org.ejml.data.DMatrixRMaj;
+import org.team100.lib.optimization.AnalyticNewtonsMethod;
 
 import edu.wpi.first.math.Nat;
 import edu.wpi.first.math.Num;
 import edu.wpi.first.math.Vector;
 import edu.wpi.first.math.geometry.Pose3d;
-import edu.wpi.first.math.geometry.Transform3d;
-import edu.wpi.first.math.numbers.N6;
 
 /**
  * This is a partial implementation of the URDF object model.
@@ -53,23 +50,41 @@ public class URDFRobot<Q extends Num> {
     private final List<URDFLink> m_links;
     private final List<URDFJoint> m_joints;
     private final Nat<Q> m_qDim;
+    private final URDFChain m_chain;
+    /** Scratch for forward kinematics, packed as in URDFChain. */
+    private final double[] m_poses;
+    /** Inverse solvers, by end joint name, made on first use. */
+    private final Map<String, Inverse> m_inverses = new HashMap<>();
 
     public URDFRobot(Nat<Q> qDim, String name, List<URDFLink> links, List<URDFJoint> joints) {
         m_qDim = qDim;
         m_name = name;
         m_links = links;
         m_joints = joints;
+        m_chain = new URDFChain(joints);
+        m_poses = new double[joints.size() * URDFChain.STRIDE];
     }
 
     /**
      * Solve forward kinematics for all joints.
      * 
      * Key is joint name.
+     * 
+     * This is a wrapper around the compiled chain, which is much faster if you
+     * don't need the names.
      */
     public Map<String, Pose3d> forward(Map<String, Double> qMap) {
+        double[] q = new double[m_joints.size()];
+        for (int i = 0; i < m_joints.size(); ++i) {
+            URDFJoint joint = m_joints.get(i);
+            if (joint.active())
+                q[i] = qMap.get(joint.name());
+        }
+        double[] packed = new double[m_joints.size() * URDFChain.STRIDE];
+        m_chain.forward(q, packed);
         Map<String, Pose3d> poses = new HashMap<>();
-        for (URDFJoint joint : m_joints) {
-            forward(poses, joint.name(), qMap);
+        for (int i = 0; i < m_joints.size(); ++i) {
+            poses.put(m_joints.get(i).name(), URDFChain.get(packed, i));
         }
         return poses;
     }
@@ -92,103 +107,118 @@ public class URDFRobot<Q extends Num> {
      * 
      * if not, then the "error" is between two tangent vectors whose origin is far
      * away.
+     * 
+     * The solver for each end joint is made once and reused, so this isn't
+     * thread-safe.
      */
     public Map<String, Double> inverse(
             Vector<Q> q0,
             double dqLimit,
             String jointName,
             Pose3d goal) {
-        Function<Vector<Q>, Pose3d> fwd = q -> {
-            Pose3d pose = forward(qMap(q)).get(jointName);
-            return pose;
-        };
-
-        Function<Vector<Q>, Vector<N6>> err = q -> GeometryUtil.toVec(goal.log(fwd.apply(q)));
-
-        // this function always uses pose3d so the goal dim is always N6.
-        Nat<N6> twistDim = Nat.N6();
-
-        // if the error is too large, then movements become jerky -- the
-        // distance between current and desired pose can be within the
-        // error. so keep this small, a few mm.
-        double tolerance = 2e-3;
-
-        // sometimes the solver seems to circle around the goal
-        // but it only happens in the middle of movements, when the
-        // initial and goal are far apart.
-
-        // regardless, each iteration (on my fast machine) takes 50 us,
-        // so we can only afford to do, say, 20, even when random-restarting, so make
-        // each iteration limit low.
-        int iterations = 8;
-
-        // random restart tries to escape local minima.
-        // don't try for too long, it's better to have the wrong answer sooner than the
-        // right answer after a long delay.
-        int restarts = 3;
-
-        NewtonsMethod<Q, N6> solver = new NewtonsMethod<>(
-                m_qDim, twistDim, err,
-                minQ(m_qDim), maxQ(m_qDim),
-                tolerance, iterations, dqLimit);
+        Inverse inverse = m_inverses.get(jointName);
+        if (inverse == null || inverse.m_dqLimit != dqLimit) {
+            inverse = new Inverse(m_joints.indexOf(getJoint(jointName)), dqLimit);
+            m_inverses.put(jointName, inverse);
+        }
         long startTime = System.nanoTime();
-        Vector<Q> qVec = solver.solve2(q0, restarts, true);
-
+        double[] q = inverse.solve(q0.getData(), goal);
         if (DEBUG) {
             long finishTime = System.nanoTime();
             System.out.printf("ET (ms): %6.3f\n", ((double) finishTime - startTime) / 1000000);
         }
-        return qMap(qVec);
+        return qMap(q);
     }
 
-    ///////////////////////////////////////////////////
-
-    URDFJoint getJoint(String name) {
-        for (URDFJoint joint : m_joints) {
-            if (joint.name().equals(name))
-                return joint;
-        }
-        return null;
+    /**
+     * Body Jacobian of the specified joint at the configuration q, i.e. the
+     * twist of the joint frame, expressed in that frame, per unit motion of
+     * each joint, in the order of GeometryUtil.toVec().
+     * 
+     * @param q         configuration
+     * @param jointName the end of the chain, e.g. the tool point
+     * @param j         output, 6 x qDim
+     */
+    public void jacobian(Vector<Q> q, String jointName, DMatrixRMaj j) {
+        m_chain.forward(q.getData(), m_poses);
+        m_chain.jacobian(m_poses, m_joints.indexOf(getJoint(jointName)), j);
     }
 
     ///////////////////////////////////////////////////
 
     /**
-     * Populate poses with the pose of the specified joint and those of its parent
-     * chain.
+     * Newton's method for one end joint. The solver and its workspaces are made
+     * once, like TableShootingMethod, and each solve only copies the goal and
+     * the initial configuration into preallocated arrays.
      */
-    private Pose3d forward(
-            Map<String, Pose3d> poses,
-            String jointName,
-            Map<String, Double> qMap) {
-        URDFJoint joint = getJoint(jointName);
-        Transform3d t = joint.transform(qMap.get(jointName));
-        URDFJoint parent = parentJoint(jointName);
-        if (parent == null) {
-            // this is the root
-            Pose3d basePose = Pose3d.kZero.transformBy(t);
-            poses.put(jointName, basePose);
-            return basePose;
+    private class Inverse {
+        private final int m_end;
+        private final double m_dqLimit;
+        private final double[] m_goalPose = new double[URDFChain.STRIDE];
+        private final double[] m_q;
+        private final AnalyticNewtonsMethod m_solver;
+
+        Inverse(int end, double dqLimit) {
+            m_end = end;
+            m_dqLimit = dqLimit;
+            m_q = new double[m_qDim.getNum()];
+
+            // if the error is too large, then movements become jerky -- the
+            // distance between current and desired pose can be within the
+            // error. so keep this small, a few mm.
+            double tolerance = 2e-3;
+
+            // sometimes the solver seems to circle around the goal
+            // but it only happens in the middle of movements, when the
+            // initial and goal are far apart.
+
+            // each iteration used to take 50 us with the numerical Jacobian and the
+            // map-based forward kinematics; now it's a microsecond or so, but keep the
+            // iteration limit low anyway.
+            int iterations = 8;
+
+            // this function always uses pose3d so the goal dim is always 6.
+            m_solver = new AnalyticNewtonsMethod(
+                    m_qDim.getNum(), 6, this::err,
+                    minQ(m_qDim).getData(), maxQ(m_qDim).getData(),
+                    tolerance, iterations, dqLimit);
+        }
+
+        /** @return the solution, in a reused array. */
+        double[] solve(double[] q0, Pose3d goal) {
+            URDFChain.set(goal, m_goalPose, 0);
+            System.arraycopy(q0, 0, m_q, 0, m_q.length);
+            // random restart tries to escape local minima.
+            // don't try for too long, it's better to have the wrong answer sooner than
+            // the right answer after a long delay.
+            int restarts = 3;
+            m_solver.solve(m_q, restarts, true);
+            return m_q;
         }
-        Pose3d parentPose = poses.get(parent.name());
-        if (parentPose != null) {
-            Pose3d newPose = parentPose.transformBy(t);
-            poses.put(jointName, newPose);
-            return newPose;
+
+        /**
+         * The error is the twist from the goal to the current pose, and its
+         * Jacobian is approximately the body Jacobian of the joint (exactly so at
+         * the solution), so each iteration is just one forward pass.
+         */
+        private void err(DMatrixRMaj q, DMatrixRMaj y, DMatrixRMaj j) {
+            m_chain.forward(q.getData(), m_poses);
+            URDFChain.log(m_goalPose, 0, m_poses, m_end, y.getData());
+            m_chain.jacobian(m_poses, m_end, j);
         }
-        // if the parent hasn't been computed yet, recurse to do it.
-        Pose3d newParentPose = forward(poses, parent.name(), qMap);
-        Pose3d newNewPose = newParentPose.transformBy(t);
-        poses.put(jointName, newNewPose);
-        return newNewPose;
     }
 
-    /** Parent joint of the specified joint. */
-    private URDFJoint parentJoint(String childName) {
-        URDFJoint childJoint = getJoint(childName);
-        URDFLink parentLink = childJoint.parent();
+    List<URDFJoint> joints() {
+        return m_joints;
+    }
+
+    URDFChain chain() {
+        return m_chain;
+    }
+
+    URDFJoint getJoint(String name) {
         for (URDFJoint joint : m_joints) {
-            if (joint.child() == parentLink)
+            if (joint.name().equals(name))
                 return joint;
         }
         return null;
@@ -207,6 +237,19 @@ public class URDFRobot<Q extends Num> {
         return qMap;
     }
 
+    /** Config array into a named map. */
+    private Map<String, Double> qMap(double[] q) {
+        Map<String, Double> qMap = new HashMap<>();
+        List<URDFJoint> joints = m_joints;
+        for (int i = 0; i < joints.size(); ++i) {
+            URDFJoint joint = joints.get(i);
+            if (joint.active()) {
+                qMap.put(joint.name(), q[i]);
+            }
+        }
+        return qMap;
+    }
+
     /**
      * qDim needs to match the actual number of moveable joints.
      */
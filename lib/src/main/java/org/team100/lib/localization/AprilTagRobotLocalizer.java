@@ -1,5 +1,6 @@
 package org.team100.lib.localization;
 
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.function.DoubleFunction;
 
@@ -37,6 +38,10 @@ import edu.wpi.first.wpilibj.DriverStation.Alliance;
  * Note this class depends only on the state *history*, not on the coherent sate
  * *estimate*. The camera input doesn't require fresh odometry, it modifies the
  * past (and replays up to the present).
+ * 
+ * The sightings from all the cameras are collected during update(), sorted by
+ * timestamp, and then applied as one batch, so the history is replayed once
+ * per update, not once per sighting.
  */
 public class AprilTagRobotLocalizer extends CameraReader<Blip24> {
     private static final boolean DEBUG = false;
@@ -59,6 +64,8 @@ public class AprilTagRobotLocalizer extends CameraReader<Blip24> {
     /** Discard results further than this from the previous one. */
     private static final double VISION_CHANGE_TOLERANCE_M = 0.1;
     // private static final double VISION_CHANGE_TOLERANCE_M = 1;
+    /** Five cameras, a couple of frames each; the batch grows if necessary. */
+    private static final int INITIAL_BATCH_CAPACITY = 16;
 
     /** this is the default value which, in hindsight, seems ridiculously high. */
     private static final double[] defaultStateStdDevs = new double[] {
@@ -118,6 +125,14 @@ public class AprilTagRobotLocalizer extends CameraReader<Blip24> {
 
     private double m_latestTime = 0;
 
+    // Sightings collected during update(), applied in finishUpdate().
+    private Transform3d[] m_batchOffsets;
+    private double[] m_batchTimestamps;
+    private Blip24[][] m_batchBlips;
+    /** Batch indices, in timestamp order. */
+    private int[] m_batchOrder;
+    private int m_batchSize;
+
     /** use tags closer than this; ignore tags further than this. */
     private double m_heedRadiusM = 3.5;
 
@@ -132,6 +147,8 @@ public class AprilTagRobotLocalizer extends CameraReader<Blip24> {
     private final TrailingHistory<Pose3d> m_usedTags;
 
     /**
+     * Reads camera input inline, in update().
+     * 
      * @param parent        logger
      * @param layout        map of apriltags
      * @param history       f(timestamp) = swerve state, use SwerveModelHistory.
@@ -142,13 +159,35 @@ public class AprilTagRobotLocalizer extends CameraReader<Blip24> {
             AprilTagFieldLayoutWithCorrectOrientation layout,
             DoubleFunction<ModelR3> history,
             VisionUpdater visionUpdater) {
-        super("vision", "blips", StructBuffer.create(Blip24.struct));
+        this(parent, layout, history, visionUpdater, false);
+    }
+
+    /**
+     * @param parent        logger
+     * @param layout        map of apriltags
+     * @param history       f(timestamp) = swerve state, use SwerveModelHistory.
+     * @param visionUpdater mutates history
+     * @param threaded      decode camera input on a separate thread, see
+     *                      CameraReader.
+     */
+    public AprilTagRobotLocalizer(
+            LoggerFactory parent,
+            AprilTagFieldLayoutWithCorrectOrientation layout,
+            DoubleFunction<ModelR3> history,
+            VisionUpdater visionUpdater,
+            boolean threaded) {
+        super("vision", "blips", StructBuffer.create(Blip24.struct), threaded);
         LoggerFactory log = parent.type(this);
         m_layout = layout;
         m_history = history;
         m_visionUpdater = visionUpdater;
         m_allTags = new TrailingHistory<>(HISTORY_DURATION);
         m_usedTags = new TrailingHistory<>(HISTORY_DURATION);
+        m_batchOffsets = new Transform3d[INITIAL_BATCH_CAPACITY];
+        m_batchTimestamps = new double[INITIAL_BATCH_CAPACITY];
+        m_batchBlips = new Blip24[INITIAL_BATCH_CAPACITY][];
+        m_batchOrder = new int[INITIAL_BATCH_CAPACITY];
+        m_batchSize = 0;
 
         NetworkTableInstance inst = NetworkTableInstance.getDefault();
         m_pub_tags = inst.getStructArrayTopic("tags", Pose3d.struct).publish();
@@ -173,24 +212,73 @@ public class AprilTagRobotLocalizer extends CameraReader<Blip24> {
         return now - m_latestTime;
     }
 
+    @Override
+    protected void beginUpdate() {
+        m_batchSize = 0;
+    }
+
+    /** Collect the sighting; it's applied in finishUpdate(). */
     @Override
     protected void perValue(
             Transform3d cameraOffset,
             double valueTimestamp,
             Blip24[] blips) {
-        estimateRobotPose(
-                cameraOffset,
-                blips,
-                valueTimestamp,
-                DriverStation.getAlliance());
+        if (m_batchSize == m_batchTimestamps.length) {
+            int capacity = 2 * m_batchSize;
+            m_batchOffsets = Arrays.copyOf(m_batchOffsets, capacity);
+            m_batchTimestamps = Arrays.copyOf(m_batchTimestamps, capacity);
+            m_batchBlips = Arrays.copyOf(m_batchBlips, capacity);
+            m_batchOrder = Arrays.copyOf(m_batchOrder, capacity);
+        }
+        m_batchOffsets[m_batchSize] = cameraOffset;
+        m_batchTimestamps[m_batchSize] = valueTimestamp;
+        m_batchBlips[m_batchSize] = blips;
+        m_batchSize++;
     }
 
+    /**
+     * Apply the collected sightings, oldest first, as one batch, so the vision
+     * updater replays the history once.
+     */
     @Override
     protected void finishUpdate() {
+        sortBatch();
+        Optional<Alliance> alliance = DriverStation.getAlliance();
+        m_visionUpdater.begin();
+        try {
+            for (int i = 0; i < m_batchSize; ++i) {
+                int j = m_batchOrder[i];
+                estimateRobotPose(
+                        m_batchOffsets[j],
+                        m_batchBlips[j],
+                        m_batchTimestamps[j],
+                        alliance);
+            }
+        } finally {
+            m_visionUpdater.end();
+        }
+        // don't hold on to the blips
+        Arrays.fill(m_batchBlips, 0, m_batchSize, null);
+        m_batchSize = 0;
         m_pub_tags.set(m_allTags.getAll().toArray(new Pose3d[0]));
         m_pub_used_tags.set(m_usedTags.getAll().toArray(new Pose3d[0]));
     }
 
+    /**
+     * Insertion sort of the batch indices by timestamp; the batch is small, and
+     * usually nearly sorted already.
+     */
+    private void sortBatch() {
+        for (int i = 0; i < m_batchSize; ++i) {
+            int j = i;
+            while (j > 0 && m_batchTimestamps[m_batchOrder[j - 1]] > m_batchTimestamps[i]) {
+                m_batchOrder[j] = m_batchOrder[j - 1];
+                --j;
+            }
+            m_batchOrder[j] = i;
+        }
+    }
+
     /**
      * Tags outside this radius are ignored.
      */
@@ -0,0 +1,674 @@
+package org.team100.lib.localization;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+import org.team100.lib.state.ModelR3;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+
+/**
+ * Updates SwerveHistory with vision input by smoothing the whole history window
+ * at once, instead of nudging one sample and replaying the odometry after it.
+ *
+ * The history entries are the nodes of a factor graph, each with an (x, y,
+ * theta) pose. The factors are:
+ *
+ * <ul>
+ * <li>odometry between consecutive nodes, from the wheel positions and the gyro
+ * difference, weighted by distance travelled.
+ * <li>gyro, i.e. the rotation that OdometryUpdater wrote when the node was new.
+ * <li>a prior on the oldest node, using the state stddev, which stands in for
+ * everything that's fallen out of the window.
+ * <li>each vision sighting, i.e. the pose AprilTagRobotLocalizer derived from
+ * each Blip24, moved to the time of the nearest older node using the odometry
+ * in between.
+ * </ul>
+ *
+ * The graph is a chain, so the normal equations are block-tridiagonal, with 3x3
+ * blocks, and Levenberg-Marquardt solves them directly, in time linear in the
+ * window size, using preallocated primitive arrays. The previous solution is
+ * in the history, so it's the starting point for the next solve, which usually
+ * converges in one or two iterations.
+ *
+ * put() only records the sighting; the solve happens in end(), or in put()
+ * outside a batch, and stops after MAX_ITERATIONS or the time budget (by
+ * default BUDGET_NS, measured with System.nanoTime()), so the cost
+ * per cycle doesn't depend on the number of cameras. The solution is written
+ * back to the history, so there's nothing to replay.
+ *
+ * The vision stddevs mean the same thing as in NudgingVisionUpdater, but the
+ * state stddev only applies to the prior, so the same values give a different
+ * (firmer) result.
+ */
+public class FixedLagVisionUpdater implements VisionUpdater {
+    private static final boolean DEBUG = false;
+    /** More than the history holds at 250 Hz odometry. */
+    private static final int MAX_NODES = 64;
+    /** Five cameras, several tags each, over the whole window. */
+    private static final int MAX_SIGHTINGS = 128;
+    private static final int MAX_ITERATIONS = 5;
+    private static final long BUDGET_NS = 500_000;
+    /** Wheel slip, as a fraction of distance. */
+    private static final double ODOMETRY_FRACTION = 0.05;
+    private static final double ODOMETRY_FLOOR_M = 0.001;
+    /** Gyro drift between consecutive nodes. */
+    private static final double GYRO_DRIFT_RAD = 0.001;
+    /** Gyro measurement, relative to the offset. */
+    private static final double GYRO_SIGMA_RAD = 0.01;
+    private static final double INITIAL_LAMBDA = 1e-4;
+    /** Steps smaller than this (meters or radians) mean we're already there. */
+    private static final double STEP_TOLERANCE = 1e-9;
+
+    private final SwerveKinodynamics m_kinodynamics;
+    private final SwerveHistory m_history;
+    /** Nanoseconds, for the budget. */
+    private final LongSupplier m_clock;
+    private final long m_budgetNs;
+
+    // Nodes, oldest first.
+    private final double[] m_t = new double[MAX_NODES];
+    private final double[] m_x = new double[MAX_NODES];
+    private final double[] m_y = new double[MAX_NODES];
+    private final double[] m_theta = new double[MAX_NODES];
+    /** Gyro factor. */
+    private final double[] m_gyro = new double[MAX_NODES];
+    /** Odometry factor from the previous node, in its frame. */
+    private final double[] m_odoX = new double[MAX_NODES];
+    private final double[] m_odoY = new double[MAX_NODES];
+    private final double[] m_odoTheta = new double[MAX_NODES];
+    /** Translation weight of the odometry factor. */
+    private final double[] m_odoW = new double[MAX_NODES];
+    private final SwerveModulePositions[] m_wheels = new SwerveModulePositions[MAX_NODES];
+    private int m_nodes;
+
+    // Prior on the oldest node.
+    private final double[] m_prior = new double[3];
+    private final double[] m_priorW = new double[3];
+
+    // Sightings, oldest first.
+    /** Time of the node the sighting belongs to. */
+    private final double[] m_sightT = new double[MAX_SIGHTINGS];
+    private final int[] m_sightNode = new int[MAX_SIGHTINGS];
+    private final double[] m_sightX = new double[MAX_SIGHTINGS];
+    private final double[] m_sightY = new double[MAX_SIGHTINGS];
+    private final double[] m_sightTheta = new double[MAX_SIGHTINGS];
+    private final double[] m_sightWX = new double[MAX_SIGHTINGS];
+    private final double[] m_sightWY = new double[MAX_SIGHTINGS];
+    private final double[] m_sightWTheta = new double[MAX_SIGHTINGS];
+    private int m_sightings;
+
+    // Normal equations, H = tridiag(B[k]^T, D[k], B[k+1]), and scratch.
+    /** Diagonal blocks, 3x3 row-major. */
+    private final double[] m_D = new double[9 * MAX_NODES];
+    /** Block above the diagonal, H(k-1, k), for k > 0. */
+    private final double[] m_B = new double[9 * MAX_NODES];
+    private final double[] m_g = new double[3 * MAX_NODES];
+    private final double[] m_Sinv = new double[9 * MAX_NODES];
+    private final double[] m_r = new double[3 * MAX_NODES];
+    private final double[] m_step = new double[3 * MAX_NODES];
+    private final double[] m_ja = new double[9];
+    private final double[] m_jb = new double[9];
+    private final double[] m_e = new double[3];
+    private final double[] m_w = new double[3];
+    private final double[] m_m3 = new double[9];
+    private final double[] m_m3b = new double[9];
+    private final double[] m_v3 = new double[3];
+    private final Twist2d m_twist = new Twist2d();
+
+    private boolean m_batch;
+    /** Iterations used by the most recent solve, for testing. */
+    private int m_iterations;
+
+    public FixedLagVisionUpdater(
+            SwerveKinodynamics kinodynamics,
+            SwerveHistory history) {
+        this(kinodynamics, history, System::nanoTime, BUDGET_NS);
+    }
+
+    /**
+     * @param clock    nanoseconds, for the budget. Tests can supply their own, so
+     *                 the iteration count doesn't depend on the machine.
+     * @param budgetNs each solve stops after an iteration that ends past this
+     */
+    FixedLagVisionUpdater(
+            SwerveKinodynamics kinodynamics,
+            SwerveHistory history,
+            LongSupplier clock,
+            long budgetNs) {
+        m_kinodynamics = kinodynamics;
+        m_history = history;
+        m_clock = clock;
+        m_budgetNs = budgetNs;
+        setWeights(AprilTagRobotLocalizer.stateStdDevs(), m_priorW);
+    }
+
+    @Override
+    public void begin() {
+        m_batch = true;
+    }
+
+    @Override
+    public void end() {
+        m_batch = false;
+        solve();
+    }
+
+    /**
+     * Record the sighting, and solve, unless we're in a batch.
+     */
+    @Override
+    public void put(
+            double timestampS,
+            Pose2d measurement,
+            double[] stateSigma,
+            double[] visionSigma) {
+        if (m_history.tooOld(timestampS)) {
+            return;
+        }
+        setWeights(stateSigma, m_priorW);
+        // The newest entry at or before the sighting.
+        int i = Math.max(0, m_history.higherIndex(timestampS) - 1);
+        Pose2d node = m_history.recordAt(i).m_state.pose();
+        Pose2d sample = m_history.apply(timestampS).pose();
+        // What the measurement says about the node, given the odometry.
+        Pose2d moved = measurement.plus(node.minus(sample));
+        if (m_sightings == MAX_SIGHTINGS) {
+            dropSightings(1);
+        }
+        int j = m_sightings++;
+        m_sightT[j] = m_history.timeAt(i);
+        m_sightX[j] = moved.getX();
+        m_sightY[j] = moved.getY();
+        m_sightTheta[j] = moved.getRotation().getRadians();
+        m_sightWX[j] = weight(visionSigma[0]);
+        m_sightWY[j] = weight(visionSigma[1]);
+        m_sightWTheta[j] = weight(visionSigma[2]);
+        if (!m_batch)
+            solve();
+    }
+
+    int nodes() {
+        return m_nodes;
+    }
+
+    int sightings() {
+        return m_sightings;
+    }
+
+    int iterations() {
+        return m_iterations;
+    }
+
+    ////////////////////////////////////////////////////
+    //
+    // Window maintenance
+    //
+
+    /** Make the nodes match the history. */
+    private void sync() {
+        if (m_nodes > 0 && indexOf(m_t[m_nodes - 1]) < 0) {
+            // The history was reset, so start over.
+            m_nodes = 0;
+            m_sightings = 0;
+        }
+        // Forget nodes the history has forgotten.
+        double oldest = m_history.timeAt(0);
+        int stale = 0;
+        while (stale < m_nodes && m_t[stale] < oldest)
+            stale++;
+        dropNodes(stale);
+        int start = m_nodes == 0 ? 0 : indexOf(m_t[m_nodes - 1]) + 1;
+        for (int i = start; i < m_history.size(); ++i) {
+            if (m_nodes == MAX_NODES)
+                dropNodes(1);
+            append(i);
+        }
+    }
+
+    /** Add the history entry at index i as the newest node. */
+    private void append(int i) {
+        InterpolationRecord record = m_history.recordAt(i);
+        Pose2d pose = record.m_state.pose();
+        int k = m_nodes++;
+        m_t[k] = m_history.timeAt(i);
+        m_x[k] = pose.getX();
+        m_y[k] = pose.getY();
+        m_theta[k] = pose.getRotation().getRadians();
+        // OdometryUpdater wrote the gyro angle here.
+        m_gyro[k] = m_theta[k];
+        m_wheels[k] = record.m_wheelPositions;
+        if (k == 0) {
+            setPrior();
+            return;
+        }
+        m_kinodynamics.getKinematics().toTwist2d(m_wheels[k - 1], m_wheels[k], m_twist);
+        double dtheta = MathUtil.angleModulus(m_gyro[k] - m_gyro[k - 1]);
+        // Pose2d.exp(), without the Pose2d.
+        double s;
+        double c;
+        if (Math.abs(dtheta) < 1e-9) {
+            s = 1.0 - dtheta * dtheta / 6.0;
+            c = 0.5 * dtheta;
+        } else {
+            s = Math.sin(dtheta) / dtheta;
+            c = (1 - Math.cos(dtheta)) / dtheta;
+        }
+        m_odoX[k] = m_twist.dx * s - m_twist.dy * c;
+        m_odoY[k] = m_twist.dx * c + m_twist.dy * s;
+        m_odoTheta[k] = dtheta;
+        m_odoW[k] = weight(ODOMETRY_FRACTION * Math.hypot(m_twist.dx, m_twist.dy) + ODOMETRY_FLOOR_M);
+    }
+
+    /** Drop the n oldest nodes; the new oldest gets the prior. */
+    private void dropNodes(int n) {
+        if (n == 0)
+            return;
+        int keep = m_nodes - n;
+        System.arraycopy(m_t, n, m_t, 0, keep);
+        System.arraycopy(m_x, n, m_x, 0, keep);
+        System.arraycopy(m_y, n, m_y, 0, keep);
+        System.arraycopy(m_theta, n, m_theta, 0, keep);
+        System.arraycopy(m_gyro, n, m_gyro, 0, keep);
+        System.arraycopy(m_odoX, n, m_odoX, 0, keep);
+        System.arraycopy(m_odoY, n, m_odoY, 0, keep);
+        System.arraycopy(m_odoTheta, n, m_odoTheta, 0, keep);
+        System.arraycopy(m_odoW, n, m_odoW, 0, keep);
+        System.arraycopy(m_wheels, n, m_wheels, 0, keep);
+        for (int k = keep; k < m_nodes; ++k) {
+            m_wheels[k] = null;
+        }
+        m_nodes = keep;
+        if (m_nodes > 0)
+            setPrior();
+    }
+
+    /** The prior is wherever the oldest node is now. */
+    private void setPrior() {
+        m_prior[0] = m_x[0];
+        m_prior[1] = m_y[0];
+        m_prior[2] = m_theta[0];
+    }
+
+    private void dropSightings(int n) {
+        int keep = m_sightings - n;
+        System.arraycopy(m_sightT, n, m_sightT, 0, keep);
+        System.arraycopy(m_sightX, n, m_sightX, 0, keep);
+        System.arraycopy(m_sightY, n, m_sightY, 0, keep);
+        System.arraycopy(m_sightTheta, n, m_sightTheta, 0, keep);
+        System.arraycopy(m_sightWX, n, m_sightWX, 0, keep);
+        System.arraycopy(m_sightWY, n, m_sightWY, 0, keep);
+        System.arraycopy(m_sightWTheta, n, m_sightWTheta, 0, keep);
+        m_sightings = keep;
+    }
+
+    /** Find the node for each sighting, and forget the ones that have none. */
+    private void resolveSightings() {
+        int kept = 0;
+        for (int j = 0; j < m_sightings; ++j) {
+            int k = nodeAt(m_sightT[j]);
+            if (k < 0)
+                continue;
+            m_sightT[kept] = m_sightT[j];
+            m_sightNode[kept] = k;
+            m_sightX[kept] = m_sightX[j];
+            m_sightY[kept] = m_sightY[j];
+            m_sightTheta[kept] = m_sightTheta[j];
+            m_sightWX[kept] = m_sightWX[j];
+            m_sightWY[kept] = m_sightWY[j];
+            m_sightWTheta[kept] = m_sightWTheta[j];
+            kept++;
+        }
+        m_sightings = kept;
+    }
+
+    /** Index of the node at exactly time t, or -1. */
+    private int nodeAt(double t) {
+        int lo = 0;
+        int hi = m_nodes - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (m_t[mid] < t)
+                lo = mid + 1;
+            else if (m_t[mid] > t)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    /** History index of the entry at exactly time t, or -1. */
+    private int indexOf(double t) {
+        int i = m_history.higherIndex(t) - 1;
+        if (i >= 0 && m_history.timeAt(i) == t)
+            return i;
+        return -1;
+    }
+
+    ////////////////////////////////////////////////////
+    //
+    // Solver
+    //
+
+    private void solve() {
+        m_iterations = 0;
+        sync();
+        resolveSightings();
+        if (m_sightings == 0) {
+            // Without vision, the odometry is already the solution.
+            return;
+        }
+        long deadline = m_clock.getAsLong() + m_budgetNs;
+        double lambda = INITIAL_LAMBDA;
+        double cost = cost();
+        while (m_iterations < MAX_ITERATIONS) {
+            m_iterations++;
+            linearize(lambda);
+            if (!solveLinear()) {
+                lambda *= 10;
+                continue;
+            }
+            if (maxStep() < STEP_TOLERANCE)
+                break;
+            applyStep(1);
+            double newCost = cost();
+            if (newCost < cost) {
+                boolean converged = cost - newCost < 1e-6 * cost;
+                cost = newCost;
+                lambda /= 10;
+                if (converged)
+                    break;
+            } else {
+                applyStep(-1);
+                lambda *= 10;
+            }
+            if (m_clock.getAsLong() > deadline)
+                break;
+        }
+        if (DEBUG) {
+            System.out.printf("nodes %d sightings %d iterations %d cost %f\n",
+                    m_nodes, m_sightings, m_iterations, cost);
+        }
+        writeBack();
+    }
+
+    /** Replace the history entries with the solution. */
+    private void writeBack() {
+        for (int k = 0; k < m_nodes; ++k) {
+            int i = indexOf(m_t[k]);
+            if (i < 0)
+                continue;
+            InterpolationRecord record = m_history.recordAt(i);
+            m_history.put(
+                    m_t[k],
+                    new ModelR3(
+                            new Pose2d(m_x[k], m_y[k], new Rotation2d(m_theta[k])),
+                            record.m_state.velocity()),
+                    record.m_wheelPositions);
+        }
+    }
+
+    private double maxStep() {
+        double max = 0;
+        for (int i = 0; i < 3 * m_nodes; ++i) {
+            max = Math.max(max, Math.abs(m_step[i]));
+        }
+        return max;
+    }
+
+    private void applyStep(double sign) {
+        for (int k = 0; k < m_nodes; ++k) {
+            m_x[k] += sign * m_step[3 * k];
+            m_y[k] += sign * m_step[3 * k + 1];
+            m_theta[k] += sign * m_step[3 * k + 2];
+        }
+    }
+
+    /** Weighted sum of squared residuals. */
+    private double cost() {
+        double cost = 0;
+        // prior
+        cost += m_priorW[0] * sq(m_x[0] - m_prior[0]);
+        cost += m_priorW[1] * sq(m_y[0] - m_prior[1]);
+        cost += m_priorW[2] * sq(MathUtil.angleModulus(m_theta[0] - m_prior[2]));
+        for (int k = 0; k < m_nodes; ++k) {
+            // gyro
+            cost += weight(GYRO_SIGMA_RAD) * sq(MathUtil.angleModulus(m_theta[k] - m_gyro[k]));
+            if (k > 0) {
+                odometryResidual(k);
+                cost += m_w[0] * sq(m_e[0]) + m_w[1] * sq(m_e[1]) + m_w[2] * sq(m_e[2]);
+            }
+        }
+        for (int j = 0; j < m_sightings; ++j) {
+            int k = m_sightNode[j];
+            cost += m_sightWX[j] * sq(m_x[k] - m_sightX[j]);
+            cost += m_sightWY[j] * sq(m_y[k] - m_sightY[j]);
+            cost += m_sightWTheta[j] * sq(MathUtil.angleModulus(m_theta[k] - m_sightTheta[j]));
+        }
+        return cost;
+    }
+
+    /**
+     * Odometry residual between nodes k-1 and k, and its weights, into m_e and
+     * m_w, and the Jacobians with respect to each node into m_ja and m_jb.
+     */
+    private void odometryResidual(int k) {
+        int a = k - 1;
+        double c = Math.cos(m_theta[a]);
+        double s = Math.sin(m_theta[a]);
+        double dx = m_x[k] - m_x[a];
+        double dy = m_y[k] - m_y[a];
+        // the motion in the frame of node a
+        m_e[0] = c * dx + s * dy - m_odoX[k];
+        m_e[1] = -s * dx + c * dy - m_odoY[k];
+        m_e[2] = MathUtil.angleModulus(m_theta[k] - m_theta[a] - m_odoTheta[k]);
+        m_w[0] = m_odoW[k];
+        m_w[1] = m_odoW[k];
+        m_w[2] = weight(GYRO_DRIFT_RAD);
+        m_ja[0] = -c;
+        m_ja[1] = -s;
+        m_ja[2] = -s * dx + c * dy;
+        m_ja[3] = s;
+        m_ja[4] = -c;
+        m_ja[5] = -c * dx - s * dy;
+        m_ja[8] = -1;
+        m_jb[0] = c;
+        m_jb[1] = s;
+        m_jb[3] = -s;
+        m_jb[4] = c;
+        m_jb[8] = 1;
+    }
+
+    /** Build the damped normal equations at the current estimate. */
+    private void linearize(double lambda) {
+        int n = m_nodes;
+        Arrays.fill(m_D, 0, 9 * n, 0);
+        Arrays.fill(m_B, 0, 9 * n, 0);
+        Arrays.fill(m_g, 0, 3 * n, 0);
+        // prior
+        addDiagonal(0, 0, m_priorW[0], m_x[0] - m_prior[0]);
+        addDiagonal(0, 1, m_priorW[1], m_y[0] - m_prior[1]);
+        addDiagonal(0, 2, m_priorW[2], MathUtil.angleModulus(m_theta[0] - m_prior[2]));
+        for (int k = 0; k < n; ++k) {
+            // gyro
+            addDiagonal(k, 2, weight(GYRO_SIGMA_RAD), MathUtil.angleModulus(m_theta[k] - m_gyro[k]));
+            if (k > 0) {
+                odometryResidual(k);
+                addJtWJ(m_ja, m_ja, m_D, 9 * (k - 1));
+                addJtWJ(m_jb, m_jb, m_D, 9 * k);
+                addJtWJ(m_ja, m_jb, m_B, 9 * k);
+                addJtWe(m_ja, m_g, 3 * (k - 1));
+                addJtWe(m_jb, m_g, 3 * k);
+            }
+        }
+        for (int j = 0; j < m_sightings; ++j) {
+            int k = m_sightNode[j];
+            addDiagonal(k, 0, m_sightWX[j], m_x[k] - m_sightX[j]);
+            addDiagonal(k, 1, m_sightWY[j], m_y[k] - m_sightY[j]);
+            addDiagonal(k, 2, m_sightWTheta[j], MathUtil.angleModulus(m_theta[k] - m_sightTheta[j]));
+        }
+        // Marquardt damping
+        for (int k = 0; k < n; ++k) {
+            for (int d = 0; d < 3; ++d) {
+                m_D[9 * k + 4 * d] *= 1 + lambda;
+            }
+        }
+    }
+
+    /**
+     * Solve H step = -g by block-tridiagonal elimination.
+     *
+     * @return false if a block is singular.
+     */
+    private boolean solveLinear() {
+        int n = m_nodes;
+        for (int k = 0; k < n; ++k) {
+            // S = D - B^T Sinv(k-1) B, r = -g - B^T Sinv(k-1) r(k-1)
+            System.arraycopy(m_D, 9 * k, m_m3, 0, 9);
+            for (int i = 0; i < 3; ++i) {
+                m_v3[i] = -m_g[3 * k + i];
+            }
+            if (k > 0) {
+                // m3b = Sinv(k-1) B
+                mul(m_Sinv, 9 * (k - 1), m_B, 9 * k, m_m3b);
+                for (int i = 0; i < 3; ++i) {
+                    for (int j = 0; j < 3; ++j) {
+                        double sum = 0;
+                        for (int l = 0; l < 3; ++l) {
+                            sum += m_B[9 * k + 3 * l + i] * m_m3b[3 * l + j];
+                        }
+                        m_m3[3 * i + j] -= sum;
+                    }
+                    double sum = 0;
+                    for (int l = 0; l < 3; ++l) {
+                        // (Sinv B)^T r = B^T Sinv r, since Sinv is symmetric
+                        sum += m_m3b[3 * l + i] * m_r[3 * (k - 1) + l];
+                    }
+                    m_v3[i] -= sum;
+                }
+            }
+            if (!invert(m_m3, m_Sinv, 9 * k))
+                return false;
+            for (int i = 0; i < 3; ++i) {
+                m_r[3 * k + i] = m_v3[i];
+            }
+        }
+        for (int k = n - 1; k >= 0; --k) {
+            // step(k) = Sinv(k) (r(k) - B(k+1) step(k+1))
+            for (int i = 0; i < 3; ++i) {
+                double v = m_r[3 * k + i];
+                if (k < n - 1) {
+                    for (int l = 0; l < 3; ++l) {
+                        v -= m_B[9 * (k + 1) + 3 * i + l] * m_step[3 * (k + 1) + l];
+                    }
+                }
+                m_v3[i] = v;
+            }
+            for (int i = 0; i < 3; ++i) {
+                double v = 0;
+                for (int l = 0; l < 3; ++l) {
+                    v += m_Sinv[9 * k + 3 * i + l] * m_v3[l];
+                }
+                m_step[3 * k + i] = v;
+            }
+        }
+        return true;
+    }
+
+    /** Add a unary factor on one coordinate of node k. */
+    private void addDiagonal(int k, int d, double w, double e) {
+        m_D[9 * k + 4 * d] += w;
+        m_g[3 * k + d] += w * e;
+    }
+
+    /** out[off] += J1^T W J2, with W = diag(m_w). */
+    private void addJtWJ(double[] j1, double[] j2, double[] out, int off) {
+        for (int i = 0; i < 3; ++i) {
+            for (int j = 0; j < 3; ++j) {
+                double sum = 0;
+                for (int l = 0; l < 3; ++l) {
+                    sum += j1[3 * l + i] * m_w[l] * j2[3 * l + j];
+                }
+                out[off + 3 * i + j] += sum;
+            }
+        }
+    }
+
+    /** out[off] += J^T W e, with W = diag(m_w). */
+    private void addJtWe(double[] j, double[] out, int off) {
+        for (int i = 0; i < 3; ++i) {
+            double sum = 0;
+            for (int l = 0; l < 3; ++l) {
+                sum += j[3 * l + i] * m_w[l] * m_e[l];
+            }
+            out[off + i] += sum;
+        }
+    }
+
+    ////////////////////////////////////////////////////
+
+    /** out = a[aoff] b[boff], all 3x3 row-major. */
+    private static void mul(double[] a, int aoff, double[] b, int boff, double[] out) {
+        for (int i = 0; i < 3; ++i) {
+            for (int j = 0; j < 3; ++j) {
+                double sum = 0;
+                for (int l = 0; l < 3; ++l) {
+                    sum += a[aoff + 3 * i + l] * b[boff + 3 * l + j];
+                }
+                out[3 * i + j] = sum;
+            }
+        }
+    }
+
+    /**
+     * Invert the symmetric 3x3 matrix m into out[off].
+     *
+     * @return false if it's singular.
+     */
+    static boolean invert(double[] m, double[] out, int off) {
+        double a = m[0], b = m[1], c = m[2];
+        double e = m[4], f = m[5];
+        double i = m[8];
+        double c00 = e * i - f * f;
+        double c01 = c * f - b * i;
+        double c02 = b * f - c * e;
+        double det = a * c00 + b * c01 + c * c02;
+        if (!(Math.abs(det) > 1e-300))
+            return false;
+        double inv = 1.0 / det;
+        double c11 = a * i - c * c;
+        double c12 = b * c - a * f;
+        double c22 = a * e - b * b;
+        out[off] = c00 * inv;
+        out[off + 1] = c01 * inv;
+        out[off + 2] = c02 * inv;
+        out[off + 3] = c01 * inv;
+        out[off + 4] = c11 * inv;
+        out[off + 5] = c12 * inv;
+        out[off + 6] = c02 * inv;
+        out[off + 7] = c12 * inv;
+        out[off + 8] = c22 * inv;
+        return true;
+    }
+
+    private static void setWeights(double[] sigma, double[] w) {
+        for (int i = 0; i < 3; ++i) {
+            w[i] = weight(sigma[i]);
+        }
+    }
+
+    /** Inverse variance; zero for huge sigma, e.g. Double.MAX_VALUE. */
+    private static double weight(double sigma) {
+        return 1.0 / (sigma * sigma);
+    }
+
+    private static double sq(double x) {
+        return x * x;
+    }
+}
@@ -5,7 +5,6 @@ import java.util.Objects;
 import org.team100.lib.geometry.GlobalVelocityR3;
 import org.team100.lib.state.ModelR3;
 import org.team100.lib.subsystems.swerve.kinodynamics.SwerveDriveKinematics100;
-import org.team100.lib.subsystems.swerve.module.state.SwerveModuleDeltas;
 import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
 
 import edu.wpi.first.math.geometry.Pose2d;
@@ -13,6 +12,13 @@ import edu.wpi.first.math.geometry.Twist2d;
 import edu.wpi.first.math.interpolation.Interpolatable;
 
 class InterpolationRecord implements Interpolatable<InterpolationRecord> {
+    /**
+     * Scratch for interpolate(). The history is only used on the main thread
+     * (odometry samples from OdometryThread are integrated there too), so one is
+     * enough.
+     */
+    private static final Twist2d TWIST = new Twist2d();
+
     private final SwerveDriveKinematics100 m_kinematics;
 
     final ModelR3 m_state;
@@ -67,9 +73,8 @@ class InterpolationRecord implements Interpolatable<InterpolationRecord> {
 
         // Create a twist to represent the change based on the interpolated sensor
         // inputs.
-        Twist2d twist = m_kinematics.toTwist2d(
-                SwerveModuleDeltas.modulePositionDelta(m_wheelPositions, wheelLerp));
-        Pose2d pose = m_state.pose().exp(twist);
+        m_kinematics.toTwist2d(m_wheelPositions, wheelLerp, TWIST);
+        Pose2d pose = m_state.pose().exp(TWIST);
 
         // these lerps are wrong but maybe close enough
         GlobalVelocityR3 startVelocity = m_state.velocity();
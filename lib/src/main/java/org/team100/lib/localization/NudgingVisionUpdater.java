@@ -13,6 +13,12 @@ import edu.wpi.first.math.geometry.Twist2d;
  * 
  * The "nudging" here is essentially just a weighted average; you provide the
  * weights you want at update time.
+ * 
+ * Within a batch (see begin() and end()), measurements arriving in time order
+ * share a single replay: each put() replays only up to its own timestamp, and
+ * end() replays the rest. The result is the same as putting them one at a
+ * time, but each odometry entry is replayed about once, instead of once per
+ * measurement.
  */
 public class NudgingVisionUpdater implements VisionUpdater {
 
@@ -20,11 +26,34 @@ public class NudgingVisionUpdater implements VisionUpdater {
     /** For replay. */
     private final OdometryUpdater m_odometryUpdater;
 
+    private boolean m_batch;
+    /**
+     * In a batch, the history after this time hasn't been replayed yet. NaN if
+     * there's nothing to replay.
+     */
+    private double m_replayFromS;
+
     public NudgingVisionUpdater(
             SwerveHistory history,
             OdometryUpdater odometryUpdater) {
         m_history = history;
         m_odometryUpdater = odometryUpdater;
+        m_batch = false;
+        m_replayFromS = Double.NaN;
+    }
+
+    @Override
+    public void begin() {
+        m_batch = true;
+    }
+
+    @Override
+    public void end() {
+        m_batch = false;
+        if (!Double.isNaN(m_replayFromS)) {
+            m_odometryUpdater.replay(m_replayFromS);
+            m_replayFromS = Double.NaN;
+        }
     }
 
     /**
@@ -43,6 +72,17 @@ public class NudgingVisionUpdater implements VisionUpdater {
             return;
         }
 
+        if (timestampS < m_replayFromS) {
+            // Out of order, so finish the pending replay and start over.
+            m_odometryUpdater.replay(m_replayFromS);
+        } else if (timestampS > m_replayFromS) {
+            // Catch up, so the sample below sees the earlier nudges.
+            m_odometryUpdater.replay(m_replayFromS, timestampS);
+        }
+        // If it's equal, (e.g. several tags in one frame) the sample is the
+        // previous nudge itself, so there's nothing to replay yet.
+        // Comparisons with NaN are false, so outside a batch, this does nothing.
+
         // Sample the history at the measurement time.
         InterpolationRecord sample = m_history.getRecord(timestampS);
 
@@ -53,6 +93,11 @@ public class NudgingVisionUpdater implements VisionUpdater {
                 timestampS,
                 new ModelR3(nudged, sample.m_state.velocity()),
                 sample.m_wheelPositions);
+        if (m_batch) {
+            m_replayFromS = timestampS;
+            return;
+        }
+        m_replayFromS = Double.NaN;
         m_odometryUpdater.replay(timestampS);
     }
 
@@ -78,22 +123,26 @@ public class NudgingVisionUpdater implements VisionUpdater {
             double[] visionSigma,
             Twist2d twist) {
         // discount the vision update by this factor.
-        final double[] K = getK(stateSigma, visionSigma);
+        // this is the same as getK() but without the array.
         Twist2d scaledTwist = new Twist2d(
-                K[0] * twist.dx,
-                K[1] * twist.dy,
-                K[2] * twist.dtheta);
+                k(stateSigma, visionSigma, 0) * twist.dx,
+                k(stateSigma, visionSigma, 1) * twist.dy,
+                k(stateSigma, visionSigma, 2) * twist.dtheta);
         return scaledTwist;
     }
 
     static double[] getK(double[] stateSigma, double[] visionSigma) {
         return new double[] {
-                mix(Math.pow(stateSigma[0], 2), Math.pow(visionSigma[0], 2)),
-                mix(Math.pow(stateSigma[1], 2), Math.pow(visionSigma[1], 2)),
-                mix(Math.pow(stateSigma[2], 2), Math.pow(visionSigma[2], 2))
+                k(stateSigma, visionSigma, 0),
+                k(stateSigma, visionSigma, 1),
+                k(stateSigma, visionSigma, 2)
         };
     }
 
+    private static double k(double[] stateSigma, double[] visionSigma, int i) {
+        return mix(Math.pow(stateSigma[i], 2), Math.pow(visionSigma[i], 2));
+    }
+
     /**
      * Given q and r stddev's, what mixture should that yield?
      * This is the "closed form Kalman gain for continuous Kalman filter with A = 0
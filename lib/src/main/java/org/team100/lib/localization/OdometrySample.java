@@ -0,0 +1,39 @@
+package org.team100.lib.localization;
+
+import java.util.Optional;
+
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePosition100;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * One timestamped set of gyro and wheel measurements, for high-rate odometry.
+ *
+ * Samples are preallocated and reused by OdometryThread, so the odometry
+ * thread doesn't allocate. Module order is front left, front right, rear left,
+ * rear right, as in SwerveModulePositions.
+ */
+public class OdometrySample {
+    /** FPGA time in seconds, i.e. the same timebase as Takt. */
+    public double timestampS;
+    /** Gyro yaw, NWU, radians. */
+    public double yawRad;
+    /** Gyro yaw rate, NWU, rad/s. */
+    public double yawRateRad_S;
+    /** Wheel distance for each module, meters. */
+    public final double[] distanceM = new double[4];
+    /** Unwrapped steering angle for each module, radians. */
+    public final double[] angleRad = new double[4];
+
+    /** Makes new position objects, so use it on the main thread. */
+    public SwerveModulePositions positions() {
+        return new SwerveModulePositions(
+                position(0), position(1), position(2), position(3));
+    }
+
+    private SwerveModulePosition100 position(int i) {
+        return new SwerveModulePosition100(
+                distanceM[i], Optional.of(new Rotation2d(angleRad[i])));
+    }
+}
@@ -0,0 +1,22 @@
+package org.team100.lib.localization;
+
+/**
+ * Measurements for OdometryThread. Implementations are called only from the
+ * odometry thread, so they must not use Takt.get() or Cache, which belong to
+ * the main loop. Takt.actual() is fine.
+ */
+public interface OdometrySource {
+    /**
+     * Wait for new measurements, and write them into the sample.
+     *
+     * @param timeoutS wait at most this long
+     * @param out      overwritten
+     * @return false if there was nothing new before the timeout.
+     */
+    boolean take(double timeoutS, OdometrySample out) throws InterruptedException;
+
+    /** Fills in everything but the timestamp. */
+    interface Sampler {
+        void sample(OdometrySample out);
+    }
+}
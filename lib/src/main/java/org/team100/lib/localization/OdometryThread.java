@@ -0,0 +1,111 @@
+package org.team100.lib.localization;
+
+/**
+ * Reads odometry measurements on a dedicated high-priority thread, as fast as
+ * the source provides them (e.g. 250 Hz from the CANivore), and hands them to
+ * the main loop through a bounded single-producer single-consumer queue.
+ *
+ * The thread never touches SwerveHistory: OdometryUpdater drains the queue on
+ * the main thread, so odometry and vision replay never run concurrently.
+ *
+ * The slots are preallocated and reused, so the odometry thread doesn't
+ * allocate. If the main loop falls behind and the queue is full, the newest
+ * sample is dropped rather than waiting.
+ */
+public class OdometryThread implements AutoCloseable {
+    /** About five main-loop cycles at 250 Hz. Must be a power of two. */
+    private static final int CAPACITY = 32;
+    /** The thread wakes up this often to check for close(). */
+    private static final double WAIT_TIMEOUT_S = 0.1;
+
+    private final OdometrySource m_source;
+    private final OdometrySample[] m_slots;
+    private final int m_mask;
+    /** Used when the queue is full, so the source keeps up. */
+    private final OdometrySample m_overflow = new OdometrySample();
+    private final Thread m_thread;
+    private volatile boolean m_running;
+    /** Next slot to consume; written only by the consumer. */
+    private volatile long m_head;
+    /** Next slot to produce; written only by the producer. */
+    private volatile long m_tail;
+    /** Written only by the producer. */
+    private volatile int m_dropped;
+
+    public OdometryThread(OdometrySource source) {
+        m_source = source;
+        m_slots = new OdometrySample[CAPACITY];
+        for (int i = 0; i < CAPACITY; ++i) {
+            m_slots[i] = new OdometrySample();
+        }
+        m_mask = CAPACITY - 1;
+        m_running = true;
+        m_thread = new Thread(this::run, "Odometry");
+        m_thread.setDaemon(true);
+        m_thread.setPriority(Thread.MAX_PRIORITY);
+        m_thread.start();
+    }
+
+    //////////////////////////////////////////
+    //
+    // Consumer
+    //
+
+    /** The oldest sample, or null if the queue is empty. */
+    OdometrySample peek() {
+        long head = m_head;
+        if (head == m_tail)
+            return null;
+        return m_slots[(int) (head & m_mask)];
+    }
+
+    /** Return the peeked sample to the producer. */
+    void release() {
+        m_head = m_head + 1;
+    }
+
+    int size() {
+        return (int) (m_tail - m_head);
+    }
+
+    /** Samples dropped because the main loop didn't keep up. */
+    public int getDropped() {
+        return m_dropped;
+    }
+
+    /** Stop the thread. */
+    @Override
+    public void close() {
+        m_running = false;
+        m_thread.interrupt();
+        try {
+            m_thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //////////////////////////////////////////
+    //
+    // Producer
+    //
+
+    private void run() {
+        while (m_running) {
+            long tail = m_tail;
+            boolean full = tail - m_head > m_mask;
+            OdometrySample slot = full ? m_overflow : m_slots[(int) (tail & m_mask)];
+            try {
+                if (!m_source.take(WAIT_TIMEOUT_S, slot))
+                    continue;
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (full) {
+                m_dropped++;
+                continue;
+            }
+            m_tail = tail + 1;
+        }
+    }
+}
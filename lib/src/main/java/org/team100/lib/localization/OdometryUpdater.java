@@ -1,7 +1,5 @@
 package org.team100.lib.localization;
 
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.function.Supplier;
 
 import org.team100.lib.coherence.Takt;
@@ -10,7 +8,6 @@ import org.team100.lib.geometry.GlobalVelocityR3;
 import org.team100.lib.sensor.gyro.Gyro;
 import org.team100.lib.state.ModelR3;
 import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
-import org.team100.lib.subsystems.swerve.module.state.SwerveModuleDeltas;
 import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
 
 import edu.wpi.first.math.geometry.Pose2d;
@@ -27,6 +24,11 @@ import edu.wpi.first.math.geometry.Twist2d;
  * 
  * Manages the gyro offset.
  * 
+ * With an OdometryThread, update() integrates every sample the thread has
+ * collected since the previous update, at its hardware timestamp, instead of
+ * one sample at the Takt time. This all happens on the main thread, so it
+ * never runs concurrently with vision replay.
+ * 
  * Note we use methods on the specific history implementation; the interface
  * won't work here.
  */
@@ -37,6 +39,14 @@ public class OdometryUpdater {
     private final Gyro m_gyro;
     private final SwerveHistory m_history;
     private final Supplier<SwerveModulePositions> m_positions;
+    /** High-rate samples, or null to sample once per update. */
+    private final OdometryThread m_thread;
+    /**
+     * Reused by put(), which runs for every sample and every replayed entry, so
+     * the kinematics don't allocate. The new pose, velocity, state, and record
+     * are still allocated for each entry, since they're immutable.
+     */
+    private final Twist2d m_twist = new Twist2d();
 
     private Rotation2d m_gyroOffset;
 
@@ -45,10 +55,24 @@ public class OdometryUpdater {
             Gyro gyro,
             SwerveHistory estimator,
             Supplier<SwerveModulePositions> positions) {
+        this(kinodynamics, gyro, estimator, positions, null);
+    }
+
+    /**
+     * @param thread high-rate samples. The gyro and positions are still used for
+     *               reset().
+     */
+    public OdometryUpdater(
+            SwerveKinodynamics kinodynamics,
+            Gyro gyro,
+            SwerveHistory estimator,
+            Supplier<SwerveModulePositions> positions,
+            OdometryThread thread) {
         m_kinodynamics = kinodynamics;
         m_gyro = gyro;
         m_history = estimator;
         m_positions = positions;
+        m_thread = thread;
     }
 
     Rotation2d getGyroOffset() {
@@ -69,9 +93,28 @@ public class OdometryUpdater {
      * state.
      */
     public void update() {
+        if (m_thread != null) {
+            drain();
+            return;
+        }
         update(Takt.get());
     }
 
+    /**
+     * Put all the samples from the odometry thread, in time order.
+     * 
+     * A sample can be older than a vision update that's already in the history,
+     * if the camera latency is less than the time since the previous drain. The
+     * sample goes in before the vision entry, which stays as it is, and later
+     * samples integrate from the vision entry, so there's nothing to replay.
+     */
+    void drain() {
+        for (OdometrySample s = m_thread.peek(); s != null; s = m_thread.peek()) {
+            put(s.timestampS, new Rotation2d(s.yawRad), s.yawRateRad_S, s.positions());
+            m_thread.release();
+        }
+    }
+
     /** For testing. */
     void update(double timestamp) {
         put(timestamp, m_gyro.getYawNWU(), m_gyro.getYawRateNWU(), m_positions.get());
@@ -111,31 +154,24 @@ public class OdometryUpdater {
             SwerveModulePositions wheelPositions) {
 
         // the entry right before this one, the basis for integration.
-        Entry<Double, InterpolationRecord> lowerEntry = m_history.lowerEntry(
-                currentTimeS);
+        int lowerIndex = m_history.lowerIndex(currentTimeS);
 
-        if (lowerEntry == null) {
+        if (lowerIndex < 0) {
             // System.out.println("lower entry is null");
             // We're at the beginning. There's nothing to apply the wheel position delta to.
             // This should never happen.
             return;
         }
 
-        double dt = currentTimeS - lowerEntry.getKey();
-        InterpolationRecord value = lowerEntry.getValue();
+        double dt = currentTimeS - m_history.timeAt(lowerIndex);
+        InterpolationRecord value = m_history.recordAt(lowerIndex);
         ModelR3 previousState = value.m_state;
         if (DEBUG) {
             System.out.printf("previous x %.6f y %.6f\n", previousState.pose().getX(), previousState.pose().getY());
         }
 
-        SwerveModuleDeltas modulePositionDelta = SwerveModuleDeltas.modulePositionDelta(
-                value.m_wheelPositions,
-                wheelPositions);
-        if (DEBUG) {
-            System.out.printf("modulePositionDelta %s\n", modulePositionDelta);
-        }
-
-        Twist2d twist = m_kinodynamics.getKinematics().toTwist2d(modulePositionDelta);
+        Twist2d twist = m_twist;
+        m_kinodynamics.getKinematics().toTwist2d(value.m_wheelPositions, wheelPositions, twist);
         if (DEBUG) {
             System.out.printf("twist x %.6f y %.6f theta %.6f\n", twist.dx, twist.dy, twist.dtheta);
         }
@@ -169,12 +205,31 @@ public class OdometryUpdater {
         m_history.put(currentTimeS, swerveState, wheelPositions);
     }
 
-    /** Replay odometry after the sample time. */
+    /**
+     * Replay odometry after the sample time.
+     * 
+     * Each put() replaces the record at the same timestamp, so the indices don't
+     * move, but we look up the next one by time anyway, to be safe.
+     */
     void replay(double timestamp) {
-        // Note the exclusive tailmap: we don't see the entry at timestamp.
-        for (Map.Entry<Double, InterpolationRecord> entry : m_history.exclusiveTailMap(timestamp).entrySet()) {
-            double entryTimestampS = entry.getKey();
-            InterpolationRecord value = entry.getValue();
+        replay(timestamp, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Replay odometry after the sample time, stopping after the first entry at
+     * or after untilS, so that a sample at untilS sees replayed entries on both
+     * sides. This is for batched vision updates, which replay the history
+     * piecewise, in time order, instead of all of it for each measurement.
+     */
+    void replay(double timestamp, double untilS) {
+        // Note the exclusive lookup: we don't see the entry at timestamp.
+        double entryTimestampS = timestamp;
+        while (true) {
+            int i = m_history.higherIndex(entryTimestampS);
+            if (i >= m_history.size())
+                return;
+            entryTimestampS = m_history.timeAt(i);
+            InterpolationRecord value = m_history.recordAt(i);
 
             // this is what the gyro must have been given the pose and offset
             // note that stale gyro offsets never occur, because the gyro offset is
@@ -184,6 +239,8 @@ public class OdometryUpdater {
             SwerveModulePositions wheelPositions = value.m_wheelPositions;
 
             put(entryTimestampS, entryGyroAngle, entryGyroRate, wheelPositions);
+            if (entryTimestampS >= untilS)
+                return;
         }
     }
 
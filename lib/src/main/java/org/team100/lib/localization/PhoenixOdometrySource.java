@@ -0,0 +1,48 @@
+package org.team100.lib.localization;
+
+import org.team100.lib.coherence.Takt;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.Utils;
+
+/**
+ * Waits for a set of CTRE status signals (e.g. the drive and steer positions,
+ * and a Pigeon yaw) to update together, and timestamps the sample with their
+ * hardware timestamps, converted to the FPGA timebase.
+ *
+ * Set the signal update frequency (e.g. 250 Hz) before using this.
+ *
+ * Phoenix signals are thread-safe, but nothing else in the module stack is,
+ * so the sampler should read only these signals, and other sources that are
+ * safe to read from another thread (e.g. the Redux gyro frames).
+ */
+public class PhoenixOdometrySource implements OdometrySource {
+    private final BaseStatusSignal[] m_signals;
+    private final Sampler m_sampler;
+
+    /**
+     * @param signals all on the same CAN bus
+     * @param sampler reads the signal values, after they've been refreshed.
+     */
+    public PhoenixOdometrySource(BaseStatusSignal[] signals, Sampler sampler) {
+        m_signals = signals;
+        m_sampler = sampler;
+    }
+
+    @Override
+    public boolean take(double timeoutS, OdometrySample out) {
+        StatusCode status = BaseStatusSignal.waitForAll(timeoutS, m_signals);
+        if (!status.isOK())
+            return false;
+        // average the hardware timestamps, which are within a frame of each other.
+        double sumS = 0;
+        for (BaseStatusSignal s : m_signals) {
+            sumS += s.getTimestamp().getTime();
+        }
+        double ageS = Utils.getCurrentTimeSeconds() - sumS / m_signals.length;
+        out.timestampS = Takt.actual() - ageS;
+        m_sampler.sample(out);
+        return true;
+    }
+}
@@ -0,0 +1,42 @@
+package org.team100.lib.localization;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Produces samples at a fixed rate from a model of the robot, e.g. simulated
+ * modules driven by a known chassis motion, for testing OdometryThread
+ * without CAN hardware.
+ */
+public class SimulatedOdometrySource implements OdometrySource {
+    private final long m_periodNs;
+    private final DoubleSupplier m_clock;
+    private final Sampler m_sampler;
+    private long m_nextNs;
+
+    /**
+     * @param periodS time between samples
+     * @param clock   timestamp for each sample, seconds
+     * @param sampler the model, which can use the timestamp in the sample.
+     */
+    public SimulatedOdometrySource(double periodS, DoubleSupplier clock, Sampler sampler) {
+        m_periodNs = (long) (periodS * 1e9);
+        m_clock = clock;
+        m_sampler = sampler;
+        m_nextNs = System.nanoTime() + m_periodNs;
+    }
+
+    @Override
+    public boolean take(double timeoutS, OdometrySample out) throws InterruptedException {
+        long waitNs = m_nextNs - System.nanoTime();
+        if (waitNs > timeoutS * 1e9) {
+            Thread.sleep((long) (timeoutS * 1000));
+            return false;
+        }
+        if (waitNs > 0)
+            Thread.sleep(waitNs / 1_000_000, (int) (waitNs % 1_000_000));
+        m_nextNs += m_periodNs;
+        out.timestampS = m_clock.getAsDouble();
+        m_sampler.sample(out);
+        return true;
+    }
+}
@@ -1,6 +1,7 @@
 package org.team100.lib.localization;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -131,65 +132,78 @@ public class SimulatedTagDetector {
             Camera camera = entry.getKey();
             StructArrayPublisher<Blip24> publisher = entry.getValue();
 
-            List<Blip24> blips = new ArrayList<>();
-            Transform3d cameraOffset = camera.getOffset();
-            Pose3d cameraPose3d = robotPose3d.plus(cameraOffset);
-            Alliance alliance = opt.get();
-
-            for (int tagId = 1; tagId <= TAG_COUNT; ++tagId) {
-                if (DEBUG) {
-                    System.out.printf("alliance %s camera %12s ", alliance.name(), camera.name());
-                }
-                Pose3d tagPose = m_layout.getTagPose(alliance, tagId).get();
-                if (DEBUG) {
-                    System.out.printf("tag id: %2d tag pose: X %6.2f Y %6.2f Z %6.2f R %6.2f P %6.2f Y %6.2f ",
-                            tagId, tagPose.getTranslation().getX(), tagPose.getTranslation().getY(),
-                            tagPose.getTranslation().getZ(), tagPose.getRotation().getX(), tagPose.getRotation().getY(),
-                            tagPose.getRotation().getZ());
-                }
-                Transform3d tagInCamera = tagInCamera(cameraPose3d, tagPose);
-                if (visible(tagInCamera)) {
-                    // publish it
-                    if (DEBUG) {
-
-                        System.out.print("VISIBLE ");
-                    }
-                    blips.add(Blip24.fromXForward(tagId, tagInCamera));
-                } else {
-                    // ignore it
-                    if (DEBUG) {
-
-                        System.out.print(" . ");
-                    }
-                }
-                if (DEBUG) {
-                    System.out.printf("camera: X %6.2f Y %6.2f Z %6.2f R %6.2f P %6.2f Y %6.2f",
-                            cameraOffset.getTranslation().getX(), cameraOffset.getTranslation().getY(),
-                            cameraOffset.getTranslation().getZ(), cameraOffset.getRotation().getX(),
-                            cameraOffset.getRotation().getY(), cameraOffset.getRotation().getZ());
-                    Translation3d tagTranslationInCamera = tagInCamera.getTranslation();
-                    Rotation3d tagRotationInCamera = tagInCamera.getRotation();
-                    System.out.printf(" tag in camera: X %6.2f Y %6.2f Z %6.2f  R %6.2f P %6.2f Y %6.2f\n",
-                            tagTranslationInCamera.getX(), tagTranslationInCamera.getY(),
-                            tagTranslationInCamera.getZ(), tagRotationInCamera.getX(), tagRotationInCamera.getY(),
-                            tagRotationInCamera.getZ());
-                }
-
-            }
+            Blip24[] blips = blips(m_layout, camera, robotPose3d, opt.get());
 
             // publish whatever we saw
             // with a timestamp matching the pose above
             long delayUs = (long) actualDelay * 1000000;
             long timestampUs = NetworkTablesJNI.now();
-            publisher.set(
-                    blips.toArray(new Blip24[0]), timestampUs - delayUs);
+            publisher.set(blips, timestampUs - delayUs);
             if (PUBLISH_DEBUG) {
-                System.out.printf("%s\n", blips);
+                System.out.printf("%s\n", Arrays.toString(blips));
             }
         }
 
     }
 
+    /**
+     * The tags the camera would see from the robot pose.
+     * 
+     * This is separate from periodic() so that tests can use the sightings
+     * without network tables.
+     */
+    static Blip24[] blips(
+            AprilTagFieldLayoutWithCorrectOrientation layout,
+            Camera camera,
+            Pose3d robotPose3d,
+            Alliance alliance) {
+        List<Blip24> blips = new ArrayList<>();
+        Transform3d cameraOffset = camera.getOffset();
+        Pose3d cameraPose3d = robotPose3d.plus(cameraOffset);
+
+        for (int tagId = 1; tagId <= TAG_COUNT; ++tagId) {
+            if (DEBUG) {
+                System.out.printf("alliance %s camera %12s ", alliance.name(), camera.name());
+            }
+            Pose3d tagPose = layout.getTagPose(alliance, tagId).get();
+            if (DEBUG) {
+                System.out.printf("tag id: %2d tag pose: X %6.2f Y %6.2f Z %6.2f R %6.2f P %6.2f Y %6.2f ",
+                        tagId, tagPose.getTranslation().getX(), tagPose.getTranslation().getY(),
+                        tagPose.getTranslation().getZ(), tagPose.getRotation().getX(), tagPose.getRotation().getY(),
+                        tagPose.getRotation().getZ());
+            }
+            Transform3d tagInCamera = tagInCamera(cameraPose3d, tagPose);
+            if (visible(tagInCamera)) {
+                // publish it
+                if (DEBUG) {
+
+                    System.out.print("VISIBLE ");
+                }
+                blips.add(Blip24.fromXForward(tagId, tagInCamera));
+            } else {
+                // ignore it
+                if (DEBUG) {
+
+                    System.out.print(" . ");
+                }
+            }
+            if (DEBUG) {
+                System.out.printf("camera: X %6.2f Y %6.2f Z %6.2f R %6.2f P %6.2f Y %6.2f",
+                        cameraOffset.getTranslation().getX(), cameraOffset.getTranslation().getY(),
+                        cameraOffset.getTranslation().getZ(), cameraOffset.getRotation().getX(),
+                        cameraOffset.getRotation().getY(), cameraOffset.getRotation().getZ());
+                Translation3d tagTranslationInCamera = tagInCamera.getTranslation();
+                Rotation3d tagRotationInCamera = tagInCamera.getRotation();
+                System.out.printf(" tag in camera: X %6.2f Y %6.2f Z %6.2f  R %6.2f P %6.2f Y %6.2f\n",
+                        tagTranslationInCamera.getX(), tagTranslationInCamera.getY(),
+                        tagTranslationInCamera.getZ(), tagRotationInCamera.getX(), tagRotationInCamera.getY(),
+                        tagRotationInCamera.getZ());
+            }
+
+        }
+        return blips.toArray(new Blip24[0]);
+    }
+
     /** Return the transform from the camera pose to the tag pose. */
     static Transform3d tagInCamera(Pose3d cameraPose3d, Pose3d tagPose) {
         return new Transform3d(cameraPose3d, tagPose);
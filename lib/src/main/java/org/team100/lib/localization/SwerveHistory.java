@@ -1,21 +1,19 @@
 package org.team100.lib.localization;
 
-import java.util.Map.Entry;
-import java.util.SortedMap;
 import java.util.function.DoubleFunction;
 
 import org.team100.lib.geometry.GlobalVelocityR3;
 import org.team100.lib.state.ModelR3;
 import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
-import org.team100.lib.util.TimeInterpolatableBuffer100;
+import org.team100.lib.util.TimeInterpolatableRingBuffer100;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 
 /**
  * History is just a container, in fact the implementation is little more than a
- * wrapper around TimeInterpolatableBuffer.
+ * wrapper around TimeInterpolatableRingBuffer100.
  * 
  * The history always has *something* in it, even the initial zero pose.
  * 
@@ -35,9 +33,14 @@ public class SwerveHistory implements DoubleFunction<ModelR3> {
      * older than about 200 ms.
      */
     private static final double BUFFER_DURATION = 0.2;
+    /**
+     * Odometry at 50 Hz is 10 entries per BUFFER_DURATION, and each camera adds
+     * up to 10 more, so this is plenty, even with faster odometry.
+     */
+    private static final int BUFFER_CAPACITY = 512;
 
     private final SwerveKinodynamics m_kinodynamics;
-    private final TimeInterpolatableBuffer100<InterpolationRecord> m_poseBuffer;
+    private final TimeInterpolatableRingBuffer100<InterpolationRecord> m_poseBuffer;
 
     public SwerveHistory(
             SwerveKinodynamics kinodynamics,
@@ -46,7 +49,8 @@ public class SwerveHistory implements DoubleFunction<ModelR3> {
             Pose2d initialPoseMeters,
             double timestampSeconds) {
         m_kinodynamics = kinodynamics;
-        m_poseBuffer = new TimeInterpolatableBuffer100<>(
+        m_poseBuffer = new TimeInterpolatableRingBuffer100<>(
+                BUFFER_CAPACITY,
                 BUFFER_DURATION,
                 timestampSeconds,
                 new InterpolationRecord(
@@ -97,8 +101,22 @@ public class SwerveHistory implements DoubleFunction<ModelR3> {
                         positions));
     }
 
-    Entry<Double, InterpolationRecord> lowerEntry(double timestamp) {
-        return m_poseBuffer.lowerEntry(timestamp);
+    /** Index of the newest record strictly older than timestamp, or -1. */
+    int lowerIndex(double timestamp) {
+        return m_poseBuffer.lowerIndex(timestamp);
+    }
+
+    /** Index of the oldest record strictly newer than timestamp, or size(). */
+    int higherIndex(double timestamp) {
+        return m_poseBuffer.higherIndex(timestamp);
+    }
+
+    double timeAt(int index) {
+        return m_poseBuffer.timeAt(index);
+    }
+
+    InterpolationRecord recordAt(int index) {
+        return m_poseBuffer.valueAt(index);
     }
 
     InterpolationRecord getRecord(double timestamp) {
@@ -109,10 +127,6 @@ public class SwerveHistory implements DoubleFunction<ModelR3> {
         return m_poseBuffer.tooOld(timestamp);
     }
 
-    SortedMap<Double, InterpolationRecord> exclusiveTailMap(double timestamp) {
-        return m_poseBuffer.tailMap(timestamp, false);
-    }
-
     int size() {
         return m_poseBuffer.size();
     }
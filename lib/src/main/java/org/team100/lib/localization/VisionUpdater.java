@@ -15,4 +15,16 @@ public interface VisionUpdater {
             double[] stateSigma,
             double[] visionSigma);
 
+    /**
+     * Start a batch of measurements. Until end(), put() may defer the replay, so
+     * that the whole batch replays the history once. Measurements in a batch
+     * should be put in time order.
+     */
+    default void begin() {
+    }
+
+    /** Finish the batch, replaying whatever was deferred. */
+    default void end() {
+    }
+
 }
\ No newline at end of file
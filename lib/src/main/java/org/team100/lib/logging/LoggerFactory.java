@@ -38,6 +38,7 @@ import edu.wpi.first.math.geometry.Twist2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.spline.PoseWithCurvature;
 import edu.wpi.first.math.trajectory.Trajectory.State;
+import edu.wpi.first.util.struct.Struct;
 
 /**
  * This is the logger factory class.
@@ -58,16 +59,33 @@ public class LoggerFactory {
     private final Supplier<Level> m_level;
     private final String m_root;
     private final PrimitiveLogger m_pLogger;
+    /** If false, the typed struct loggers publish the old fan-out keys instead. */
+    private final boolean m_structs;
 
+    /**
+     * @param structs if false, the typed struct loggers, e.g.
+     *                modelR3StructLogger(), publish the old fan-out keys, e.g.
+     *                "state/x/v", instead of one struct topic, so that dashboard
+     *                layouts that use those keys still work.
+     */
     public LoggerFactory(
             Supplier<Level> level,
             String root,
-            PrimitiveLogger primitiveLogger) {
+            PrimitiveLogger primitiveLogger,
+            boolean structs) {
         if (root.startsWith("/"))
             throw new IllegalArgumentException("don't lead with a slash");
         m_level = level;
         m_root = root;
         m_pLogger = primitiveLogger;
+        m_structs = structs;
+    }
+
+    public LoggerFactory(
+            Supplier<Level> level,
+            String root,
+            PrimitiveLogger primitiveLogger) {
+        this(level, root, primitiveLogger, true);
     }
 
     /**
@@ -77,7 +95,7 @@ public class LoggerFactory {
      * Each child level is separated by slashes, to make a tree in glass.
      */
     public LoggerFactory name(String stem) {
-        return new LoggerFactory(m_level, root(stem), m_pLogger);
+        return new LoggerFactory(m_level, root(stem), m_pLogger, m_structs);
     }
 
     /**
@@ -134,6 +152,13 @@ public class LoggerFactory {
             boolean val = vals.getAsBoolean();
             m_primitiveLogger.log(val);
         }
+
+        /** Use this for values you already have; it doesn't allocate. */
+        public void log(boolean val) {
+            if (!allow(m_level))
+                return;
+            m_primitiveLogger.log(val);
+        }
     }
 
     public BooleanLogger booleanLogger(Level level, String leaf) {
@@ -163,6 +188,13 @@ public class LoggerFactory {
             if (val != null)
                 m_primitiveLogger.log(val.doubleValue());
         }
+
+        /** Use this for values you already have; it doesn't allocate. */
+        public void log(double val) {
+            if (!allow(m_level))
+                return;
+            m_primitiveLogger.log(val);
+        }
     }
 
     public DoubleLogger doubleLogger(Level level, String leaf) {
@@ -184,6 +216,13 @@ public class LoggerFactory {
             int val = vals.getAsInt();
             m_primitiveLogger.log(val);
         }
+
+        /** Use this for values you already have; it doesn't allocate. */
+        public void log(int val) {
+            if (!allow(m_level))
+                return;
+            m_primitiveLogger.log(val);
+        }
     }
 
     public IntLogger intLogger(Level level, String leaf) {
@@ -226,6 +265,13 @@ public class LoggerFactory {
             long val = vals.getAsLong();
             m_primitiveLogger.log(val);
         }
+
+        /** Use this for values you already have; it doesn't allocate. */
+        public void log(long val) {
+            if (!allow(m_level))
+                return;
+            m_primitiveLogger.log(val);
+        }
     }
 
     public LongLogger longLogger(Level level, String leaf) {
@@ -258,6 +304,101 @@ public class LoggerFactory {
         return new StringLogger(level, leaf);
     }
 
+    /**
+     * Publishes the whole value as one struct record, instead of fanning out into
+     * a key per field like e.g. {@link Pose2dLogger} does. That's one publish
+     * instead of many, and the fields in the log are never torn.
+     */
+    public class StructLogger<T> {
+        private final Level m_level;
+        private final PrimitiveLogger.PrimitiveStructLogger<T> m_primitiveLogger;
+
+        StructLogger(Level level, String leaf, Struct<T> struct) {
+            this(level, m_pLogger.structLogger(root(leaf), struct));
+        }
+
+        /** For the fan-out fallback, see the constructor. */
+        private StructLogger(Level level, PrimitiveLogger.PrimitiveStructLogger<T> primitiveLogger) {
+            m_level = level;
+            m_primitiveLogger = primitiveLogger;
+        }
+
+        public void log(Supplier<T> vals) {
+            if (!allow(m_level))
+                return;
+            T val = vals.get();
+            if (val != null)
+                m_primitiveLogger.log(val);
+        }
+
+        /** Use this for values you already have; it doesn't allocate. */
+        public void log(T val) {
+            if (!allow(m_level))
+                return;
+            m_primitiveLogger.log(val);
+        }
+    }
+
+    public <T> StructLogger<T> structLogger(Level level, String leaf, Struct<T> struct) {
+        return new StructLogger<>(level, leaf, struct);
+    }
+
+    public StructLogger<Pose2d> pose2dStructLogger(Level level, String leaf) {
+        if (!m_structs) {
+            Pose2dLogger fanOut = pose2dLogger(level, leaf);
+            return new StructLogger<>(level, val -> fanOut.log(() -> val));
+        }
+        return structLogger(level, leaf, Pose2d.struct);
+    }
+
+    public StructLogger<Model100> model100StructLogger(Level level, String leaf) {
+        if (!m_structs) {
+            Model100Logger fanOut = model100Logger(level, leaf);
+            return new StructLogger<>(level, val -> fanOut.log(() -> val));
+        }
+        return structLogger(level, leaf, Model100.struct);
+    }
+
+    public StructLogger<Control100> control100StructLogger(Level level, String leaf) {
+        if (!m_structs) {
+            Control100Logger fanOut = control100Logger(level, leaf);
+            return new StructLogger<>(level, val -> fanOut.log(() -> val));
+        }
+        return structLogger(level, leaf, Control100.struct);
+    }
+
+    public StructLogger<ModelR3> modelR3StructLogger(Level level, String leaf) {
+        if (!m_structs) {
+            ModelR3Logger fanOut = modelR3Logger(level, leaf);
+            return new StructLogger<>(level, val -> fanOut.log(() -> val));
+        }
+        return structLogger(level, leaf, ModelR3.struct);
+    }
+
+    public StructLogger<ControlR3> controlR3StructLogger(Level level, String leaf) {
+        if (!m_structs) {
+            ControlR3Logger fanOut = controlR3Logger(level, leaf);
+            return new StructLogger<>(level, val -> fanOut.log(() -> val));
+        }
+        return structLogger(level, leaf, ControlR3.struct);
+    }
+
+    public StructLogger<SwerveModulePositions> swerveModulePositionsStructLogger(Level level, String leaf) {
+        if (!m_structs) {
+            SwerveModulePositionsLogger fanOut = swerveModulePositionsLogger(level, leaf);
+            return new StructLogger<>(level, val -> fanOut.log(() -> val));
+        }
+        return structLogger(level, leaf, SwerveModulePositions.struct);
+    }
+
+    public StructLogger<TimedPose> timedPoseStructLogger(Level level, String leaf) {
+        if (!m_structs) {
+            TimedPoseLogger fanOut = timedPoseLogger(level, leaf);
+            return new StructLogger<>(level, val -> fanOut.log(() -> val));
+        }
+        return structLogger(level, leaf, TimedPose.struct);
+    }
+
     public class OptionalDoubleLogger {
         private final Level m_level;
         private final PrimitiveLogger.PrimitiveDoubleLogger m_primitiveLogger;
@@ -367,9 +508,9 @@ public class LoggerFactory {
             if (!allow(m_level))
                 return;
             Translation3d val = vals.get();
-            m_xLogger.log(val::getX);
-            m_yLogger.log(val::getY);
-            m_zLogger.log(val::getZ);
+            m_xLogger.log(val.getX());
+            m_yLogger.log(val.getY());
+            m_zLogger.log(val.getZ());
         }
     }
 
@@ -394,9 +535,9 @@ public class LoggerFactory {
             if (!allow(m_level))
                 return;
             Rotation3d val = vals.get();
-            m_rollLogger.log(val::getX);
-            m_pitchLogger.log(val::getY);
-            m_yawLogger.log(val::getZ);
+            m_rollLogger.log(val.getX());
+            m_pitchLogger.log(val.getY());
+            m_yawLogger.log(val.getZ());
         }
     }
 
@@ -419,8 +560,8 @@ public class LoggerFactory {
             if (!allow(m_level))
                 return;
             Translation2d val = vals.get();
-            m_xLogger.log(val::getX);
-            m_yLogger.log(val::getY);
+            m_xLogger.log(val.getX());
+            m_yLogger.log(val.getY());
         }
     }
 
@@ -441,7 +582,7 @@ public class LoggerFactory {
             if (!allow(m_level))
                 return;
             Rotation2d val = vals.get();
-            m_radLogger.log(val::getRadians);
+            m_radLogger.log(val.getRadians());
         }
     }
 
@@ -469,9 +610,9 @@ public class LoggerFactory {
                 return;
             TimedPose val = vals.get();
             m_pose2dWithMotionLogger.log(val::state);
-            m_timeLogger.log(val::getTimeS);
-            m_velocityLogger.log(val::velocityM_S);
-            m_accelLogger.log(val::acceleration);
+            m_timeLogger.log(val.getTimeS());
+            m_velocityLogger.log(val.velocityM_S());
+            m_accelLogger.log(val.acceleration());
 
         }
     }
@@ -542,9 +683,9 @@ public class LoggerFactory {
             if (!allow(m_level))
                 return;
             Twist2d val = vals.get();
-            m_dxLogger.log(() -> val.dx);
-            m_dyLogger.log(() -> val.dy);
-            m_dthetaLogger.log(() -> val.dtheta);
+            m_dxLogger.log(val.dx);
+            m_dyLogger.log(val.dy);
+            m_dthetaLogger.log(val.dtheta);
         }
     }
 
@@ -569,9 +710,9 @@ public class LoggerFactory {
             if (!allow(m_level))
                 return;
             ChassisSpeeds val = vals.get();
-            m_vxLogger.log(() -> val.vxMetersPerSecond);
-            m_vyLogger.log(() -> val.vyMetersPerSecond);
-            m_omegaLogger.log(() -> val.omegaRadiansPerSecond);
+            m_vxLogger.log(val.vxMetersPerSecond);
+            m_vyLogger.log(val.vyMetersPerSecond);
+            m_omegaLogger.log(val.omegaRadiansPerSecond);
         }
     }
 
@@ -596,9 +737,9 @@ public class LoggerFactory {
             if (!allow(m_level))
                 return;
             GlobalDeltaR3 val = vals.get();
-            m_xLogger.log(val::getX);
-            m_yLogger.log(val::getY);
-            m_thetaLogger.log(val::getRadians);
+            m_xLogger.log(val.getX());
+            m_yLogger.log(val.getY());
+            m_thetaLogger.log(val.getRadians());
         }
     }
 
@@ -623,9 +764,9 @@ public class LoggerFactory {
             if (!allow(m_level))
                 return;
             GlobalVelocityR3 val = vals.get();
-            m_xLogger.log(val::x);
-            m_yLogger.log(val::y);
-            m_thetaLogger.log(val::theta);
+            m_xLogger.log(val.x());
+            m_yLogger.log(val.y());
+            m_thetaLogger.log(val.theta());
         }
     }
 
@@ -648,8 +789,8 @@ public class LoggerFactory {
             if (!allow(m_level))
                 return;
             GlobalVelocityR2 val = vals.get();
-            m_xLogger.log(val::x);
-            m_yLogger.log(val::y);
+            m_xLogger.log(val.x());
+            m_yLogger.log(val.y());
         }
     }
 
@@ -674,9 +815,9 @@ public class LoggerFactory {
             if (!allow(m_level))
                 return;
             GlobalAccelerationR3 val = vals.get();
-            m_xLogger.log(val::x);
-            m_yLogger.log(val::y);
-            m_thetaLogger.log(val::theta);
+            m_xLogger.log(val.x());
+            m_yLogger.log(val.y());
+            m_thetaLogger.log(val.theta());
         }
     }
 
@@ -699,8 +840,8 @@ public class LoggerFactory {
             if (!allow(m_level))
                 return;
             Model100 val = vals.get();
-            m_xLogger.log(() -> val.x());
-            m_vLogger.log(val::v);
+            m_xLogger.log(val.x());
+            m_vLogger.log(val.v());
         }
     }
 
@@ -721,9 +862,9 @@ public class LoggerFactory {
             if (!allow(m_level))
                 return;
             Control100 val = vals.get();
-            m_xLogger.log(val::x);
-            m_vLogger.log(val::v);
-            m_aLogger.log(val::a);
+            m_xLogger.log(val.x());
+            m_vLogger.log(val.v());
+            m_aLogger.log(val.a());
         }
     }
 
@@ -828,7 +969,7 @@ public class LoggerFactory {
             if (!allow(m_level))
                 return;
             SwerveModulePosition100 val = vals.get();
-            m_distanceLogger.log(() -> val.distanceMeters);
+            m_distanceLogger.log(val.distanceMeters);
             if (val.unwrappedAngle.isPresent()) {
                 m_rotation2dLogger.log(val.unwrappedAngle::get);
             }
@@ -914,9 +1055,9 @@ public class LoggerFactory {
                 return;
             State val = vals.get();
             m_poseLogger.log(() -> val.poseMeters);
-            m_curvatureLogger.log(() -> val.curvatureRadPerMeter);
-            m_velocityLogger.log(() -> val.velocityMetersPerSecond);
-            m_accelLogger.log(() -> val.accelerationMetersPerSecondSq);
+            m_curvatureLogger.log(val.curvatureRadPerMeter);
+            m_velocityLogger.log(val.velocityMetersPerSecond);
+            m_accelLogger.log(val.accelerationMetersPerSecondSq);
         }
     }
 
@@ -939,7 +1080,7 @@ public class LoggerFactory {
             if (!allow(m_level))
                 return;
             Blip24 val = vals.get();
-            m_idLogger.log(val::getId);
+            m_idLogger.log(val.getId());
             m_transformLogger.log(val::getRawPose);
         }
     }
@@ -965,9 +1106,9 @@ public class LoggerFactory {
             if (!allow(m_level))
                 return;
             EAWConfig val = vals.get();
-            m_elevator.log(val::shoulderHeight);
-            m_shoulder.log(val::shoulderAngle);
-            m_wrist.log(val::wristAngle);
+            m_elevator.log(val.shoulderHeight());
+            m_shoulder.log(val.shoulderAngle());
+            m_wrist.log(val.wristAngle());
         }
     }
 
@@ -992,9 +1133,9 @@ public class LoggerFactory {
             if (!allow(m_level))
                 return;
             JointVelocities val = vals.get();
-            m_elevator.log(val::elevator);
-            m_shoulder.log(val::shoulder);
-            m_wrist.log(val::wrist);
+            m_elevator.log(val.elevator());
+            m_shoulder.log(val.shoulder());
+            m_wrist.log(val.wrist());
         }
     }
 
@@ -1019,9 +1160,9 @@ public class LoggerFactory {
             if (!allow(m_level))
                 return;
             JointAccelerations val = vals.get();
-            m_elevator.log(val::elevator);
-            m_shoulder.log(val::shoulder);
-            m_wrist.log(val::wrist);
+            m_elevator.log(val.elevator());
+            m_shoulder.log(val.shoulder());
+            m_wrist.log(val.wrist());
         }
     }
 
@@ -1046,9 +1187,9 @@ public class LoggerFactory {
             if (!allow(m_level))
                 return;
             JointForce val = vals.get();
-            m_elevator.log(val::elevator);
-            m_shoulder.log(val::shoulder);
-            m_wrist.log(val::wrist);
+            m_elevator.log(val.elevator());
+            m_shoulder.log(val.shoulder());
+            m_wrist.log(val.wrist());
         }
     }
 
@@ -1,7 +1,11 @@
 package org.team100.lib.logging;
 
+import org.team100.lib.logging.primitive.BufferedPrimitiveLogger;
 import org.team100.lib.logging.primitive.NTPrimitiveLogger;
 import org.team100.lib.logging.primitive.PrimitiveLogger;
+import org.team100.lib.logging.primitive.UdpAsyncSender;
+import org.team100.lib.logging.primitive.UdpPrimitiveLogger;
+import org.team100.lib.logging.primitive.UdpSender;
 import org.team100.lib.util.NamedChooser;
 
 import com.ctre.phoenix6.SignalLogger;
@@ -17,7 +21,40 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 public class Logging {
     private static final Level DEFAULT_LEVEL = Level.TRACE;
 
+    /** Which primitive transport to use. */
+    enum Transport {
+        /** Publish to Network Tables immediately on each log() call. Slow. */
+        NT,
+        /**
+         * Buffer main-thread log() calls in primitive slots, publish to NT once per
+         * loop. Calls from other threads go straight to NT.
+         */
+        BUFFERED,
+        /**
+         * Send changed values once per loop via UDP to the log receiver, see
+         * {@link org.team100.lib.logging.receiver.UdpReceiver}. The socket writes
+         * happen in a separate thread. You must have a log receiver listening!
+         */
+        UDP
+    }
+
+    private static final Transport TRANSPORT = Transport.NT;
+
+    /**
+     * If true, the typed struct loggers, e.g. modelR3StructLogger(), publish one
+     * struct topic per value. If false, they publish the old fan-out keys, e.g.
+     * "state/x/v", which the dashboard layouts, e.g. analysis/layout.json, use.
+     * Update the layouts before turning this on.
+     */
+    private static final boolean STRUCTS = false;
+
     private PrimitiveLogger ntLogger;
+    /** Null unless TRANSPORT is BUFFERED. */
+    private BufferedPrimitiveLogger bufferedLogger;
+    /** Null unless TRANSPORT is UDP. */
+    private UdpPrimitiveLogger udpLogger;
+    /** Snapshot of the chooser, see update(). */
+    private Level m_level;
 
     private static final SendableChooser<Level> m_LevelChooser = new NamedChooser<>("Log Level");
 
@@ -42,9 +79,29 @@ public class Logging {
      * Clients should use the static instance, not the constructor.
      */
     private Logging() {
-        ntLogger = new NTPrimitiveLogger();
-        fieldLogger = new LoggerFactory(this::getLevel, "field", ntLogger);
-        rootLogger = new LoggerFactory(this::getLevel, "log", ntLogger);
+        update();
+        PrimitiveLogger primitiveLogger;
+        switch (TRANSPORT) {
+            case UDP -> {
+                System.out.println("WARNING: Using UDP network logging!");
+                System.out.println("WARNING: You must have a log listener connected!");
+                udpLogger = new UdpPrimitiveLogger(
+                        new UdpAsyncSender(UdpSender.data(), "UdpDataSender"),
+                        new UdpAsyncSender(UdpSender.meta(), "UdpMetaSender"));
+                primitiveLogger = udpLogger;
+            }
+            case BUFFERED -> {
+                ntLogger = new NTPrimitiveLogger();
+                bufferedLogger = new BufferedPrimitiveLogger(ntLogger);
+                primitiveLogger = bufferedLogger;
+            }
+            default -> {
+                ntLogger = new NTPrimitiveLogger();
+                primitiveLogger = ntLogger;
+            }
+        }
+        fieldLogger = new LoggerFactory(this::getLevel, "field", primitiveLogger, STRUCTS);
+        rootLogger = new LoggerFactory(this::getLevel, "log", primitiveLogger, STRUCTS);
         fieldLogger.stringLogger(Level.COMP, ".type").log(() -> "Field2d");
 
         // turn off the CTRE log we never use
@@ -52,13 +109,38 @@ public class Logging {
     }
 
     public int keyCount() {
+        if (udpLogger != null)
+            return udpLogger.keyCount();
         if (ntLogger != null)
             return ntLogger.keyCount();
         return 0;
     }
 
+    /**
+     * Take a snapshot of the selected level, so that getLevel() is just a field
+     * read, not a chooser lookup.
+     * 
+     * This is called by TimedRobot100 at the start of each main loop iteration.
+     */
+    public void update() {
+        m_level = m_LevelChooser.getSelected();
+    }
+
+    /**
+     * Write any buffered log events to the transport.
+     * 
+     * This is called by TimedRobot100 at the end of each main loop iteration.
+     */
+    public void periodic() {
+        if (bufferedLogger != null)
+            bufferedLogger.flush();
+        if (udpLogger != null)
+            udpLogger.periodic();
+    }
+
+    /** The level as of the most recent update(). */
     public Level getLevel() {
-        return m_LevelChooser.getSelected();
+        return m_level;
     }
 
     /** The logging singleton. */
@@ -0,0 +1,340 @@
+package org.team100.lib.logging.primitive;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.wpi.first.util.struct.Struct;
+
+/**
+ * Buffers log events in preallocated primitive slots, and writes them to the
+ * delegate all at once when flush() is called.
+ *
+ * Each logger gets an int handle when it's created, so the cost of log() is
+ * just an array store and a dirty flag: no boxing, no hashing, no NT publisher
+ * call. The delegate (e.g. {@link NTPrimitiveLogger}) is only touched by
+ * flush(), which should be called once per loop, at the end of robotPeriodic.
+ *
+ * If a key is logged more than once before flush(), the last value wins.
+ *
+ * The buffer is not thread-safe, so it's confined to one thread: the one that
+ * created it, and then the one that calls flush(), i.e. the main loop. log()
+ * calls from any other thread (e.g. sensor sync executors, the camera ingest
+ * thread, or the signal refresher) skip the buffer, and go straight to the
+ * delegate, so the delegate must be thread-safe, as NT is. Those calls cost
+ * as much as they would without the buffer, but nothing is lost.
+ */
+public class BufferedPrimitiveLogger implements PrimitiveLogger {
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private final PrimitiveLogger m_delegate;
+
+    private final List<PrimitiveBooleanLogger> m_booleanSinks = new ArrayList<>();
+    private final List<PrimitiveDoubleLogger> m_doubleSinks = new ArrayList<>();
+    private final List<PrimitiveIntLogger> m_intSinks = new ArrayList<>();
+    private final List<PrimitiveDoubleArrayLogger> m_doubleArraySinks = new ArrayList<>();
+    private final List<PrimitiveLongLogger> m_longSinks = new ArrayList<>();
+    private final List<PrimitiveStringLogger> m_stringSinks = new ArrayList<>();
+    private final List<PrimitiveStructLogger<?>> m_structSinks = new ArrayList<>();
+
+    private boolean[] m_booleans;
+    private double[] m_doubles;
+    private int[] m_ints;
+    private double[][] m_doubleArrays;
+    private long[] m_longs;
+    private String[] m_strings;
+    private Object[] m_structs;
+
+    private final Dirty m_booleanDirty;
+    private final Dirty m_doubleDirty;
+    private final Dirty m_intDirty;
+    private final Dirty m_doubleArrayDirty;
+    private final Dirty m_longDirty;
+    private final Dirty m_stringDirty;
+    private final Dirty m_structDirty;
+
+    /** The thread that may use the buffer. */
+    private volatile Thread m_owner;
+    /** log() calls from other threads, which go to the delegate. */
+    private final AtomicInteger m_passedThrough = new AtomicInteger();
+
+    public BufferedPrimitiveLogger(PrimitiveLogger delegate, int capacity) {
+        m_delegate = delegate;
+        m_owner = Thread.currentThread();
+        m_booleans = new boolean[capacity];
+        m_doubles = new double[capacity];
+        m_ints = new int[capacity];
+        m_doubleArrays = new double[capacity][];
+        m_longs = new long[capacity];
+        m_strings = new String[capacity];
+        m_structs = new Object[capacity];
+        m_booleanDirty = new Dirty(capacity);
+        m_doubleDirty = new Dirty(capacity);
+        m_intDirty = new Dirty(capacity);
+        m_doubleArrayDirty = new Dirty(capacity);
+        m_longDirty = new Dirty(capacity);
+        m_stringDirty = new Dirty(capacity);
+        m_structDirty = new Dirty(capacity);
+    }
+
+    public BufferedPrimitiveLogger(PrimitiveLogger delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public int keyCount() {
+        return m_delegate.keyCount();
+    }
+
+    /**
+     * Write all the values logged since the last flush to the delegate, and clear
+     * the dirty flags.
+     *
+     * Should be run at the end of Robot.robotPeriodic(). The calling thread owns
+     * the buffer from then on.
+     */
+    public void flush() {
+        m_owner = Thread.currentThread();
+        for (int i = 0; i < m_booleanDirty.m_count; ++i) {
+            int handle = m_booleanDirty.m_handles[i];
+            m_booleanSinks.get(handle).log(m_booleans[handle]);
+        }
+        m_booleanDirty.clear();
+        for (int i = 0; i < m_doubleDirty.m_count; ++i) {
+            int handle = m_doubleDirty.m_handles[i];
+            m_doubleSinks.get(handle).log(m_doubles[handle]);
+        }
+        m_doubleDirty.clear();
+        for (int i = 0; i < m_intDirty.m_count; ++i) {
+            int handle = m_intDirty.m_handles[i];
+            m_intSinks.get(handle).log(m_ints[handle]);
+        }
+        m_intDirty.clear();
+        for (int i = 0; i < m_doubleArrayDirty.m_count; ++i) {
+            int handle = m_doubleArrayDirty.m_handles[i];
+            m_doubleArraySinks.get(handle).log(m_doubleArrays[handle]);
+            // don't hang on to the caller's array.
+            m_doubleArrays[handle] = null;
+        }
+        m_doubleArrayDirty.clear();
+        for (int i = 0; i < m_longDirty.m_count; ++i) {
+            int handle = m_longDirty.m_handles[i];
+            m_longSinks.get(handle).log(m_longs[handle]);
+        }
+        m_longDirty.clear();
+        for (int i = 0; i < m_stringDirty.m_count; ++i) {
+            int handle = m_stringDirty.m_handles[i];
+            m_stringSinks.get(handle).log(m_strings[handle]);
+            m_strings[handle] = null;
+        }
+        m_stringDirty.clear();
+        for (int i = 0; i < m_structDirty.m_count; ++i) {
+            int handle = m_structDirty.m_handles[i];
+            flushStruct(m_structSinks.get(handle), m_structs[handle]);
+            m_structs[handle] = null;
+        }
+        m_structDirty.clear();
+    }
+
+    /** Number of log() calls from other threads, passed through to the delegate. */
+    public int getPassedThrough() {
+        return m_passedThrough.get();
+    }
+
+    /**
+     * True if the caller may use the buffer. Otherwise the caller should log to
+     * the delegate directly.
+     */
+    private boolean owned() {
+        if (m_owner == Thread.currentThread())
+            return true;
+        m_passedThrough.incrementAndGet();
+        return false;
+    }
+
+    /** The slot type matches the sink type, because they're paired at registration. */
+    @SuppressWarnings("unchecked")
+    private static <T> void flushStruct(PrimitiveStructLogger<T> sink, Object val) {
+        sink.log((T) val);
+    }
+
+    /**
+     * Handles of the slots written since the last flush, in the order they were
+     * first written. The flags prevent duplicates.
+     */
+    private static class Dirty {
+        boolean[] m_flags;
+        int[] m_handles;
+        int m_count;
+
+        Dirty(int capacity) {
+            m_flags = new boolean[capacity];
+            m_handles = new int[capacity];
+        }
+
+        void mark(int handle) {
+            if (m_flags[handle])
+                return;
+            m_flags[handle] = true;
+            m_handles[m_count++] = handle;
+        }
+
+        void clear() {
+            for (int i = 0; i < m_count; ++i) {
+                m_flags[m_handles[i]] = false;
+            }
+            m_count = 0;
+        }
+
+        /** Only called at registration time. */
+        void grow(int capacity) {
+            if (capacity <= m_flags.length)
+                return;
+            m_flags = Arrays.copyOf(m_flags, capacity);
+            m_handles = Arrays.copyOf(m_handles, capacity);
+        }
+    }
+
+    /** Capacity for the next handle; growth only happens at registration. */
+    private static int capacityFor(int handle, int length) {
+        if (handle < length)
+            return length;
+        return Math.max(2 * length, handle + 1);
+    }
+
+    @Override
+    public PrimitiveBooleanLogger booleanLogger(String label) {
+        final int handle = m_booleanSinks.size();
+        final PrimitiveBooleanLogger sink = m_delegate.booleanLogger(label);
+        m_booleanSinks.add(sink);
+        int capacity = capacityFor(handle, m_booleans.length);
+        m_booleans = Arrays.copyOf(m_booleans, capacity);
+        m_booleanDirty.grow(capacity);
+        return val -> {
+            if (!owned()) {
+                sink.log(val);
+                return;
+            }
+            m_booleans[handle] = val;
+            m_booleanDirty.mark(handle);
+        };
+    }
+
+    @Override
+    public PrimitiveDoubleLogger doubleLogger(String label) {
+        final int handle = m_doubleSinks.size();
+        final PrimitiveDoubleLogger sink = m_delegate.doubleLogger(label);
+        m_doubleSinks.add(sink);
+        int capacity = capacityFor(handle, m_doubles.length);
+        m_doubles = Arrays.copyOf(m_doubles, capacity);
+        m_doubleDirty.grow(capacity);
+        return val -> {
+            if (!owned()) {
+                sink.log(val);
+                return;
+            }
+            m_doubles[handle] = val;
+            m_doubleDirty.mark(handle);
+        };
+    }
+
+    @Override
+    public PrimitiveIntLogger intLogger(String label) {
+        final int handle = m_intSinks.size();
+        final PrimitiveIntLogger sink = m_delegate.intLogger(label);
+        m_intSinks.add(sink);
+        int capacity = capacityFor(handle, m_ints.length);
+        m_ints = Arrays.copyOf(m_ints, capacity);
+        m_intDirty.grow(capacity);
+        return val -> {
+            if (!owned()) {
+                sink.log(val);
+                return;
+            }
+            m_ints[handle] = val;
+            m_intDirty.mark(handle);
+        };
+    }
+
+    /**
+     * Note the array is not copied, so the caller shouldn't mutate it before
+     * flush().
+     */
+    @Override
+    public PrimitiveDoubleArrayLogger doubleArrayLogger(String label) {
+        final int handle = m_doubleArraySinks.size();
+        final PrimitiveDoubleArrayLogger sink = m_delegate.doubleArrayLogger(label);
+        m_doubleArraySinks.add(sink);
+        int capacity = capacityFor(handle, m_doubleArrays.length);
+        m_doubleArrays = Arrays.copyOf(m_doubleArrays, capacity);
+        m_doubleArrayDirty.grow(capacity);
+        return val -> {
+            if (!owned()) {
+                sink.log(val);
+                return;
+            }
+            m_doubleArrays[handle] = val;
+            m_doubleArrayDirty.mark(handle);
+        };
+    }
+
+    @Override
+    public PrimitiveLongLogger longLogger(String label) {
+        final int handle = m_longSinks.size();
+        final PrimitiveLongLogger sink = m_delegate.longLogger(label);
+        m_longSinks.add(sink);
+        int capacity = capacityFor(handle, m_longs.length);
+        m_longs = Arrays.copyOf(m_longs, capacity);
+        m_longDirty.grow(capacity);
+        return val -> {
+            if (!owned()) {
+                sink.log(val);
+                return;
+            }
+            m_longs[handle] = val;
+            m_longDirty.mark(handle);
+        };
+    }
+
+    @Override
+    public PrimitiveStringLogger stringLogger(String label) {
+        final int handle = m_stringSinks.size();
+        final PrimitiveStringLogger sink = m_delegate.stringLogger(label);
+        m_stringSinks.add(sink);
+        int capacity = capacityFor(handle, m_strings.length);
+        m_strings = Arrays.copyOf(m_strings, capacity);
+        m_stringDirty.grow(capacity);
+        return val -> {
+            if (!owned()) {
+                sink.log(val);
+                return;
+            }
+            m_strings[handle] = val;
+            m_stringDirty.mark(handle);
+        };
+    }
+
+    /**
+     * The value is not copied (or packed) until flush(), so it should be
+     * immutable, or at least not mutated before flush().
+     */
+    @Override
+    public <T> PrimitiveStructLogger<T> structLogger(String label, Struct<T> struct) {
+        final int handle = m_structSinks.size();
+        final PrimitiveStructLogger<T> sink = m_delegate.structLogger(label, struct);
+        m_structSinks.add(sink);
+        int capacity = capacityFor(handle, m_structs.length);
+        m_structs = Arrays.copyOf(m_structs, capacity);
+        m_structDirty.grow(capacity);
+        return val -> {
+            if (!owned()) {
+                sink.log(val);
+                return;
+            }
+            m_structs[handle] = val;
+            m_structDirty.mark(handle);
+        };
+    }
+
+}
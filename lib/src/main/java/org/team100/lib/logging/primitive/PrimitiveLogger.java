@@ -1,5 +1,7 @@
 package org.team100.lib.logging.primitive;
 
+import edu.wpi.first.util.struct.Struct;
+
 /**
  * This should not be used by client code. Use {@link LoggerFactory} instead.
  */
@@ -48,4 +50,16 @@ public interface PrimitiveLogger {
     }
 
     PrimitiveStringLogger stringLogger(String label);
+
+    /**
+     * Composite values are packed into one record using the WPILib struct
+     * encoding, so each value is one publish, and readers never see a mixture of
+     * old and new fields.
+     */
+    @FunctionalInterface
+    interface PrimitiveStructLogger<T> {
+        void log(T val);
+    }
+
+    <T> PrimitiveStructLogger<T> structLogger(String label, Struct<T> struct);
 }
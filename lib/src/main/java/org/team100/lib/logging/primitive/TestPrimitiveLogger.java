@@ -1,9 +1,13 @@
 package org.team100.lib.logging.primitive;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
+import edu.wpi.first.util.struct.Struct;
+
 /** Prints logs to stdout. */
 public class TestPrimitiveLogger implements PrimitiveLogger {
     private final boolean m_print;
@@ -99,4 +103,22 @@ public class TestPrimitiveLogger implements PrimitiveLogger {
             }
         };
     }
+
+    @Override
+    public <T> PrimitiveStructLogger<T> structLogger(String label, Struct<T> struct) {
+        keys.add(label);
+        // pack anyway, so tests exercise the struct.
+        final ByteBuffer buf = ByteBuffer.allocate(struct.getSize());
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        return new PrimitiveStructLogger<T>() {
+            @Override
+            public void log(T val) {
+                buf.clear();
+                struct.pack(buf, val);
+                if (m_print) {
+                    System.out.printf("%s/%s\n", label, val);
+                }
+            }
+        };
+    }
 }
\ No newline at end of file
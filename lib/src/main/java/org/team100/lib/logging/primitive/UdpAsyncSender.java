@@ -0,0 +1,85 @@
+package org.team100.lib.logging.primitive;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Moves the socket write off the caller's thread.
+ *
+ * The caller (the main loop) copies each packet into one of a fixed pool of
+ * preallocated direct buffers, and a daemon thread writes them to the
+ * delegate. Nothing is allocated after construction.
+ *
+ * If the sender thread falls behind and the pool is empty, the packet is
+ * dropped rather than making the caller wait; UDP logging is lossy anyway.
+ */
+public class UdpAsyncSender implements Consumer<ByteBuffer>, AutoCloseable {
+    private static final int POOL_SIZE = 256;
+
+    private final Consumer<ByteBuffer> m_delegate;
+    private final BlockingQueue<ByteBuffer> m_free;
+    private final BlockingQueue<ByteBuffer> m_full;
+    private final Thread m_thread;
+    private volatile boolean m_running;
+    private int m_dropped;
+
+    public UdpAsyncSender(Consumer<ByteBuffer> delegate, String name) {
+        m_delegate = delegate;
+        m_free = new ArrayBlockingQueue<>(POOL_SIZE);
+        m_full = new ArrayBlockingQueue<>(POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; ++i) {
+            ByteBuffer b = ByteBuffer.allocateDirect(UdpSender.MTU);
+            b.order(ByteOrder.BIG_ENDIAN);
+            m_free.add(b);
+        }
+        m_running = true;
+        m_thread = new Thread(this::run, name);
+        m_thread.setDaemon(true);
+        m_thread.start();
+    }
+
+    /** Copies the remaining bytes of bb; the caller can reuse bb immediately. */
+    @Override
+    public void accept(ByteBuffer bb) {
+        ByteBuffer b = m_free.poll();
+        if (b == null) {
+            m_dropped++;
+            return;
+        }
+        b.clear();
+        b.put(bb);
+        b.flip();
+        m_full.offer(b);
+    }
+
+    /** Packets dropped because the sender thread couldn't keep up. */
+    public int getDropped() {
+        return m_dropped;
+    }
+
+    /** For testing: true if everything handed to accept() has been sent. */
+    public boolean idle() {
+        return m_full.isEmpty() && m_free.size() == POOL_SIZE;
+    }
+
+    private void run() {
+        while (m_running) {
+            try {
+                ByteBuffer b = m_full.take();
+                m_delegate.accept(b);
+                m_free.offer(b);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        m_running = false;
+        m_thread.interrupt();
+    }
+}
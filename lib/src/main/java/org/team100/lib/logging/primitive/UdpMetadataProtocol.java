@@ -78,20 +78,26 @@ public class UdpMetadataProtocol {
     /**
      * Clear the underlying buffer, update the timestamp if possible, and write the
      * timestamp into the buffer.
-     * 
-     * TODO: allow setting the timestamp to a specific value, for testing.
      */
     void clear() {
         m_buffer.clear();
-        setTimestamp();
+        updateTimestamp();
         m_buffer.putLong(UdpMetadataProtocol.timestamp);
     }
-    
+
+    /**
+     * Set the timestamp to a specific value, for testing. Zero means unset, so
+     * the next clear() will take the system time if it's valid.
+     */
+    static void setTimestamp(long value) {
+        timestamp = value;
+    }
+
     /**
      * If it hasn't already been set, and if a valid value is available, set the
      * timestamp.
      */
-    private static void setTimestamp() {
+    private static void updateTimestamp() {
         if (timestamp != 0)
             return; // already set
         if (!RobotController.isSystemTimeValid())
@@ -1,31 +1,46 @@
 package org.team100.lib.logging.primitive;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 
-import org.team100.lib.util.Takt;
-import org.team100.lib.util.Util;
+import org.team100.lib.coherence.Takt;
+
+import edu.wpi.first.util.struct.Struct;
 
 /**
  * Send logs to a log recipient via UDP.
- * 
+ *
  * UDP is not formally reliable but on the robot LAN, for log data, it's good
  * enough.
- * 
- * The recipient IP is always 10.1.0.100. (or 16 at the moment)
- * 
+ *
+ * The log() methods just store the value and set a dirty flag. The flush()
+ * method encodes the dirty values (only the ones that changed) into a
+ * preallocated direct buffer and hands each full packet to the data sink. Use
+ * an {@link UdpAsyncSender} sink to keep the socket writes off the main loop
+ * thread.
+ *
  * This logger accepts inputs only one value per key per flush period; the
  * newest value wins.
+ *
+ * Create the loggers, i.e. call booleanLogger() etc, on the main thread, at
+ * startup. Call flush() and periodic() on the main thread. log() may be called
+ * from any thread (e.g. sensor sync executors or the camera ingest thread):
+ * each logger's value and dirty flag are volatile, and flush() clears the flag
+ * before it reads the value, so a value logged during a flush is sent by that
+ * flush or the next one, never lost. Arrays and structs aren't copied, so
+ * don't mutate them after logging.
  */
 public class UdpPrimitiveLogger implements PrimitiveLogger {
     /** if false, throw when a duplicate logger is created. */
     private static final boolean ALLOW_DUPLICATES = true;
+    /** Labels are resent periodically, in case the receiver missed them. */
+    private static final double kLabelPeriod = 0.1;
 
     record Metadata(int key, UdpType type, String label) {
         /** this is the only place we check the sizes. */
@@ -38,8 +53,6 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         }
     }
 
-    private static final double kFlushPeriod = 0.1;
-
     /** Using lists makes the scan for flushing ever-so-slightly faster */
     private final List<UdpBooleanLogger> booleanLoggers = new ArrayList<>();
     private final List<UdpDoubleLogger> doubleLoggers = new ArrayList<>();
@@ -47,6 +60,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     private final List<UdpDoubleArrayLogger> doubleArrayLoggers = new ArrayList<>();
     private final List<UdpLongLogger> longLoggers = new ArrayList<>();
     private final List<UdpStringLogger> stringLoggers = new ArrayList<>();
+    private final List<UdpStructLogger<?>> structLoggers = new ArrayList<>();
 
     final List<Metadata> metadata = new ArrayList<>();
     /**
@@ -60,6 +74,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     private final Map<String, UdpDoubleArrayLogger> doubleArrayIdx = new HashMap<>();
     private final Map<String, UdpLongLogger> longIdx = new HashMap<>();
     private final Map<String, UdpStringLogger> stringIdx = new HashMap<>();
+    private final Map<String, UdpStructLogger<?>> structIdx = new HashMap<>();
     private final Consumer<ByteBuffer> m_bufferSink;
     private final Consumer<ByteBuffer> m_metadataSink;
 
@@ -70,7 +85,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     /** Current offset of label dumper */
     int offset = 0;
 
-    private double flushTime;
+    private double labelTime;
 
     public UdpPrimitiveLogger(
             Consumer<ByteBuffer> dataSink,
@@ -79,12 +94,12 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         m_metadataSink = metadataSink;
         m_dataProtocol = new UdpPrimitiveProtocol();
         m_metadataProtocol = new UdpMetadataProtocol();
-        flushTime = 0;
+        labelTime = 0;
     }
 
     /**
      * Call this once when the specific logger class is instantiated.
-     * 
+     *
      * Minimum key is 1, so that zero is an "invalid key".
      */
     private synchronized int getKey(UdpType type, String label) {
@@ -98,13 +113,17 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         return metadata.size();
     }
 
-    /** Emits some labels and flushes all dirty values. */
+    /**
+     * Flushes all dirty values, and emits some labels every so often.
+     *
+     * Should be run at the end of Robot.robotPeriodic().
+     */
     public void periodic() {
+        flush();
         double now = Takt.get();
-        if (flushTime + kFlushPeriod < now) {
-            flush();
+        if (labelTime + kLabelPeriod < now) {
             dumpLabels();
-            flushTime = now;
+            labelTime = now;
         }
     }
 
@@ -115,7 +134,7 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
 
     /**
      * Send one packet of labels.
-     * 
+     *
      * return true if there are more labels to send
      */
     public boolean dumpLabels() {
@@ -146,13 +165,14 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         flushDoubleArray();
         flushLong();
         flushString();
+        flushStruct();
         m_bufferSink.accept(m_dataProtocol.trim());
     }
 
     public class UdpBooleanLogger implements PrimitiveLogger.PrimitiveBooleanLogger {
         private final int m_key;
-        private boolean m_val;
-        private boolean m_dirty;
+        private volatile boolean m_val;
+        private volatile boolean m_dirty;
 
         public UdpBooleanLogger(String label) {
             m_key = getKey(UdpType.BOOLEAN, label);
@@ -168,8 +188,8 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
 
     public class UdpDoubleLogger implements PrimitiveLogger.PrimitiveDoubleLogger {
         private final int m_key;
-        private double m_val;
-        private boolean m_dirty;
+        private volatile double m_val;
+        private volatile boolean m_dirty;
 
         public UdpDoubleLogger(String label) {
             m_key = getKey(UdpType.DOUBLE, label);
@@ -186,8 +206,8 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
 
     public class UdpIntLogger implements PrimitiveLogger.PrimitiveIntLogger {
         private final int m_key;
-        private int m_val;
-        private boolean m_dirty;
+        private volatile int m_val;
+        private volatile boolean m_dirty;
 
         public UdpIntLogger(String label) {
             m_key = getKey(UdpType.INT, label);
@@ -203,8 +223,8 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
 
     public class UdpDoubleArrayLogger implements PrimitiveLogger.PrimitiveDoubleArrayLogger {
         private final int m_key;
-        private double[] m_val;
-        private boolean m_dirty;
+        private volatile double[] m_val;
+        private volatile boolean m_dirty;
 
         public UdpDoubleArrayLogger(String label) {
             m_key = getKey(UdpType.DOUBLE_ARRAY, label);
@@ -220,8 +240,8 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
 
     public class UdpLongLogger implements PrimitiveLogger.PrimitiveLongLogger {
         private final int m_key;
-        private long m_val;
-        private boolean m_dirty;
+        private volatile long m_val;
+        private volatile boolean m_dirty;
 
         public UdpLongLogger(String label) {
             m_key = getKey(UdpType.LONG, label);
@@ -238,8 +258,8 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
 
     public class UdpStringLogger implements PrimitiveLogger.PrimitiveStringLogger {
         private final int m_key;
-        private String m_val;
-        private boolean m_dirty;
+        private volatile String m_val;
+        private volatile boolean m_dirty;
 
         public UdpStringLogger(String label) {
             m_key = getKey(UdpType.STRING, label);
@@ -253,83 +273,170 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
         }
     }
 
-    //////////////////////////////////////////
+    /**
+     * Packs at flush time, into a buffer owned by this logger, so the value
+     * should not be mutated before flush().
+     */
+    public class UdpStructLogger<T> implements PrimitiveLogger.PrimitiveStructLogger<T> {
+        private final int m_key;
+        private final Struct<T> m_struct;
+        private final ByteBuffer m_buf;
+        private volatile T m_val;
+        private volatile boolean m_dirty;
+
+        public UdpStructLogger(String label, Struct<T> struct) {
+            m_key = getKey(UdpType.RAW, label);
+            m_struct = struct;
+            m_buf = ByteBuffer.allocate(struct.getSize());
+            // struct encoding is little-endian
+            m_buf.order(ByteOrder.LITTLE_ENDIAN);
+            structLoggers.add(this);
+        }
 
-    /** @param putter puts the value if there's room, returns false if not. */
-    private void putAndMaybeSend(BooleanSupplier putter) {
-        if (!putter.getAsBoolean()) {
-            // time to send the packet
-            m_bufferSink.accept(m_dataProtocol.trim());
-            m_dataProtocol.clear();
-            if (!putter.getAsBoolean())
-                throw new IllegalStateException();
+        @Override
+        public void log(T val) {
+            m_val = val;
+            m_dirty = true;
+        }
+
+        private ByteBuffer pack(T val) {
+            m_buf.clear();
+            m_struct.pack(m_buf, val);
+            m_buf.flip();
+            return m_buf;
         }
+    }
+
+    //////////////////////////////////////////
+    //
+    // The flush methods avoid lambdas, so that flushing doesn't allocate.
+    //
 
+    /** Send the current packet and start a new one. */
+    private void send() {
+        m_bufferSink.accept(m_dataProtocol.trim());
+        m_dataProtocol.clear();
     }
 
     private void flushBoolean() {
-        for (UdpBooleanLogger logger : booleanLoggers) {
-            if (logger.m_dirty) {
-                putAndMaybeSend(() -> m_dataProtocol.putBoolean(logger.m_key, logger.m_val));
-                logger.m_dirty = false;
+        for (int i = 0; i < booleanLoggers.size(); ++i) {
+            UdpBooleanLogger logger = booleanLoggers.get(i);
+            if (!logger.m_dirty)
+                continue;
+            logger.m_dirty = false;
+            boolean val = logger.m_val;
+            if (!m_dataProtocol.putBoolean(logger.m_key, val)) {
+                send();
+                if (!m_dataProtocol.putBoolean(logger.m_key, val))
+                    throw new IllegalStateException();
             }
         }
     }
 
     private void flushDouble() {
-        for (UdpDoubleLogger logger : doubleLoggers) {
-            if (logger.m_dirty) {
-                putAndMaybeSend(() -> m_dataProtocol.putDouble(logger.m_key, logger.m_val));
-                logger.m_dirty = false;
+        for (int i = 0; i < doubleLoggers.size(); ++i) {
+            UdpDoubleLogger logger = doubleLoggers.get(i);
+            if (!logger.m_dirty)
+                continue;
+            logger.m_dirty = false;
+            double val = logger.m_val;
+            if (!m_dataProtocol.putDouble(logger.m_key, val)) {
+                send();
+                if (!m_dataProtocol.putDouble(logger.m_key, val))
+                    throw new IllegalStateException();
             }
         }
     }
 
     private void flushInteger() {
-        for (UdpIntLogger logger : integerLoggers) {
-            if (logger.m_dirty) {
-                putAndMaybeSend(() -> m_dataProtocol.putInt(logger.m_key, logger.m_val));
-                logger.m_dirty = false;
+        for (int i = 0; i < integerLoggers.size(); ++i) {
+            UdpIntLogger logger = integerLoggers.get(i);
+            if (!logger.m_dirty)
+                continue;
+            logger.m_dirty = false;
+            int val = logger.m_val;
+            if (!m_dataProtocol.putInt(logger.m_key, val)) {
+                send();
+                if (!m_dataProtocol.putInt(logger.m_key, val))
+                    throw new IllegalStateException();
             }
         }
     }
 
     private void flushDoubleArray() {
-        for (UdpDoubleArrayLogger logger : doubleArrayLoggers) {
-            if (logger.m_dirty) {
-                putAndMaybeSend(() -> m_dataProtocol.putDoubleArray(logger.m_key, logger.m_val));
-                logger.m_dirty = false;
+        for (int i = 0; i < doubleArrayLoggers.size(); ++i) {
+            UdpDoubleArrayLogger logger = doubleArrayLoggers.get(i);
+            if (!logger.m_dirty)
+                continue;
+            logger.m_dirty = false;
+            double[] val = logger.m_val;
+            if (!m_dataProtocol.putDoubleArray(logger.m_key, val)) {
+                send();
+                if (!m_dataProtocol.putDoubleArray(logger.m_key, val))
+                    throw new IllegalStateException();
             }
         }
     }
 
     private void flushLong() {
-        for (UdpLongLogger logger : longLoggers) {
-            if (logger.m_dirty) {
-                putAndMaybeSend(() -> m_dataProtocol.putLong(logger.m_key, logger.m_val));
-                logger.m_dirty = false;
+        for (int i = 0; i < longLoggers.size(); ++i) {
+            UdpLongLogger logger = longLoggers.get(i);
+            if (!logger.m_dirty)
+                continue;
+            logger.m_dirty = false;
+            long val = logger.m_val;
+            if (!m_dataProtocol.putLong(logger.m_key, val)) {
+                send();
+                if (!m_dataProtocol.putLong(logger.m_key, val))
+                    throw new IllegalStateException();
             }
         }
     }
 
     private void flushString() {
-        for (UdpStringLogger logger : stringLoggers) {
-            if (logger.m_dirty) {
-                putAndMaybeSend(() -> m_dataProtocol.putString(logger.m_key, logger.m_val));
-                logger.m_dirty = false;
+        for (int i = 0; i < stringLoggers.size(); ++i) {
+            UdpStringLogger logger = stringLoggers.get(i);
+            if (!logger.m_dirty)
+                continue;
+            logger.m_dirty = false;
+            String val = logger.m_val;
+            if (!m_dataProtocol.putString(logger.m_key, val)) {
+                send();
+                if (!m_dataProtocol.putString(logger.m_key, val))
+                    throw new IllegalStateException();
             }
         }
     }
 
+    private void flushStruct() {
+        for (int i = 0; i < structLoggers.size(); ++i) {
+            flushStruct(structLoggers.get(i));
+        }
+    }
+
+    private <T> void flushStruct(UdpStructLogger<T> logger) {
+        if (!logger.m_dirty)
+            return;
+        logger.m_dirty = false;
+        ByteBuffer packed = logger.pack(logger.m_val);
+        if (!m_dataProtocol.putRaw(logger.m_key, packed)) {
+            send();
+            if (!m_dataProtocol.putRaw(logger.m_key, packed))
+                throw new IllegalStateException();
+        }
+    }
+
+    private static void warnDuplicate(String label) {
+        if (!ALLOW_DUPLICATES)
+            throw new IllegalArgumentException("duplicate label " + label);
+        System.out.printf("WARNING: duplicate label %s\n", label);
+    }
+
     @Override
     public PrimitiveBooleanLogger booleanLogger(String label) {
         if (booleanIdx.containsKey(label)) {
-            if (ALLOW_DUPLICATES) {
-                Util.warn("duplicate label " + label);
-                return booleanIdx.get(label);
-            } else {
-                throw new IllegalArgumentException("duplicate label " + label);
-            }
+            warnDuplicate(label);
+            return booleanIdx.get(label);
         }
         UdpBooleanLogger x = new UdpBooleanLogger(label);
         booleanIdx.put(label, x);
@@ -339,12 +446,8 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     @Override
     public PrimitiveDoubleLogger doubleLogger(String label) {
         if (doubleIdx.containsKey(label)) {
-            if (ALLOW_DUPLICATES) {
-                Util.warn("duplicate label " + label);
-                return doubleIdx.get(label);
-            } else {
-                throw new IllegalArgumentException("duplicate label " + label);
-            }
+            warnDuplicate(label);
+            return doubleIdx.get(label);
         }
         UdpDoubleLogger x = new UdpDoubleLogger(label);
         doubleIdx.put(label, x);
@@ -354,12 +457,8 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     @Override
     public PrimitiveIntLogger intLogger(String label) {
         if (intIdx.containsKey(label)) {
-            if (ALLOW_DUPLICATES) {
-                Util.warn("duplicate label " + label);
-                return intIdx.get(label);
-            } else {
-                throw new IllegalArgumentException("duplicate label " + label);
-            }
+            warnDuplicate(label);
+            return intIdx.get(label);
         }
         UdpIntLogger x = new UdpIntLogger(label);
         intIdx.put(label, x);
@@ -369,12 +468,8 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     @Override
     public PrimitiveDoubleArrayLogger doubleArrayLogger(String label) {
         if (doubleArrayIdx.containsKey(label)) {
-            if (ALLOW_DUPLICATES) {
-                Util.warn("duplicate label " + label);
-                return doubleArrayIdx.get(label);
-            } else {
-                throw new IllegalArgumentException("duplicate label " + label);
-            }
+            warnDuplicate(label);
+            return doubleArrayIdx.get(label);
         }
         UdpDoubleArrayLogger x = new UdpDoubleArrayLogger(label);
         doubleArrayIdx.put(label, x);
@@ -384,12 +479,8 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     @Override
     public PrimitiveLongLogger longLogger(String label) {
         if (longIdx.containsKey(label)) {
-            if (ALLOW_DUPLICATES) {
-                Util.warn("duplicate label " + label);
-                return longIdx.get(label);
-            } else {
-                throw new IllegalArgumentException("duplicate label " + label);
-            }
+            warnDuplicate(label);
+            return longIdx.get(label);
         }
         UdpLongLogger x = new UdpLongLogger(label);
         longIdx.put(label, x);
@@ -399,16 +490,24 @@ public class UdpPrimitiveLogger implements PrimitiveLogger {
     @Override
     public PrimitiveStringLogger stringLogger(String label) {
         if (stringIdx.containsKey(label)) {
-            if (ALLOW_DUPLICATES) {
-                Util.warn("duplicate label " + label);
-                return stringIdx.get(label);
-            } else {
-                throw new IllegalArgumentException("duplicate label " + label);
-            }
+            warnDuplicate(label);
+            return stringIdx.get(label);
         }
         UdpStringLogger x = new UdpStringLogger(label);
         stringIdx.put(label, x);
         return x;
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> PrimitiveStructLogger<T> structLogger(String label, Struct<T> struct) {
+        if (structIdx.containsKey(label)) {
+            warnDuplicate(label);
+            return (PrimitiveStructLogger<T>) structIdx.get(label);
+        }
+        UdpStructLogger<T> x = new UdpStructLogger<>(label, struct);
+        structIdx.put(label, x);
+        return x;
+    }
+
 }
@@ -104,6 +104,11 @@ public class UdpPrimitiveProtocol {
         return encodeDoubleArray(m_buffer, key, val) != 0;
     }
 
+    /** @return true if written, in which case val is consumed */
+    public boolean putRaw(int key, ByteBuffer val) {
+        return encodeRaw(m_buffer, key, val) != 0;
+    }
+
     /** just the key */
     public static int decodeKey(ByteBuffer buf) throws ProtocolException {
         try {
@@ -234,7 +239,7 @@ public class UdpPrimitiveProtocol {
 
     public static double[] decodeDoubleArray(ByteBuffer buf) throws ProtocolException {
         try {
-            int length = buf.get();
+            int length = buf.get() & 0xFF;
             double[] result = new double[length];
             for (int i = 0; i < length; ++i) {
                 result[i] = buf.getDouble();
@@ -301,7 +306,7 @@ public class UdpPrimitiveProtocol {
 
     public static String decodeString(ByteBuffer buf) throws ProtocolException {
         try {
-            int length = buf.get();
+            int length = buf.get() & 0xFF;
             byte[] bytes = new byte[length];
             buf.get(bytes);
             return new String(bytes, StandardCharsets.US_ASCII);
@@ -309,4 +314,41 @@ public class UdpPrimitiveProtocol {
             throw new ProtocolException();
         }
     }
+
+    /**
+     * The remaining bytes of val, e.g. a packed struct. Nothing is consumed if
+     * there's no room.
+     * 
+     * <pre>
+     * KKTLLbbbbbbbb
+     * ^^            key (2 bytes)
+     *   ^           type (1 byte)
+     *    ^^         length (2 bytes)
+     *      ^^^^^^^^ raw value
+     * </pre>
+     */
+    static int encodeRaw(ByteBuffer buf, int key, ByteBuffer val) {
+        final int bytesLength = val.remaining();
+        if (bytesLength > 65535)
+            throw new IllegalArgumentException();
+        final int totalLength = 5 + bytesLength;
+        if (buf.remaining() < totalLength)
+            return 0;
+        buf.putChar((char) key); // 2 bytes
+        buf.put(UdpType.RAW.id); // type = 1 byte
+        buf.putChar((char) bytesLength); // 2 bytes
+        buf.put(val);
+        return totalLength;
+    }
+
+    public static byte[] decodeRaw(ByteBuffer buf) throws ProtocolException {
+        try {
+            int length = buf.getChar();
+            byte[] bytes = new byte[length];
+            buf.get(bytes);
+            return bytes;
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new ProtocolException();
+        }
+    }
 }
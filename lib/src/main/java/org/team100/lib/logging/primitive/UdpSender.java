@@ -8,6 +8,12 @@ import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
 import java.util.function.Consumer;
 
+/**
+ * Writes each buffer to a UDP socket.
+ *
+ * This does the actual socket write, which is the slow part, so it should be
+ * wrapped in an {@link UdpAsyncSender} to keep it off the main loop thread.
+ */
 public class UdpSender implements Consumer<ByteBuffer> {
     /**
      * 508 is the "really don't fragment" size. Our network uses a 1500 byte MTU so
@@ -17,8 +23,8 @@ public class UdpSender implements Consumer<ByteBuffer> {
      * either.
      */
     public static final int MTU = 1472;
+    /** The log receiver on the robot LAN. */
     private static final byte[] ADDR = new byte[] { 10, 1, 0, 16 };
-    // TODO: rearrange packages to make these package-private
     public static final int kPort = 1995;
     public static final int kmetadataPort = 1996;
     /** nullable */
@@ -26,8 +32,8 @@ public class UdpSender implements Consumer<ByteBuffer> {
 
     private int m_counter;
 
-    public UdpSender(int port) {
-        m_channel = makeChannel(port);
+    public UdpSender(InetAddress addr, int port) {
+        m_channel = makeChannel(addr, port);
         m_counter = 0;
     }
 
@@ -35,29 +41,37 @@ public class UdpSender implements Consumer<ByteBuffer> {
         return m_counter;
     }
 
+    /** Data packets to the log receiver. */
     public static UdpSender data() {
-        return new UdpSender(kPort);
+        return new UdpSender(receiver(), kPort);
     }
 
+    /** Metadata packets to the log receiver. */
     public static UdpSender meta() {
-        return new UdpSender(kmetadataPort);
+        return new UdpSender(receiver(), kmetadataPort);
     }
 
-    private static DatagramChannel makeChannel(int port) {
+    /** For testing: send to a receiver on this machine. */
+    public static UdpSender loopback(int port) {
+        return new UdpSender(InetAddress.getLoopbackAddress(), port);
+    }
+
+    private static InetAddress receiver() {
+        try {
+            return InetAddress.getByAddress(ADDR);
+        } catch (IOException e) {
+            // only happens if ADDR is the wrong length
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static DatagramChannel makeChannel(InetAddress addr, int port) {
         try {
             DatagramChannel channel = DatagramChannel.open();
             channel.configureBlocking(false);
             // big buffer does not help but doesn't hurt
             channel.setOption(StandardSocketOptions.SO_SNDBUF, 1000000);
-
-            InetAddress m_addr = InetAddress.getByAddress(ADDR);
-
-            // NOTE! don't use localhost in prod! for testing!
-            // InetAddress m_addr = InetAddress.getLocalHost();
-
-            InetSocketAddress sockAddr = new InetSocketAddress(m_addr, port);
-            // this will fail for localhost if there's no listener
-            channel.connect(sockAddr);
+            channel.connect(new InetSocketAddress(addr, port));
             return channel;
         } catch (IOException e) {
             e.printStackTrace();
@@ -73,10 +87,10 @@ public class UdpSender implements Consumer<ByteBuffer> {
         try {
             // should write bb.remaining() bytes.
             m_channel.write(bb);
+            m_counter++;
         } catch (IOException e) {
-            e.printStackTrace();
+            // "connection refused" just means nobody is listening.
         }
-
     }
 
 }
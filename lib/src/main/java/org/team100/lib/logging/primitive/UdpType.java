@@ -9,7 +9,9 @@ public enum UdpType {
     INT(3),
     DOUBLE_ARRAY(4),
     LONG(5),
-    STRING(6);
+    STRING(6),
+    /** Packed struct; the receiver doesn't know the schema. */
+    RAW(7);
 
     public final byte id;
 
@@ -25,7 +27,7 @@ public enum UdpType {
     public static UdpType get(byte id) {
         if (id < 0)
             return UNKNOWN;
-        if (id > values().length)
+        if (id >= values().length)
             return UNKNOWN;
         return list[id];
     }
@@ -2,6 +2,10 @@ package org.team100.lib.logging.receiver;
 
 import org.team100.lib.logging.primitive.UdpType;
 
+/**
+ * Receives decoded log events. The data and metadata readers run in separate
+ * threads, so implementations need to be thread-safe.
+ */
 public interface UdpConsumersInterface {
 
     boolean validateTimestamp(long timestamp);
@@ -12,10 +16,15 @@ public interface UdpConsumersInterface {
 
     void acceptInt(int key, int val);
 
+    void acceptLong(int key, long val);
+
     void acceptDoubleArray(int key, double[] val);
 
     void acceptString(int key, String val);
 
+    /** Packed struct. */
+    void acceptRaw(int key, byte[] val);
+
     void acceptMeta(int key, UdpType type, String val);
 
     void flush();
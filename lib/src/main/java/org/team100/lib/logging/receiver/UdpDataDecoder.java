@@ -5,9 +5,8 @@ import java.nio.ByteBuffer;
 import org.team100.lib.logging.primitive.UdpPrimitiveProtocol;
 import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
 import org.team100.lib.logging.primitive.UdpType;
-import org.team100.lib.util.Util;
 
-public class UdpDataDecoder {
+public class UdpDataDecoder implements UdpDecoder {
     private static final int kFlushFrequency = 50;
     private final UdpConsumersInterface m_consumers;
     private int flushCounter = 0;
@@ -21,6 +20,7 @@ public class UdpDataDecoder {
      * one.
      * @throws ProtocolException 
      */
+    @Override
     public boolean validateTimestamp(ByteBuffer buf) throws ProtocolException {
         long timestamp = UdpPrimitiveProtocol.decodeLong(buf);
         return m_consumers.validateTimestamp(timestamp);
@@ -30,6 +30,7 @@ public class UdpDataDecoder {
      * Starts at buf.position()
      * Flushes the consumers at the end.
      */
+    @Override
     public void decode(ByteBuffer buf) throws ProtocolException {
         int key = UdpPrimitiveProtocol.decodeKey(buf);
         UdpType type = UdpPrimitiveProtocol.decodeType(buf);
@@ -52,13 +53,17 @@ public class UdpDataDecoder {
             }
             case LONG -> {
                 long v = UdpPrimitiveProtocol.decodeLong(buf);
-                m_consumers.acceptInt(key, (int) v);
+                m_consumers.acceptLong(key, v);
             }
             case STRING -> {
                 String v = UdpPrimitiveProtocol.decodeString(buf);
                 m_consumers.acceptString(key, v);
             }
-            default -> Util.warn("unknown data decoder type");
+            case RAW -> {
+                byte[] v = UdpPrimitiveProtocol.decodeRaw(buf);
+                m_consumers.acceptRaw(key, v);
+            }
+            default -> System.out.println("WARNING: unknown data decoder type");
         }
         if (flushCounter++ > kFlushFrequency) {
             m_consumers.flush();
@@ -0,0 +1,17 @@
+package org.team100.lib.logging.receiver;
+
+import java.nio.ByteBuffer;
+
+import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
+
+/** Decodes one packet type, data or metadata. */
+public interface UdpDecoder {
+    /**
+     * return true if timestamp is the first we've seen, or the same as the previous
+     * one.
+     */
+    boolean validateTimestamp(ByteBuffer buf) throws ProtocolException;
+
+    /** Decodes one tuple, starting at buf.position() */
+    void decode(ByteBuffer buf) throws ProtocolException;
+}
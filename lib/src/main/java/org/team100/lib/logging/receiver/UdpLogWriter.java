@@ -0,0 +1,141 @@
+package org.team100.lib.logging.receiver;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.team100.lib.logging.primitive.UdpType;
+
+import edu.wpi.first.util.datalog.BooleanLogEntry;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DataLogWriter;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.IntegerLogEntry;
+import edu.wpi.first.util.datalog.RawLogEntry;
+import edu.wpi.first.util.datalog.StringLogEntry;
+
+/**
+ * Writes received log events to a .wpilog file, so the usual tools
+ * (AdvantageScope, the DataLog tool) can read them.
+ * 
+ * The meta reader adds new entries here (in its own thread), and the data
+ * reader appends values (in its own thread), so we use ConcurrentHashMap.
+ * Values that arrive before their label are dropped; labels are resent
+ * periodically, so this only happens at startup.
+ * 
+ * Structs arrive as bytes without the schema, so they're written as "raw"
+ * entries.
+ */
+public class UdpLogWriter implements UdpConsumersInterface {
+    private final DataLog m_log;
+
+    private volatile long m_timestamp;
+
+    private final Map<Integer, BooleanLogEntry> booleanEntries = new ConcurrentHashMap<>();
+    private final Map<Integer, DoubleLogEntry> doubleEntries = new ConcurrentHashMap<>();
+    private final Map<Integer, IntegerLogEntry> intEntries = new ConcurrentHashMap<>();
+    private final Map<Integer, DoubleArrayLogEntry> doubleArrayEntries = new ConcurrentHashMap<>();
+    private final Map<Integer, StringLogEntry> stringEntries = new ConcurrentHashMap<>();
+    private final Map<Integer, RawLogEntry> rawEntries = new ConcurrentHashMap<>();
+
+    public UdpLogWriter(String filename) throws IOException {
+        m_log = new DataLogWriter(filename);
+    }
+
+    /**
+     * A new timestamp means the sender restarted, so the key space is new. The
+     * entry names are the same, so it's fine to keep the same file.
+     */
+    @Override
+    public boolean validateTimestamp(long timestamp) {
+        if (timestamp != m_timestamp) {
+            booleanEntries.clear();
+            doubleEntries.clear();
+            intEntries.clear();
+            doubleArrayEntries.clear();
+            stringEntries.clear();
+            rawEntries.clear();
+            m_timestamp = timestamp;
+        }
+        return true;
+    }
+
+    @Override
+    public void acceptBoolean(int key, boolean val) {
+        BooleanLogEntry entry = booleanEntries.get(key);
+        if (entry != null)
+            entry.append(val);
+    }
+
+    @Override
+    public void acceptDouble(int key, double val) {
+        DoubleLogEntry entry = doubleEntries.get(key);
+        if (entry != null)
+            entry.append(val);
+    }
+
+    @Override
+    public void acceptInt(int key, int val) {
+        IntegerLogEntry entry = intEntries.get(key);
+        if (entry != null)
+            entry.append(val);
+    }
+
+    @Override
+    public void acceptLong(int key, long val) {
+        IntegerLogEntry entry = intEntries.get(key);
+        if (entry != null)
+            entry.append(val);
+    }
+
+    @Override
+    public void acceptDoubleArray(int key, double[] val) {
+        DoubleArrayLogEntry entry = doubleArrayEntries.get(key);
+        if (entry != null)
+            entry.append(val);
+    }
+
+    @Override
+    public void acceptString(int key, String val) {
+        StringLogEntry entry = stringEntries.get(key);
+        if (entry != null)
+            entry.append(val);
+    }
+
+    @Override
+    public void acceptRaw(int key, byte[] val) {
+        RawLogEntry entry = rawEntries.get(key);
+        if (entry != null)
+            entry.append(val);
+    }
+
+    @Override
+    public void acceptMeta(int key, UdpType type, String val) {
+        switch (type) {
+            case BOOLEAN -> booleanEntries.computeIfAbsent(key,
+                    k -> new BooleanLogEntry(m_log, val));
+            case DOUBLE -> doubleEntries.computeIfAbsent(key,
+                    k -> new DoubleLogEntry(m_log, val));
+            case INT, LONG -> intEntries.computeIfAbsent(key,
+                    k -> new IntegerLogEntry(m_log, val));
+            case DOUBLE_ARRAY -> doubleArrayEntries.computeIfAbsent(key,
+                    k -> new DoubleArrayLogEntry(m_log, val));
+            case STRING -> stringEntries.computeIfAbsent(key,
+                    k -> new StringLogEntry(m_log, val));
+            case RAW -> rawEntries.computeIfAbsent(key,
+                    k -> new RawLogEntry(m_log, val));
+            default -> System.out.println("WARNING: unknown meta type");
+        }
+    }
+
+    @Override
+    public void flush() {
+        m_log.flush();
+    }
+
+    @Override
+    public void close() {
+        m_log.close();
+    }
+}
@@ -6,7 +6,7 @@ import org.team100.lib.logging.primitive.UdpPrimitiveProtocol;
 import org.team100.lib.logging.primitive.UdpType;
 import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
 
-public class UdpMetaDecoder {
+public class UdpMetaDecoder implements UdpDecoder {
     private static final int kFlushFrequency = 50;
 
     private final UdpConsumersInterface m_consumers;
@@ -21,12 +21,14 @@ public class UdpMetaDecoder {
      * one.
      * @throws ProtocolException 
      */
+    @Override
     public boolean validateTimestamp(ByteBuffer buf) throws ProtocolException {
         long timestamp = UdpPrimitiveProtocol.decodeLong(buf);
         return m_consumers.validateTimestamp(timestamp);
     }
 
     /** Starts at buf.position() */
+    @Override
     public void decode(ByteBuffer buf) throws ProtocolException {
         int key = UdpPrimitiveProtocol.decodeKey(buf);
         UdpType type = UdpPrimitiveProtocol.decodeType(buf);
@@ -1,64 +1,84 @@
 package org.team100.lib.logging.receiver;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.DatagramChannel;
 
 import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
 import org.team100.lib.logging.primitive.UdpSender;
-import org.team100.lib.util.Util;
 
-public class UdpDataReader implements Runnable {
-    private final UdpDataDecoder m_decoder;
-
-    /** nullable */
+/**
+ * Receives packets on one port and passes them to the decoder, until closed.
+ * 
+ * Run this in its own thread.
+ */
+public class UdpReader implements Runnable, AutoCloseable {
+    private final UdpDecoder m_decoder;
     private final DatagramChannel m_channel;
-
-    /** TODO: maybe this should be the "protocol"'s buffer' */
     private final ByteBuffer m_buffer;
 
-    public UdpDataReader(UdpDataDecoder decoder) {
+    /** @param port use zero for any free port, see getPort(). */
+    public UdpReader(UdpDecoder decoder, int port) {
         m_decoder = decoder;
-        m_channel = makeChannel(UdpSender.kPort);
+        m_channel = makeChannel(port);
         m_buffer = ByteBuffer.allocateDirect(UdpSender.MTU);
         // big-endian is the default, but just to make it clear...
         m_buffer.order(ByteOrder.BIG_ENDIAN);
     }
 
+    /** The bound port. */
+    public int getPort() {
+        try {
+            return ((InetSocketAddress) m_channel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @Override
     public void run() {
         while (true) {
             try {
                 m_buffer.clear();
-                // TODO: replace this with socket.read with a timeout
                 m_channel.receive(m_buffer);
-                m_buffer.limit(m_buffer.position());
-                m_buffer.position(0);
+                m_buffer.flip();
                 if (!m_decoder.validateTimestamp(m_buffer)) {
-                    Util.warn("data timestamp is bad, bail");
+                    System.out.println("WARNING: timestamp is bad, bail");
                     return;
                 }
                 while (m_buffer.remaining() > 0) {
                     m_decoder.decode(m_buffer);
                 }
+            } catch (ClosedChannelException e) {
+                // close() was called.
+                return;
             } catch (IOException | ProtocolException e) {
                 e.printStackTrace();
             }
         }
     }
 
+    @Override
+    public void close() {
+        try {
+            m_channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     private static DatagramChannel makeChannel(int port) {
         try {
             DatagramChannel channel = DatagramChannel.open();
             channel.configureBlocking(true);
-            InetSocketAddress sockAddr = new InetSocketAddress(port);
-            channel.bind(sockAddr);
+            channel.bind(new InetSocketAddress(port));
             return channel;
         } catch (IOException e) {
-            e.printStackTrace();
-            return null;
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -0,0 +1,54 @@
+package org.team100.lib.logging.receiver;
+
+/**
+ * Listens for data and metadata packets, each in its own thread, and passes
+ * them to the consumers.
+ * 
+ * For example, to record the UDP log on localhost:
+ * 
+ * <pre>
+ * UdpReceiver r = new UdpReceiver(new UdpLogWriter("FRC.wpilog"),
+ *         UdpSender.kPort, UdpSender.kmetadataPort);
+ * r.start();
+ * </pre>
+ */
+public class UdpReceiver implements AutoCloseable {
+    private final UdpConsumersInterface m_consumers;
+    private final UdpReader m_dataReader;
+    private final UdpReader m_metaReader;
+    private final Thread m_dataThread;
+    private final Thread m_metaThread;
+
+    /** Use zero for any free port, see getDataPort() and getMetaPort(). */
+    public UdpReceiver(UdpConsumersInterface consumers, int dataPort, int metaPort) {
+        m_consumers = consumers;
+        m_dataReader = new UdpReader(new UdpDataDecoder(consumers), dataPort);
+        m_metaReader = new UdpReader(new UdpMetaDecoder(consumers), metaPort);
+        m_dataThread = new Thread(m_dataReader, "UdpDataReader");
+        m_metaThread = new Thread(m_metaReader, "UdpMetaReader");
+    }
+
+    public int getDataPort() {
+        return m_dataReader.getPort();
+    }
+
+    public int getMetaPort() {
+        return m_metaReader.getPort();
+    }
+
+    public void start() {
+        m_dataThread.start();
+        m_metaThread.start();
+    }
+
+    /** Stops the readers and closes the consumers. */
+    @Override
+    public void close() throws InterruptedException {
+        m_dataReader.close();
+        m_metaReader.close();
+        m_dataThread.join();
+        m_metaThread.join();
+        m_consumers.flush();
+        m_consumers.close();
+    }
+}
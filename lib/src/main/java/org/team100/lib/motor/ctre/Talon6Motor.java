@@ -117,7 +117,7 @@ public abstract class Talon6Motor implements BareMotor {
         m_positionVoltage.UpdateFreqHz = 0;
 
         m_log = parent.type(this);
-        m_motor = new TalonFX(canId.id);
+        m_motor = new TalonFX(canId.id, canId.bus);
         m_ff = ff;
 
         m_configurator = new PhoenixConfigurator(
@@ -147,16 +147,16 @@ public abstract class Talon6Motor implements BareMotor {
         final StatusSignal<Temperature> motorDeviceTemp = m_motor.getDeviceTemp();
         // final StatusSignal<Current> motorTorqueCurrent = m_motor.getTorqueCurrent();
 
-        // The memoizer refreshes all the signals at once.
-        Cache.registerSignal(motorPosition);
-        Cache.registerSignal(motorVelocity);
+        // The memoizer refreshes all the signals on each bus at once.
+        Cache.registerSignal(canId.bus, motorPosition);
+        Cache.registerSignal(canId.bus, motorVelocity);
         // Memo.registerSignal(motorAcceleration);
-        Cache.registerSignal(motorDutyCycle);
-        Cache.registerSignal(motorClosedLoopError);
-        Cache.registerSignal(motorSupplyCurrent);
-        Cache.registerSignal(motorSupplyVoltage);
-        Cache.registerSignal(motorStatorCurrent);
-        Cache.registerSignal(motorDeviceTemp);
+        Cache.registerSignal(canId.bus, motorDutyCycle);
+        Cache.registerSignal(canId.bus, motorClosedLoopError);
+        Cache.registerSignal(canId.bus, motorSupplyCurrent);
+        Cache.registerSignal(canId.bus, motorSupplyVoltage);
+        Cache.registerSignal(canId.bus, motorStatorCurrent);
+        Cache.registerSignal(canId.bus, motorDeviceTemp);
         // Memo.registerSignal(motorTorqueCurrent);
 
         // None of these need to refresh.
@@ -0,0 +1,105 @@
+package org.team100.lib.network;
+
+import edu.wpi.first.math.geometry.Transform3d;
+
+/**
+ * Bounded single-producer single-consumer queue of decoded camera messages,
+ * for handing input from the ingest thread to the main loop.
+ *
+ * The slots are preallocated and reused: the producer claims a free slot,
+ * fills it, and publishes it; the consumer peeks at the oldest published
+ * slot, uses it, and releases it. Nothing is allocated after construction,
+ * and there are no locks: each index is written by only one thread, and the
+ * volatile writes publish the slot contents.
+ *
+ * If the consumer falls behind and the queue is full, the producer drops the
+ * message rather than waiting.
+ */
+class CameraQueue<T> {
+    /** One decoded message. */
+    static class Message<T> {
+        /** Robot-to-camera */
+        Transform3d cameraOffset;
+        /** Network tables local time in seconds */
+        double timestampS;
+        T[] values;
+    }
+
+    private final Message<T>[] m_slots;
+    private final int m_mask;
+    /** Next slot to consume; written only by the consumer. */
+    private volatile long m_head;
+    /** Next slot to produce; written only by the producer. */
+    private volatile long m_tail;
+    /** Written only by the producer. */
+    private volatile int m_dropped;
+
+    /**
+     * @param capacity must be a power of two.
+     */
+    @SuppressWarnings("unchecked")
+    CameraQueue(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("capacity must be a power of two");
+        m_slots = new Message[capacity];
+        for (int i = 0; i < capacity; ++i) {
+            m_slots[i] = new Message<>();
+        }
+        m_mask = capacity - 1;
+    }
+
+    //////////////////////////////////////////
+    //
+    // Producer
+    //
+
+    /**
+     * The next free slot, for the producer to fill, or null if the queue is full,
+     * in which case the message is counted as dropped.
+     */
+    Message<T> claim() {
+        long tail = m_tail;
+        if (tail - m_head > m_mask) {
+            m_dropped++;
+            return null;
+        }
+        return m_slots[(int) (tail & m_mask)];
+    }
+
+    /** Make the claimed slot visible to the consumer. */
+    void publish() {
+        m_tail = m_tail + 1;
+    }
+
+    //////////////////////////////////////////
+    //
+    // Consumer
+    //
+
+    /** The oldest published slot, or null if the queue is empty. */
+    Message<T> peek() {
+        long head = m_head;
+        if (head == m_tail)
+            return null;
+        return m_slots[(int) (head & m_mask)];
+    }
+
+    /** Return the peeked slot to the producer. */
+    void release() {
+        long head = m_head;
+        // don't hold on to the payload
+        m_slots[(int) (head & m_mask)].values = null;
+        m_head = head + 1;
+    }
+
+    //////////////////////////////////////////
+
+    int size() {
+        return (int) (m_tail - m_head);
+    }
+
+    /** Messages dropped because the queue was full. */
+    int getDropped() {
+        return m_dropped;
+    }
+}
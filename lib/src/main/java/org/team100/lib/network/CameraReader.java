@@ -1,5 +1,6 @@
 package org.team100.lib.network;
 
+import java.util.Arrays;
 import java.util.EnumSet;
 
 import org.team100.lib.config.Camera;
@@ -12,32 +13,82 @@ import edu.wpi.first.networktables.NetworkTableListenerPoller;
 import edu.wpi.first.networktables.NetworkTableValue;
 import edu.wpi.first.networktables.PubSubOption;
 import edu.wpi.first.networktables.ValueEventData;
+import edu.wpi.first.util.WPIUtilJNI;
 import edu.wpi.first.util.struct.StructBuffer;
 
 /**
  * Reads camera input from network tables, which is always a StructArray.
  * 
+ * There are two ways to ingest the input:
+ * 
+ * Inline (the default): update() drains the network tables queue, decodes each
+ * message, and calls perValue(), all on the caller's thread.
+ * 
+ * Threaded: a daemon thread waits for network tables input, decodes it, and
+ * hands it over through a bounded queue, so update() just calls perValue() for
+ * each message, without any parsing or decoding. This keeps the main loop time
+ * flat as cameras are added.
+ * 
+ * In both modes, each topic is resolved to a camera once, the first time it
+ * appears, rather than for every message.
+ * 
  * @param T payload type
  */
-public abstract class CameraReader<T> {
+public abstract class CameraReader<T> implements AutoCloseable {
     private static final boolean DEBUG = false;
     /**
      * Five cameras, 50hz each => 250 hz of updates. Rio runs at 50 hz, so there
      * should be five messages waiting for us each cycle.
      */
     private static final int QUEUE_DEPTH = 10;
+    /**
+     * Handoff capacity in threaded mode, a few cycles' worth. Must be a power of
+     * two.
+     */
+    private static final int HANDOFF_DEPTH = 32;
+    /** The ingest thread wakes up this often to check for close(). */
+    private static final double WAIT_TIMEOUT_S = 0.1;
 
     /** e.g. "blips" or "Rotation3d" */
     private final String m_ntValueName;
     /** Manages the queue of incoming messages. */
     private final NetworkTableListenerPoller m_poller;
-    /** Deserializer used in update(). */
+    /** Deserializer, used only by the decoding thread. */
     private final StructBuffer<T> m_buf;
+    /** Handoff from the ingest thread, or null if inline. */
+    private final CameraQueue<T> m_queue;
+    /** Ingest thread, or null if inline. */
+    private final Thread m_thread;
+    /** For inline mode. */
+    private final CameraQueue.Message<T> m_message;
+    private volatile boolean m_running;
 
+    /*
+     * Topic handle to robot-to-camera offset, filled in as topics appear, and
+     * used only by the decoding thread. A linear scan is fine for a handful of
+     * cameras, and it doesn't box the handle. A null offset means the topic is
+     * ignored.
+     */
+    private int[] m_topics;
+    private Transform3d[] m_offsets;
+    private int m_topicCount;
+
+    /** Inline ingest. */
     public CameraReader(
             String ntRootName,
             String ntValueName,
             StructBuffer<T> buf) {
+        this(ntRootName, ntValueName, buf, false);
+    }
+
+    /**
+     * @param threaded decode input on a separate thread.
+     */
+    public CameraReader(
+            String ntRootName,
+            String ntValueName,
+            StructBuffer<T> buf,
+            boolean threaded) {
         m_ntValueName = ntValueName;
         NetworkTableInstance inst = NetworkTableInstance.getDefault();
         m_poller = new NetworkTableListenerPoller(inst);
@@ -49,76 +100,185 @@ public abstract class CameraReader<T> {
                         PubSubOption.pollStorage(QUEUE_DEPTH)),
                 EnumSet.of(NetworkTableEvent.Kind.kValueAll));
         m_buf = buf;
+        m_topics = new int[8];
+        m_offsets = new Transform3d[8];
+        m_topicCount = 0;
+        m_running = true;
+        if (threaded) {
+            m_queue = new CameraQueue<>(HANDOFF_DEPTH);
+            m_message = null;
+            m_thread = new Thread(this::ingest, "CameraReader " + ntRootName);
+            m_thread.setDaemon(true);
+            m_thread.start();
+        } else {
+            m_queue = null;
+            m_message = new CameraQueue.Message<>();
+            m_thread = null;
+        }
     }
 
     /**
-     * Read queued network input, and give it to the consumers.
+     * Read queued input, and give it to the consumers.
      * 
      * This runs once per cycle, in SwerveDriveSubsystem.update() which is called by
      * Memo.updateAll(), which runs in Robot.robotPeriodic().
      */
     public void update() {
         beginUpdate();
-        for (NetworkTableEvent e : m_poller.readQueue()) {
-            ValueEventData valueEventData = e.valueData;
-            NetworkTableValue ntValue = valueEventData.value;
-            String name = valueEventData.getTopic().getName();
-            if (DEBUG) {
-                System.out.printf("poll %s\n", name);
-            }
-            String[] fields = name.split("/");
-            if (fields.length != 4) {
-                System.out.printf("WARNING: weird event name: %s\n", name);
-                continue;
+        if (m_queue == null) {
+            for (NetworkTableEvent e : m_poller.readQueue()) {
+                if (decode(e, m_message)) {
+                    perValue(m_message.cameraOffset, m_message.timestampS, m_message.values);
+                    m_message.values = null;
+                }
             }
-            // key is "rootName/cameraId/cameraNumber/valueName"
-            String cameraId = fields[1];
-            if (!fields[3].equals(m_ntValueName)) {
-                System.out.println("WARNING: weird key: " + name);
-                continue;
+        } else {
+            CameraQueue.Message<T> m;
+            while ((m = m_queue.peek()) != null) {
+                perValue(m.cameraOffset, m.timestampS, m.values);
+                m_queue.release();
             }
-            if (DEBUG) {
-                System.out.print("found value\n");
-            }
-            // decode the way StructArrayEntryImpl does
-            byte[] valueBytes = ntValue.getRaw();
-            if (valueBytes.length == 0) {
-                // this should never happen, but it does, very occasionally.
-                continue;
-            }
-            T[] valueArray;
+        }
+        finishUpdate();
+    }
+
+    /** Messages dropped because update() didn't keep up with the ingest thread. */
+    public int getDropped() {
+        if (m_queue == null)
+            return 0;
+        return m_queue.getDropped();
+    }
+
+    /** Stop the ingest thread, if any, and stop listening. */
+    @Override
+    public void close() {
+        m_running = false;
+        if (m_thread != null) {
+            m_thread.interrupt();
             try {
-                valueArray = m_buf.readArray(valueBytes);
-            } catch (RuntimeException ex) {
-                System.out.printf("WARNING: decoding failed for name: %s\n", name);
-                continue;
+                m_thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+        }
+        m_poller.close();
+    }
 
-            // Robot-to-camera, offset from Camera.java
-            // in tests this offset is identity.
-            Transform3d cameraOffset = Camera.get(cameraId).getOffset();
-            if (DEBUG) {
-                System.out.printf("camera %s offset %s\n", cameraId, cameraOffset);
+    /** The ingest thread: wait for input, decode it, and queue it. */
+    private void ingest() {
+        while (m_running) {
+            try {
+                boolean timedOut = WPIUtilJNI.waitForObjectTimeout(
+                        m_poller.getHandle(), WAIT_TIMEOUT_S);
+                if (timedOut)
+                    continue;
+            } catch (InterruptedException e) {
+                return;
             }
-
-            // server time is in microseconds
-            // https://docs.wpilib.org/en/stable/docs/software/networktables/networktables-intro.html#timestamps
-            //
-            // ATTENTION! (sep 15 2025)
-            //
-            // using server time seems to break the tests, like server time ignores the test
-            // clock, which makes me wonder if it's just the wrong thing to use all the
-            // time, so this uses "local" time now.
-            // TODO: check that this is doing the right thing
-            // double valueTimestamp = ((double)ntValue.getServerTime()) / 1000000.0;
-            double valueTimestamp = ((double) ntValue.getTime()) / 1000000.0;
-            if (DEBUG) {
-                System.out.printf("reader timestamp %f\n", valueTimestamp);
+            for (NetworkTableEvent e : m_poller.readQueue()) {
+                CameraQueue.Message<T> m = m_queue.claim();
+                if (m == null) {
+                    if (DEBUG)
+                        System.out.println("camera queue full");
+                    continue;
+                }
+                if (decode(e, m))
+                    m_queue.publish();
             }
+        }
+    }
 
-            perValue(cameraOffset, valueTimestamp, valueArray);
+    /**
+     * Decode the event into the message.
+     * 
+     * @return false if the event should be ignored.
+     */
+    private boolean decode(NetworkTableEvent e, CameraQueue.Message<T> m) {
+        ValueEventData valueEventData = e.valueData;
+        if (valueEventData == null)
+            return false;
+        NetworkTableValue ntValue = valueEventData.value;
+        Transform3d cameraOffset = offset(valueEventData);
+        if (cameraOffset == null)
+            return false;
+        // decode the way StructArrayEntryImpl does
+        byte[] valueBytes = ntValue.getRaw();
+        if (valueBytes.length == 0) {
+            // this should never happen, but it does, very occasionally.
+            return false;
         }
-        finishUpdate();
+        T[] valueArray;
+        try {
+            valueArray = m_buf.readArray(valueBytes);
+        } catch (RuntimeException ex) {
+            System.out.printf("WARNING: decoding failed for topic: %d\n", valueEventData.topic);
+            return false;
+        }
+
+        // server time is in microseconds
+        // https://docs.wpilib.org/en/stable/docs/software/networktables/networktables-intro.html#timestamps
+        //
+        // ATTENTION! (sep 15 2025)
+        //
+        // using server time seems to break the tests, like server time ignores the test
+        // clock, which makes me wonder if it's just the wrong thing to use all the
+        // time, so this uses "local" time now.
+        // TODO: check that this is doing the right thing
+        // double valueTimestamp = ((double)ntValue.getServerTime()) / 1000000.0;
+        double valueTimestamp = ((double) ntValue.getTime()) / 1000000.0;
+        if (DEBUG) {
+            System.out.printf("reader timestamp %f\n", valueTimestamp);
+        }
+        m.cameraOffset = cameraOffset;
+        m.timestampS = valueTimestamp;
+        m.values = valueArray;
+        return true;
+    }
+
+    /**
+     * Robot-to-camera offset for the event's topic, from Camera.java, or null
+     * if the topic should be ignored. In tests this offset is identity.
+     * 
+     * The topic name is parsed only the first time the topic appears.
+     */
+    private Transform3d offset(ValueEventData valueEventData) {
+        int topic = valueEventData.topic;
+        for (int i = 0; i < m_topicCount; ++i) {
+            if (m_topics[i] == topic)
+                return m_offsets[i];
+        }
+        Transform3d offset = resolve(valueEventData.getTopic().getName());
+        if (m_topicCount == m_topics.length) {
+            m_topics = Arrays.copyOf(m_topics, 2 * m_topicCount);
+            m_offsets = Arrays.copyOf(m_offsets, 2 * m_topicCount);
+        }
+        m_topics[m_topicCount] = topic;
+        m_offsets[m_topicCount] = offset;
+        m_topicCount++;
+        return offset;
+    }
+
+    /** Offset for the topic name, or null if the name is wrong. */
+    private Transform3d resolve(String name) {
+        if (DEBUG) {
+            System.out.printf("new topic %s\n", name);
+        }
+        String[] fields = name.split("/");
+        if (fields.length != 4) {
+            System.out.printf("WARNING: weird event name: %s\n", name);
+            return null;
+        }
+        // key is "rootName/cameraId/cameraNumber/valueName"
+        String cameraId = fields[1];
+        if (!fields[3].equals(m_ntValueName)) {
+            System.out.println("WARNING: weird key: " + name);
+            return null;
+        }
+        Transform3d cameraOffset = Camera.get(cameraId).getOffset();
+        if (DEBUG) {
+            System.out.printf("camera %s offset %s\n", cameraId, cameraOffset);
+        }
+        return cameraOffset;
     }
 
     /** Called when update() starts. */
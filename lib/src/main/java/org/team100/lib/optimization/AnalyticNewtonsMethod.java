@@ -0,0 +1,180 @@
+package org.team100.lib.optimization;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.MatrixFeatures_DDRM;
+import org.ejml.dense.row.factory.LinearSolverFactory_DDRM;
+import org.ejml.interfaces.linsol.LinearSolverDense;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Newton's method, the same as NewtonsMethod.solve2(), except that the caller
+ * supplies the Jacobian, and all the work happens in preallocated EJML
+ * matrices, so an iteration doesn't allocate anything.
+ *
+ * The numerical Jacobian in NewtonsMethod costs n+1 evaluations of f, each of
+ * which makes several WPILib Vectors, and that's most of the solve time. If
+ * you can write down the Jacobian, use this instead.
+ *
+ * The Jacobian doesn't need to be exact: an approximation (e.g. one that
+ * ignores the curvature of SE(3)) just costs an iteration here and there.
+ *
+ * The scratch matrices are reused, so this isn't thread-safe.
+ */
+public class AnalyticNewtonsMethod {
+    private static final boolean DEBUG = false;
+
+    /** The function to zero, and its Jacobian. */
+    public interface Function {
+        /**
+         * Evaluate f and its Jacobian at x. Write into the outputs, which are
+         * already the right size.
+         *
+         * @param x input, xdim x 1
+         * @param y output f(x), ydim x 1
+         * @param j output df/dx, ydim x xdim
+         */
+        void apply(DMatrixRMaj x, DMatrixRMaj y, DMatrixRMaj j);
+    }
+
+    private final int m_xdim;
+    private final Function m_f;
+    private final double[] m_xMin;
+    private final double[] m_xMax;
+    private final double m_tolerance;
+    private final int m_iterations;
+    /** Max change in estimate per iteration, to avoid overreacting. */
+    private final double m_dxLimit;
+    private final Random random = new Random();
+
+    // scratch
+    private final DMatrixRMaj m_x;
+    private final DMatrixRMaj m_y;
+    private final DMatrixRMaj m_j;
+    private final DMatrixRMaj m_dx;
+    /** Least squares, for non-square Jacobians, e.g. 5 joints in SE(3). */
+    private final LinearSolverDense<DMatrixRMaj> m_solver;
+
+    /** Iterations used by the most recent solve, including restarts. */
+    private int m_lastIterations;
+
+    /**
+     * See NewtonsMethod for the meaning of the parameters.
+     *
+     * @param xdim       domain dimension
+     * @param ydim       codomain dimension
+     * @param f          error and its Jacobian
+     * @param xMin       minimum x, length xdim
+     * @param xMax       maximum x, length xdim
+     * @param tolerance  return when f(x) is this close to zero
+     * @param iterations per restart
+     * @param dxLimit    maximum step size
+     */
+    public AnalyticNewtonsMethod(
+            int xdim,
+            int ydim,
+            Function f,
+            double[] xMin,
+            double[] xMax,
+            double tolerance,
+            int iterations,
+            double dxLimit) {
+        m_xdim = xdim;
+        m_f = f;
+        m_xMin = xMin;
+        m_xMax = xMax;
+        m_tolerance = tolerance;
+        m_iterations = iterations;
+        m_dxLimit = dxLimit;
+        m_x = new DMatrixRMaj(xdim, 1);
+        m_y = new DMatrixRMaj(ydim, 1);
+        m_j = new DMatrixRMaj(ydim, xdim);
+        m_dx = new DMatrixRMaj(xdim, 1);
+        m_solver = LinearSolverFactory_DDRM.leastSquares(ydim, xdim);
+    }
+
+    /**
+     * Solve in place: x is the initial estimate, e.g. the previous solution, and
+     * it's overwritten with the result.
+     *
+     * @param x              start here, and put the answer here
+     * @param restarts       number of random restarts in case of non-convergence
+     * @param throwOnFailure throw an exception if we fail to find a solution. Some
+     *                       clients can't tolerate a "kinda close" solution.
+     * @return true if the solution is within tolerance
+     */
+    public boolean solve(double[] x, int restarts, boolean throwOnFailure) {
+        long startTime = System.nanoTime();
+        m_lastIterations = 0;
+        try {
+            System.arraycopy(x, 0, m_x.data, 0, m_xdim);
+            for (int attempt = 0; attempt <= restarts; ++attempt) {
+                if (attempt > 0) {
+                    System.out.println("convergence failed, trying random restart");
+                    for (int i = 0; i < m_xdim; i++) {
+                        m_x.data[i] += 0.1 * (random.nextDouble() - 0.5);
+                    }
+                    limit();
+                }
+                if (iterate()) {
+                    System.arraycopy(m_x.data, 0, x, 0, m_xdim);
+                    return true;
+                }
+            }
+            System.out.printf("random restart failed, error %f\n", CommonOps_DDRM.elementMaxAbs(m_y));
+            if (throwOnFailure)
+                throw new IllegalArgumentException(
+                        String.format("failed to converge for inputs %s", Arrays.toString(x)));
+            System.arraycopy(m_x.data, 0, x, 0, m_xdim);
+            return false;
+        } finally {
+            if (DEBUG) {
+                long finishTime = System.nanoTime();
+                System.out.printf("solve iterations: %d ET (ms): %6.3f\n", m_lastIterations,
+                        ((double) finishTime - startTime) / 1000000);
+            }
+        }
+    }
+
+    /** Iterations used by the most recent solve, including restarts. */
+    public int getLastIterations() {
+        return m_lastIterations;
+    }
+
+    /////////////////////////////////////////////
+
+    /** Run Newton from m_x, return true if it converged. */
+    private boolean iterate() {
+        for (int iter = 0; iter < m_iterations; ++iter) {
+            m_lastIterations++;
+            m_f.apply(m_x, m_y, m_j);
+            if (CommonOps_DDRM.elementMaxAbs(m_y) < m_tolerance)
+                return true;
+            // solve J dx = error
+            if (!m_solver.setA(m_j))
+                return false;
+            m_solver.solve(m_y, m_dx);
+            if (MatrixFeatures_DDRM.hasUncountable(m_dx))
+                return false;
+            for (int i = 0; i < m_xdim; ++i) {
+                // Too-high dx results in oscillation.
+                double dxI = MathUtil.clamp(m_dx.data[i], -m_dxLimit, m_dxLimit);
+                // Note the minus sign: negative slope means x should move to the right.
+                m_x.data[i] -= dxI;
+            }
+            limit();
+        }
+        return false;
+    }
+
+    /** Keep the x estimate within bounds. */
+    private void limit() {
+        for (int i = 0; i < m_xdim; ++i) {
+            m_x.data[i] = MathUtil.clamp(m_x.data[i], m_xMin[i], m_xMax[i]);
+        }
+    }
+}
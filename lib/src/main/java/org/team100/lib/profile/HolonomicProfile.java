@@ -32,10 +32,6 @@ public class HolonomicProfile {
     private static final Profile PROFILE = Profile.P100;
     /** For testing */
     private static final boolean DEBUG = false;
-    /** Solver accuracy is low, in the interest of speed. */
-    private static final double ETA_TOLERANCE = 0.1;
-    /** Simulation for ETA is coarse, in the interest of speed. */
-    private static final double SOLVE_DT = 0.1;
     private static final double DT = TimedRobot100.LOOP_PERIOD_S;
 
     private final IncrementalProfile px;
@@ -153,8 +149,9 @@ public class HolonomicProfile {
     /**
      * Find scale factors that make the axes finish around the same time.
      * 
-     * This is a fairly coarse optimization, i.e. ETA within 0.1 sec or so, Reset
-     * the scale factors.
+     * Uses closed-form ETA where the profile has it, so it takes microseconds;
+     * profiles without it (e.g. CompleteProfile) fall back to simulation, which
+     * is much slower and coarser. Resets the scale factors.
      * 
      * @param i initial
      * @param g goal
@@ -164,10 +161,9 @@ public class HolonomicProfile {
         if (DEBUG) {
             System.out.printf("i %s g %s\n", i, g);
         }
-        // note coarser DT
-        double xETA = px.simulateForETA(SOLVE_DT, i.x().control(), g.x());
-        double yETA = py.simulateForETA(SOLVE_DT, i.y().control(), g.y());
-        double thetaETA = ptheta.simulateForETA(SOLVE_DT, i.theta().control(), g.theta());
+        double xETA = px.eta(i.x().control(), g.x());
+        double yETA = py.eta(i.y().control(), g.y());
+        double thetaETA = ptheta.eta(i.theta().control(), g.theta());
 
         if (DEBUG) {
             System.out.printf("ETAs: %f %f %f\n", xETA, yETA, thetaETA);
@@ -176,9 +172,10 @@ public class HolonomicProfile {
         slowETA = Math.max(slowETA, yETA);
         slowETA = Math.max(slowETA, thetaETA);
 
-        sx = px.solve(SOLVE_DT, i.x().control(), g.x(), slowETA, ETA_TOLERANCE);
-        sy = py.solve(SOLVE_DT, i.y().control(), g.y(), slowETA, ETA_TOLERANCE);
-        stheta = ptheta.solve(SOLVE_DT, i.theta().control(), g.theta(), slowETA, ETA_TOLERANCE);
+        // Each profile knows how accurate its ETA is.
+        sx = px.solveForETA(i.x().control(), g.x(), slowETA, px.etaTolerance());
+        sy = py.solveForETA(i.y().control(), g.y(), slowETA, py.etaTolerance());
+        stheta = ptheta.solveForETA(i.theta().control(), g.theta(), slowETA, ptheta.etaTolerance());
 
         if (DEBUG) {
             System.out.printf("sx %.3f sy %.3f stheta %.3f\n", sx, sy, stheta);
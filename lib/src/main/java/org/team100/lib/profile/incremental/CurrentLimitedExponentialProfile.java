@@ -71,7 +71,132 @@ public class CurrentLimitedExponentialProfile implements IncrementalProfile {
                 m_maxVel, s * m_limitedAccel, s * m_stallAccel);
     }
 
+    /**
+     * Closed-form ETA for goals at rest, following the choices in calculate():
+     * 
+     * * deceleration is exponential, i.e. a = -stall (1 + |v|/maxV)
+     * * positive acceleration is current-limited below the crossover speed, and
+     * exponential above it, i.e. a = stall (1 - v/maxV)
+     * * negative acceleration is always current-limited, up to cruise
+     * 
+     * Each segment has a closed-form duration and distance; the switching speed
+     * is found by bisection.
+     * 
+     * Moving goals, and too-fast initial states, use simulation.
+     */
+    @Override
+    public double eta(Control100 initial, Model100 goal) {
+        return eta(initial, goal, 1);
+    }
+
+    @Override
+    public double etaTolerance() {
+        return CLOSED_FORM_ETA_TOLERANCE;
+    }
+
+    /** Bisection over the closed-form ETA. */
+    @Override
+    public double solveForETA(
+            Control100 initial,
+            Model100 goal,
+            double goalETA,
+            double etaTolerance) {
+        return ScaleSolver.solve(
+                s -> eta(initial, goal, s), goalETA, etaTolerance);
+    }
+
     public double getMaxVelocity() {
         return m_maxVel;
     }
+
+    ////////////////////////////////////////////////////
+
+    /** ETA for the profile scaled by s. */
+    private double eta(Control100 initial, Model100 goal, double s) {
+        if (goal.v() != 0 || Math.abs(initial.v()) > m_maxVel)
+            return scale(s).simulateForETA(ETA_DT, initial, goal);
+        double limitedAccel = s * m_limitedAccel;
+        double stallAccel = s * m_stallAccel;
+        double togo = goal.x() - initial.x();
+        if (Math.abs(togo) < 1e-9 && Math.abs(initial.v()) < 1e-9)
+            return 0;
+        double dir = initial.v() != 0 ? Math.signum(initial.v()) : Math.signum(togo);
+        double speed = Math.abs(initial.v());
+        double ahead = dir * togo;
+        double stop = decelDistance(speed, stallAccel);
+        if (ahead >= stop)
+            return approach(dir, speed, ahead, limitedAccel, stallAccel);
+        // Overshoot: stop, and come back from rest.
+        return decelTime(speed, stallAccel)
+                + approach(-dir, 0, stop - ahead, limitedAccel, stallAccel);
+    }
+
+    /**
+     * Duration of the path that accelerates from speed u0, and then decelerates
+     * to rest at distance d.
+     */
+    private double approach(double dir, double u0, double d, double limitedAccel, double stallAccel) {
+        double lo = u0;
+        double hi = m_maxVel;
+        if (dir < 0) {
+            // Current-limited all the way, so there might be cruise.
+            double remaining = d
+                    - accelDistance(dir, u0, m_maxVel, limitedAccel, stallAccel)
+                    - decelDistance(m_maxVel, stallAccel);
+            if (remaining >= 0) {
+                return accelTime(dir, u0, m_maxVel, limitedAccel, stallAccel)
+                        + remaining / m_maxVel
+                        + decelTime(m_maxVel, stallAccel);
+            }
+        }
+        // Exponential acceleration never reaches maxV, so the switch is always below it.
+        for (int i = 0; i < 60; ++i) {
+            double us = 0.5 * (lo + hi);
+            double dist = accelDistance(dir, u0, us, limitedAccel, stallAccel)
+                    + decelDistance(us, stallAccel);
+            if (dist > d) {
+                hi = us;
+            } else {
+                lo = us;
+            }
+        }
+        double us = 0.5 * (lo + hi);
+        return accelTime(dir, u0, us, limitedAccel, stallAccel) + decelTime(us, stallAccel);
+    }
+
+    private double accelTime(double dir, double ua, double ub, double limitedAccel, double stallAccel) {
+        if (dir < 0 || ub <= m_limit)
+            return (ub - ua) / limitedAccel;
+        if (ua >= m_limit)
+            return expAccelTime(ua, ub, stallAccel);
+        return (m_limit - ua) / limitedAccel + expAccelTime(m_limit, ub, stallAccel);
+    }
+
+    private double accelDistance(double dir, double ua, double ub, double limitedAccel, double stallAccel) {
+        if (dir < 0 || ub <= m_limit)
+            return (ub * ub - ua * ua) / (2 * limitedAccel);
+        if (ua >= m_limit)
+            return expAccelDistance(ua, ub, stallAccel);
+        return (m_limit * m_limit - ua * ua) / (2 * limitedAccel)
+                + expAccelDistance(m_limit, ub, stallAccel);
+    }
+
+    /** a = stall (1 - u/V) */
+    private double expAccelTime(double ua, double ub, double stallAccel) {
+        return (m_maxVel / stallAccel) * Math.log((m_maxVel - ua) / (m_maxVel - ub));
+    }
+
+    private double expAccelDistance(double ua, double ub, double stallAccel) {
+        return (m_maxVel / stallAccel)
+                * ((ua - ub) + m_maxVel * Math.log((m_maxVel - ua) / (m_maxVel - ub)));
+    }
+
+    /** Time to stop from speed u, with a = -stall (1 + u/V) */
+    private double decelTime(double u, double stallAccel) {
+        return (m_maxVel / stallAccel) * Math.log1p(u / m_maxVel);
+    }
+
+    private double decelDistance(double u, double stallAccel) {
+        return (m_maxVel / stallAccel) * (u - m_maxVel * Math.log1p(u / m_maxVel));
+    }
 }
@@ -33,6 +33,30 @@ public class ExponentialProfileWPI implements IncrementalProfile {
         return new Control100(result.position, result.velocity, 0);
     }
 
+    /** Closed form, from the WPI profile timing. */
+    @Override
+    public double eta(Control100 initial, Model100 goal) {
+        return m_profile.timeLeftUntil(
+                new State(initial.x(), initial.v()),
+                new State(goal.x(), goal.v()));
+    }
+
+    @Override
+    public double etaTolerance() {
+        return CLOSED_FORM_ETA_TOLERANCE;
+    }
+
+    /** Bisection over the closed-form ETA. */
+    @Override
+    public double solveForETA(
+            Control100 initial,
+            Model100 goal,
+            double goalETA,
+            double etaTolerance) {
+        return ScaleSolver.solve(
+                s -> scale(s).eta(initial, goal), goalETA, etaTolerance);
+    }
+
     @Override
     public IncrementalProfile scale(double s) {
         return new ExponentialProfileWPI(
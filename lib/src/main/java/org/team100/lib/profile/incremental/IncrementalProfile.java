@@ -13,6 +13,10 @@ import org.team100.lib.state.Model100;
  */
 public interface IncrementalProfile {
     public static final int MAX_ETA = 10;
+    /** Simulation for ETA is coarse, in the interest of speed. */
+    public static final double ETA_DT = 0.1;
+    /** Profiles with closed-form ETA can be solved more tightly. */
+    public static final double CLOSED_FORM_ETA_TOLERANCE = 0.01;
     static final boolean DEBUG = false;
 
     /**
@@ -43,6 +47,42 @@ public interface IncrementalProfile {
         return t;
     }
 
+    /**
+     * Duration of the profile from initial to goal.
+     * 
+     * The default simulates with a coarse dt, so it's slow, and a little bit
+     * wrong. Profiles that can compute the duration directly should override
+     * this.
+     */
+    default double eta(Control100 initial, Model100 goal) {
+        return simulateForETA(ETA_DT, initial, goal);
+    }
+
+    /**
+     * How close to the goal ETA solveForETA() can usefully get. The default
+     * simulates with ETA_DT, so its ETA is quantized at ETA_DT, and a tighter
+     * tolerance just makes the bisection run out of iterations.
+     */
+    default double etaTolerance() {
+        return ETA_DT;
+    }
+
+    /**
+     * Find the scale factor that makes the profile complete in the specified time
+     * (ETA), with the same limits as solve().
+     * 
+     * The default uses solve(), i.e. bisection over simulations, which can take
+     * thousands of steps. Profiles that can compute the duration directly should
+     * override this.
+     */
+    default double solveForETA(
+            Control100 initial,
+            Model100 goal,
+            double goalETA,
+            double etaTolerance) {
+        return solve(ETA_DT, initial, goal, goalETA, etaTolerance);
+    }
+
     /**
      * Return a new profile scaled by s. The choice of what the parameter actually
      * does is up to the implementation. A good choice would be to scale
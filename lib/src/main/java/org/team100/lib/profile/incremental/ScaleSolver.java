@@ -0,0 +1,51 @@
+package org.team100.lib.profile.incremental;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Finds the scale factor that makes a profile complete in the specified time,
+ * by bisection over a fast (e.g. closed-form) ETA function.
+ * 
+ * Like IncrementalProfile.solve(), it never returns s > 1, and never returns s
+ * < 0.01.
+ * 
+ * This assumes that the ETA gets shorter as s gets bigger, which is true for
+ * all our profiles, since s scales acceleration.
+ */
+final class ScaleSolver {
+    static final double MIN_S = 0.01;
+    static final double MAX_S = 1.0;
+    private static final int MAX_ITERATIONS = 50;
+
+    /**
+     * @param eta          duration as a function of scale
+     * @param goalETA      desired duration
+     * @param etaTolerance how close to the desired duration is close enough
+     */
+    static double solve(DoubleUnaryOperator eta, double goalETA, double etaTolerance) {
+        // the fastest profile is already slow enough
+        if (eta.applyAsDouble(MAX_S) >= goalETA - etaTolerance)
+            return MAX_S;
+        // the slowest profile is still too fast
+        if (eta.applyAsDouble(MIN_S) <= goalETA + etaTolerance)
+            return MIN_S;
+        double lo = MIN_S;
+        double hi = MAX_S;
+        for (int i = 0; i < MAX_ITERATIONS; ++i) {
+            double s = 0.5 * (lo + hi);
+            double err = eta.applyAsDouble(s) - goalETA;
+            if (Math.abs(err) < etaTolerance)
+                return s;
+            if (err > 0) {
+                // too slow
+                lo = s;
+            } else {
+                hi = s;
+            }
+        }
+        return 0.5 * (lo + hi);
+    }
+
+    private ScaleSolver() {
+    }
+}
@@ -103,6 +103,35 @@ public class TrapezoidIncrementalProfile implements IncrementalProfile {
                 m_tolerance);
     }
 
+    /** Closed form, see TrapezoidTiming. */
+    @Override
+    public double eta(Control100 initial, Model100 goal) {
+        if (goal.control().near(initial, m_tolerance.getAsDouble()))
+            return 0;
+        return TrapezoidTiming.eta(
+                initial.x(), initial.v(), goal.x(), goal.v(),
+                m_maxVelocity.getAsDouble(), getScaledAccel());
+    }
+
+    @Override
+    public double etaTolerance() {
+        return CLOSED_FORM_ETA_TOLERANCE;
+    }
+
+    /** Closed form, see TrapezoidTiming. */
+    @Override
+    public double solveForETA(
+            Control100 initial,
+            Model100 goal,
+            double goalETA,
+            double etaTolerance) {
+        if (goal.control().near(initial, m_tolerance.getAsDouble()))
+            return ScaleSolver.MAX_S;
+        return TrapezoidTiming.solve(
+                initial.x(), initial.v(), goal.x(), goal.v(),
+                m_maxVelocity.getAsDouble(), getScaledAccel(), goalETA, etaTolerance);
+    }
+
     private double getScaledAccel() {
         return m_scale * m_maxAccelerationUnscaled.getAsDouble();
     }
@@ -0,0 +1,147 @@
+package org.team100.lib.profile.incremental;
+
+import org.team100.lib.util.Math100;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Closed-form timing for acceleration-limited and velocity-limited paths, using
+ * the notation in TrapezoidIncrementalProfile.
+ *
+ * The minimum-time path between any two states is either I+G- or I-G+, perhaps
+ * with cruise in between. The switching velocity comes from the intersection of
+ * the two parabolas:
+ *
+ * vs^2 = a (x1 - x0) + (v0^2 + v1^2) / 2
+ *
+ * and the durations of the segments follow directly. Going the other way, for a
+ * given duration, the acceleration is the root of a quadratic (without cruise)
+ * or the solution of a linear equation (with cruise).
+ */
+final class TrapezoidTiming {
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Duration of the minimum-time path from (x0, v0) to (x1, v1), or infinity if
+     * there isn't one.
+     *
+     * As in TrapezoidIncrementalProfile, too-fast initial velocity is handled by
+     * braking, and too-fast goal velocity is clamped.
+     */
+    static double eta(
+            double x0, double v0, double x1, double v1, double maxV, double maxA) {
+        v1 = MathUtil.clamp(v1, -maxV, maxV);
+        double brakingTime = 0;
+        if (v0 > maxV) {
+            brakingTime = (v0 - maxV) / maxA;
+            x0 += (v0 * v0 - maxV * maxV) / (2 * maxA);
+            v0 = maxV;
+        } else if (v0 < -maxV) {
+            brakingTime = (-maxV - v0) / maxA;
+            x0 -= (v0 * v0 - maxV * maxV) / (2 * maxA);
+            v0 = -maxV;
+        }
+        double tPlus = plusMinus(x0, v0, x1, v1, maxV, maxA);
+        double tMinus = plusMinus(-x0, -v0, -x1, -v1, maxV, maxA);
+        if (Double.isNaN(tPlus) && Double.isNaN(tMinus))
+            return Double.POSITIVE_INFINITY;
+        if (Double.isNaN(tPlus))
+            return brakingTime + tMinus;
+        if (Double.isNaN(tMinus))
+            return brakingTime + tPlus;
+        return brakingTime + Math.min(tPlus, tMinus);
+    }
+
+    /**
+     * Find the scale factor for maxA that makes the path take goalETA, with the
+     * same limits as IncrementalProfile.solve().
+     */
+    static double solve(
+            double x0, double v0, double x1, double v1,
+            double maxV, double maxA, double goalETA, double etaTolerance) {
+        if (eta(x0, v0, x1, v1, maxV, maxA) >= goalETA - etaTolerance)
+            return ScaleSolver.MAX_S;
+        if (eta(x0, v0, x1, v1, maxV, ScaleSolver.MIN_S * maxA) <= goalETA + etaTolerance)
+            return ScaleSolver.MIN_S;
+        double a = accelForETA(x0, v0, x1, v1, maxV, goalETA);
+        if (!Double.isNaN(a) && a >= ScaleSolver.MIN_S * maxA && a <= maxA)
+            return a / maxA;
+        // Braking from too-fast initial velocity isn't covered by the closed form.
+        return ScaleSolver.solve(
+                s -> eta(x0, v0, x1, v1, maxV, s * maxA), goalETA, etaTolerance);
+    }
+
+    /**
+     * The largest acceleration that makes the path take exactly goalETA, or NaN if
+     * there isn't one.
+     *
+     * Each of the four closed forms (I+G- or I-G+, with or without cruise) yields
+     * candidates, which are only valid if they actually produce that path, so
+     * each candidate is checked.
+     */
+    static double accelForETA(
+            double x0, double v0, double x1, double v1, double maxV, double goalETA) {
+        if (Math.abs(v0) > maxV || Math.abs(v1) > maxV)
+            return Double.NaN;
+        double best = Double.NaN;
+        for (double dir = -1; dir <= 1; dir += 2) {
+            double d = dir * (x1 - x0);
+            double u0 = dir * v0;
+            double u1 = dir * v1;
+            // with cruise: T = d/V + ((V-v0)^2 + (V-v1)^2) / (2 V a)
+            double denom = 2 * (maxV * goalETA - d);
+            if (denom > 0) {
+                double a = (Math.pow(maxV - u0, 2) + Math.pow(maxV - u1, 2)) / denom;
+                best = better(best, a, x0, v0, x1, v1, maxV, goalETA);
+            }
+            // without cruise: a T + v0 + v1 = 2 vs, squared.
+            double w = u0 + u1;
+            double k = (u0 * u0 + u1 * u1) / 2;
+            for (double a : Math100.solveQuadratic(
+                    goalETA * goalETA, 2 * w * goalETA - 4 * d, w * w - 4 * k)) {
+                best = better(best, a, x0, v0, x1, v1, maxV, goalETA);
+            }
+        }
+        return best;
+    }
+
+    ////////////////////////////////////////////////////
+
+    /** Keep the candidate if it's valid and bigger than the best so far. */
+    private static double better(
+            double best, double a,
+            double x0, double v0, double x1, double v1, double maxV, double goalETA) {
+        if (!(a > 0))
+            return best;
+        double eta = eta(x0, v0, x1, v1, maxV, a);
+        if (Math.abs(eta - goalETA) > 1e-6 * Math.max(1, goalETA))
+            return best;
+        if (Double.isNaN(best) || a > best)
+            return a;
+        return best;
+    }
+
+    /**
+     * Duration of the I+G- path, perhaps with cruise, or NaN if there isn't one.
+     * Use negated states for I-G+.
+     */
+    private static double plusMinus(
+            double x0, double v0, double x1, double v1, double maxV, double a) {
+        double d = x1 - x0;
+        double vs2 = a * d + (v0 * v0 + v1 * v1) / 2;
+        if (vs2 < 0)
+            return Double.NaN;
+        double vs = Math.sqrt(vs2);
+        // I+ goes up to the switching velocity, and G- goes down from it.
+        if (vs < v0 - EPSILON || vs < v1 - EPSILON)
+            return Double.NaN;
+        if (vs <= maxV)
+            return Math.max(0, (2 * vs - v0 - v1) / a);
+        // clipped by cruise
+        double cruise = d - (2 * maxV * maxV - v0 * v0 - v1 * v1) / (2 * a);
+        return (2 * maxV - v0 - v1) / a + cruise / maxV;
+    }
+
+    private TrapezoidTiming() {
+    }
+}
@@ -10,12 +10,18 @@ import org.team100.lib.logging.LoggerFactory.DoubleLogger;
 import org.team100.lib.logging.LoggerFactory.ModelR3Logger;
 import org.team100.lib.state.ControlR3;
 import org.team100.lib.state.ModelR3;
+import org.team100.lib.trajectory.PackedTrajectory;
 import org.team100.lib.trajectory.Trajectory100;
 
 /** Produces references based on a trajectory. */
 public class TrajectoryReferenceR3 implements ReferenceR3 {
     private final LoggerFactory m_log;
     private final Trajectory100 m_trajectory;
+    /** Current and next each move forward, so each has its own cursor. */
+    private final PackedTrajectory.Cursor m_currentCursor;
+    private final PackedTrajectory.Cursor m_nextCursor;
+    /** Reused for each sample. */
+    private final PackedTrajectory.Sample m_sample;
     private final ModelR3Logger m_log_current;
     private final ControlR3Logger m_log_next;
     private final BooleanLogger m_log_done;
@@ -28,6 +34,9 @@ public class TrajectoryReferenceR3 implements ReferenceR3 {
             Trajectory100 trajectory) {
         m_log = parent.type(this);
         m_trajectory = trajectory;
+        m_currentCursor = trajectory.packed().cursor();
+        m_nextCursor = trajectory.packed().cursor();
+        m_sample = new PackedTrajectory.Sample();
         m_log_progress = m_log.doubleLogger(Level.TRACE, "progress");
         m_log_current = m_log.modelR3Logger(Level.TRACE, "current");
         m_log_next = m_log.controlR3Logger(Level.TRACE, "next");
@@ -39,18 +48,20 @@ public class TrajectoryReferenceR3 implements ReferenceR3 {
     @Override
     public void initialize(ModelR3 measurement) {
         m_startTimeS = Takt.get();
+        m_currentCursor.reset();
+        m_nextCursor.reset();
     }
 
     @Override
     public ModelR3 current() {
-        ModelR3 current = sample(progress()).model();
+        ModelR3 current = sample(m_currentCursor, progress()).model();
         m_log_current.log(() -> current);
         return current;
     }
 
     @Override
     public ControlR3 next() {
-        ControlR3 next = sample(progress() + TimedRobot100.LOOP_PERIOD_S);
+        ControlR3 next = sample(m_nextCursor, progress() + TimedRobot100.LOOP_PERIOD_S);
         m_log_next.log(() -> next);
         return next;
     }
@@ -77,7 +88,8 @@ public class TrajectoryReferenceR3 implements ReferenceR3 {
         return progress;
     }
 
-    private ControlR3 sample(double t) {
-        return ControlR3.fromTimedPose(m_trajectory.sample(t));
+    private ControlR3 sample(PackedTrajectory.Cursor cursor, double t) {
+        cursor.sample(t, m_sample);
+        return m_sample.control();
     }
 }
@@ -3,9 +3,8 @@ package org.team100.lib.servo;
 import org.team100.lib.controller.r1.Feedback100;
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
-import org.team100.lib.logging.LoggerFactory.Control100Logger;
 import org.team100.lib.logging.LoggerFactory.DoubleLogger;
-import org.team100.lib.logging.LoggerFactory.Model100Logger;
+import org.team100.lib.logging.LoggerFactory.StructLogger;
 import org.team100.lib.mechanism.RotaryMechanism;
 import org.team100.lib.reference.r1.ProfileReferenceR1;
 import org.team100.lib.reference.r1.SetpointsR1;
@@ -24,8 +23,8 @@ public class OnboardAngularPositionServo extends AngularPositionServoImpl {
     private final Feedback100 m_feedback;
 
     private final DoubleLogger m_log_feedforward_torque;
-    private final Model100Logger m_log_measurement;
-    private final Control100Logger m_log_control;
+    private final StructLogger<Model100> m_log_measurement;
+    private final StructLogger<Control100> m_log_control;
     private final DoubleLogger m_log_u_FB;
     private final DoubleLogger m_log_u_FF;
     private final DoubleLogger m_log_u_TOTAL;
@@ -44,8 +43,8 @@ public class OnboardAngularPositionServo extends AngularPositionServoImpl {
         m_feedback = feedback;
 
         m_log_feedforward_torque = log.doubleLogger(Level.TRACE, "Feedforward Torque (Nm)");
-        m_log_measurement = log.model100Logger(Level.COMP, "measurement (rad)");
-        m_log_control = log.control100Logger(Level.COMP, "control (rad)");
+        m_log_measurement = log.model100StructLogger(Level.COMP, "measurement (rad)");
+        m_log_control = log.control100StructLogger(Level.COMP, "control (rad)");
         m_log_u_FB = log.doubleLogger(Level.TRACE, "u_FB (rad_s)");
         m_log_u_FF = log.doubleLogger(Level.TRACE, "u_FF (rad_s)");
 
@@ -2,8 +2,8 @@ package org.team100.lib.servo;
 
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
-import org.team100.lib.logging.LoggerFactory.Control100Logger;
 import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.StructLogger;
 import org.team100.lib.mechanism.LinearMechanism;
 import org.team100.lib.reference.r1.ProfileReferenceR1;
 import org.team100.lib.reference.r1.SetpointsR1;
@@ -22,7 +22,7 @@ public class OutboardLinearPositionServo implements LinearPositionServo {
 
     private final DoubleLogger m_log_goal;
     private final DoubleLogger m_log_ff_torque;
-    private final Control100Logger m_log_control;
+    private final StructLogger<Control100> m_log_control;
     private final DoubleLogger m_log_position;
     private final DoubleLogger m_log_velocity;
 
@@ -43,7 +43,7 @@ public class OutboardLinearPositionServo implements LinearPositionServo {
         m_velocityTolerance = velocityTolerance;
         m_log_goal = log.doubleLogger(Level.COMP, "goal (m)");
         m_log_ff_torque = log.doubleLogger(Level.TRACE, "Feedforward Torque (Nm)");
-        m_log_control = log.control100Logger(Level.COMP, "control (m)");
+        m_log_control = log.control100StructLogger(Level.COMP, "control (m)");
         m_log_position = log.doubleLogger(Level.COMP, "position (m)");
         m_log_velocity = log.doubleLogger(Level.COMP, "velocity (m_s)");
     }
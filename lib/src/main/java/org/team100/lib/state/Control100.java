@@ -2,8 +2,11 @@ package org.team100.lib.state;
 
 import java.util.Objects;
 
+import org.team100.lib.state.struct.Control100Struct;
+
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.interpolation.Interpolatable;
+import edu.wpi.first.util.struct.StructSerializable;
 
 /**
  * One-dimensional system state, used for control, so it includes acceleration,
@@ -16,7 +19,9 @@ import edu.wpi.first.math.interpolation.Interpolatable;
  * @param v velocity
  * @param a acceleration
  */
-public record Control100(double x, double v, double a) implements Interpolatable<Control100> {
+public record Control100(double x, double v, double a) implements Interpolatable<Control100>, StructSerializable {
+    /** Control100 struct for serialization. */
+    public static final Control100Struct struct = new Control100Struct();
 
     public Control100(double x, double v) {
         this(x, v, 0);
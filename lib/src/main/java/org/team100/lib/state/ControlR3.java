@@ -2,6 +2,7 @@ package org.team100.lib.state;
 
 import org.team100.lib.geometry.GlobalAccelerationR3;
 import org.team100.lib.geometry.GlobalVelocityR3;
+import org.team100.lib.state.struct.ControlR3Struct;
 import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.trajectory.timing.TimedPose;
 
@@ -9,6 +10,7 @@ import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.util.struct.StructSerializable;
 
 /**
  * Describes the state of three independent dimensions, each of which is
@@ -22,7 +24,10 @@ import edu.wpi.first.math.kinematics.ChassisSpeeds;
  * Do not try to use zero as an initial location; always initialize with the
  * current location.
  */
-public class ControlR3 {
+public class ControlR3 implements StructSerializable {
+    /** ControlR3 struct for serialization. */
+    public static final ControlR3Struct struct = new ControlR3Struct();
+
     private final Control100 m_x;
     private final Control100 m_y;
     private final Control100 m_theta;
@@ -125,26 +130,47 @@ public class ControlR3 {
      * Correctly accounts for centripetal acceleration.
      */
     public static ControlR3 fromTimedPose(TimedPose timedPose) {
-        double xx = timedPose.state().getPose().translation().getX();
-        double yx = timedPose.state().getPose().translation().getY();
-        double thetax = timedPose.state().getPose().heading().getRadians();
-
-        double velocityM_s = timedPose.velocityM_S();
         Rotation2d course = timedPose.state().getPose().course();
-        double xv = course.getCos() * velocityM_s;
-        double yv = course.getSin() * velocityM_s;
-        double thetav = timedPose.state().getHeadingRateRad_M() * velocityM_s;
+        return fromMotion(
+                timedPose.state().getPose().translation().getX(),
+                timedPose.state().getPose().translation().getY(),
+                timedPose.state().getPose().heading().getRadians(),
+                course.getCos(),
+                course.getSin(),
+                timedPose.state().getHeadingRateRad_M(),
+                timedPose.state().getCurvature(),
+                timedPose.velocityM_S(),
+                timedPose.acceleration());
+    }
 
-        double accelM_s_s = timedPose.acceleration();
-        double xa = course.getCos() * accelM_s_s;
-        double ya = course.getSin() * accelM_s_s;
-        double thetaa = timedPose.state().getHeadingRateRad_M() * accelM_s_s;
+    /**
+     * Control from path state, with velocity and acceleration along the course.
+     * 
+     * @param headingRateRad_M change in heading per meter
+     * @param curvRad_M        change in course per meter
+     */
+    public static ControlR3 fromMotion(
+            double xx,
+            double yx,
+            double thetax,
+            double courseCos,
+            double courseSin,
+            double headingRateRad_M,
+            double curvRad_M,
+            double velocityM_s,
+            double accelM_s_s) {
+        double xv = courseCos * velocityM_s;
+        double yv = courseSin * velocityM_s;
+        double thetav = headingRateRad_M * velocityM_s;
+
+        double xa = courseCos * accelM_s_s;
+        double ya = courseSin * accelM_s_s;
+        double thetaa = headingRateRad_M * accelM_s_s;
 
         // centripetal accel = v^2/r = v^2 * curvature
-        double curvRad_M = timedPose.state().getCurvature();
         double centripetalAccelM_s_s = velocityM_s * velocityM_s * curvRad_M;
-        double xCa = -1.0 * course.getSin() * centripetalAccelM_s_s;
-        double yCa = course.getCos() * centripetalAccelM_s_s;
+        double xCa = -1.0 * courseSin * centripetalAccelM_s_s;
+        double yCa = courseCos * centripetalAccelM_s_s;
 
         return new ControlR3(
                 new Control100(xx, xv, xa + xCa),
@@ -2,8 +2,11 @@ package org.team100.lib.state;
 
 import java.util.Objects;
 
+import org.team100.lib.state.struct.Model100Struct;
+
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.interpolation.Interpolatable;
+import edu.wpi.first.util.struct.StructSerializable;
 
 /**
  * One-dimensional system state, used for system modeling. The model only
@@ -15,7 +18,9 @@ import edu.wpi.first.math.interpolation.Interpolatable;
  * @param x position
  * @param v velocity
  */
-public record Model100(double x, double v) implements Interpolatable<Model100> {
+public record Model100(double x, double v) implements Interpolatable<Model100>, StructSerializable {
+    /** Model100 struct for serialization. */
+    public static final Model100Struct struct = new Model100Struct();
 
     public Model100() {
         this(0, 0);
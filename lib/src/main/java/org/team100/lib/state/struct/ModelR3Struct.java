@@ -0,0 +1,50 @@
+package org.team100.lib.state.struct;
+
+import java.nio.ByteBuffer;
+
+import org.team100.lib.state.Model100;
+import org.team100.lib.state.ModelR3;
+
+import edu.wpi.first.util.struct.Struct;
+
+public class ModelR3Struct implements Struct<ModelR3> {
+    @Override
+    public Class<ModelR3> getTypeClass() {
+        return ModelR3.class;
+    }
+
+    @Override
+    public String getTypeName() {
+        return "ModelR3";
+    }
+
+    @Override
+    public int getSize() {
+        return Model100.struct.getSize() * 3;
+    }
+
+    @Override
+    public String getSchema() {
+        return "Model100 x;Model100 y;Model100 theta";
+    }
+
+    @Override
+    public Struct<?>[] getNested() {
+        return new Struct<?>[] { Model100.struct };
+    }
+
+    @Override
+    public ModelR3 unpack(ByteBuffer bb) {
+        Model100 x = Model100.struct.unpack(bb);
+        Model100 y = Model100.struct.unpack(bb);
+        Model100 theta = Model100.struct.unpack(bb);
+        return new ModelR3(x, y, theta);
+    }
+
+    @Override
+    public void pack(ByteBuffer bb, ModelR3 value) {
+        Model100.struct.pack(bb, value.x());
+        Model100.struct.pack(bb, value.y());
+        Model100.struct.pack(bb, value.theta());
+    }
+}
@@ -95,27 +95,13 @@ public class AnalyticalJacobian {
     /////////////////////////////////////////////////
 
     /**
-     * End-effector Jacobian.
+     * End-effector Jacobian, see ElevatorArmWristKinematics.jacobian().
      * 
      * See doc/README.md equation 3
      */
     private Matrix<N3, N3> getJ(EAWConfig q) {
-        double q2 = q.shoulderAngle();
-        double q3 = q.wristAngle();
-        double s2 = Math.sin(q2);
-        double c2 = Math.cos(q2);
-        double s23 = Math.sin(q2 + q3);
-        double c23 = Math.cos(q2 + q3);
         Matrix<N3, N3> J = new Matrix<>(Nat.N3(), Nat.N3());
-        J.set(0, 0, 1);
-        J.set(0, 1, -l2 * s2 - l3 * s23);
-        J.set(0, 2, -l3 * s23);
-        J.set(1, 0, 0);
-        J.set(1, 1, l2 * c2 + l3 * c23);
-        J.set(1, 2, l3 * c23);
-        J.set(2, 0, 0);
-        J.set(2, 1, 1);
-        J.set(2, 2, 1);
+        m_k.jacobian(q.shoulderAngle(), q.wristAngle(), J.getStorage().getDDRM());
         return J;
     }
 
@@ -1,5 +1,7 @@
 package org.team100.lib.subsystems.prr;
 
+import org.ejml.data.DMatrixRMaj;
+
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
@@ -50,6 +52,29 @@ public class ElevatorArmWristKinematics {
         return new Pose2d(x, y, new Rotation2d(r));
     }
 
+    /**
+     * Jacobian of forward(), d(x, y, r)/d(height, shoulder, wrist), written into
+     * the 3x3 matrix j, for use with AnalyticNewtonsMethod and
+     * AnalyticalJacobian. Doesn't depend on the height.
+     */
+    public void jacobian(double shoulderAngle, double wristAngle, DMatrixRMaj j) {
+        double s2 = Math.sin(shoulderAngle);
+        double c2 = Math.cos(shoulderAngle);
+        double s23 = Math.sin(shoulderAngle + wristAngle);
+        double c23 = Math.cos(shoulderAngle + wristAngle);
+        double l2 = m_armLength;
+        double l3 = m_manipulatorLength;
+        j.set(0, 0, 1);
+        j.set(0, 1, -l2 * s2 - l3 * s23);
+        j.set(0, 2, -l3 * s23);
+        j.set(1, 0, 0);
+        j.set(1, 1, l2 * c2 + l3 * c23);
+        j.set(1, 2, l3 * c23);
+        j.set(2, 0, 0);
+        j.set(2, 1, 1);
+        j.set(2, 2, 1);
+    }
+
     /** Distance from shoulder pivot to wrist pivot. */
     public double armX(Translation2d wrist) {
         double d = m_armLength * m_armLength - wrist.getY() * wrist.getY();
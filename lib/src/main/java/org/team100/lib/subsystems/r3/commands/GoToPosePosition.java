@@ -1,21 +1,27 @@
 package org.team100.lib.subsystems.r3.commands;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.team100.lib.commands.MoveAndHold;
 import org.team100.lib.geometry.HolonomicPose2d;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.reference.r3.TrajectoryReferenceR3;
+import org.team100.lib.state.ControlR3;
 import org.team100.lib.subsystems.r3.PositionSubsystemR3;
 import org.team100.lib.subsystems.r3.commands.helper.PositionReferenceControllerR3;
 import org.team100.lib.trajectory.Trajectory100;
 import org.team100.lib.trajectory.TrajectoryPlanner;
+import org.team100.lib.trajectory.TrajectoryPlanningService;
 
 import edu.wpi.first.math.geometry.Rotation2d;
 
 /**
  * Using the pose at initialization time, and the specified course, construct a
  * rest-to-rest trajectory to the goal and follow it.
+ * 
+ * If there's a planning service, the trajectory is planned in the background,
+ * and the subsystem holds its initial pose until the trajectory is ready.
  */
 public class GoToPosePosition extends MoveAndHold {
     private final LoggerFactory m_log;
@@ -23,8 +29,14 @@ public class GoToPosePosition extends MoveAndHold {
     private final HolonomicPose2d m_goal;
     private final Rotation2d m_course;
     private final TrajectoryPlanner m_trajectoryPlanner;
+    /** May be null, in which case planning happens in initialize(). */
+    private final TrajectoryPlanningService m_service;
 
     private PositionReferenceControllerR3 m_referenceController;
+    /** The trajectory being planned in the background. */
+    private CompletableFuture<Trajectory100> m_future;
+    /** Held while waiting for the trajectory. */
+    private ControlR3 m_hold;
 
     public GoToPosePosition(
             LoggerFactory parent,
@@ -32,26 +44,58 @@ public class GoToPosePosition extends MoveAndHold {
             Rotation2d course,
             HolonomicPose2d goal,
             TrajectoryPlanner trajectoryPlanner) {
+        this(parent, subsystem, course, goal, trajectoryPlanner, null);
+    }
+
+    public GoToPosePosition(
+            LoggerFactory parent,
+            PositionSubsystemR3 subsystem,
+            Rotation2d course,
+            HolonomicPose2d goal,
+            TrajectoryPlanningService service) {
+        this(parent, subsystem, course, goal, null, service);
+    }
+
+    private GoToPosePosition(
+            LoggerFactory parent,
+            PositionSubsystemR3 subsystem,
+            Rotation2d course,
+            HolonomicPose2d goal,
+            TrajectoryPlanner trajectoryPlanner,
+            TrajectoryPlanningService service) {
         m_log = parent.type(this);
         m_subsystem = subsystem;
         m_goal = goal;
         m_course = course;
         m_trajectoryPlanner = trajectoryPlanner;
+        m_service = service;
         addRequirements(subsystem);
     }
 
     @Override
     public void initialize() {
+        m_referenceController = null;
         HolonomicPose2d m_currentPose = HolonomicPose2d.make(
                 m_subsystem.getState().pose(), m_course);
-        Trajectory100 m_trajectory = m_trajectoryPlanner.restToRest(
-                List.of(m_currentPose, m_goal));
-        m_referenceController = new PositionReferenceControllerR3(
-                m_log, m_subsystem, new TrajectoryReferenceR3(m_log, m_trajectory));
+        List<HolonomicPose2d> waypoints = List.of(m_currentPose, m_goal);
+        if (m_service == null) {
+            start(m_trajectoryPlanner.restToRest(waypoints));
+            return;
+        }
+        m_hold = new ControlR3(m_subsystem.getState().pose());
+        m_future = m_service.restToRest(waypoints);
+        // if it's already planned, start now.
+        poll();
     }
 
     @Override
     public void execute() {
+        if (m_referenceController == null)
+            poll();
+        if (m_referenceController == null) {
+            m_subsystem.set(m_hold);
+            return;
+        }
         m_referenceController.execute();
     }
 
@@ -69,7 +113,29 @@ public class GoToPosePosition extends MoveAndHold {
 
     @Override
     public void end(boolean interrupted) {
+        m_future = null;
         m_subsystem.stop();
     }
 
+    ////////////////////////////////////////////////////
+
+    /** Start following the planned trajectory, if it's ready. */
+    private void poll() {
+        if (m_future == null || !m_future.isDone())
+            return;
+        Trajectory100 trajectory = m_future.join();
+        m_future = null;
+        if (trajectory.isEmpty()) {
+            // Planning failed; keep holding.
+            System.out.println("WARNING: GoToPosePosition has no trajectory");
+            return;
+        }
+        start(trajectory);
+    }
+
+    private void start(Trajectory100 trajectory) {
+        m_referenceController = new PositionReferenceControllerR3(
+                m_log, m_subsystem, new TrajectoryReferenceR3(m_log, trajectory));
+    }
+
 }
\ No newline at end of file
@@ -15,7 +15,7 @@ import org.team100.lib.logging.LoggerFactory.DoubleArrayLogger;
 import org.team100.lib.logging.LoggerFactory.DoubleLogger;
 import org.team100.lib.logging.LoggerFactory.EnumLogger;
 import org.team100.lib.logging.LoggerFactory.GlobalVelocityR3Logger;
-import org.team100.lib.logging.LoggerFactory.ModelR3Logger;
+import org.team100.lib.logging.LoggerFactory.StructLogger;
 import org.team100.lib.music.Music;
 import org.team100.lib.music.Player;
 import org.team100.lib.state.ModelR3;
@@ -44,7 +44,7 @@ public class SwerveDriveSubsystem extends SubsystemBase implements VelocitySubsy
     private final ObjectCache<ModelR3> m_stateCache;
 
     // LOGGERS
-    private final ModelR3Logger m_log_state;
+    private final StructLogger<ModelR3> m_log_state;
     private final DoubleLogger m_log_turning;
     private final DoubleArrayLogger m_log_pose_array;
     // TODO: pull the field logger out into a separate observer.
@@ -68,7 +68,7 @@ public class SwerveDriveSubsystem extends SubsystemBase implements VelocitySubsy
         m_limiter = limiter;
         m_stateCache = Cache.of(this::update);
         stop();
-        m_log_state = log.modelR3Logger(Level.COMP, "state");
+        m_log_state = log.modelR3StructLogger(Level.COMP, "state");
         m_log_turning = log.doubleLogger(Level.TRACE, "Tur Deg");
         m_log_pose_array = log.doubleArrayLogger(Level.COMP, "pose array");
         m_log_field_robot = fieldLogger.doubleArrayLogger(Level.COMP, "robot");
@@ -5,7 +5,7 @@ import java.util.List;
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.LoggerFactory.ChassisSpeedsLogger;
-import org.team100.lib.logging.LoggerFactory.SwerveModulePositionsLogger;
+import org.team100.lib.logging.LoggerFactory.StructLogger;
 import org.team100.lib.music.Player;
 import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.subsystems.swerve.module.SwerveModuleCollection;
@@ -27,7 +27,7 @@ public class SwerveLocal implements Player {
     private final SwerveKinodynamics m_swerveKinodynamics;
     private final SwerveModuleCollection m_modules;
 
-    private final SwerveModulePositionsLogger m_logPositions;
+    private final StructLogger<SwerveModulePositions> m_logPositions;
     private final ChassisSpeedsLogger m_log_chassis_speed;
 
     private final List<Player> m_players;
@@ -38,7 +38,7 @@ public class SwerveLocal implements Player {
             SwerveModuleCollection modules) {
         LoggerFactory log = parent.type(this);
         m_log_chassis_speed = log.chassisSpeedsLogger(Level.TRACE, "chassis speed");
-        m_logPositions = log.swerveModulePositionsLogger(Level.TRACE, "positions");
+        m_logPositions = log.swerveModulePositionsStructLogger(Level.TRACE, "positions");
         m_swerveKinodynamics = swerveKinodynamics;
         m_modules = modules;
         m_players = m_modules.players();
@@ -0,0 +1,192 @@
+package org.team100.lib.subsystems.swerve.kinodynamics;
+
+import org.ejml.simple.SimpleMatrix;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModuleDelta;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModuleDeltas;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePosition100;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModuleState100;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModuleStates;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * The same kinematics as SwerveDriveKinematics100, specialized for four
+ * modules, using scalar arithmetic instead of EJML.
+ *
+ * The pseudo-inverse is computed once, in the constructor. The methods here
+ * write into caller-owned outputs, and don't allocate, so the forward
+ * kinematics in odometry, which run for every sample and every replayed history
+ * entry, don't make garbage. (The new pose and state that odometry makes from
+ * the twist are still allocated, since they're immutable.)
+ *
+ * There's no internal scratch space, so this is safe to use from more than one
+ * thread, as long as each thread owns its outputs.
+ *
+ * Module order is the same as SwerveModulePositions etc: front left, front
+ * right, rear left, rear right.
+ */
+public class FourModuleKinematics {
+    private static final int MODULES = 4;
+
+    /** Module x locations. */
+    private final double[] m_x;
+    /** Module y locations. */
+    private final double[] m_y;
+    /**
+     * Forward kinematics, the pseudo-inverse of the inverse kinematics, (3 x 8)
+     * in row-major order.
+     */
+    private final double[] m_forward;
+
+    /**
+     * @param moduleTranslationsM relative to the center of rotation, exactly four.
+     */
+    public FourModuleKinematics(Translation2d... moduleTranslationsM) {
+        if (moduleTranslationsM.length != MODULES)
+            throw new IllegalArgumentException("FourModuleKinematics requires exactly four modules");
+        m_x = new double[MODULES];
+        m_y = new double[MODULES];
+        SimpleMatrix inverse = new SimpleMatrix(MODULES * 2, 3);
+        for (int i = 0; i < MODULES; ++i) {
+            m_x[i] = moduleTranslationsM[i].getX();
+            m_y[i] = moduleTranslationsM[i].getY();
+            inverse.setRow(i * 2 + 0, 0, 1, 0, -m_y[i]);
+            inverse.setRow(i * 2 + 1, 0, 0, 1, +m_x[i]);
+        }
+        SimpleMatrix forward = inverse.pseudoInverse();
+        m_forward = new double[3 * MODULES * 2];
+        for (int r = 0; r < 3; ++r) {
+            for (int c = 0; c < MODULES * 2; ++c) {
+                m_forward[r * MODULES * 2 + c] = forward.get(r, c);
+            }
+        }
+    }
+
+    /////////////////////////////////////////////
+    //
+    // INVERSE
+    //
+
+    /** INVERSE: x component of module i velocity (or delta). */
+    public double moduleX(int i, double vx, double omega) {
+        return vx - m_y[i] * omega;
+    }
+
+    /** INVERSE: y component of module i velocity (or delta). */
+    public double moduleY(int i, double vy, double omega) {
+        return vy + m_x[i] * omega;
+    }
+
+    /**
+     * INVERSE: chassis speeds -> module velocity vectors.
+     *
+     * @param out [vx0, vy0, vx1, vy1, ...], length 8, overwritten.
+     */
+    public void toModuleVectors(double vx, double vy, double omega, double[] out) {
+        for (int i = 0; i < MODULES; ++i) {
+            out[i * 2] = moduleX(i, vx, omega);
+            out[i * 2 + 1] = moduleY(i, vy, omega);
+        }
+    }
+
+    /////////////////////////////////////////////
+    //
+    // FORWARD
+    //
+
+    /**
+     * FORWARD: module states -> chassis speeds.
+     *
+     * Modules that are stopped, or have no angle, are treated as stopped.
+     *
+     * @param out overwritten
+     */
+    public void toChassisSpeeds(SwerveModuleStates states, ChassisSpeeds out) {
+        out.vxMetersPerSecond = 0;
+        out.vyMetersPerSecond = 0;
+        out.omegaRadiansPerSecond = 0;
+        add(out, 0, states.frontLeft());
+        add(out, 1, states.frontRight());
+        add(out, 2, states.rearLeft());
+        add(out, 3, states.rearRight());
+    }
+
+    /**
+     * FORWARD: module deltas -> twist.
+     *
+     * Assumes the module deltas represent straight lines.
+     *
+     * @param out overwritten
+     */
+    public void toTwist2d(SwerveModuleDeltas deltas, Twist2d out) {
+        clear(out);
+        add(out, 0, deltas.frontLeft());
+        add(out, 1, deltas.frontRight());
+        add(out, 2, deltas.rearLeft());
+        add(out, 3, deltas.rearRight());
+    }
+
+    /**
+     * FORWARD: module positions -> twist.
+     *
+     * This is the same as toTwist2d(modulePositionDelta(start, end)), i.e. a
+     * straight line at the end angle, without making the deltas.
+     *
+     * @param out overwritten
+     */
+    public void toTwist2d(SwerveModulePositions start, SwerveModulePositions end, Twist2d out) {
+        clear(out);
+        add(out, 0, start.frontLeft(), end.frontLeft());
+        add(out, 1, start.frontRight(), end.frontRight());
+        add(out, 2, start.rearLeft(), end.rearLeft());
+        add(out, 3, start.rearRight(), end.rearRight());
+    }
+
+    /////////////////////////////////////////////
+
+    private void add(ChassisSpeeds out, int i, SwerveModuleState100 module) {
+        double speed = module.speedMetersPerSecond();
+        if (Math.abs(speed) < 1e-6 || module.angle().isEmpty())
+            return;
+        Rotation2d angle = module.angle().get();
+        double vx = speed * angle.getCos();
+        double vy = speed * angle.getSin();
+        int c = i * 2;
+        out.vxMetersPerSecond += m_forward[c] * vx + m_forward[c + 1] * vy;
+        out.vyMetersPerSecond += m_forward[8 + c] * vx + m_forward[8 + c + 1] * vy;
+        out.omegaRadiansPerSecond += m_forward[16 + c] * vx + m_forward[16 + c + 1] * vy;
+    }
+
+    private static void clear(Twist2d out) {
+        out.dx = 0;
+        out.dy = 0;
+        out.dtheta = 0;
+    }
+
+    private void add(Twist2d out, int i, SwerveModuleDelta module) {
+        if (Math.abs(module.distanceMeters) < 1e-6 || module.wrappedAngle.isEmpty())
+            return;
+        Rotation2d angle = module.wrappedAngle.get();
+        add(out, i, module.distanceMeters * angle.getCos(), module.distanceMeters * angle.getSin());
+    }
+
+    private void add(Twist2d out, int i, SwerveModulePosition100 start, SwerveModulePosition100 end) {
+        double deltaM = end.distanceMeters - start.distanceMeters;
+        if (Math.abs(deltaM) < 1e-6 || end.unwrappedAngle.isEmpty())
+            return;
+        Rotation2d angle = end.unwrappedAngle.get();
+        add(out, i, deltaM * angle.getCos(), deltaM * angle.getSin());
+    }
+
+    /** Add the contribution of module i with corner motion (dx, dy). */
+    private void add(Twist2d out, int i, double dx, double dy) {
+        int c = i * 2;
+        out.dx += m_forward[c] * dx + m_forward[c + 1] * dy;
+        out.dy += m_forward[8 + c] * dx + m_forward[8 + c + 1] * dy;
+        out.dtheta += m_forward[16 + c] * dx + m_forward[16 + c + 1] * dy;
+    }
+}
@@ -84,6 +84,8 @@ public class SwerveDriveKinematics100 {
      * </pre>
      */
     final SimpleMatrix m_forwardKinematics;
+    /** Allocation-free version, for the usual four modules, or null. */
+    private final FourModuleKinematics m_four;
 
     /**
      * array order:
@@ -101,6 +103,7 @@ public class SwerveDriveKinematics100 {
         m_moduleLocations = Arrays.copyOf(moduleTranslationsM, m_numModules);
         m_inverseKinematics = inverseMatrix(m_moduleLocations);
         m_forwardKinematics = m_inverseKinematics.pseudoInverse();
+        m_four = m_numModules == 4 ? new FourModuleKinematics(m_moduleLocations) : null;
     }
 
     /**
@@ -111,8 +114,21 @@ public class SwerveDriveKinematics100 {
      * States may include empty angles for motionless wheels.
      * 
      * Angles are otherwise always within [-pi, pi].
+     * 
+     * The states are immutable, so they're always new, but for four modules
+     * there are no EJML matrices.
      */
     public SwerveModuleStates toSwerveModuleStates(DiscreteSpeed speed) {
+        if (m_four != null) {
+            double vx = speed.twist().dx / speed.dt();
+            double vy = speed.twist().dy / speed.dt();
+            double omega = speed.twist().dtheta / speed.dt();
+            return new SwerveModuleStates(
+                    state(0, vx, vy, omega),
+                    state(1, vx, vy, omega),
+                    state(2, vx, vy, omega),
+                    state(3, vx, vy, omega));
+        }
         // [vx; vy; omega] (3 x 1)
         SimpleMatrix chassisSpeedsVector = chassisSpeeds2Vector(speed);
         // [v cos; v sin; ...] (2n x 1)
@@ -150,12 +166,30 @@ public class SwerveDriveKinematics100 {
      * FORWARD: module states -> chassis speeds
      */
     public ChassisSpeeds toChassisSpeeds(SwerveModuleStates states) {
+        ChassisSpeeds result = new ChassisSpeeds();
+        toChassisSpeeds(states, result);
+        return result;
+    }
+
+    /**
+     * FORWARD: module states -> chassis speeds, written into the given speeds.
+     * For four modules it doesn't allocate anything.
+     * 
+     * @param out overwritten
+     */
+    public void toChassisSpeeds(SwerveModuleStates states, ChassisSpeeds out) {
+        if (m_four != null) {
+            m_four.toChassisSpeeds(states, out);
+            return;
+        }
         // checkLength(states);
         // [v cos; v sin; ...] (2n x 1)
         SimpleMatrix statesVector = states2Vector(states);
         // [vx; vy; omega]
         SimpleMatrix chassisSpeedsVector = m_forwardKinematics.mult(statesVector);
-        return vector2ChassisSpeeds(chassisSpeedsVector);
+        out.vxMetersPerSecond = chassisSpeedsVector.get(0, 0);
+        out.vyMetersPerSecond = chassisSpeedsVector.get(1, 0);
+        out.omegaRadiansPerSecond = chassisSpeedsVector.get(2, 0);
     }
 
     /**
@@ -169,15 +203,56 @@ public class SwerveDriveKinematics100 {
      * as if it were the instantaneous speed.
      */
     public Twist2d toTwist2d(SwerveModuleDeltas deltas) {
+        Twist2d result = new Twist2d();
+        toTwist2d(deltas, result);
+        return result;
+    }
+
+    /**
+     * FORWARD: module deltas -> twist, written into the given twist. For four
+     * modules it doesn't allocate anything.
+     * 
+     * @param out overwritten
+     */
+    public void toTwist2d(SwerveModuleDeltas deltas, Twist2d out) {
+        if (m_four != null) {
+            m_four.toTwist2d(deltas, out);
+            return;
+        }
         // [d cos; d sin; ...] (2n x 1)
         SimpleMatrix deltaVector = deltas2Vector(deltas);
         // [dx ;dy; dtheta]
         SimpleMatrix twistVector = m_forwardKinematics.mult(deltaVector);
-        return vector2Twist(twistVector);
+        out.dx = twistVector.get(0, 0);
+        out.dy = twistVector.get(1, 0);
+        out.dtheta = twistVector.get(2, 0);
+    }
+
+    /**
+     * FORWARD: module positions -> twist, written into the given twist.
+     * 
+     * This is the same as toTwist2d(modulePositionDelta(start, end)), and for
+     * four modules it doesn't allocate anything, which is what odometry wants.
+     * 
+     * @param out overwritten
+     */
+    public void toTwist2d(SwerveModulePositions start, SwerveModulePositions end, Twist2d out) {
+        if (m_four != null) {
+            m_four.toTwist2d(start, end, out);
+            return;
+        }
+        toTwist2d(SwerveModuleDeltas.modulePositionDelta(start, end), out);
     }
 
     ///////////////////////////////////////
 
+    /** Module state for the given chassis speed, without EJML. */
+    private SwerveModuleState100 state(int i, double vx, double vy, double omega) {
+        return SwerveModuleState100.fromSpeed(
+                m_four.moduleX(i, vx, omega),
+                m_four.moduleY(i, vy, omega));
+    }
+
     /** states -> [v cos; v sin; ... v cos; v sin] (2n x 1) */
     private SimpleMatrix states2Vector(SwerveModuleStates moduleStates) {
         SwerveModuleState100[] moduleStatesAll = moduleStates.all();
@@ -239,16 +314,6 @@ public class SwerveDriveKinematics100 {
                 twist.dtheta });
     }
 
-    /** [vx; vy; omega] (3 x 1) -> ChassisSpeeds */
-    private static ChassisSpeeds vector2ChassisSpeeds(SimpleMatrix v) {
-        return new ChassisSpeeds(v.get(0, 0), v.get(1, 0), v.get(2, 0));
-    }
-
-    /** [dx; dy; dtheta] (3 x 1) -> Twist2d */
-    private static Twist2d vector2Twist(SimpleMatrix v) {
-        return new Twist2d(v.get(0, 0), v.get(1, 0), v.get(2, 0));
-    }
-
     /**
      * [v cos; v sin; ... ] (2n x 1) -> states[]
      * 
@@ -5,6 +5,7 @@ import java.nio.ByteBuffer;
 import org.team100.lib.subsystems.swerve.module.state.SwerveModulePosition100;
 import org.team100.lib.util.OptionalRotation2d;
 
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.util.struct.Struct;
 
 /**
@@ -51,7 +52,14 @@ public class SwerveModulePosition100Struct implements Struct<SwerveModulePositio
     @Override
     public void pack(ByteBuffer bb, SwerveModulePosition100 value) {
         bb.putDouble(value.distanceMeters);
-        OptionalRotation2d.struct.pack(bb, new OptionalRotation2d(value.unwrappedAngle));
+        // same layout as OptionalRotation2dStruct, without the wrapper allocation.
+        if (value.unwrappedAngle.isPresent()) {
+            bb.put((byte) 0x01);
+            Rotation2d.struct.pack(bb, value.unwrappedAngle.get());
+        } else {
+            bb.put((byte) 0x00);
+            Rotation2d.struct.pack(bb, Rotation2d.kZero);
+        }
     }
 
 }
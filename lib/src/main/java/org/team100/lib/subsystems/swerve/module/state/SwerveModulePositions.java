@@ -1,5 +1,9 @@
 package org.team100.lib.subsystems.swerve.module.state;
 
+import org.team100.lib.subsystems.swerve.kinodynamics.struct.SwerveModulePositionsStruct;
+
+import edu.wpi.first.util.struct.StructSerializable;
+
 /**
  * Container for swerve module positions.
  * 
@@ -10,7 +14,10 @@ public record SwerveModulePositions(
         SwerveModulePosition100 frontLeft,
         SwerveModulePosition100 frontRight,
         SwerveModulePosition100 rearLeft,
-        SwerveModulePosition100 rearRight) {
+        SwerveModulePosition100 rearRight) implements StructSerializable {
+    /** SwerveModulePositions struct for serialization. */
+    public static final SwerveModulePositionsStruct struct = new SwerveModulePositionsStruct();
+
     /** For when you don't care about which is which. */
     public SwerveModulePosition100[] all() {
         return new SwerveModulePosition100[] {
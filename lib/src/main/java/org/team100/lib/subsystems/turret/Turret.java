@@ -1,5 +1,7 @@
 package org.team100.lib.subsystems.turret;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Optional;
 import java.util.function.Supplier;
 
@@ -23,12 +25,14 @@ import org.team100.lib.servo.OnboardAngularPositionServo;
 import org.team100.lib.state.ModelR3;
 import org.team100.lib.targeting.Drag;
 import org.team100.lib.targeting.Intercept;
-import org.team100.lib.targeting.Range;
+import org.team100.lib.targeting.RangeTable;
 import org.team100.lib.targeting.ShootingMethod;
+import org.team100.lib.targeting.TableShootingMethod;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
@@ -54,6 +58,11 @@ public class Turret extends SubsystemBase {
      * TODO: why is this so long?
      */
     private static final double DELAY = 0.2;
+    /**
+     * Range table in the deploy directory, made with RangeTable.generate() and
+     * write(). Its speed axis should cover the turret speed.
+     */
+    private static final String RANGE_TABLE = "range_table.bin";
     private final DoubleArrayLogger m_log_field_turret;
     private final Supplier<ModelR3> m_state;
     private final Supplier<Translation2d> m_target;
@@ -62,8 +71,10 @@ public class Turret extends SubsystemBase {
     /** Projectile speed m/s */
     private final double m_speed;
     private final Intercept m_intercept;
-    private final ShootingMethod m_shootingMethod;
+    private final TableShootingMethod m_shootingMethod;
     private boolean m_aiming;
+    /** For resetting the solver when the target moves. */
+    private Translation2d m_lastTarget;
 
     /**
      * @param parent Log
@@ -86,11 +97,28 @@ public class Turret extends SubsystemBase {
         m_speed = speed;
         m_intercept = new Intercept(log);
         Drag d = new Drag(0.5, 0.025, 0.1, 0.1, 0.1);
-        Range range = new Range(d, speed, 0);
-        m_shootingMethod = new ShootingMethod(range, 0.01);
+        m_shootingMethod = new TableShootingMethod(rangeTable(d, speed), 0.01);
         m_aiming = false;
     }
 
+    /**
+     * Read the range table from the deploy directory, or, if it's not there,
+     * make one for just this speed and no spin, on the same elevation grid as
+     * Range.
+     */
+    private static RangeTable rangeTable(Drag d, double speed) {
+        Path path = Filesystem.getDeployDirectory().toPath().resolve(RANGE_TABLE);
+        try {
+            return RangeTable.read(path);
+        } catch (IOException e) {
+            System.out.printf("WARNING: no range table (%s), generating one\n", e.getMessage());
+            return RangeTable.generate(d,
+                    new RangeTable.Axis(0, Math.PI / 2, 158),
+                    RangeTable.Axis.of(speed),
+                    RangeTable.Axis.of(0));
+        }
+    }
+
     private static AngularPositionServo pivot(LoggerFactory log) {
         IncrementalProfile profile = new TrapezoidIncrementalProfile(log, 5, 10, 0.05);
         ProfileReferenceR1 ref = new IncrementalProfileReferenceR1(log, () -> profile, 0.05, 0.05);
@@ -178,14 +206,22 @@ public class Turret extends SubsystemBase {
                         Rotation2d.kZero));
     }
 
+    /**
+     * Runs every loop while aiming, starting from the previous solution, unless
+     * the target has changed.
+     */
     private Optional<Solution> getShootingMethod() {
         ModelR3 state = m_state.get();
         Translation2d robotPosition = state.translation();
         GlobalVelocityR2 robotVelocity = state.velocityR2();
         Translation2d targetPosition = m_target.get();
         GlobalVelocityR2 targetVelocity = GlobalVelocityR2.ZERO;
+        if (!targetPosition.equals(m_lastTarget)) {
+            m_shootingMethod.reset();
+            m_lastTarget = targetPosition;
+        }
         Optional<ShootingMethod.Solution> s = m_shootingMethod.solve(
-                robotPosition, robotVelocity, targetPosition, targetVelocity);
+                m_speed, 0, robotPosition, robotVelocity, targetPosition, targetVelocity);
         return s.map(x -> new Solution(x.azimuth(), x.elevation()));
     }
 
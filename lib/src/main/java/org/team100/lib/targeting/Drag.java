@@ -71,4 +71,23 @@ public class Drag implements UnaryOperator<Matrix<N6, N1>> {
         double alpha = -nu * omega * Math.abs(omega);
         return VecBuilder.fill(vx, vy, omega, ax, ay, alpha);
     }
+
+    /**
+     * The same as apply(), without allocation.
+     * 
+     * @param x    the current state: (x, y, theta, vx, vy, omega)
+     * @param xdot output, the time derivative
+     */
+    public void derivative(double[] x, double[] xdot) {
+        double vx = x[3];
+        double vy = x[4];
+        double omega = x[5];
+        double v = Math.sqrt(vx * vx + vy * vy);
+        xdot[0] = vx;
+        xdot[1] = vy;
+        xdot[2] = omega;
+        xdot[3] = -mu * vx * v - xi * omega * vy;
+        xdot[4] = -G - mu * vy * v + xi * omega * vx;
+        xdot[5] = -nu * omega * Math.abs(omega);
+    }
 }
@@ -1,14 +1,9 @@
 package org.team100.lib.targeting;
 
 import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.math.Matrix;
-import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.interpolation.InterpolatingTreeMap;
 import edu.wpi.first.math.interpolation.Interpolator;
 import edu.wpi.first.math.interpolation.InverseInterpolator;
-import edu.wpi.first.math.numbers.N1;
-import edu.wpi.first.math.numbers.N6;
-import edu.wpi.first.math.system.NumericalIntegration;
 
 /** Uses a lookup table to find range from elevation, for fixed muzzle speed. */
 public class Range {
@@ -35,25 +30,13 @@ public class Range {
     public Range(Drag d, double v, double omega) {
         m_map = new InterpolatingTreeMap<>(
                 InverseInterpolator.forDouble(), new SolutionInterpolator());
-        double dt = 0.001;
-
         if (DEBUG)
             System.out.println("elevation, range, tof");
         for (double elevation = 0; elevation < Math.PI / 2; elevation += 0.01) {
-            double vx = v * Math.cos(elevation);
-            double vy = v * Math.sin(elevation);
-            Matrix<N6, N1> x = VecBuilder.fill(0, 0, 0, vx, vy, omega);
-            double t = 0;
-            for (t = 0; t < 10; t += dt) {
-                x = NumericalIntegration.rk4(d, x, dt);
-                if (x.get(1, 0) < 0)
-                    break;
-            }
-            double range = x.get(0, 0);
-            double tof = t;
+            Solution s = shoot(d, v, omega, elevation);
             if (DEBUG)
-                System.out.printf("%6.3f, %6.3f, %6.3f\n", elevation, range, tof);
-            m_map.put(elevation, new Solution(range, tof));
+                System.out.printf("%6.3f, %6.3f, %6.3f\n", elevation, s.range, s.tof);
+            m_map.put(elevation, s);
         }
     }
 
@@ -61,4 +44,41 @@ public class Range {
         return m_map.get(elevation);
     }
 
+    /**
+     * Integrate one shot, in 1 ms steps, until it comes back down to the
+     * launch height. The steps are the same as NumericalIntegration.rk4(), but
+     * on primitives, to avoid allocating a Matrix per step.
+     * 
+     * @param d         drag model
+     * @param v         muzzle speed
+     * @param omega     spin, positive is backspin
+     * @param elevation launch angle
+     */
+    static Solution shoot(Drag d, double v, double omega, double elevation) {
+        double dt = 0.001;
+        double[] x = { 0, 0, 0, v * Math.cos(elevation), v * Math.sin(elevation), omega };
+        double[] k1 = new double[6];
+        double[] k2 = new double[6];
+        double[] k3 = new double[6];
+        double[] k4 = new double[6];
+        double[] tmp = new double[6];
+        double t = 0;
+        for (t = 0; t < 10; t += dt) {
+            d.derivative(x, k1);
+            for (int i = 0; i < 6; ++i)
+                tmp[i] = x[i] + k1[i] * (dt * 0.5);
+            d.derivative(tmp, k2);
+            for (int i = 0; i < 6; ++i)
+                tmp[i] = x[i] + k2[i] * (dt * 0.5);
+            d.derivative(tmp, k3);
+            for (int i = 0; i < 6; ++i)
+                tmp[i] = x[i] + k3[i] * dt;
+            d.derivative(tmp, k4);
+            for (int i = 0; i < 6; ++i)
+                x[i] = x[i] + (k1[i] + k2[i] * 2.0 + k3[i] * 2.0 + k4[i]) * (dt / 6.0);
+            if (x[1] < 0)
+                break;
+        }
+        return new Solution(x[0], t);
+    }
 }
@@ -0,0 +1,271 @@
+package org.team100.lib.targeting;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Like Range, but over a grid of elevation, muzzle speed, and spin, so that
+ * the shooter can vary speed and spin, not just elevation.
+ *
+ * Each grid point is an integrated shot, which is slow, so generate the table
+ * ahead of time (the grid points are computed in parallel), write it to the
+ * deploy directory, and read it at startup.
+ *
+ * Lookup interpolates linearly along each axis, so with a single spin value,
+ * it's bilinear in elevation and speed. Outside the grid, it uses the nearest
+ * edge, like InterpolatingTreeMap. Lookup writes into a caller-supplied Sample,
+ * along with the derivatives with respect to elevation, for Newton's method.
+ *
+ * The file is little-endian binary:
+ *
+ * <pre>
+ * int magic, int version
+ * for elevation, speed, and spin: double min, double max, int count
+ * double range[count], double tof[count], elevation varying fastest
+ * </pre>
+ */
+public class RangeTable {
+    private static final int MAGIC = 0x52313030; // "R100"
+    private static final int VERSION = 1;
+    /** Grid points per parallel task. */
+    private static final int CHUNK = 64;
+
+    /** Evenly-spaced grid points from min to max inclusive. */
+    public record Axis(double min, double max, int count) {
+        public Axis {
+            if (count < 1)
+                throw new IllegalArgumentException("empty axis");
+            if (count > 1 && max <= min)
+                throw new IllegalArgumentException("bad axis bounds");
+        }
+
+        /** A single point. */
+        public static Axis of(double value) {
+            return new Axis(value, value, 1);
+        }
+
+        double step() {
+            return count > 1 ? (max - min) / (count - 1) : 0;
+        }
+
+        double value(int i) {
+            return count > 1 ? min + i * step() : min;
+        }
+    }
+
+    /** Mutable lookup result, reused to avoid allocation. */
+    public static class Sample {
+        private double m_range;
+        private double m_tof;
+        private double m_dRange;
+        private double m_dTof;
+
+        public double range() {
+            return m_range;
+        }
+
+        public double tof() {
+            return m_tof;
+        }
+
+        /** Derivative of range with respect to elevation. */
+        public double dRange() {
+            return m_dRange;
+        }
+
+        /** Derivative of time of flight with respect to elevation. */
+        public double dTof() {
+            return m_dTof;
+        }
+    }
+
+    private final Axis m_elevation;
+    private final Axis m_speed;
+    private final Axis m_spin;
+    private final double[] m_range;
+    private final double[] m_tof;
+
+    private RangeTable(Axis elevation, Axis speed, Axis spin, double[] range, double[] tof) {
+        m_elevation = elevation;
+        m_speed = speed;
+        m_spin = spin;
+        m_range = range;
+        m_tof = tof;
+    }
+
+    /**
+     * Integrate a shot for every grid point, in parallel, using the common
+     * fork-join pool.
+     *
+     * @param d         drag model
+     * @param elevation launch angle
+     * @param speed     muzzle speed
+     * @param spin      spin, positive is backspin
+     */
+    public static RangeTable generate(Drag d, Axis elevation, Axis speed, Axis spin) {
+        int size = elevation.count() * speed.count() * spin.count();
+        double[] range = new double[size];
+        double[] tof = new double[size];
+        RangeTable table = new RangeTable(elevation, speed, spin, range, tof);
+        // invoke() runs on this thread, and the forks run in the common pool.
+        table.new ShootTask(d, 0, size).invoke();
+        return table;
+    }
+
+    /**
+     * Interpolate at the given point.
+     *
+     * @param elevation launch angle
+     * @param speed     muzzle speed
+     * @param spin      spin, positive is backspin
+     * @param out       overwritten
+     */
+    public void get(double elevation, double speed, double spin, Sample out) {
+        int ne = m_elevation.count();
+        int ns = m_speed.count();
+        // speed and spin corners and weights
+        int s0 = floor(m_speed, speed);
+        int s1 = Math.min(s0 + 1, ns - 1);
+        double sf = fraction(m_speed, s0, speed);
+        int w0 = floor(m_spin, spin);
+        int w1 = Math.min(w0 + 1, m_spin.count() - 1);
+        double wf = fraction(m_spin, w0, spin);
+        int e0 = floor(m_elevation, elevation);
+        int e1 = Math.min(e0 + 1, ne - 1);
+        double ef = fraction(m_elevation, e0, elevation);
+        // the four speed/spin corners, at the two bracketing elevations.
+        int c00 = (w0 * ns + s0) * ne;
+        int c01 = (w0 * ns + s1) * ne;
+        int c10 = (w1 * ns + s0) * ne;
+        int c11 = (w1 * ns + s1) * ne;
+        double r0 = blend(m_range, c00 + e0, c01 + e0, c10 + e0, c11 + e0, sf, wf);
+        double r1 = blend(m_range, c00 + e1, c01 + e1, c10 + e1, c11 + e1, sf, wf);
+        double t0 = blend(m_tof, c00 + e0, c01 + e0, c10 + e0, c11 + e0, sf, wf);
+        double t1 = blend(m_tof, c00 + e1, c01 + e1, c10 + e1, c11 + e1, sf, wf);
+        out.m_range = r0 + (r1 - r0) * ef;
+        out.m_tof = t0 + (t1 - t0) * ef;
+        // flat outside the grid
+        boolean inside = ne > 1
+                && elevation >= m_elevation.min()
+                && elevation <= m_elevation.max();
+        double step = m_elevation.step();
+        out.m_dRange = inside ? (r1 - r0) / step : 0;
+        out.m_dTof = inside ? (t1 - t0) / step : 0;
+    }
+
+    /**
+     * Write the table. The file is replaced atomically, so a reader never sees a
+     * partial file.
+     */
+    public void write(Path path) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(8 + 3 * 20 + m_range.length * 16)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        bb.putInt(MAGIC);
+        bb.putInt(VERSION);
+        for (Axis a : new Axis[] { m_elevation, m_speed, m_spin }) {
+            bb.putDouble(a.min());
+            bb.putDouble(a.max());
+            bb.putInt(a.count());
+        }
+        bb.asDoubleBuffer().put(m_range).put(m_tof);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmp, bb.array());
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a table, mapping the file rather than copying it.
+     *
+     * @throws IOException if the file is missing or malformed.
+     */
+    public static RangeTable read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer bb = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            bb.order(ByteOrder.LITTLE_ENDIAN);
+            if (bb.getInt() != MAGIC)
+                throw new IOException("not a range table");
+            int version = bb.getInt();
+            if (version != VERSION)
+                throw new IOException("wrong range table version " + version);
+            Axis elevation = new Axis(bb.getDouble(), bb.getDouble(), bb.getInt());
+            Axis speed = new Axis(bb.getDouble(), bb.getDouble(), bb.getInt());
+            Axis spin = new Axis(bb.getDouble(), bb.getDouble(), bb.getInt());
+            int size = elevation.count() * speed.count() * spin.count();
+            double[] range = new double[size];
+            double[] tof = new double[size];
+            bb.asDoubleBuffer().get(range).get(tof);
+            return new RangeTable(elevation, speed, spin, range, tof);
+        } catch (RuntimeException e) {
+            // e.g. BufferUnderflowException from a truncated file.
+            throw new IOException("bad range table " + path, e);
+        }
+    }
+
+    ////////////////////////////////////////////////////
+
+    /** Index of the grid point at or below x, leaving room for the next one. */
+    private static int floor(Axis a, double x) {
+        if (a.count() == 1)
+            return 0;
+        int i = (int) Math.floor((x - a.min()) / a.step());
+        return Math.max(0, Math.min(i, a.count() - 2));
+    }
+
+    /** Fraction of the way from grid point i to the next one, clamped. */
+    private static double fraction(Axis a, int i, double x) {
+        if (a.count() == 1)
+            return 0;
+        double f = (x - a.value(i)) / a.step();
+        return Math.max(0, Math.min(1, f));
+    }
+
+    /** Bilinear blend of the four speed/spin corners. */
+    private static double blend(
+            double[] v, int i00, int i01, int i10, int i11, double sf, double wf) {
+        double a = v[i00] + (v[i01] - v[i00]) * sf;
+        double b = v[i10] + (v[i11] - v[i10]) * sf;
+        return a + (b - a) * wf;
+    }
+
+    /** Splits the grid in half until the pieces are small enough. */
+    private class ShootTask extends RecursiveAction {
+        private final Drag m_drag;
+        private final int m_from;
+        private final int m_to;
+
+        ShootTask(Drag drag, int from, int to) {
+            m_drag = drag;
+            m_from = from;
+            m_to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (m_to - m_from <= CHUNK) {
+                int ne = m_elevation.count();
+                int ns = m_speed.count();
+                for (int i = m_from; i < m_to; ++i) {
+                    double elevation = m_elevation.value(i % ne);
+                    double speed = m_speed.value((i / ne) % ns);
+                    double spin = m_spin.value(i / (ne * ns));
+                    Range.Solution s = Range.shoot(m_drag, speed, spin, elevation);
+                    m_range[i] = s.range();
+                    m_tof[i] = s.tof();
+                }
+                return;
+            }
+            int mid = (m_from + m_to) >>> 1;
+            invokeAll(
+                    new ShootTask(m_drag, m_from, mid),
+                    new ShootTask(m_drag, mid, m_to));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.team100.lib.targeting;
+
+import java.util.Optional;
+
+import org.ejml.data.DMatrixRMaj;
+import org.team100.lib.geometry.GlobalVelocityR2;
+import org.team100.lib.optimization.AnalyticNewtonsMethod;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Solve the intercept problem via the "shooting method," like ShootingMethod,
+ * but using a RangeTable, so the muzzle speed and spin can be anything in the
+ * table.
+ *
+ * This is meant to run every loop, for shooting on the move: the Jacobian
+ * comes from the table, so each Newton iteration is just one lookup, and each
+ * solve starts from the previous solution, which takes about half as many
+ * iterations as starting from scratch.
+ *
+ * This keeps state between calls, so it's not thread-safe.
+ */
+public class TableShootingMethod {
+    private final RangeTable m_table;
+    private final AnalyticNewtonsMethod m_solver;
+    private final RangeTable.Sample m_sample = new RangeTable.Sample();
+    /** (azimuth, elevation), for the solver to work on. */
+    private final double[] m_x = new double[2];
+    /** The previous solution, to start from. */
+    private double m_azimuth;
+    private double m_elevation;
+
+    // The current problem.
+    private double m_speed;
+    private double m_spin;
+    private double m_targetX;
+    private double m_targetY;
+    private double m_targetVx;
+    private double m_targetVy;
+
+    /**
+     * @param table     range and time of flight
+     * @param tolerance miss distance, meters
+     */
+    public TableShootingMethod(RangeTable table, double tolerance) {
+        m_table = table;
+        // domain is (az,el), range is error, same as ShootingMethod.
+        double[] xMin = { -Math.PI, 0 };
+        double[] xMax = { Math.PI, Math.PI / 2 };
+        int iterations = 10;
+        double dxLimit = 0.1;
+        m_solver = new AnalyticNewtonsMethod(
+                2, 2, this::f, xMin, xMax, tolerance, iterations, dxLimit);
+    }
+
+    /**
+     * @param speed          muzzle speed
+     * @param spin           spin, positive is backspin
+     * @param robotPosition  field-relative
+     * @param robotVelocity  field-relative
+     * @param targetPosition field-relative
+     * @param targetVelocity field-relative
+     * @return azimuth and elevation, or empty if there's no solution.
+     */
+    public Optional<ShootingMethod.Solution> solve(
+            double speed,
+            double spin,
+            Translation2d robotPosition,
+            GlobalVelocityR2 robotVelocity,
+            Translation2d targetPosition,
+            GlobalVelocityR2 targetVelocity) {
+        m_speed = speed;
+        m_spin = spin;
+        // target relative to robot
+        m_targetX = targetPosition.getX() - robotPosition.getX();
+        m_targetY = targetPosition.getY() - robotPosition.getY();
+        // target velocity relative to robot
+        m_targetVx = targetVelocity.x() - robotVelocity.x();
+        m_targetVy = targetVelocity.y() - robotVelocity.y();
+        m_x[0] = m_azimuth;
+        m_x[1] = m_elevation;
+        if (!m_solver.solve(m_x, 3, false)) {
+            // don't start from a bad guess next time.
+            reset();
+            return Optional.empty();
+        }
+        m_azimuth = m_x[0];
+        m_elevation = m_x[1];
+        return Optional.of(new ShootingMethod.Solution(
+                new Rotation2d(m_azimuth), new Rotation2d(m_elevation)));
+    }
+
+    /** Forget the previous solution, e.g. when switching targets. */
+    public void reset() {
+        m_azimuth = 0;
+        m_elevation = 0;
+    }
+
+    /** Iterations used by the most recent solve. */
+    public int getLastIterations() {
+        return m_solver.getLastIterations();
+    }
+
+    /**
+     * Error is the miss, i.e. ball location at impact minus target location at
+     * impact, both relative to the initial robot position.
+     */
+    private void f(DMatrixRMaj x, DMatrixRMaj y, DMatrixRMaj j) {
+        double azimuth = x.get(0);
+        double elevation = x.get(1);
+        m_table.get(elevation, m_speed, m_spin, m_sample);
+        double range = m_sample.range();
+        double tof = m_sample.tof();
+        double cos = Math.cos(azimuth);
+        double sin = Math.sin(azimuth);
+        y.set(0, range * cos - (m_targetX + m_targetVx * tof));
+        y.set(1, range * sin - (m_targetY + m_targetVy * tof));
+        j.set(0, 0, -range * sin);
+        j.set(0, 1, m_sample.dRange() * cos - m_targetVx * m_sample.dTof());
+        j.set(1, 0, range * cos);
+        j.set(1, 1, m_sample.dRange() * sin - m_targetVy * m_sample.dTof());
+    }
+}
@@ -0,0 +1,339 @@
+package org.team100.lib.trajectory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.team100.lib.geometry.HolonomicPose2d;
+import org.team100.lib.geometry.Pose2dWithMotion;
+import org.team100.lib.state.ControlR3;
+import org.team100.lib.trajectory.timing.TimedPose;
+import org.team100.lib.util.Math100;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * The same thing as Trajectory100, stored as parallel columns of primitives
+ * instead of a list of TimedPose objects.
+ *
+ * A TimedPose is seven objects, so a long trajectory is a lot of little
+ * objects scattered around the heap. The columns are compact, and sampling
+ * writes into a caller-supplied Sample instead of allocating.
+ *
+ * Interpolation is the same as TimedPose.interpolate2(), to within rounding.
+ */
+public class PackedTrajectory {
+    private static final int MAX_WALK = 8;
+
+    private final int m_length;
+    private final double[] m_t;
+    private final double[] m_x;
+    private final double[] m_y;
+    private final double[] m_heading;
+    private final double[] m_course;
+    private final double[] m_headingRate;
+    private final double[] m_curvature;
+    private final double[] m_dCurvature;
+    private final double[] m_velocity;
+    private final double[] m_accel;
+
+    public PackedTrajectory(Trajectory100 trajectory) {
+        m_length = trajectory.length();
+        m_t = new double[m_length];
+        m_x = new double[m_length];
+        m_y = new double[m_length];
+        m_heading = new double[m_length];
+        m_course = new double[m_length];
+        m_headingRate = new double[m_length];
+        m_curvature = new double[m_length];
+        m_dCurvature = new double[m_length];
+        m_velocity = new double[m_length];
+        m_accel = new double[m_length];
+        for (int i = 0; i < m_length; ++i) {
+            TimedPose p = trajectory.getPoint(i);
+            Pose2dWithMotion state = p.state();
+            HolonomicPose2d pose = state.getPose();
+            m_t[i] = p.getTimeS();
+            m_x[i] = pose.translation().getX();
+            m_y[i] = pose.translation().getY();
+            m_heading[i] = pose.heading().getRadians();
+            m_course[i] = pose.course().getRadians();
+            m_headingRate[i] = state.getHeadingRateRad_M();
+            m_curvature[i] = state.getCurvature();
+            m_dCurvature[i] = state.getDCurvatureDs();
+            m_velocity[i] = p.velocityM_S();
+            m_accel[i] = p.acceleration();
+        }
+    }
+
+    /** The object form, for compatibility. */
+    public Trajectory100 toTrajectory() {
+        if (m_length == 0)
+            return new Trajectory100();
+        List<TimedPose> points = new ArrayList<>(m_length);
+        for (int i = 0; i < m_length; ++i) {
+            points.add(new TimedPose(
+                    new Pose2dWithMotion(
+                            new HolonomicPose2d(
+                                    new Translation2d(m_x[i], m_y[i]),
+                                    new Rotation2d(m_heading[i]),
+                                    new Rotation2d(m_course[i])),
+                            m_headingRate[i],
+                            m_curvature[i],
+                            m_dCurvature[i]),
+                    m_t[i],
+                    m_velocity[i],
+                    m_accel[i]));
+        }
+        return new Trajectory100(points);
+    }
+
+    public boolean isEmpty() {
+        return m_length == 0;
+    }
+
+    public int length() {
+        return m_length;
+    }
+
+    public double duration() {
+        if (m_length == 0)
+            return 0;
+        return m_t[m_length - 1];
+    }
+
+    public double x(int i) {
+        return m_x[i];
+    }
+
+    public double y(int i) {
+        return m_y[i];
+    }
+
+    public double heading(int i) {
+        return m_heading[i];
+    }
+
+    /**
+     * Interpolate into the sample. Uses binary search; for a caller that moves
+     * forward in time, a Cursor is faster.
+     *
+     * @param timeS start is zero.
+     * @param out   overwritten
+     */
+    public void sample(double timeS, Sample out) {
+        if (m_length == 0)
+            throw new IllegalStateException("can't sample an empty trajectory");
+        if (timeS >= duration()) {
+            out.set(this, m_length - 1);
+            return;
+        }
+        if (timeS <= 0) {
+            out.set(this, 0);
+            return;
+        }
+        interpolate(ceilIndex(timeS), timeS, out);
+    }
+
+    /** A new cursor, starting at the beginning. */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /** Like Trajectory100.Cursor. */
+    public class Cursor {
+        private int m_index = 1;
+
+        /**
+         * @param timeS start is zero.
+         * @param out   overwritten
+         */
+        public void sample(double timeS, Sample out) {
+            if (m_length == 0)
+                throw new IllegalStateException("can't sample an empty trajectory");
+            if (timeS >= duration()) {
+                out.set(PackedTrajectory.this, m_length - 1);
+                return;
+            }
+            if (timeS <= 0) {
+                out.set(PackedTrajectory.this, 0);
+                return;
+            }
+            m_index = walk(m_index, timeS);
+            interpolate(m_index, timeS, out);
+        }
+
+        /** Go back to the beginning. */
+        public void reset() {
+            m_index = 1;
+        }
+    }
+
+    /** Mutable interpolated state, reused to avoid allocation. */
+    public static class Sample {
+        private double m_t;
+        private double m_x;
+        private double m_y;
+        private double m_heading;
+        private double m_course;
+        private double m_headingRate;
+        private double m_curvature;
+        private double m_dCurvature;
+        private double m_velocity;
+        private double m_accel;
+
+        public double getTimeS() {
+            return m_t;
+        }
+
+        public double x() {
+            return m_x;
+        }
+
+        public double y() {
+            return m_y;
+        }
+
+        /** Radians */
+        public double heading() {
+            return m_heading;
+        }
+
+        /** Radians */
+        public double course() {
+            return m_course;
+        }
+
+        public double headingRateRad_M() {
+            return m_headingRate;
+        }
+
+        public double curvatureRad_M() {
+            return m_curvature;
+        }
+
+        public double dCurvatureDs() {
+            return m_dCurvature;
+        }
+
+        public double velocityM_S() {
+            return m_velocity;
+        }
+
+        public double acceleration() {
+            return m_accel;
+        }
+
+        /** Same as ControlR3.fromTimedPose(). */
+        public ControlR3 control() {
+            return ControlR3.fromMotion(
+                    m_x, m_y, m_heading,
+                    Math.cos(m_course), Math.sin(m_course),
+                    m_headingRate, m_curvature, m_velocity, m_accel);
+        }
+
+        /** The object form, for compatibility. */
+        public TimedPose toTimedPose() {
+            return new TimedPose(
+                    new Pose2dWithMotion(
+                            new HolonomicPose2d(
+                                    new Translation2d(m_x, m_y),
+                                    new Rotation2d(m_heading),
+                                    new Rotation2d(m_course)),
+                            m_headingRate,
+                            m_curvature,
+                            m_dCurvature),
+                    m_t,
+                    m_velocity,
+                    m_accel);
+        }
+
+        private void set(PackedTrajectory p, int i) {
+            m_t = p.m_t[i];
+            m_x = p.m_x[i];
+            m_y = p.m_y[i];
+            m_heading = p.m_heading[i];
+            m_course = p.m_course[i];
+            m_headingRate = p.m_headingRate[i];
+            m_curvature = p.m_curvature[i];
+            m_dCurvature = p.m_dCurvature[i];
+            m_velocity = p.m_velocity[i];
+            m_accel = p.m_accel[i];
+        }
+    }
+
+    /////////////////////////////////////////////////
+
+    /** See Trajectory100.ceilIndex(). */
+    private int ceilIndex(double timeS) {
+        int lo = 1;
+        int hi = m_length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (m_t[mid] < timeS) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** See Trajectory100.walk(). */
+    private int walk(int index, double timeS) {
+        if (index < 1 || index >= m_length)
+            return ceilIndex(timeS);
+        for (int steps = 0; steps < MAX_WALK; ++steps) {
+            if (m_t[index] < timeS) {
+                index++;
+            } else if (index > 1 && m_t[index - 1] >= timeS) {
+                index--;
+            } else {
+                return index;
+            }
+        }
+        return ceilIndex(timeS);
+    }
+
+    /** See TimedPose.interpolate2() and Pose2dWithMotion.interpolate(). */
+    private void interpolate(int ceil, double timeS, Sample out) {
+        int floor = ceil - 1;
+        double betweenPoints = m_t[ceil] - m_t[floor];
+        if (Math.abs(betweenPoints) <= 1e-12) {
+            out.set(this, ceil);
+            return;
+        }
+        double x = (timeS - m_t[floor]) / betweenPoints;
+        double t = MathUtil.interpolate(m_t[floor], m_t[ceil], x);
+        double dt = t - m_t[floor];
+        double v0 = m_velocity[floor];
+        double a0 = m_accel[floor];
+        boolean reversing = v0 < 0.0 || (Math.abs(v0) <= 1e-12 && a0 < 0.0);
+        double s = (reversing ? -1.0 : 1.0) * (v0 * dt + .5 * a0 * dt * dt);
+        double distance = Math.hypot(m_x[ceil] - m_x[floor], m_y[ceil] - m_y[floor]);
+        double interpolant = s / distance;
+        if (Double.isNaN(interpolant)) {
+            interpolant = 1.0;
+        }
+        out.m_t = t;
+        out.m_x = MathUtil.interpolate(m_x[floor], m_x[ceil], interpolant);
+        out.m_y = MathUtil.interpolate(m_y[floor], m_y[ceil], interpolant);
+        out.m_heading = angle(m_heading[floor], m_heading[ceil], interpolant);
+        out.m_course = angle(m_course[floor], m_course[ceil], interpolant);
+        out.m_headingRate = MathUtil.interpolate(m_headingRate[floor], m_headingRate[ceil], interpolant);
+        out.m_curvature = Math100.interpolate(m_curvature[floor], m_curvature[ceil], interpolant);
+        out.m_dCurvature = Math100.interpolate(m_dCurvature[floor], m_dCurvature[ceil], interpolant);
+        out.m_velocity = v0 + a0 * dt;
+        out.m_accel = a0;
+    }
+
+    /** See GeometryUtil.interpolate2(): the short way around. */
+    private static double angle(double a, double b, double x) {
+        if (x <= 0.0)
+            return a;
+        if (x >= 1.0)
+            return b;
+        return MathUtil.angleModulus(a + MathUtil.angleModulus(b - a) * x);
+    }
+}
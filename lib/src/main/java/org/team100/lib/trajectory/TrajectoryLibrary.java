@@ -0,0 +1,180 @@
+package org.team100.lib.trajectory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.team100.lib.geometry.HolonomicPose2d;
+import org.team100.lib.trajectory.timing.TimedPose;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Reads and writes precomputed trajectories, so that fixed moves don't need to
+ * be planned on the robot.
+ *
+ * The file is little-endian binary:
+ *
+ * <pre>
+ * int magic, int version, long fingerprint, int entry count
+ * for each entry:
+ *   short name length, name (UTF-8)
+ *   double start velocity, double end velocity
+ *   int waypoint count, waypoints (x, y, heading, course)
+ *   int point count, points (TimedPose struct)
+ * </pre>
+ *
+ * Each entry carries the waypoints it was planned from, so a move that has
+ * changed won't match its stale entry. The header carries the planner's
+ * fingerprint (see TrajectoryPlanner.fingerprint()), i.e. a hash of its
+ * tolerances and constraints, so a library planned with different ones is
+ * rejected by read(), and the caller can re-plan it.
+ */
+public class TrajectoryLibrary {
+    private static final int MAGIC = 0x54313030; // "T100"
+    private static final int VERSION = 2;
+
+    /** One precomputed move. */
+    public record Entry(
+            String name,
+            List<HolonomicPose2d> waypoints,
+            double startVel,
+            double endVel,
+            Trajectory100 trajectory) {
+    }
+
+    /** Plan each move, rest-to-rest. Failed moves are left out. */
+    public static List<Entry> plan(TrajectoryPlanner planner, List<Entry> moves) {
+        List<Entry> result = new ArrayList<>();
+        for (Entry move : moves) {
+            Trajectory100 t = planner.generateTrajectory(
+                    move.waypoints(), move.startVel(), move.endVel());
+            if (t.isEmpty()) {
+                System.out.printf("WARNING: no trajectory for %s\n", move.name());
+                continue;
+            }
+            result.add(new Entry(
+                    move.name(), move.waypoints(), move.startVel(), move.endVel(), t));
+        }
+        return result;
+    }
+
+    /**
+     * Write the entries. The file is replaced atomically, so a reader never
+     * sees a partial file.
+     *
+     * @param fingerprint of the planner that made the entries
+     */
+    public static void write(Path path, long fingerprint, List<Entry> entries) throws IOException {
+        int size = 20;
+        for (Entry e : entries) {
+            size += size(e);
+        }
+        ByteBuffer bb = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        bb.putInt(MAGIC);
+        bb.putInt(VERSION);
+        bb.putLong(fingerprint);
+        bb.putInt(entries.size());
+        for (Entry e : entries) {
+            byte[] name = e.name().getBytes(StandardCharsets.UTF_8);
+            bb.putShort((short) name.length);
+            bb.put(name);
+            bb.putDouble(e.startVel());
+            bb.putDouble(e.endVel());
+            bb.putInt(e.waypoints().size());
+            for (HolonomicPose2d w : e.waypoints()) {
+                bb.putDouble(w.translation().getX());
+                bb.putDouble(w.translation().getY());
+                bb.putDouble(w.heading().getRadians());
+                bb.putDouble(w.course().getRadians());
+            }
+            List<TimedPose> points = e.trajectory().getPoints();
+            bb.putInt(points.size());
+            for (TimedPose p : points) {
+                TimedPose.struct.pack(bb, p);
+            }
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmp, bb.array());
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read the entries, mapping the file rather than copying it.
+     *
+     * @param fingerprint of the planner that will use the entries
+     * @throws IOException if the file is missing or malformed, or if it was
+     *                     planned with a different fingerprint.
+     */
+    public static List<Entry> read(Path path, long fingerprint) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer bb = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            bb.order(ByteOrder.LITTLE_ENDIAN);
+            return read(bb, fingerprint);
+        } catch (RuntimeException e) {
+            // e.g. BufferUnderflowException from a truncated file.
+            throw new IOException("bad trajectory library " + path, e);
+        }
+    }
+
+    ////////////////////////////////////////////////////
+
+    private static List<Entry> read(ByteBuffer bb, long fingerprint) throws IOException {
+        if (bb.getInt() != MAGIC)
+            throw new IOException("not a trajectory library");
+        int version = bb.getInt();
+        if (version != VERSION)
+            throw new IOException("wrong trajectory library version " + version);
+        if (bb.getLong() != fingerprint)
+            throw new IOException("stale trajectory library: the planner has changed");
+        int count = bb.getInt();
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            byte[] name = new byte[bb.getShort()];
+            bb.get(name);
+            double startVel = bb.getDouble();
+            double endVel = bb.getDouble();
+            int waypointCount = bb.getInt();
+            List<HolonomicPose2d> waypoints = new ArrayList<>(waypointCount);
+            for (int j = 0; j < waypointCount; ++j) {
+                waypoints.add(new HolonomicPose2d(
+                        new Translation2d(bb.getDouble(), bb.getDouble()),
+                        new Rotation2d(bb.getDouble()),
+                        new Rotation2d(bb.getDouble())));
+            }
+            int pointCount = bb.getInt();
+            List<TimedPose> points = new ArrayList<>(pointCount);
+            for (int j = 0; j < pointCount; ++j) {
+                points.add(TimedPose.struct.unpack(bb));
+            }
+            entries.add(new Entry(
+                    new String(name, StandardCharsets.UTF_8),
+                    waypoints,
+                    startVel,
+                    endVel,
+                    new Trajectory100(points)));
+        }
+        return entries;
+    }
+
+    private static int size(Entry e) {
+        return 2 + e.name().getBytes(StandardCharsets.UTF_8).length
+                + 16
+                + 4 + e.waypoints().size() * 32
+                + 4 + e.trajectory().length() * TimedPose.struct.getSize();
+    }
+
+    private TrajectoryLibrary() {
+        //
+    }
+}
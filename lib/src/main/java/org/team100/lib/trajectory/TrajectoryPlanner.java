@@ -5,6 +5,7 @@ import java.util.function.Function;
 
 import org.team100.lib.geometry.GlobalVelocityR3;
 import org.team100.lib.geometry.HolonomicPose2d;
+import org.team100.lib.geometry.Pose2dWithMotion;
 import org.team100.lib.state.ModelR3;
 import org.team100.lib.trajectory.path.Path100;
 import org.team100.lib.trajectory.path.PathFactory;
@@ -54,6 +55,7 @@ public class TrajectoryPlanner {
     private final double m_splineTolerance;
     private final double m_splineRotationTolerance;
     private final double m_trajectoryStep;
+    private final List<TimingConstraint> m_constraints;
 
     private final ScheduleGenerator m_scheduleGenerator;
 
@@ -69,10 +71,58 @@ public class TrajectoryPlanner {
         m_splineTolerance = splineTolerance;
         m_splineRotationTolerance = splineRotationTolerance;
         m_trajectoryStep = trajectoryStep;
+        m_constraints = List.copyOf(constraints);
         m_scheduleGenerator = new ScheduleGenerator(constraints);
 
     }
 
+    /**
+     * A hash of the tolerances, the step, and the constraints, so that a
+     * TrajectoryLibrary planned with different ones isn't used.
+     *
+     * The constraints don't expose their parameters, so each one is probed: it's
+     * evaluated at a fixed grid of states and velocities, and the answers are
+     * hashed. Any parameter that changes an answer changes the hash.
+     */
+    public long fingerprint() {
+        long h = 17;
+        h = mix(h, m_splineTolerance);
+        h = mix(h, m_splineRotationTolerance);
+        h = mix(h, m_trajectoryStep);
+        for (TimingConstraint c : m_constraints) {
+            h = mix(h, c.getClass().getName().hashCode());
+            for (double x : new double[] { 0, 0.5, 1 }) {
+                for (double angle : new double[] { 0, 1 }) {
+                    for (double curvature : new double[] { 0, 2 }) {
+                        Pose2dWithMotion state = new Pose2dWithMotion(
+                                HolonomicPose2d.make(x, x / 2, angle, -angle), angle, curvature, 0);
+                        h = probe(h, c, state);
+                    }
+                }
+            }
+        }
+        return h;
+    }
+
+    private static long probe(long h, TimingConstraint c, Pose2dWithMotion state) {
+        try {
+            h = mix(h, c.getMaxVelocity(state).getValue());
+            for (double v : new double[] { 0, 1, 3 }) {
+                TimingConstraint.MinMaxAcceleration a = c.getMinMaxAcceleration(state, v);
+                h = mix(h, a.getMinAccel());
+                h = mix(h, a.getMaxAccel());
+            }
+        } catch (RuntimeException e) {
+            // e.g. out of reach; that's an answer too.
+            h = mix(h, Double.NaN);
+        }
+        return h;
+    }
+
+    private static long mix(long h, double value) {
+        return 31 * h + Double.doubleToLongBits(value);
+    }
+
     /** A square counterclockwise starting with +x. */
     public List<Trajectory100> square(Pose2d p0) {
         Pose2d p1 = p0.plus(new Transform2d(1, 0, Rotation2d.kZero));
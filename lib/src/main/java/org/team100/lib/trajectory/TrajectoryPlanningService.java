@@ -0,0 +1,221 @@
+package org.team100.lib.trajectory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.team100.lib.geometry.HolonomicPose2d;
+
+/**
+ * Plans trajectories on a worker thread, so that commands don't stall the main
+ * loop, and remembers the results, so that repeated moves are instant.
+ *
+ * Each service wraps one planner, i.e. one set of constraints, so the cache is
+ * keyed only by the waypoints and end velocities, rounded to about a
+ * centimeter, and a hundredth of a radian. Requests that round to the same key
+ * get the same trajectory (and the same future, if it's still being planned).
+ *
+ * Planning happens on a single shared daemon thread, so concurrent requests
+ * are planned one at a time, in order.
+ *
+ * Precomputed trajectories (see TrajectoryLibrary) can be preloaded. These are
+ * never evicted. The follower starts from the measured pose, so the start of
+ * the trajectory is the reference at t=0, and a preloaded trajectory is used
+ * only if it starts within a couple of millimeters of the request, so the
+ * reference doesn't jump. Requests farther away are planned as usual.
+ *
+ * The trajectories are shared, so don't modify them.
+ */
+public class TrajectoryPlanningService {
+    private static final boolean DEBUG = false;
+    /** Keep this many of the most recently used trajectories. */
+    private static final int MAX_ENTRIES = 64;
+    private static final double POSITION_QUANTUM_M = 0.01;
+    private static final double ANGLE_QUANTUM_RAD = 0.01;
+    private static final double VELOCITY_QUANTUM_M_S = 0.01;
+    /**
+     * Preloaded trajectories match waypoints this close. This is how far the
+     * reference can jump at the start, so keep it small.
+     */
+    private static final double PRELOAD_TOLERANCE_M = 0.002;
+    private static final double PRELOAD_TOLERANCE_RAD = 0.002;
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "TrajectoryPlanningService");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final TrajectoryPlanner m_planner;
+    /** Access-ordered, so the eldest entry is the least recently used. */
+    private final Map<Key, CompletableFuture<Trajectory100>> m_cache;
+    private final List<Preloaded> m_preloaded;
+    private int m_hits;
+    private int m_misses;
+
+    public TrajectoryPlanningService(TrajectoryPlanner planner) {
+        m_planner = planner;
+        m_cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CompletableFuture<Trajectory100>> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+        m_preloaded = new ArrayList<>();
+    }
+
+    /**
+     * A rest-to-rest trajectory through the waypoints.
+     *
+     * The future never completes exceptionally: if planning fails, the result is
+     * an empty trajectory, as with TrajectoryPlanner.
+     */
+    public CompletableFuture<Trajectory100> restToRest(List<HolonomicPose2d> waypoints) {
+        return generateTrajectory(waypoints, 0, 0);
+    }
+
+    /** See TrajectoryPlanner.generateTrajectory(). */
+    public synchronized CompletableFuture<Trajectory100> generateTrajectory(
+            List<HolonomicPose2d> waypoints,
+            double start_vel,
+            double end_vel) {
+        for (Preloaded p : m_preloaded) {
+            if (p.matches(waypoints, start_vel, end_vel)) {
+                m_hits++;
+                return p.future();
+            }
+        }
+        Key key = key(waypoints, start_vel, end_vel);
+        CompletableFuture<Trajectory100> future = m_cache.get(key);
+        if (future != null) {
+            m_hits++;
+            return future;
+        }
+        m_misses++;
+        // Copy, in case the caller changes the list.
+        List<HolonomicPose2d> w = List.copyOf(waypoints);
+        CompletableFuture<Trajectory100> result = CompletableFuture.supplyAsync(
+                () -> plan(key, w, start_vel, end_vel), EXECUTOR);
+        m_cache.put(key, result);
+        return result;
+    }
+
+    /** Plan now, so that later requests are instant. */
+    public void prewarm(List<HolonomicPose2d> waypoints) {
+        restToRest(waypoints);
+    }
+
+    /** Use a precomputed trajectory. It's kept until clear(). */
+    public synchronized void preload(TrajectoryLibrary.Entry entry) {
+        m_preloaded.add(new Preloaded(
+                List.copyOf(entry.waypoints()),
+                entry.startVel(),
+                entry.endVel(),
+                CompletableFuture.completedFuture(entry.trajectory())));
+    }
+
+    public synchronized int getPreloaded() {
+        return m_preloaded.size();
+    }
+
+    public synchronized void clear() {
+        m_preloaded.clear();
+        m_cache.clear();
+    }
+
+    public synchronized int getHits() {
+        return m_hits;
+    }
+
+    public synchronized int getMisses() {
+        return m_misses;
+    }
+
+    ////////////////////////////////////////////////////
+
+    /** Runs on the worker thread. */
+    private Trajectory100 plan(
+            Key key,
+            List<HolonomicPose2d> waypoints,
+            double start_vel,
+            double end_vel) {
+        long start = System.nanoTime();
+        Trajectory100 t;
+        try {
+            t = m_planner.generateTrajectory(waypoints, start_vel, end_vel);
+        } catch (RuntimeException e) {
+            System.out.printf("WARNING: trajectory planning failed: %s\n", e);
+            t = new Trajectory100();
+        }
+        if (t.isEmpty()) {
+            // Don't remember failures; maybe the next try will work.
+            synchronized (this) {
+                m_cache.remove(key);
+            }
+        }
+        if (DEBUG) {
+            System.out.printf("planned %d points in %.3f ms\n",
+                    t.length(), (System.nanoTime() - start) / 1e6);
+        }
+        return t;
+    }
+
+    private static Key key(List<HolonomicPose2d> waypoints, double start_vel, double end_vel) {
+        long[] values = new long[waypoints.size() * 4 + 2];
+        int i = 0;
+        for (HolonomicPose2d w : waypoints) {
+            values[i++] = Math.round(w.translation().getX() / POSITION_QUANTUM_M);
+            values[i++] = Math.round(w.translation().getY() / POSITION_QUANTUM_M);
+            values[i++] = Math.round(w.heading().getRadians() / ANGLE_QUANTUM_RAD);
+            values[i++] = Math.round(w.course().getRadians() / ANGLE_QUANTUM_RAD);
+        }
+        values[i++] = Math.round(start_vel / VELOCITY_QUANTUM_M_S);
+        values[i++] = Math.round(end_vel / VELOCITY_QUANTUM_M_S);
+        return new Key(values);
+    }
+
+    /** A precomputed trajectory, and what it was planned from. */
+    private record Preloaded(
+            List<HolonomicPose2d> waypoints,
+            double startVel,
+            double endVel,
+            CompletableFuture<Trajectory100> future) {
+
+        boolean matches(List<HolonomicPose2d> w, double start_vel, double end_vel) {
+            if (w.size() != waypoints.size())
+                return false;
+            if (Math.abs(start_vel - startVel) > VELOCITY_QUANTUM_M_S
+                    || Math.abs(end_vel - endVel) > VELOCITY_QUANTUM_M_S)
+                return false;
+            for (int i = 0; i < w.size(); ++i) {
+                HolonomicPose2d a = w.get(i);
+                HolonomicPose2d b = waypoints.get(i);
+                if (a.translation().getDistance(b.translation()) > PRELOAD_TOLERANCE_M)
+                    return false;
+                if (Math.abs(a.heading().minus(b.heading()).getRadians()) > PRELOAD_TOLERANCE_RAD)
+                    return false;
+                if (Math.abs(a.course().minus(b.course()).getRadians()) > PRELOAD_TOLERANCE_RAD)
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    /** Rounded waypoints and velocities. */
+    private record Key(long[] values) {
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key k && Arrays.equals(values, k.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+}
@@ -1,18 +1,19 @@
 package org.team100.lib.trajectory.path;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-import org.team100.lib.geometry.GeometryUtil;
 import org.team100.lib.geometry.HolonomicPose2d;
 import org.team100.lib.geometry.Pose2dWithMotion;
 import org.team100.lib.trajectory.path.spline.HolonomicSpline;
 import org.team100.lib.trajectory.path.spline.SplineUtil;
+import org.team100.lib.util.Math100;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.math.geometry.Twist2d;
 
 public class PathFactory {
 
@@ -102,8 +103,9 @@ public class PathFactory {
         List<Pose2dWithMotion> rv = new ArrayList<>();
         rv.add(s.getPose2dWithMotion(0.0));
         double dt = (t1 - t0);
+        Sampler sampler = new Sampler(maxDx, maxDy, maxDTheta);
         for (double t = 0; t < t1; t += dt) {
-            PathFactory.getSegmentArc(s, rv, t, t + dt, maxDx, maxDy, maxDTheta);
+            sampler.getSegmentArc(s, rv, t, t + dt);
         }
         return rv;
     }
@@ -117,48 +119,160 @@ public class PathFactory {
         if (splines.isEmpty())
             return rv;
         rv.add(splines.get(0).getPose2dWithMotion(0.0));
-        for (int i = 0; i < splines.size(); i++) {
-            HolonomicSpline s = splines.get(i);
-            List<Pose2dWithMotion> samples = parameterizeSpline(s, maxDx, maxDy, maxDTheta, 0.0, 1.0);
-            samples.remove(0);
-            rv.addAll(samples);
+        // Each spline starts where the previous one ended, so only the end of
+        // each accepted segment is added.
+        Sampler sampler = new Sampler(maxDx, maxDy, maxDTheta);
+        for (HolonomicSpline s : splines) {
+            sampler.getSegmentArc(s, rv, 0.0, 1.0);
         }
         return rv;
     }
 
-    private static void getSegmentArc(
-            HolonomicSpline s,
-            List<Pose2dWithMotion> rv,
-            double t0,
-            double t1,
-            double maxDx,
-            double maxDy,
-            double maxDTheta) {
-        Pose2d p0 = s.getPose2d(t0);
-        Pose2d phalf = s.getPose2d(t0 + (t1 - t0) * .5);
-        Pose2d p1 = s.getPose2d(t1);
-        Twist2d twist_full = Pose2d.kZero.log(GeometryUtil.transformBy(GeometryUtil.inverse(p0), p1));
-        Pose2d phalf_predicted = GeometryUtil.transformBy(p0,
-                Pose2d.kZero.exp(GeometryUtil.scale(twist_full, 0.5)));
-        Pose2d error = GeometryUtil.transformBy(GeometryUtil.inverse(phalf), phalf_predicted);
-
-        if (GeometryUtil.norm(twist_full) < 1e-6) {
-            // the Rotation2d below will be garbage in this case so give up.
-            return;
+    /**
+     * Adaptive sampling, bisecting segments until the secant is close enough to
+     * the spline.
+     * 
+     * This uses an explicit stack instead of recursion, and computes the error
+     * with primitives in scratch arrays, so the only allocations are the
+     * accepted points. It's the same as the old recursive version, which
+     * composed Pose2d and Twist2d objects, except for rounding.
+     */
+    private static class Sampler {
+        private final double m_maxDx;
+        private final double m_maxDy;
+        private final double m_maxDTheta;
+        // spline samples: x, y, heading, dx, dy
+        private final double[] m_p0 = new double[5];
+        private final double[] m_phalf = new double[5];
+        private final double[] m_p1 = new double[5];
+        /** Pending segments, (t0, t1) pairs. Grows if needed. */
+        private double[] m_stack = new double[64];
+
+        Sampler(double maxDx, double maxDy, double maxDTheta) {
+            m_maxDx = maxDx;
+            m_maxDy = maxDy;
+            m_maxDTheta = maxDTheta;
         }
-        Rotation2d course_predicted = (new Rotation2d(twist_full.dx, twist_full.dy))
-                .rotateBy(phalf_predicted.getRotation());
-
-        Rotation2d course_half = s.getCourse(t0 + (t1 - t0) * .5).orElse(course_predicted);
-        double course_error = course_predicted.unaryMinus().rotateBy(course_half).getRadians();
-        if (Math.abs(error.getTranslation().getY()) > maxDy ||
-                Math.abs(error.getTranslation().getX()) > maxDx ||
-                Math.abs(error.getRotation().getRadians()) > maxDTheta ||
-                Math.abs(course_error) > maxDTheta) {
-            getSegmentArc(s, rv, t0, (t0 + t1) / 2, maxDx, maxDy, maxDTheta);
-            getSegmentArc(s, rv, (t0 + t1) / 2, t1, maxDx, maxDy, maxDTheta);
-        } else {
-            rv.add(s.getPose2dWithMotion(t1));
+
+        /** Add points to rv for the segment, not including t0. */
+        void getSegmentArc(HolonomicSpline s, List<Pose2dWithMotion> rv, double t0, double t1) {
+            int top = push(0, t0, t1);
+            while (top > 0) {
+                top -= 2;
+                double a = m_stack[top];
+                double b = m_stack[top + 1];
+                switch (check(s, a, b)) {
+                    case SPLIT:
+                        // right first, so the left comes off the stack first.
+                        top = push(top, (a + b) / 2, b);
+                        top = push(top, a, (a + b) / 2);
+                        break;
+                    case ACCEPT:
+                        rv.add(s.getPose2dWithMotion(b));
+                        break;
+                    case SKIP:
+                        break;
+                }
+            }
+        }
+
+        private int push(int top, double t0, double t1) {
+            if (top + 2 > m_stack.length)
+                m_stack = Arrays.copyOf(m_stack, m_stack.length * 2);
+            m_stack[top] = t0;
+            m_stack[top + 1] = t1;
+            return top + 2;
+        }
+
+        /**
+         * Compare the spline midpoint to the midpoint of the constant-twist arc
+         * from t0 to t1, i.e. Pose2d.log() and Pose2d.exp() written out.
+         */
+        private Result check(HolonomicSpline s, double t0, double t1) {
+            double tHalf = t0 + (t1 - t0) * .5;
+            s.sample(t0, m_p0);
+            s.sample(tHalf, m_phalf);
+            s.sample(t1, m_p1);
+            double x0 = m_p0[0];
+            double y0 = m_p0[1];
+            double h0 = m_p0[2];
+            double cos0 = Math.cos(h0);
+            double sin0 = Math.sin(h0);
+
+            // p1 relative to p0
+            double ex = m_p1[0] - x0;
+            double ey = m_p1[1] - y0;
+            double rx = cos0 * ex + sin0 * ey;
+            double ry = -sin0 * ex + cos0 * ey;
+            double rCos = Math.cos(m_p1[2] - h0);
+            double rSin = Math.sin(m_p1[2] - h0);
+
+            // log
+            double dtheta = Math.atan2(rSin, rCos);
+            double halfDtheta = dtheta / 2;
+            double cosMinusOne = rCos - 1;
+            double halfThetaByTanOfHalfDtheta;
+            if (Math.abs(cosMinusOne) < 1e-9) {
+                halfThetaByTanOfHalfDtheta = 1.0 - 1.0 / 12.0 * dtheta * dtheta;
+            } else {
+                halfThetaByTanOfHalfDtheta = -(halfDtheta * rSin) / cosMinusOne;
+            }
+            double twistDx = halfThetaByTanOfHalfDtheta * rx + halfDtheta * ry;
+            double twistDy = halfThetaByTanOfHalfDtheta * ry - halfDtheta * rx;
+
+            if (Math.hypot(twistDx, twistDy) < 1e-6) {
+                // the course below will be garbage in this case so give up.
+                return Result.SKIP;
+            }
+
+            // exp of half the twist
+            double hx = twistDx * 0.5;
+            double hy = twistDy * 0.5;
+            double hTheta = dtheta * 0.5;
+            double sinTheta = Math.sin(hTheta);
+            double cosTheta = Math.cos(hTheta);
+            double sc;
+            double cc;
+            if (Math.abs(hTheta) < 1e-9) {
+                sc = 1.0 - 1.0 / 6.0 * hTheta * hTheta;
+                cc = 0.5 * hTheta;
+            } else {
+                sc = sinTheta / hTheta;
+                cc = (1 - cosTheta) / hTheta;
+            }
+            double lx = hx * sc - hy * cc;
+            double ly = hx * cc + hy * sc;
+            double predictedX = x0 + cos0 * lx - sin0 * ly;
+            double predictedY = y0 + sin0 * lx + cos0 * ly;
+            double predictedHeading = h0 + hTheta;
+
+            // predicted relative to the actual midpoint
+            double cosHalf = Math.cos(m_phalf[2]);
+            double sinHalf = Math.sin(m_phalf[2]);
+            double dx = predictedX - m_phalf[0];
+            double dy = predictedY - m_phalf[1];
+            double errorX = cosHalf * dx + sinHalf * dy;
+            double errorY = -sinHalf * dx + cosHalf * dy;
+            double errorTheta = MathUtil.angleModulus(predictedHeading - m_phalf[2]);
+
+            double coursePredicted = Math.atan2(twistDy, twistDx) + predictedHeading;
+            double courseHalf = coursePredicted;
+            if (!Math100.epsilonEquals(m_phalf[3], 0.0) || !Math100.epsilonEquals(m_phalf[4], 0.0)) {
+                courseHalf = Math.atan2(m_phalf[4], m_phalf[3]);
+            }
+            double courseError = MathUtil.angleModulus(courseHalf - coursePredicted);
+
+            if (Math.abs(errorY) > m_maxDy ||
+                    Math.abs(errorX) > m_maxDx ||
+                    Math.abs(errorTheta) > m_maxDTheta ||
+                    Math.abs(courseError) > m_maxDTheta) {
+                return Result.SPLIT;
+            }
+            return Result.ACCEPT;
+        }
+
+        private enum Result {
+            SPLIT, ACCEPT, SKIP
         }
     }
 }
@@ -29,7 +29,7 @@ public class HolonomicSpline {
     private static final boolean DEBUG = false;
     // curvature measurement performance scales with sample count so make it kinda
     // low. most splines go between 0.5 and 5 meters so this is steps of 2 to 20 cm.
-    private static final int SAMPLES = 25;
+    static final int SAMPLES = 25;
 
     private final SplineR1 m_x;
     private final SplineR1 m_y;
@@ -168,6 +168,20 @@ public class HolonomicSpline {
         return new Pose2d(getPoint(p), getHeading(p));
     }
 
+    /**
+     * Position, heading, and course derivatives, without allocating.
+     * 
+     * @param p   ranges from 0 to 1
+     * @param out x, y, heading (radians, not wrapped), dx/dp, dy/dp
+     */
+    public void sample(double p, double[] out) {
+        out[0] = x(p);
+        out[1] = y(p);
+        out[2] = m_r0.getRadians() + m_theta.getPosition(p);
+        out[3] = dx(p);
+        out[4] = dy(p);
+    }
+
     ////////////////////////////////////////////////////////////////////////
 
     protected Rotation2d getHeading(double t) {
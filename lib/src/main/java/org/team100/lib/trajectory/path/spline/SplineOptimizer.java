@@ -0,0 +1,274 @@
+package org.team100.lib.trajectory.path.spline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.ejml.simple.SimpleMatrix;
+
+/**
+ * Chooses the second derivatives at the spline joints to minimize the integral
+ * of squared curvature change, i.e. SplineUtil.sumDCurvature2().
+ *
+ * The objective is a sum of squares: each sample contributes r^2, where r is
+ * sqrt(dt) * dk/dp. The joint second derivatives enter the quintic
+ * coefficients linearly, so the derivatives of each r with respect to them are
+ * just the chain rule through dx, ddx, and dddx at the sample, which is cheap
+ * and exact.
+ *
+ * With the Jacobian in hand, each iteration is a Gauss-Newton step, solving a
+ * small linear system (two variables per joint) directly, with
+ * Levenberg-Marquardt damping so that every accepted step goes downhill.
+ *
+ * The previous method, SplineUtil.optimizeFiniteDifference(), estimated the
+ * gradient with finite differences and searched along it, which costs many
+ * objective evaluations per step, and often stops far from the minimum.
+ */
+class SplineOptimizer {
+    private static final boolean DEBUG = false;
+    /** Stop when an iteration improves the objective by less than this fraction. */
+    private static final double TOLERANCE = 1e-4;
+    private static final int MAX_ITERATIONS = 20;
+    private static final double INITIAL_DAMPING = 1e-3;
+    private static final double MIN_DAMPING = 1e-9;
+    /** If damping grows this large without improvement, we're at the minimum. */
+    private static final double MAX_DAMPING = 1e10;
+
+    /**
+     * Sample parameters, exactly the same as HolonomicSpline.sumDCurvature2(),
+     * so the objective here is the same number.
+     */
+    private static final double[] T;
+    /** Derivatives of the change caused by unit ddx at the start. */
+    private static final double[] START_V;
+    private static final double[] START_A;
+    private static final double[] START_J;
+    /** Derivatives of the change caused by unit ddx at the end. */
+    private static final double[] END_V;
+    private static final double[] END_A;
+    private static final double[] END_J;
+
+    static {
+        List<Double> t = new ArrayList<>();
+        double dt = 1.0 / HolonomicSpline.SAMPLES;
+        for (double p = 0; p < 1.0; p += dt) {
+            t.add(p);
+        }
+        int n = t.size();
+        T = new double[n];
+        START_V = new double[n];
+        START_A = new double[n];
+        START_J = new double[n];
+        END_V = new double[n];
+        END_A = new double[n];
+        END_J = new double[n];
+        SplineR1 start = SplineR1.get(0, 0, 0, 0, 1, 0);
+        SplineR1 end = SplineR1.get(0, 0, 0, 0, 0, 1);
+        for (int k = 0; k < n; ++k) {
+            double p = t.get(k);
+            T[k] = p;
+            START_V[k] = start.getVelocity(p);
+            START_A[k] = start.getAcceleration(p);
+            START_J[k] = start.getJerk(p);
+            END_V[k] = end.getVelocity(p);
+            END_A[k] = end.getAcceleration(p);
+            END_J[k] = end.getJerk(p);
+        }
+    }
+
+    /**
+     * @param cost       the final sumDCurvature2
+     * @param iterations the number of accepted steps
+     */
+    record Result(double cost, int iterations) {
+    }
+
+    /**
+     * Optimize the splines in place. Joints where the adjacent splines are
+     * colinear are left alone, as before.
+     */
+    static Result optimize(List<HolonomicSpline> splines) {
+        // can't optimize anything with less than 2 splines
+        if (splines.size() <= 1)
+            return new Result(0, 0);
+        int joints = splines.size() - 1;
+        // index of the ddx variable for each joint (ddy is next), or -1 if fixed.
+        int[] index = new int[joints];
+        int n = 0;
+        for (int i = 0; i < joints; ++i) {
+            if (SplineUtil.isColinear(splines, i)) {
+                index[i] = -1;
+            } else {
+                index[i] = n;
+                n += 2;
+            }
+        }
+        if (n == 0)
+            return new Result(SplineUtil.sumDCurvature2(splines), 0);
+
+        double[][] h = new double[n][n];
+        double[] g = new double[n];
+        double cost = linearize(splines, index, h, g);
+        double lambda = INITIAL_DAMPING;
+        for (int iteration = 0; iteration < MAX_ITERATIONS; ++iteration) {
+            List<HolonomicSpline> candidate = null;
+            double candidateCost = Double.POSITIVE_INFINITY;
+            while (candidateCost >= cost) {
+                if (lambda > MAX_DAMPING) {
+                    // no downhill step at all.
+                    return new Result(cost, iteration);
+                }
+                try {
+                    candidate = apply(splines, index, step(h, g, lambda));
+                    candidateCost = SplineUtil.sumDCurvature2(candidate);
+                } catch (IllegalArgumentException e) {
+                    // A wild step can produce an invalid spline, e.g. one that
+                    // stops, so treat it as infinitely bad.
+                    candidateCost = Double.POSITIVE_INFINITY;
+                }
+                if (candidateCost >= cost)
+                    lambda *= 10;
+            }
+            for (int i = 0; i < splines.size(); ++i) {
+                splines.set(i, candidate.get(i));
+            }
+            double prev = cost;
+            cost = linearize(splines, index, h, g);
+            lambda = Math.max(lambda / 10, MIN_DAMPING);
+            if (DEBUG)
+                System.out.printf("iteration %d cost %f lambda %g\n", iteration, cost, lambda);
+            if (prev - cost < TOLERANCE * prev)
+                return new Result(cost, iteration + 1);
+        }
+        System.out.println("WARNING: Spline optimization failed");
+        return new Result(cost, MAX_ITERATIONS);
+    }
+
+    /**
+     * Compute the Gauss-Newton normal equations, J^T J and J^T r, where r is
+     * the vector of residuals.
+     *
+     * Each spline depends only on the joints at its two ends, so each residual
+     * has at most four nonzero partials.
+     *
+     * @param splines input
+     * @param index   variable index for each joint, -1 for fixed
+     * @param h       output J^T J
+     * @param g       output J^T r, which is half the gradient
+     * @return the objective, sum of r^2
+     */
+    static double linearize(
+            List<HolonomicSpline> splines,
+            int[] index,
+            double[][] h,
+            double[] g) {
+        for (double[] row : h) {
+            Arrays.fill(row, 0);
+        }
+        Arrays.fill(g, 0);
+        double sqrtDt = Math.sqrt(1.0 / HolonomicSpline.SAMPLES);
+        // the nonzero partials for one residual
+        int[] col = new int[4];
+        double[] jac = new double[4];
+        double sum = 0;
+        for (int s = 0; s < splines.size(); ++s) {
+            HolonomicSpline spline = splines.get(s);
+            // the joint at the start of this spline, and at the end.
+            int startVar = s > 0 ? index[s - 1] : -1;
+            int endVar = s < index.length ? index[s] : -1;
+            for (int k = 0; k < T.length; ++k) {
+                double t = T[k];
+                double dx = spline.dx(t);
+                double dy = spline.dy(t);
+                double dx2dy2 = dx * dx + dy * dy;
+                if (dx2dy2 == 0)
+                    throw new IllegalArgumentException();
+                double ddx = spline.ddx(t);
+                double ddy = spline.ddy(t);
+                double dddx = spline.dddx(t);
+                double dddy = spline.dddy(t);
+                // same as HolonomicSpline.dCurvature2()
+                double cross3 = dx * dddy - dddx * dy;
+                double cross2 = dx * ddy - ddx * dy;
+                double dot2 = dx * ddx + dy * ddy;
+                double num = cross3 * dx2dy2 - 3 * cross2 * dot2;
+                double w = sqrtDt / (dx2dy2 * dx2dy2 * Math.sqrt(dx2dy2));
+                double r = num * w;
+                sum += r * r;
+
+                // partials of r with respect to each derivative
+                double dw = -5 * w / dx2dy2;
+                double rDx = (dddy * dx2dy2 + 2 * cross3 * dx - 3 * (ddy * dot2 + cross2 * ddx)) * w
+                        + num * dw * dx;
+                double rDy = (-dddx * dx2dy2 + 2 * cross3 * dy - 3 * (-ddx * dot2 + cross2 * ddy)) * w
+                        + num * dw * dy;
+                double rDdx = -3 * (cross2 * dx - dy * dot2) * w;
+                double rDdy = -3 * (cross2 * dy + dx * dot2) * w;
+                double rDddx = -dy * dx2dy2 * w;
+                double rDddy = dx * dx2dy2 * w;
+
+                int m = 0;
+                if (startVar >= 0) {
+                    col[m] = startVar;
+                    jac[m++] = rDx * START_V[k] + rDdx * START_A[k] + rDddx * START_J[k];
+                    col[m] = startVar + 1;
+                    jac[m++] = rDy * START_V[k] + rDdy * START_A[k] + rDddy * START_J[k];
+                }
+                if (endVar >= 0) {
+                    col[m] = endVar;
+                    jac[m++] = rDx * END_V[k] + rDdx * END_A[k] + rDddx * END_J[k];
+                    col[m] = endVar + 1;
+                    jac[m++] = rDy * END_V[k] + rDdy * END_A[k] + rDddy * END_J[k];
+                }
+                for (int a = 0; a < m; ++a) {
+                    g[col[a]] += jac[a] * r;
+                    for (int b = 0; b < m; ++b) {
+                        h[col[a]][col[b]] += jac[a] * jac[b];
+                    }
+                }
+            }
+        }
+        if (Double.isNaN(sum))
+            throw new IllegalArgumentException();
+        return sum;
+    }
+
+    /** Solve (J^T J + lambda diag(J^T J)) step = -J^T r. */
+    private static double[] step(double[][] h, double[] g, double lambda) {
+        int n = g.length;
+        SimpleMatrix a = new SimpleMatrix(h);
+        SimpleMatrix b = new SimpleMatrix(n, 1);
+        for (int i = 0; i < n; ++i) {
+            a.set(i, i, h[i][i] + lambda * Math.max(h[i][i], 1e-12));
+            b.set(i, 0, -g[i]);
+        }
+        SimpleMatrix x = a.solve(b);
+        double[] result = new double[n];
+        for (int i = 0; i < n; ++i) {
+            result[i] = x.get(i, 0);
+        }
+        return result;
+    }
+
+    /** New splines with the step added to the joint second derivatives. */
+    private static List<HolonomicSpline> apply(
+            List<HolonomicSpline> splines,
+            int[] index,
+            double[] step) {
+        List<HolonomicSpline> result = new ArrayList<>(splines);
+        for (int i = 0; i < index.length; ++i) {
+            int v = index[i];
+            if (v < 0)
+                continue;
+            double ddx = step[v];
+            double ddy = step[v + 1];
+            result.set(i, result.get(i).addToSecondDerivatives(0, ddx, 0, ddy));
+            result.set(i + 1, result.get(i + 1).addToSecondDerivatives(ddx, 0, ddy, 0));
+        }
+        return result;
+    }
+
+    private SplineOptimizer() {
+        //
+    }
+}
@@ -182,14 +182,25 @@ public class SplineUtil {
      * Finds the optimal second derivative values for a set of splines to reduce the
      * sum of the change in curvature squared over the path
      *
+     * Uses the analytic gradient, see SplineOptimizer.
+     *
      * @param splines the list of splines to optimize
      * @return the final sumDCurvature2
      */
     public static double optimizeSpline(List<HolonomicSpline> splines) {
+        return SplineOptimizer.optimize(splines).cost();
+    }
+
+    /**
+     * The old way to do optimizeSpline(), using finite differences and a line
+     * search along the gradient. It's slower and less accurate than
+     * SplineOptimizer; it's here for comparison.
+     */
+    static SplineOptimizer.Result optimizeFiniteDifference(List<HolonomicSpline> splines) {
         // can't optimize anything with less than 2 splines
         if (splines.size() <= 1) {
             // we don't care about measuring the curvature in this case.
-            return 0;
+            return new SplineOptimizer.Result(0, 0);
         }
         int count = 0;
         double prev = sumDCurvature2(splines);
@@ -197,12 +208,28 @@ public class SplineUtil {
             runOptimizationIteration(splines);
             double current = sumDCurvature2(splines);
             if (prev - current < MIN_DELTA)
-                return current;
+                return new SplineOptimizer.Result(current, count + 1);
             prev = current;
             count++;
         }
         System.out.println("WARNING: Spline optimization failed");
-        return prev;
+        return new SplineOptimizer.Result(prev, count);
+    }
+
+    /**
+     * True if the splines on either side of joint i are colinear, in which case
+     * the optimizer leaves the joint alone.
+     */
+    static boolean isColinear(List<HolonomicSpline> splines, int i) {
+        Optional<Pose2d> startPose = splines.get(i).getStartPose();
+        Optional<Pose2d> startPose2 = splines.get(i + 1).getStartPose();
+        Optional<Pose2d> endPose = splines.get(i).getEndPose();
+        Optional<Pose2d> endPose2 = splines.get(i + 1).getEndPose();
+        if (startPose.isEmpty() || startPose2.isEmpty() || endPose.isEmpty() || endPose2.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+        return GeometryUtil.isColinear(startPose.get(), startPose2.get())
+                || GeometryUtil.isColinear(endPose.get(), endPose2.get());
     }
 
     /**
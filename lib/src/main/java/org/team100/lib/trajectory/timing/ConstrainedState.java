@@ -3,7 +3,6 @@ package org.team100.lib.trajectory.timing;
 import java.util.List;
 
 import org.team100.lib.geometry.Pose2dWithMotion;
-import org.team100.lib.trajectory.timing.TimingConstraint.NonNegativeDouble;
 import org.team100.lib.util.Math100;
 
 class ConstrainedState {
@@ -28,14 +27,11 @@ class ConstrainedState {
     }
 
     /**
-     * Clamp state velocity to constraints.
+     * Clamp state velocity to the minimum of the constraint velocities, which
+     * ScheduleGenerator computes ahead of time.
      */
-    public void clampVelocity(List<TimingConstraint> constraints) {
-        for (TimingConstraint constraint : constraints) {
-            NonNegativeDouble constraintVel = constraint.getMaxVelocity(m_state);
-            double value = constraintVel.getValue();
-            setVelocityM_S(Math.min(getVelocityM_S(), value));
-        }
+    public void clampVelocity(double maxVelocityM_S) {
+        setVelocityM_S(Math.min(getVelocityM_S(), maxVelocityM_S));
     }
 
     /**
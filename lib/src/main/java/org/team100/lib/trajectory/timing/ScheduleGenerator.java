@@ -2,6 +2,7 @@ package org.team100.lib.trajectory.timing;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.RecursiveAction;
 
 import org.team100.lib.geometry.Pose2dWithMotion;
 import org.team100.lib.trajectory.Trajectory100;
@@ -10,17 +11,35 @@ import org.team100.lib.trajectory.path.Path100;
 /**
  * Given a path, produces a trajectory, which includes the path and adds a
  * schedule.
+ * 
+ * The velocity limit at each sample depends only on the sample, so the limits
+ * are all computed first, in parallel (using the common fork-join pool) if
+ * there are enough samples to make it worthwhile. The forward pass uses those
+ * limits instead of asking the constraints again.
  */
 public class ScheduleGenerator {
     private static final double EPSILON = 1e-6;
     /** this is the default, in order to make the constraints set the actual */
     private static final double HIGH_ACCEL = 1000;
+    /** Fewer samples than this are done on the caller's thread. */
+    private static final int PARALLEL_THRESHOLD = 256;
+    /** Samples per fork-join task. */
+    private static final int CHUNK = 64;
 
     private final List<TimingConstraint> m_constraints;
+    private final boolean m_parallel;
 
     /** If you want a max velocity or accel constraint, use ConstantConstraint. */
     public ScheduleGenerator(List<TimingConstraint> constraints) {
+        this(constraints, true);
+    }
+
+    /**
+     * @param parallel compute velocity limits concurrently, for long paths.
+     */
+    public ScheduleGenerator(List<TimingConstraint> constraints, boolean parallel) {
         m_constraints = constraints;
+        m_parallel = parallel;
     }
 
     /**
@@ -57,7 +76,8 @@ public class ScheduleGenerator {
             List<Pose2dWithMotion> samples,
             double start_vel,
             double end_vel) throws TimingException {
-        List<ConstrainedState> constrainedStates = forwardPass(samples, start_vel);
+        double[] maxVelocities = maxVelocities(samples);
+        List<ConstrainedState> constrainedStates = forwardPass(samples, maxVelocities, start_vel);
         Pose2dWithMotion lastState = samples.get(samples.size() - 1);
         backwardsPass(lastState, end_vel, constrainedStates);
         return integrate(constrainedStates);
@@ -74,7 +94,10 @@ public class ScheduleGenerator {
      * end velocity to the state's maximum allowed velocity and will repair the
      * acceleration during the backward pass (by slowing down the predecessor).
      */
-    private List<ConstrainedState> forwardPass(List<Pose2dWithMotion> samples, double start_vel) {
+    private List<ConstrainedState> forwardPass(
+            List<Pose2dWithMotion> samples,
+            double[] maxVelocities,
+            double start_vel) {
         ConstrainedState predecessor = new ConstrainedState(samples.get(0), 0);
         predecessor.setVelocityM_S(start_vel);
         predecessor.setMinAccel(-HIGH_ACCEL);
@@ -82,18 +105,19 @@ public class ScheduleGenerator {
 
         // work forward through the samples
         List<ConstrainedState> constrainedStates = new ArrayList<>(samples.size());
-        for (Pose2dWithMotion sample : samples) {
+        for (int i = 0; i < samples.size(); ++i) {
+            Pose2dWithMotion sample = samples.get(i);
             double dsM = sample.distanceM(predecessor.getState());
             ConstrainedState constrainedState = new ConstrainedState(
                     sample, dsM + predecessor.getDistanceM());
             constrainedStates.add(constrainedState);
-            forwardWork(predecessor, constrainedState);
+            forwardWork(predecessor, constrainedState, maxVelocities[i]);
             predecessor = constrainedState;
         }
         return constrainedStates;
     }
 
-    private void forwardWork(ConstrainedState s0, ConstrainedState s1) {
+    private void forwardWork(ConstrainedState s0, ConstrainedState s1, double maxVelocity) {
         // constant-twist path length between states
         double dsM = s1.getState().distanceM(s0.getState());
 
@@ -109,7 +133,7 @@ public class ScheduleGenerator {
             s1.setMaxAccel(HIGH_ACCEL);
 
             // reduce velocity according to constraints
-            s1.clampVelocity(m_constraints);
+            s1.clampVelocity(maxVelocity);
 
             // reduce accel according to constraints
             s1.clampAccel(m_constraints);
@@ -134,6 +158,56 @@ public class ScheduleGenerator {
         }
     }
 
+    /** The velocity limit of all the constraints, for each sample. */
+    double[] maxVelocities(List<Pose2dWithMotion> samples) {
+        double[] result = new double[samples.size()];
+        if (m_parallel && samples.size() >= PARALLEL_THRESHOLD) {
+            // invoke() runs on this thread, and the forks run in the common pool.
+            new MaxVelocityTask(samples, result, 0, samples.size()).invoke();
+        } else {
+            maxVelocities(samples, result, 0, samples.size());
+        }
+        return result;
+    }
+
+    private void maxVelocities(List<Pose2dWithMotion> samples, double[] result, int from, int to) {
+        for (int i = from; i < to; ++i) {
+            Pose2dWithMotion sample = samples.get(i);
+            double v = Double.POSITIVE_INFINITY;
+            for (TimingConstraint constraint : m_constraints) {
+                v = Math.min(v, constraint.getMaxVelocity(sample).getValue());
+            }
+            result[i] = v;
+        }
+    }
+
+    /** Splits the samples in half until the pieces are small enough. */
+    private class MaxVelocityTask extends RecursiveAction {
+        private final List<Pose2dWithMotion> m_samples;
+        private final double[] m_result;
+        private final int m_from;
+        private final int m_to;
+
+        MaxVelocityTask(List<Pose2dWithMotion> samples, double[] result, int from, int to) {
+            m_samples = samples;
+            m_result = result;
+            m_from = from;
+            m_to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (m_to - m_from <= CHUNK) {
+                maxVelocities(m_samples, m_result, m_from, m_to);
+                return;
+            }
+            int mid = (m_from + m_to) >>> 1;
+            invokeAll(
+                    new MaxVelocityTask(m_samples, m_result, m_from, mid),
+                    new MaxVelocityTask(m_samples, m_result, mid, m_to));
+        }
+    }
+
     /**
      * Backwards pass
      */
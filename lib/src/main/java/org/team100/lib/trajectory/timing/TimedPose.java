@@ -1,8 +1,10 @@
 package org.team100.lib.trajectory.timing;
 
 import org.team100.lib.geometry.Pose2dWithMotion;
+import org.team100.lib.trajectory.timing.struct.TimedPoseStruct;
 
 import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.util.struct.StructSerializable;
 
 /**
  * Represents a state within a 2d holonomic trajectory, i.e. with heading
@@ -10,7 +12,10 @@ import edu.wpi.first.math.MathUtil;
  * 
  * The timing fields are set by the ScheduleGenerator.
  */
-public class TimedPose {
+public class TimedPose implements StructSerializable {
+    /** TimedPose struct for serialization. */
+    public static final TimedPoseStruct struct = new TimedPoseStruct();
+
     private final Pose2dWithMotion m_state;
     /** Time we achieve this state. */
     private final double m_timeS;
@@ -11,6 +11,11 @@ import org.team100.lib.geometry.Pose2dWithMotion;
 public interface TimingConstraint {
     /**
      * Maximum allowed velocity m/s.  This is always non-negative.
+     * 
+     * ScheduleGenerator may call this from several threads at once, so it
+     * shouldn't have side effects, and any mutable state it reads must be
+     * safely published, e.g. volatile like Mutable. Mutable values may change
+     * during a schedule, since they're polled on the main thread.
      */
     NonNegativeDouble getMaxVelocity(Pose2dWithMotion state);
 
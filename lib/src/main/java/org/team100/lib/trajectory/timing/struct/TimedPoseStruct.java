@@ -0,0 +1,79 @@
+package org.team100.lib.trajectory.timing.struct;
+
+import java.nio.ByteBuffer;
+
+import org.team100.lib.geometry.HolonomicPose2d;
+import org.team100.lib.geometry.Pose2dWithMotion;
+import org.team100.lib.trajectory.timing.TimedPose;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.util.struct.Struct;
+
+/**
+ * The pose part is laid out like Pose2d (translation then heading), so tools
+ * that understand Pose2d can read it; the course is separate.
+ */
+public class TimedPoseStruct implements Struct<TimedPose> {
+    @Override
+    public Class<TimedPose> getTypeClass() {
+        return TimedPose.class;
+    }
+
+    @Override
+    public String getTypeName() {
+        return "TimedPose";
+    }
+
+    @Override
+    public int getSize() {
+        return Translation2d.struct.getSize()
+                + Rotation2d.struct.getSize() * 2
+                + kSizeDouble * 6;
+    }
+
+    @Override
+    public String getSchema() {
+        return "Translation2d translation;Rotation2d heading;Rotation2d course;"
+                + "double headingRate;double curvature;double dcurvature;"
+                + "double time;double velocity;double accel";
+    }
+
+    @Override
+    public Struct<?>[] getNested() {
+        return new Struct<?>[] { Translation2d.struct, Rotation2d.struct };
+    }
+
+    @Override
+    public TimedPose unpack(ByteBuffer bb) {
+        Translation2d translation = Translation2d.struct.unpack(bb);
+        Rotation2d heading = Rotation2d.struct.unpack(bb);
+        Rotation2d course = Rotation2d.struct.unpack(bb);
+        double headingRate = bb.getDouble();
+        double curvature = bb.getDouble();
+        double dcurvature = bb.getDouble();
+        double time = bb.getDouble();
+        double velocity = bb.getDouble();
+        double accel = bb.getDouble();
+        return new TimedPose(
+                new Pose2dWithMotion(
+                        new HolonomicPose2d(translation, heading, course),
+                        headingRate, curvature, dcurvature),
+                time, velocity, accel);
+    }
+
+    @Override
+    public void pack(ByteBuffer bb, TimedPose value) {
+        Pose2dWithMotion state = value.state();
+        HolonomicPose2d pose = state.getPose();
+        Translation2d.struct.pack(bb, pose.translation());
+        Rotation2d.struct.pack(bb, pose.heading());
+        Rotation2d.struct.pack(bb, pose.course());
+        bb.putDouble(state.getHeadingRateRad_M());
+        bb.putDouble(state.getCurvature());
+        bb.putDouble(state.getDCurvatureDs());
+        bb.putDouble(value.getTimeS());
+        bb.putDouble(value.velocityM_S());
+        bb.putDouble(value.acceleration());
+    }
+}
@@ -1,12 +1,12 @@
 package org.team100.lib.tuning;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.DoubleConsumer;
 import java.util.function.DoubleSupplier;
 
-import org.team100.lib.coherence.Cache;
-import org.team100.lib.coherence.DoubleCache;
 import org.team100.lib.logging.LoggerFactory;
 
 import edu.wpi.first.networktables.DoubleEntry;
@@ -19,13 +19,22 @@ import edu.wpi.first.networktables.NetworkTableInstance;
  * Use the DoubleSupplier API for polling.
  * Provide a DoubleConsumer to get called on changes.
  * Values do not survive restarts.
+ * 
+ * Network Tables is polled by pollAll(), which TimedRobot100 runs as
+ * best-effort work, not in the main loop, so tuning doesn't cost the control
+ * loop anything. The value changes only when pollAll() runs, so it's the same
+ * for every reader within a loop.
+ * 
+ * The value is volatile, because it's also read off the main thread, e.g. by
+ * trajectory constraints in the planning service and in the fork-join pool.
  */
 public class Mutable implements DoubleSupplier {
     private static final boolean FATAL = false;
     private static final Map<String, DoubleEntry> ALL_ENTRIES = new HashMap<>();
+    private static final List<Mutable> ALL_MUTABLES = new ArrayList<>();
     private final DoubleEntry m_entry;
     private final DoubleConsumer m_onChange;
-    private final DoubleCache m_cache;
+    private volatile double m_value;
 
     public Mutable(LoggerFactory log, String leaf, double defaultValue, DoubleConsumer onChange) {
         if (onChange == null)
@@ -35,7 +44,8 @@ public class Mutable implements DoubleSupplier {
         String name = log.root(leaf);
         m_entry = getEntry(inst, name, defaultValue);
         m_onChange = onChange;
-        m_cache = Cache.ofDouble(this::update);
+        m_value = m_entry.get();
+        ALL_MUTABLES.add(this);
     }
 
     private static DoubleEntry getEntry(NetworkTableInstance inst, String name, double defaultValue) {
@@ -64,6 +74,14 @@ public class Mutable implements DoubleSupplier {
             e.unpublish();
         }
         ALL_ENTRIES.clear();
+        ALL_MUTABLES.clear();
+    }
+
+    /** Read changes from Network Tables, and notify the consumers. */
+    public static void pollAll() {
+        for (int i = 0; i < ALL_MUTABLES.size(); ++i) {
+            ALL_MUTABLES.get(i).poll();
+        }
     }
 
     /** if you don't care to subscribe to changes */
@@ -75,16 +93,15 @@ public class Mutable implements DoubleSupplier {
     /** Supply the current value. */
     @Override
     public double getAsDouble() {
-        return m_cache.getAsDouble();
+        return m_value;
     }
 
-    /** Updates the cache and also notifies the consumer. */
-    private double update() {
+    /** Updates the value and also notifies the consumer. */
+    private void poll() {
         double[] queue = m_entry.readQueueValues();
-        double val = m_entry.get();
+        m_value = m_entry.get();
         if (queue.length > 0)
-            m_onChange.accept(val);
-        return val;
+            m_onChange.accept(m_value);
     }
 
 }
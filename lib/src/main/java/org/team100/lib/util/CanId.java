@@ -8,8 +8,15 @@ package org.team100.lib.util;
  */
 public class CanId {
     public final int id;
+    /** CAN bus name: "" for the RoboRIO bus, or the name of a CANivore. */
+    public final String bus;
 
     public CanId(int id) {
+        this(id, "");
+    }
+
+    public CanId(int id, String bus) {
         this.id = id;
+        this.bus = bus;
     }
 }
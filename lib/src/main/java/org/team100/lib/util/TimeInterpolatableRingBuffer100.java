@@ -0,0 +1,281 @@
+package org.team100.lib.util;
+
+import java.util.concurrent.locks.StampedLock;
+
+import edu.wpi.first.math.interpolation.Interpolatable;
+
+/**
+ * Same semantics as {@link TimeInterpolatableBuffer100}, but stored in a
+ * fixed-capacity ring of parallel arrays (timestamps and values), ordered by
+ * time, so nothing is boxed, and put() doesn't allocate map nodes.
+ *
+ * Lookup is binary search. Appending the newest entry (the usual odometry
+ * case) is a store; inserting in the middle (vision) shifts the newer
+ * entries, of which there are only a few.
+ *
+ * Writers take the write lock. Readers use an optimistic read (like a
+ * seqlock): read without locking, and retry if a write happened meanwhile.
+ *
+ * The index-based methods (e.g. {@link #valueAt(int)}) don't lock, so they're
+ * only consistent when called from the writer thread, i.e. for history
+ * maintenance, like replay.
+ *
+ * If the buffer fills up, the oldest entry is dropped, so choose a capacity
+ * that comfortably covers the history duration at the maximum put rate.
+ */
+public class TimeInterpolatableRingBuffer100<T extends Interpolatable<T>> {
+    private static final boolean DEBUG = false;
+
+    private final double m_historyS;
+    private final int m_capacity;
+    /** Timestamps in seconds, indexed by physical slot. */
+    private final double[] m_times;
+    /** Values, indexed by physical slot. */
+    private final Object[] m_values;
+    private final StampedLock m_lock = new StampedLock();
+
+    /** Physical slot of the oldest entry. */
+    private int m_head;
+    /** Never zero after construction. */
+    private int m_size;
+
+    public TimeInterpolatableRingBuffer100(
+            int capacity,
+            double historyS,
+            double timeS,
+            T initialValue) {
+        if (capacity < 2)
+            throw new IllegalArgumentException("capacity must be at least 2");
+        m_historyS = historyS;
+        m_capacity = capacity;
+        m_times = new double[capacity];
+        m_values = new Object[capacity];
+        m_times[0] = timeS;
+        m_values[0] = initialValue;
+        m_head = 0;
+        m_size = 1;
+    }
+
+    /**
+     * Remove stale entries and add the new one. If there's already an entry at
+     * this time, replace it.
+     */
+    public void put(double timeS, T value) {
+        if (DEBUG) {
+            System.out.printf("put %f %s\n", timeS, value);
+        }
+        long stamp = m_lock.writeLock();
+        try {
+            // evict stale entries
+            while (m_size > 0) {
+                double oldestAgeS = timeS - m_times[m_head];
+                // if oldest is younger than the history limit, we're done
+                if (oldestAgeS < m_historyS)
+                    break;
+                removeOldest();
+            }
+            int i = search(timeS);
+            if (i >= 0) {
+                // replace
+                m_values[slot(i)] = value;
+                return;
+            }
+            int insertion = -(i + 1);
+            if (m_size == m_capacity) {
+                if (insertion == 0) {
+                    // older than everything in a full buffer; it would be dropped anyway.
+                    return;
+                }
+                removeOldest();
+                insertion--;
+            }
+            // shift newer entries up by one, newest first.
+            for (int j = m_size; j > insertion; --j) {
+                int to = slot(j);
+                int from = slot(j - 1);
+                m_times[to] = m_times[from];
+                m_values[to] = m_values[from];
+            }
+            int s = slot(insertion);
+            m_times[s] = timeS;
+            m_values[s] = value;
+            m_size++;
+        } finally {
+            m_lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove all entries and add the new one.
+     */
+    public void reset(double timeS, T value) {
+        if (DEBUG) {
+            System.out.printf("reset %f %s\n", timeS, value);
+        }
+        long stamp = m_lock.writeLock();
+        try {
+            while (m_size > 0) {
+                removeOldest();
+            }
+            m_head = 0;
+            m_times[0] = timeS;
+            m_values[0] = value;
+            m_size = 1;
+        } finally {
+            m_lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Sample the buffer at the given time.
+     */
+    public T get(double timeSeconds) {
+        T bottom = null;
+        T top = null;
+        double bottomTime = 0;
+        double topTime = 0;
+        // First try without locking. These reads may be torn by a concurrent
+        // write, in which case validate() fails, and we do it again with the lock.
+        long stamp = m_lock.tryOptimisticRead();
+        boolean locked = false;
+        try {
+            while (true) {
+                bottom = null;
+                top = null;
+                int i = search(timeSeconds);
+                if (i >= 0) {
+                    // Special case for when the requested time is the same as a sample
+                    bottom = valueAt(i);
+                } else {
+                    int insertion = -(i + 1);
+                    if (insertion > 0) {
+                        bottomTime = timeAt(insertion - 1);
+                        bottom = valueAt(insertion - 1);
+                    }
+                    if (insertion < m_size) {
+                        topTime = timeAt(insertion);
+                        top = valueAt(insertion);
+                    }
+                }
+                if (locked || m_lock.validate(stamp))
+                    break;
+                stamp = m_lock.readLock();
+                locked = true;
+            }
+        } finally {
+            if (locked)
+                m_lock.unlockRead(stamp);
+        }
+        if (top == null && bottom == null) {
+            throw new IllegalStateException();
+        }
+        // Return the opposite bound if the other is null
+        if (top == null) {
+            return bottom;
+        }
+        if (bottom == null) {
+            return top;
+        }
+        double timeFraction = (timeSeconds - bottomTime) / (topTime - bottomTime);
+        if (DEBUG) {
+            System.out.printf("interpolate %f\n", timeFraction);
+        }
+        return bottom.interpolate(top, timeFraction);
+    }
+
+    /** True if the timestamp is older than the history window. */
+    public boolean tooOld(double timestampS) {
+        double oldestAcceptableS = lastKey() - m_historyS;
+        return timestampS < oldestAcceptableS;
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    /** Timestamp of the most-recent entry. */
+    public double lastKey() {
+        long stamp = m_lock.tryOptimisticRead();
+        // a torn read might see zero size, so stay in bounds.
+        double result = m_times[slot(Math.max(0, m_size - 1))];
+        if (!m_lock.validate(stamp)) {
+            stamp = m_lock.readLock();
+            try {
+                result = m_times[slot(m_size - 1)];
+            } finally {
+                m_lock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    /////////////////////////////////////////////////////
+    //
+    // Index-based access, for the writer thread. Indices are logical, oldest
+    // first, and they're only valid until the next put() or reset().
+    //
+
+    /** Index of the newest entry strictly older than t, or -1 if none. */
+    public int lowerIndex(double t) {
+        int i = search(t);
+        if (i >= 0)
+            return i - 1;
+        return -(i + 1) - 1;
+    }
+
+    /** Index of the oldest entry strictly newer than t, or size() if none. */
+    public int higherIndex(double t) {
+        int i = search(t);
+        if (i >= 0)
+            return i + 1;
+        return -(i + 1);
+    }
+
+    public double timeAt(int i) {
+        return m_times[slot(i)];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T valueAt(int i) {
+        return (T) m_values[slot(i)];
+    }
+
+    /////////////////////////////////////////////////////
+
+    /** Physical slot for logical index i. */
+    private int slot(int i) {
+        int s = m_head + i;
+        if (s >= m_capacity)
+            s -= m_capacity;
+        return s;
+    }
+
+    private void removeOldest() {
+        m_values[m_head] = null;
+        m_head = slot(1);
+        m_size--;
+    }
+
+    /**
+     * Binary search over the logical indices, like
+     * {@link java.util.Arrays#binarySearch(double[], double)}: the index of t if
+     * present, otherwise (-(insertion point) - 1).
+     *
+     * With a torn read, the result is garbage but in bounds.
+     */
+    private int search(double t) {
+        int low = 0;
+        int high = Math.min(m_size, m_capacity) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            double midVal = m_times[slot(mid)];
+            if (midVal < t)
+                low = mid + 1;
+            else if (midVal > t)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+}
@@ -2,12 +2,11 @@ package org.team100.lib.visualization;
 
 import java.util.List;
 
-import org.team100.lib.geometry.HolonomicPose2d;
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.LoggerFactory.DoubleArrayLogger;
+import org.team100.lib.trajectory.PackedTrajectory;
 import org.team100.lib.trajectory.Trajectory100;
-import org.team100.lib.trajectory.timing.TimedPose;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.trajectory.Trajectory;
@@ -29,13 +28,14 @@ public class TrajectoryVisualization {
     }
 
     private static double[] fromTrajectory100(Trajectory100 m_trajectory) {
-        double[] arr = new double[m_trajectory.length() * 3];
+        // The columns are quicker to walk than the TimedPose objects.
+        PackedTrajectory packed = m_trajectory.packed();
+        double[] arr = new double[packed.length() * 3];
         int ndx = 0;
-        for (TimedPose p : m_trajectory.getPoints()) {
-            HolonomicPose2d pose = p.state().getPose();
-            arr[ndx + 0] = pose.translation().getX();
-            arr[ndx + 1] = pose.translation().getY();
-            arr[ndx + 2] = pose.heading().getDegrees();
+        for (int i = 0; i < packed.length(); ++i) {
+            arr[ndx + 0] = packed.x(i);
+            arr[ndx + 1] = packed.y(i);
+            arr[ndx + 2] = Math.toDegrees(packed.heading(i));
             ndx += 3;
         }
         return arr;
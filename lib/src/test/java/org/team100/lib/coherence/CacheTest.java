@@ -0,0 +1,126 @@
+package org.team100.lib.coherence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CacheTest {
+    private static final double DELTA = 0.001;
+
+    private int m_calls;
+
+    @BeforeEach
+    void setup() {
+        Cache.clear();
+        m_calls = 0;
+    }
+
+    @AfterEach
+    void teardown() {
+        Cache.setInstrumented(false);
+        Cache.clear();
+    }
+
+    /** Eager caches are evaluated by refresh(), whether anyone reads them or not. */
+    @Test
+    void testEager() {
+        DoubleCache c = Cache.ofDouble(() -> ++m_calls);
+        Cache.refresh();
+        assertEquals(1, m_calls);
+        assertEquals(1, c.getAsDouble(), DELTA);
+        assertEquals(1, c.getAsDouble(), DELTA);
+        assertEquals(1, m_calls);
+        Cache.refresh();
+        assertEquals(2, m_calls);
+    }
+
+    /** Lazy caches are evaluated on the first read, and not at all if unread. */
+    @Test
+    void testLazy() {
+        DoubleCache c = Cache.ofLazyDouble("lazy", () -> ++m_calls);
+        Cache.refresh();
+        assertEquals(0, m_calls);
+        assertEquals(1, c.getAsDouble(), DELTA);
+        assertEquals(1, c.getAsDouble(), DELTA);
+        assertEquals(1, m_calls);
+        // refresh invalidates it
+        Cache.refresh();
+        assertEquals(1, m_calls);
+        assertEquals(2, c.getAsDouble(), DELTA);
+        // unread cycle
+        Cache.refresh();
+        Cache.refresh();
+        assertEquals(2, m_calls);
+    }
+
+    /** A lazy cache that depends on another one evaluates it on demand. */
+    @Test
+    void testLazyDependency() {
+        ObjectCache<Integer> a = Cache.ofLazy("a", () -> ++m_calls);
+        ObjectCache<Integer> b = Cache.ofLazy("b", () -> 10 * a.get());
+        Cache.refresh();
+        assertEquals(0, m_calls);
+        assertEquals(10, b.get());
+        assertEquals(1, a.get());
+        assertEquals(1, m_calls);
+    }
+
+    @Test
+    void testInstrumented() {
+        Cache.setInstrumented(true);
+        DoubleCache read = Cache.ofDouble("read", () -> ++m_calls);
+        DoubleCache unread = Cache.ofDouble("unread", () -> 0);
+        DoubleCache lazy = Cache.ofLazyDouble("lazy", () -> 0);
+        SideEffect effect = Cache.ofSideEffect("effect", () -> {
+        });
+        Cache.refresh();
+        read.getAsDouble();
+        read.getAsDouble();
+        lazy.getAsDouble();
+        effect.run();
+
+        assertEquals(1, read.getStats().getEvaluations());
+        assertEquals(2, read.getStats().getReads());
+        assertEquals(1, unread.getStats().getEvaluations());
+        assertEquals(0, unread.getStats().getReads());
+        assertEquals(1, lazy.getStats().getEvaluations());
+        assertEquals(1, lazy.getStats().getReads());
+        assertEquals(1, effect.getStats().getEvaluations());
+        assertEquals(1, effect.getStats().getReads());
+
+        // the next refresh logs and clears the stats
+        Cache.refresh();
+        assertEquals(1, read.getStats().getEvaluations());
+        assertEquals(0, read.getStats().getReads());
+        assertEquals(0, lazy.getStats().getEvaluations());
+    }
+
+    /** Without instrumentation, nothing is counted. */
+    @Test
+    void testUninstrumented() {
+        DoubleCache c = Cache.ofDouble("c", () -> 0);
+        Cache.refresh();
+        c.getAsDouble();
+        assertEquals(0, c.getStats().getEvaluations());
+        assertEquals(0, c.getStats().getReads());
+    }
+
+    /** Unnamed caches are named for their creator, and names are never reused. */
+    @Test
+    void testUnnamed() {
+        ObjectCache<Integer> a = Cache.of(() -> 0);
+        ObjectCache<Integer> b = Cache.of(() -> 0);
+        Cache.removeObjectCache(a);
+        ObjectCache<Integer> c = Cache.of(() -> 0);
+        DoubleCache d = Cache.ofDouble(() -> 0);
+        assertTrue(a.getStats().getName().startsWith("CacheTest "));
+        assertNotEquals(a.getStats().getName(), b.getStats().getName());
+        assertNotEquals(a.getStats().getName(), c.getStats().getName());
+        assertNotEquals(b.getStats().getName(), c.getStats().getName());
+        assertNotEquals(c.getStats().getName(), d.getStats().getName());
+    }
+}
@@ -0,0 +1,102 @@
+package org.team100.lib.coherence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+import com.ctre.phoenix6.StatusCode;
+
+class SignalRefresherTest {
+    private static final boolean DEBUG = false;
+
+    /** Bus group size -> thread that refreshed it. The fake ignores the signals. */
+    private final Map<Integer, Thread> m_threads = new ConcurrentHashMap<>();
+
+    private StatusCode slowRefresh(double timeoutS, Object[] signals) {
+        m_threads.put(signals.length, Thread.currentThread());
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return StatusCode.OK;
+    }
+
+    @Test
+    void testGroups() {
+        SignalRefresher r = new SignalRefresher(this::slowRefresh);
+        // "" and "rio" are the same bus. The fake doesn't look at the signals.
+        r.register("", null);
+        r.register("rio", null);
+        r.register("canivore", null);
+        assertEquals(2, r.groupCount());
+        r.refresh();
+        // rio group runs on the caller's thread
+        assertEquals(Thread.currentThread(), m_threads.get(2));
+        // canivore group runs on its own thread
+        assertNotEquals(Thread.currentThread(), m_threads.get(1));
+        r.close();
+    }
+
+    @Test
+    void testSerial() {
+        SignalRefresher r = new SignalRefresher(this::slowRefresh);
+        r.register("", null);
+        r.register("canivore", null);
+        r.register("canivore", null);
+        r.setParallel(false);
+        r.refresh();
+        assertEquals(Thread.currentThread(), m_threads.get(1));
+        assertEquals(Thread.currentThread(), m_threads.get(2));
+    }
+
+    /** Without waiting, the timeout is zero; with waiting, it's positive. */
+    @Test
+    void testWait() {
+        double[] timeout = new double[1];
+        SignalRefresher r = new SignalRefresher((t, s) -> {
+            timeout[0] = t;
+            return StatusCode.OK;
+        });
+        r.register("", null);
+        r.refresh();
+        assertEquals(0, timeout[0]);
+        Takt.update();
+        r.setWait(1);
+        r.refresh();
+        assertTrue(timeout[0] > 0);
+        assertTrue(timeout[0] <= 1);
+    }
+
+    /** The parallel refresh takes about as long as the slowest bus. */
+    @Test
+    void testPerformance() {
+        SignalRefresher parallel = new SignalRefresher(this::slowRefresh);
+        SignalRefresher serial = new SignalRefresher(this::slowRefresh);
+        for (String bus : new String[] { "rio", "a", "b" }) {
+            parallel.register(bus, null);
+            serial.register(bus, null);
+        }
+        serial.setParallel(false);
+        int loops = 20;
+        long start = System.nanoTime();
+        for (int i = 0; i < loops; ++i) {
+            serial.refresh();
+        }
+        long serialEnd = System.nanoTime();
+        for (int i = 0; i < loops; ++i) {
+            parallel.refresh();
+        }
+        long parallelEnd = System.nanoTime();
+        parallel.close();
+        if (DEBUG) {
+            System.out.printf("serial (ms/loop) %.3f\n", (double) (serialEnd - start) / loops / 1e6);
+            System.out.printf("parallel (ms/loop) %.3f\n", (double) (parallelEnd - serialEnd) / loops / 1e6);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.team100.lib.framework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+
+public class LoopProfilerTest {
+    private static final boolean DEBUG = false;
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+
+    /** Every duration lands in a bucket whose bounds contain it. */
+    @Test
+    void testBucket() {
+        assertEquals(0, LoopProfiler.bucket(-1));
+        assertEquals(0, LoopProfiler.bucket(0));
+        assertEquals(15, LoopProfiler.bucket(15));
+        assertEquals(16, LoopProfiler.bucket(16));
+        assertEquals(LoopProfiler.BUCKETS - 1, LoopProfiler.bucket(Long.MAX_VALUE));
+        int previous = 0;
+        for (long ns = 1; ns < 4_000_000_000L; ns = ns * 9 / 8 + 1) {
+            int b = LoopProfiler.bucket(ns);
+            assertTrue(b >= previous);
+            previous = b;
+            assertTrue(LoopProfiler.lowerBound(b) <= ns);
+            if (b < LoopProfiler.BUCKETS - 1) {
+                assertTrue(ns < LoopProfiler.lowerBound(b + 1));
+                // about 6% resolution
+                assertTrue(LoopProfiler.lowerBound(b + 1) - LoopProfiler.lowerBound(b)
+                        <= Math.max(1, ns / 16));
+            }
+        }
+    }
+
+    @Test
+    void testPercentiles() {
+        LoopProfiler p = new LoopProfiler(logger);
+        int phase = p.phase("test", 0.0095);
+        // 1 to 10 ms, in 10 us steps
+        for (int i = 1; i <= 1000; ++i) {
+            p.record(phase, i * 10_000L);
+        }
+        assertEquals(0.005, p.percentile(phase, 0.5), 0.0003);
+        assertEquals(0.0099, p.percentile(phase, 0.99), 0.0006);
+        assertEquals(0.01, p.max(phase), 1e-12);
+        // 9.51 ms and up
+        assertEquals(50, p.overruns(phase));
+        // publishing starts a new window
+        p.publish();
+        assertEquals(0, p.percentile(phase, 0.5), 1e-12);
+        assertEquals(0, p.max(phase), 1e-12);
+        assertEquals(0, p.overruns(phase));
+    }
+
+    @Test
+    void testMarkers() throws InterruptedException {
+        LoopProfiler p = new LoopProfiler(logger);
+        int phase = p.phase("sleep");
+        assertEquals(phase, p.phase("sleep"));
+        p.begin(phase);
+        Thread.sleep(2);
+        p.end(phase);
+        assertTrue(p.max(phase) >= 0.002);
+        assertEquals(0, p.overruns(phase));
+        // disabled markers don't record anything
+        p.publish();
+        p.setEnabled(false);
+        p.begin(phase);
+        Thread.sleep(2);
+        p.end(phase);
+        assertEquals(0, p.max(phase), 1e-12);
+    }
+
+    @Test
+    void testDump() throws IOException {
+        LoopProfiler p = new LoopProfiler(logger);
+        int a = p.phase("a");
+        int b = p.phase("b");
+        p.record(a, 1_000_000);
+        p.record(b, 30_000_000);
+        p.defer(b);
+        p.defer(b);
+        assertEquals(2, p.deferred(b));
+        // the window doesn't affect the totals
+        p.publish();
+        assertEquals(0, p.deferred(b));
+        Path dir = Files.createTempDirectory("profile");
+        try {
+            Path path = p.dump(dir);
+            List<String> lines = Files.readAllLines(path);
+            assertEquals(3, lines.size());
+            // phase, count, mean, p50, p99, max, overruns, deferred
+            String[] rowA = lines.get(1).trim().split("\\s+");
+            String[] rowB = lines.get(2).trim().split("\\s+");
+            assertEquals(8, rowA.length);
+            assertEquals(8, rowB.length);
+            assertEquals("a", rowA[0]);
+            assertEquals("1", rowA[1]);
+            assertEquals("0", rowA[6]);
+            assertEquals("0", rowA[7]);
+            assertEquals("b", rowB[0]);
+            assertEquals("1", rowB[1]);
+            // over the 20 ms default budget
+            assertEquals("1", rowB[6]);
+            assertEquals("2", rowB[7]);
+            if (DEBUG) {
+                lines.forEach(System.out::println);
+            }
+            Files.delete(path);
+        } finally {
+            Files.delete(dir);
+        }
+    }
+
+    /** Only the newest dumps are kept, and other files are left alone. */
+    @Test
+    void testDumpKeepsLast() throws IOException {
+        LoopProfiler p = new LoopProfiler(logger);
+        Path dir = Files.createTempDirectory("profile");
+        try {
+            // older dumps, by name
+            for (int i = 0; i < LoopProfiler.MAX_DUMPS + 5; ++i) {
+                Files.writeString(dir.resolve("profile-" + (1000 + i) + ".txt"), "");
+            }
+            Files.writeString(dir.resolve("profile-notes.txt"), "");
+            Path path = p.dump(dir);
+            assertTrue(Files.exists(path));
+            assertTrue(Files.exists(dir.resolve("profile-notes.txt")));
+            assertFalse(Files.exists(dir.resolve("profile-1000.txt")));
+            assertFalse(Files.exists(dir.resolve("profile-1005.txt")));
+            assertTrue(Files.exists(dir.resolve("profile-1006.txt")));
+            try (Stream<Path> files = Files.list(dir)) {
+                assertEquals(LoopProfiler.MAX_DUMPS + 1, files.count());
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path f : files.toList()) {
+                    Files.delete(f);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    /** A begin/end pair must cost well under a microsecond. */
+    @Test
+    void testPerformance() {
+        LoopProfiler p = new LoopProfiler(logger);
+        int phase = p.phase("empty");
+        int iterations = 1000000;
+        // warm up
+        for (int i = 0; i < iterations; ++i) {
+            p.begin(phase);
+            p.end(phase);
+        }
+        long startTime = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            p.begin(phase);
+            p.end(phase);
+        }
+        long endTime = System.nanoTime();
+        if (DEBUG) {
+            System.out.printf("begin/end pair (ns) %8.1f\n", (double) (endTime - startTime) / iterations);
+            System.out.printf("p50 (ns) %8.1f\n", p.percentile(phase, 0.5) * 1e9);
+        }
+    }
+}
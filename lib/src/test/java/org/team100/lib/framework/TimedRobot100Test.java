@@ -0,0 +1,57 @@
+package org.team100.lib.framework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.coherence.Takt;
+import org.team100.lib.framework.TimedRobot100.Callback;
+import org.team100.lib.framework.TimedRobot100.Priority;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.testing.Timeless;
+
+public class TimedRobot100Test implements Timeless {
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+
+    /** A slow run makes the callback not fit, until deferrals decay the estimate. */
+    @Test
+    void testFits() {
+        Callback c = new Callback(logger, () -> {
+        }, Takt.actual(), 0.02, 0.01, "slow", Priority.BEST_EFFORT);
+        assertTrue(c.fits(0.002));
+        // a 5 ms run
+        c.record(5_000_000);
+        assertFalse(c.fits(0.002));
+        assertTrue(c.fits(0.02));
+        int deferrals = 0;
+        while (!c.fits(0.002)) {
+            c.defer();
+            deferrals++;
+        }
+        // 0.005 * 0.9^n < 0.001 first at n = 16
+        assertEquals(16, deferrals);
+    }
+
+    /** CONTROL callbacks catch up, BEST_EFFORT callbacks skip ahead. */
+    @Test
+    void testAdvance() {
+        double start = Takt.actual();
+        Callback control = new Callback(logger, () -> {
+        }, start, 0.02, 0, "control", Priority.CONTROL);
+        Callback bestEffort = new Callback(logger, () -> {
+        }, start, 0.02, 0.01, "best effort", Priority.BEST_EFFORT);
+        double controlTime = control.expirationTime;
+        double bestEffortTime = bestEffort.expirationTime;
+        // more than five periods late
+        double now = bestEffortTime + 0.105;
+        control.advance(now);
+        assertEquals(controlTime + 0.02, control.expirationTime, 1e-9);
+        bestEffort.advance(now);
+        // still on the original schedule
+        assertEquals(bestEffortTime + 0.12, bestEffort.expirationTime, 1e-9);
+        assertTrue(bestEffort.expirationTime > now);
+    }
+}
@@ -4,7 +4,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.util.Map;
 
+import org.ejml.data.DMatrixRMaj;
 import org.junit.jupiter.api.Test;
+import org.team100.lib.geometry.GeometryUtil;
 import org.team100.lib.subsystems.lynxmotion_arm.LynxArmConfig;
 import org.team100.lib.testing.TestUtil;
 
@@ -17,6 +19,8 @@ import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.numbers.N5;
 
 public class URDFAL5DTest {
+    private static final boolean DEBUG = false;
+
     @Test
     void testZeroForward() {
         URDFAL5D m = URDFAL5D.make();
@@ -203,4 +207,55 @@ public class URDFAL5DTest {
         m.inverse(c.toVec(), 2, "center_point", goal);
     }
 
+    /** The analytic Jacobian matches finite differences of the body twist. */
+    @Test
+    void testJacobian() {
+        URDFAL5D m = URDFAL5D.make();
+        Vector<N5> q = VecBuilder.fill(0.3, -1.9, 1.5, 1.1, 0.4);
+        DMatrixRMaj j = new DMatrixRMaj(6, 5);
+        m.jacobian(q, "center_point", j);
+        Pose3d base = m.forward(m.qMap(q)).get("center_point");
+        double h = 1e-6;
+        for (int col = 0; col < 5; ++col) {
+            Vector<N5> q1 = new Vector<>(q.getStorage().copy());
+            q1.set(col, 0, q.get(col) + h);
+            Pose3d moved = m.forward(m.qMap(q1)).get("center_point");
+            Vector<?> twist = GeometryUtil.toVec(base.log(moved));
+            for (int row = 0; row < 6; ++row) {
+                assertEquals(twist.get(row) / h, j.get(row, col), 1e-5);
+            }
+        }
+    }
+
+    /** Re-solving for a moving goal, starting from the previous solution. */
+    @Test
+    void testWarmStartPerformance() {
+        URDFAL5D m = URDFAL5D.make();
+        Vector<N5> q = VecBuilder.fill(0.1, 0.1, 0.1, 0.1, 0.1);
+        Map<String, Double> qMap = m.inverse(q, 2, "center_point",
+                new Pose3d(0.2, 0.0, 0.1, new Rotation3d()));
+        int iterations = 1000;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            // a slow circle in the horizontal plane
+            double angle = 0.5 * Math.sin(0.002 * i);
+            Pose3d goal = new Pose3d(0.2 * Math.cos(angle), 0.2 * Math.sin(angle), 0.1,
+                    new Rotation3d(0, 0, angle));
+            q = VecBuilder.fill(
+                    qMap.get("base_pan"),
+                    qMap.get("shoulder_tilt"),
+                    qMap.get("elbow_tilt"),
+                    qMap.get("wrist_tilt"),
+                    qMap.get("wrist_rotate"));
+            qMap = m.inverse(q, 2, "center_point", goal);
+        }
+        long finishTime = System.nanoTime();
+        if (DEBUG) {
+            System.out.printf("ET/call (us): %6.3f\n", (finishTime - startTime) / 1000.0 / iterations);
+        }
+        Pose3d p = m.forward(qMap).get("center_point");
+        double angle = 0.5 * Math.sin(0.002 * (iterations - 1));
+        assertEquals(0.2 * Math.cos(angle), p.getX(), 2e-3);
+        assertEquals(0.2 * Math.sin(angle), p.getY(), 2e-3);
+    }
 }
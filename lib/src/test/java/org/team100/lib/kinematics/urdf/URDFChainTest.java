@@ -0,0 +1,135 @@
+package org.team100.lib.kinematics.urdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.geometry.GeometryUtil;
+
+import edu.wpi.first.math.Vector;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+
+public class URDFChainTest {
+    private static final boolean DEBUG = false;
+
+    /** The compiled chain agrees with composing the joint transforms. */
+    @Test
+    void testForward() {
+        Random random = new Random(0);
+        for (URDFRobot<?> m : List.of(URDFAL5D.make(), URDFCartesian.make())) {
+            List<URDFJoint> joints = m.joints();
+            URDFChain chain = m.chain();
+            double[] poses = new double[joints.size() * URDFChain.STRIDE];
+            for (int k = 0; k < 100; ++k) {
+                double[] q = random(joints, random);
+                chain.forward(q, poses);
+                for (int i = 0; i < joints.size(); ++i) {
+                    Pose3d expected = slowForward(m, q, joints.get(i));
+                    verify(expected, URDFChain.get(poses, i));
+                }
+            }
+        }
+    }
+
+    /** Same as Pose3d.log(). */
+    @Test
+    void testLog() {
+        Random random = new Random(0);
+        double[] a = new double[URDFChain.STRIDE];
+        double[] b = new double[URDFChain.STRIDE];
+        double[] twist = new double[6];
+        for (int k = 0; k < 100; ++k) {
+            Pose3d pa = new Pose3d(random.nextDouble(), random.nextDouble(), random.nextDouble(),
+                    new Rotation3d(random.nextDouble(), random.nextDouble(), random.nextDouble()));
+            // include some small differences
+            double scale = k % 2 == 0 ? 1 : 1e-6;
+            Pose3d pb = new Pose3d(
+                    pa.getX() + scale * random.nextDouble(),
+                    pa.getY() + scale * random.nextDouble(),
+                    pa.getZ() + scale * random.nextDouble(),
+                    pa.getRotation().plus(new Rotation3d(
+                            scale * random.nextDouble(),
+                            scale * random.nextDouble(),
+                            scale * random.nextDouble())));
+            URDFChain.set(pa, a, 0);
+            URDFChain.set(pb, b, 0);
+            URDFChain.log(a, 0, b, 0, twist);
+            Vector<?> expected = GeometryUtil.toVec(pa.log(pb));
+            for (int i = 0; i < 6; ++i) {
+                assertEquals(expected.get(i), twist[i], 1e-9);
+            }
+        }
+    }
+
+    /** Map API vs the compiled chain, for the AL5D arm. */
+    @Test
+    void testPerformance() {
+        URDFAL5D m = URDFAL5D.make();
+        Map<String, Double> qMap = Map.of(
+                "base_pan", 0.1,
+                "shoulder_tilt", -2.0,
+                "elbow_tilt", 2.5,
+                "wrist_tilt", -0.4,
+                "wrist_rotate", 0.1);
+        double[] q = { 0.1, -2.0, 2.5, -0.4, 0.1 };
+        URDFChain chain = m.chain();
+        double[] poses = new double[m.joints().size() * URDFChain.STRIDE];
+        int iterations = 100000;
+        // warm up
+        for (int i = 0; i < iterations; ++i) {
+            m.forward(qMap);
+            chain.forward(q, poses);
+        }
+        long startTime = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            m.forward(qMap);
+        }
+        long mapTime = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            chain.forward(q, poses);
+        }
+        long chainTime = System.nanoTime();
+        if (DEBUG) {
+            System.out.printf("map     (ns) %8.1f\n", (double) (mapTime - startTime) / iterations);
+            System.out.printf("compiled (ns) %8.1f\n", (double) (chainTime - mapTime) / iterations);
+        }
+        verify(m.forward(qMap).get("center_point"),
+                URDFChain.get(poses, m.joints().size() - 1));
+    }
+
+    private static void verify(Pose3d expected, Pose3d actual) {
+        assertEquals(0, expected.getTranslation().getDistance(actual.getTranslation()), 1e-9);
+        assertEquals(0, expected.getRotation().minus(actual.getRotation()).getAngle(), 1e-9);
+    }
+
+    /** Random configuration within the limits. */
+    private static double[] random(List<URDFJoint> joints, Random random) {
+        double[] q = new double[joints.size()];
+        for (int i = 0; i < joints.size(); ++i) {
+            URDFJoint joint = joints.get(i);
+            if (joint.active()) {
+                double lower = joint.limit().lower();
+                double upper = joint.limit().upper();
+                q[i] = lower + (upper - lower) * random.nextDouble();
+            }
+        }
+        return q;
+    }
+
+    /** The old way: recurse up the parents, composing transforms. */
+    private static Pose3d slowForward(URDFRobot<?> m, double[] q, URDFJoint joint) {
+        Map<URDFLink, URDFJoint> byChild = new HashMap<>();
+        for (URDFJoint j : m.joints()) {
+            byChild.put(j.child(), j);
+        }
+        URDFJoint parent = byChild.get(joint.parent());
+        Pose3d parentPose = parent == null ? Pose3d.kZero : slowForward(m, q, parent);
+        int i = m.joints().indexOf(joint);
+        return parentPose.transformBy(joint.transform(joint.active() ? q[i] : null));
+    }
+}
@@ -11,11 +11,18 @@ import java.util.function.DoubleFunction;
 
 import org.junit.jupiter.api.Test;
 import org.team100.lib.coherence.Takt;
+import org.team100.lib.config.Camera;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.TestLoggerFactory;
 import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.sensor.gyro.MockGyro;
 import org.team100.lib.state.ModelR3;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
+import org.team100.lib.testing.Timeless;
 
+import edu.wpi.first.hal.AllianceStationID;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -23,8 +30,10 @@ import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
 
-class AprilTagRobotLocalizerPerformanceTest {
+class AprilTagRobotLocalizerPerformanceTest implements Timeless {
+    private static final boolean DEBUG = false;
     private static final double DELTA = 0.01;
     private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
 
@@ -77,4 +86,127 @@ class AprilTagRobotLocalizerPerformanceTest {
         assertTrue(true);
     }
 
+    /** Counts the history writes: odometry, vision, and replay. */
+    static class CountingHistory extends SwerveHistory {
+        int puts = 0;
+
+        CountingHistory(SwerveKinodynamics kinodynamics, Pose2d pose) {
+            super(kinodynamics, Rotation2d.kZero, SwerveModulePositions.kZero(), pose, 0);
+        }
+
+        @Override
+        void put(double timestamp, ModelR3 model, SwerveModulePositions positions) {
+            puts++;
+            super.put(timestamp, model, positions);
+        }
+    }
+
+    /** Counts full replays, i.e. those that run to the end of the history. */
+    static class CountingOdometryUpdater extends OdometryUpdater {
+        int replays = 0;
+
+        CountingOdometryUpdater(SwerveKinodynamics kinodynamics, SwerveHistory history) {
+            super(kinodynamics, new MockGyro(), history, SwerveModulePositions::kZero);
+        }
+
+        @Override
+        void replay(double timestamp, double untilS) {
+            if (untilS == Double.POSITIVE_INFINITY)
+                replays++;
+            super.replay(timestamp, untilS);
+        }
+    }
+
+    /**
+     * Five cameras, fed by the simulated tag detector, each delivering one frame
+     * per cycle, in the order they arrive, which isn't time order. Compares
+     * applying each frame as it arrives (the old way) with collecting the frames
+     * and applying them as a batch.
+     */
+    @Test
+    void testBatch() throws IOException {
+        // right in front of tag 7
+        Pose2d robotPose = new Pose2d(2.6576, 4.0259, Rotation2d.kZero);
+        AprilTagFieldLayoutWithCorrectOrientation layout = new AprilTagFieldLayoutWithCorrectOrientation();
+        SwerveKinodynamics kinodynamics = SwerveKinodynamicsFactory.forTest(logger);
+        List<Camera> cameras = List.of(
+                Camera.SWERVE_LEFT,
+                Camera.SWERVE_RIGHT,
+                Camera.FUNNEL,
+                Camera.CORAL_LEFT,
+                Camera.CORAL_RIGHT);
+        Blip24[][] sightings = new Blip24[cameras.size()][];
+        int blipCount = 0;
+        for (int i = 0; i < cameras.size(); ++i) {
+            sightings[i] = SimulatedTagDetector.blips(
+                    layout, cameras.get(i), new Pose3d(robotPose), Alliance.Red);
+            blipCount += sightings[i].length;
+        }
+        assertTrue(blipCount > 0);
+
+        CountingHistory eachHistory = new CountingHistory(kinodynamics, robotPose);
+        CountingOdometryUpdater eachOu = new CountingOdometryUpdater(kinodynamics, eachHistory);
+        eachOu.reset(robotPose, 0);
+        AprilTagRobotLocalizer each = new AprilTagRobotLocalizer(
+                logger, layout, eachHistory, new NudgingVisionUpdater(eachHistory, eachOu));
+
+        CountingHistory batchHistory = new CountingHistory(kinodynamics, robotPose);
+        CountingOdometryUpdater batchOu = new CountingOdometryUpdater(kinodynamics, batchHistory);
+        batchOu.reset(robotPose, 0);
+        AprilTagRobotLocalizer batch = new AprilTagRobotLocalizer(
+                logger, layout, batchHistory, new NudgingVisionUpdater(batchHistory, batchOu));
+
+        // finishUpdate() gets the alliance from the driver station.
+        DriverStationSim.setAllianceStationId(AllianceStationID.Red1);
+        DriverStationSim.notifyNewData();
+
+        int cycles = 1000;
+        double dt = 0.02;
+        long start = System.nanoTime();
+        for (int cycle = 1; cycle <= cycles; ++cycle) {
+            double t = cycle * dt;
+            eachOu.update(t);
+            for (int i = 0; i < cameras.size(); ++i) {
+                each.estimateRobotPose(cameras.get(i).getOffset(), sightings[i],
+                        frameTime(t, i), Optional.of(Alliance.Red));
+            }
+        }
+        long eachEnd = System.nanoTime();
+        for (int cycle = 1; cycle <= cycles; ++cycle) {
+            double t = cycle * dt;
+            batchOu.update(t);
+            batch.beginUpdate();
+            for (int i = 0; i < cameras.size(); ++i) {
+                batch.perValue(cameras.get(i).getOffset(), frameTime(t, i), sightings[i]);
+            }
+            batch.finishUpdate();
+        }
+        long batchEnd = System.nanoTime();
+
+        // one full replay per cycle, instead of one per tag.
+        assertEquals(cycles, batchOu.replays);
+        assertTrue(batchHistory.puts < eachHistory.puts);
+        Pose2d eachPose = eachHistory.apply(cycles * dt).pose();
+        Pose2d batchPose = batchHistory.apply(cycles * dt).pose();
+        assertEquals(robotPose.getX(), eachPose.getX(), DELTA);
+        assertEquals(robotPose.getY(), eachPose.getY(), DELTA);
+        assertEquals(robotPose.getX(), batchPose.getX(), DELTA);
+        assertEquals(robotPose.getY(), batchPose.getY(), DELTA);
+        if (DEBUG) {
+            System.out.printf("tags per cycle %d\n", blipCount);
+            System.out.printf("each:  full replays %d history writes %d (us/cycle) %.3f\n",
+                    eachOu.replays, eachHistory.puts, (double) (eachEnd - start) / cycles / 1000);
+            System.out.printf("batch: full replays %d history writes %d (us/cycle) %.3f\n",
+                    batchOu.replays, batchHistory.puts, (double) (batchEnd - eachEnd) / cycles / 1000);
+        }
+    }
+
+    /**
+     * Camera latencies of 40 to 120 ms, so the frames arrive newest first. The
+     * localizer subtracts another 27 ms, so these all fit in the 200 ms history.
+     */
+    private static double frameTime(double t, int camera) {
+        return t - 0.04 - 0.02 * camera;
+    }
+
 }
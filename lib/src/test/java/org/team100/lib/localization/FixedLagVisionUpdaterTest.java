@@ -0,0 +1,284 @@
+package org.team100.lib.localization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.config.Camera;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.sensor.gyro.MockGyro;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
+import org.team100.lib.testing.Timeless;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+
+class FixedLagVisionUpdaterTest implements Timeless {
+    private static final boolean DEBUG = false;
+    private static final double DELTA = 0.01;
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+    /** Right in front of tag 7. */
+    private static final Pose2d ROBOT_POSE = new Pose2d(2.6576, 4.0259, Rotation2d.kZero);
+    private static final double DT = 0.02;
+    private static final List<Camera> CAMERAS = List.of(
+            Camera.SWERVE_LEFT,
+            Camera.SWERVE_RIGHT,
+            Camera.FUNNEL,
+            Camera.CORAL_LEFT,
+            Camera.CORAL_RIGHT);
+    /** 5 cm off. */
+    private static final Pose2d INITIAL = new Pose2d(
+            ROBOT_POSE.getX() + 0.05, ROBOT_POSE.getY(), ROBOT_POSE.getRotation());
+
+    /** Without vision, the history is just odometry. */
+    @Test
+    void testNoVision() {
+        SwerveKinodynamics kinodynamics = SwerveKinodynamicsFactory.forTest(logger);
+        SwerveHistory history = new SwerveHistory(
+                kinodynamics, Rotation2d.kZero, SwerveModulePositions.kZero(), ROBOT_POSE, 0);
+        OdometryUpdater ou = new OdometryUpdater(
+                kinodynamics, new MockGyro(), history, SwerveModulePositions::kZero);
+        ou.reset(ROBOT_POSE, 0);
+        FixedLagVisionUpdater updater = new FixedLagVisionUpdater(kinodynamics, history);
+        for (int cycle = 1; cycle <= 20; ++cycle) {
+            ou.update(cycle * DT);
+            updater.begin();
+            updater.end();
+        }
+        assertEquals(0, updater.iterations());
+        // the window is the history
+        assertEquals(history.size(), updater.nodes());
+        Pose2d pose = history.apply(20 * DT).pose();
+        assertEquals(ROBOT_POSE.getX(), pose.getX(), 1e-9);
+        assertEquals(ROBOT_POSE.getY(), pose.getY(), 1e-9);
+    }
+
+    /** A single sighting pulls the whole window towards it, not just one entry. */
+    @Test
+    void testOneSighting() {
+        SwerveKinodynamics kinodynamics = SwerveKinodynamicsFactory.forTest(logger);
+        SwerveHistory history = new SwerveHistory(
+                kinodynamics, Rotation2d.kZero, SwerveModulePositions.kZero(), Pose2d.kZero, 0);
+        OdometryUpdater ou = new OdometryUpdater(
+                kinodynamics, new MockGyro(), history, SwerveModulePositions::kZero);
+        ou.reset(Pose2d.kZero, 0);
+        for (int cycle = 1; cycle <= 5; ++cycle) {
+            ou.update(cycle * DT);
+        }
+        FixedLagVisionUpdater updater = new FixedLagVisionUpdater(kinodynamics, history);
+        // 10 cm away, very confident.
+        updater.put(0.05,
+                new Pose2d(0.1, 0, Rotation2d.kZero),
+                new double[] { 0.1, 0.1, 0.1 },
+                new double[] { 0.001, 0.001, Double.MAX_VALUE });
+        assertEquals(1, updater.sightings());
+        assertTrue(updater.iterations() > 0);
+        // the robot hasn't moved, so everything moves the same amount.
+        assertEquals(0.1, history.apply(0.0).pose().getX(), 0.001);
+        assertEquals(0.1, history.apply(0.04).pose().getX(), 0.001);
+        assertEquals(0.1, history.apply(0.1).pose().getX(), 0.001);
+        assertEquals(0, history.apply(0.1).pose().getY(), 1e-6);
+        assertEquals(0, history.apply(0.1).pose().getRotation().getRadians(), 1e-6);
+    }
+
+    /**
+     * Five cameras, fed by the simulated tag detector, starting with the pose
+     * 5 cm off. Both updaters should converge; the time per cycle is printed
+     * for comparison.
+     */
+    @Test
+    void testSimulatedTags() throws IOException {
+        AprilTagFieldLayoutWithCorrectOrientation layout = new AprilTagFieldLayoutWithCorrectOrientation();
+        SwerveKinodynamics kinodynamics = SwerveKinodynamicsFactory.forTest(logger);
+        Blip24[][] sightings = sightings(layout, CAMERAS);
+        red();
+
+        SwerveHistory nudgeHistory = new SwerveHistory(
+                kinodynamics, Rotation2d.kZero, SwerveModulePositions.kZero(), INITIAL, 0);
+        OdometryUpdater nudgeOu = new OdometryUpdater(
+                kinodynamics, new MockGyro(), nudgeHistory, SwerveModulePositions::kZero);
+        nudgeOu.reset(INITIAL, 0);
+        AprilTagRobotLocalizer nudge = new AprilTagRobotLocalizer(
+                logger, layout, nudgeHistory, new NudgingVisionUpdater(nudgeHistory, nudgeOu));
+
+        SwerveHistory smoothHistory = new SwerveHistory(
+                kinodynamics, Rotation2d.kZero, SwerveModulePositions.kZero(), INITIAL, 0);
+        OdometryUpdater smoothOu = new OdometryUpdater(
+                kinodynamics, new MockGyro(), smoothHistory, SwerveModulePositions::kZero);
+        smoothOu.reset(INITIAL, 0);
+        FixedLagVisionUpdater updater = new FixedLagVisionUpdater(kinodynamics, smoothHistory);
+        AprilTagRobotLocalizer smooth = new AprilTagRobotLocalizer(
+                logger, layout, smoothHistory, updater);
+
+        int cycles = 1000;
+        long start = System.nanoTime();
+        run(cycles, nudgeOu, nudge, CAMERAS, sightings);
+        long nudgeEnd = System.nanoTime();
+        run(cycles, smoothOu, smooth, CAMERAS, sightings);
+        long smoothEnd = System.nanoTime();
+
+        Pose2d nudgePose = nudgeHistory.apply(cycles * DT).pose();
+        Pose2d smoothPose = smoothHistory.apply(cycles * DT).pose();
+        assertEquals(ROBOT_POSE.getX(), nudgePose.getX(), DELTA);
+        assertEquals(ROBOT_POSE.getY(), nudgePose.getY(), DELTA);
+        assertEquals(ROBOT_POSE.getX(), smoothPose.getX(), DELTA);
+        assertEquals(ROBOT_POSE.getY(), smoothPose.getY(), DELTA);
+        assertEquals(0, smoothPose.getRotation().getRadians(), 1e-6);
+        if (DEBUG) {
+            System.out.printf("nudge:  (us/cycle) %.3f\n",
+                    (double) (nudgeEnd - start) / cycles / 1000);
+            System.out.printf("smooth: (us/cycle) %.3f nodes %d sightings %d iterations %d\n",
+                    (double) (smoothEnd - nudgeEnd) / cycles / 1000,
+                    updater.nodes(), updater.sightings(), updater.iterations());
+        }
+    }
+
+    /**
+     * The same scenario with one camera and with five: more cameras means more
+     * sightings, but the window is the same, and once converged, a solve takes
+     * one iteration either way. The clock never advances, so only convergence
+     * and MAX_ITERATIONS can stop the solver.
+     */
+    @Test
+    void testCameraCount() throws IOException {
+        AprilTagFieldLayoutWithCorrectOrientation layout = new AprilTagFieldLayoutWithCorrectOrientation();
+        SwerveKinodynamics kinodynamics = SwerveKinodynamicsFactory.forTest(logger);
+        Blip24[][] all = sightings(layout, CAMERAS);
+        // the camera that sees the most tags
+        int best = 0;
+        for (int i = 1; i < CAMERAS.size(); ++i) {
+            if (all[i].length > all[best].length)
+                best = i;
+        }
+        assertTrue(all[best].length > 0);
+        List<List<Camera>> cases = List.of(List.of(CAMERAS.get(best)), CAMERAS);
+        List<Blip24[][]> caseSightings = List.of(new Blip24[][] { all[best] }, all);
+        red();
+
+        int[] maxNodes = new int[2];
+        int[] maxSightings = new int[2];
+        int[] maxIterations = new int[2];
+        for (int c = 0; c < 2; ++c) {
+            SwerveHistory history = new SwerveHistory(
+                    kinodynamics, Rotation2d.kZero, SwerveModulePositions.kZero(), INITIAL, 0);
+            OdometryUpdater ou = new OdometryUpdater(
+                    kinodynamics, new MockGyro(), history, SwerveModulePositions::kZero);
+            ou.reset(INITIAL, 0);
+            FixedLagVisionUpdater updater = new FixedLagVisionUpdater(
+                    kinodynamics, history, () -> 0, 500_000);
+            AprilTagRobotLocalizer localizer = new AprilTagRobotLocalizer(
+                    logger, layout, history, updater);
+            // converge
+            run(100, ou, localizer, cases.get(c), caseSightings.get(c));
+            for (int cycle = 101; cycle <= 200; ++cycle) {
+                step(cycle, ou, localizer, cases.get(c), caseSightings.get(c));
+                assertEquals(history.size(), updater.nodes());
+                maxNodes[c] = Math.max(maxNodes[c], updater.nodes());
+                maxSightings[c] = Math.max(maxSightings[c], updater.sightings());
+                maxIterations[c] = Math.max(maxIterations[c], updater.iterations());
+            }
+            Pose2d pose = history.apply(200 * DT).pose();
+            assertEquals(ROBOT_POSE.getX(), pose.getX(), DELTA);
+            assertEquals(ROBOT_POSE.getY(), pose.getY(), DELTA);
+        }
+        if (DEBUG) {
+            for (int c = 0; c < 2; ++c) {
+                System.out.printf("cameras %d nodes %d sightings %d iterations %d\n",
+                        cases.get(c).size(), maxNodes[c], maxSightings[c], maxIterations[c]);
+            }
+        }
+        // the window doesn't depend on the cameras
+        assertEquals(maxNodes[0], maxNodes[1]);
+        assertTrue(maxNodes[1] <= 64);
+        assertTrue(maxSightings[1] > maxSightings[0]);
+        assertTrue(maxSightings[1] <= 128);
+        // converged, so the iterations don't depend on the cameras either
+        assertTrue(maxIterations[0] <= 2);
+        assertTrue(maxIterations[1] <= 2);
+    }
+
+    /** A clock that blows the budget every call allows just one iteration. */
+    @Test
+    void testBudget() throws IOException {
+        AprilTagFieldLayoutWithCorrectOrientation layout = new AprilTagFieldLayoutWithCorrectOrientation();
+        SwerveKinodynamics kinodynamics = SwerveKinodynamicsFactory.forTest(logger);
+        Blip24[][] sightings = sightings(layout, CAMERAS);
+        red();
+        SwerveHistory history = new SwerveHistory(
+                kinodynamics, Rotation2d.kZero, SwerveModulePositions.kZero(), INITIAL, 0);
+        OdometryUpdater ou = new OdometryUpdater(
+                kinodynamics, new MockGyro(), history, SwerveModulePositions::kZero);
+        ou.reset(INITIAL, 0);
+        long[] now = new long[1];
+        FixedLagVisionUpdater updater = new FixedLagVisionUpdater(
+                kinodynamics, history, () -> now[0] += 1_000_000, 500_000);
+        AprilTagRobotLocalizer localizer = new AprilTagRobotLocalizer(
+                logger, layout, history, updater);
+        for (int cycle = 1; cycle <= 10; ++cycle) {
+            step(cycle, ou, localizer, CAMERAS, sightings);
+            if (updater.sightings() > 0)
+                assertEquals(1, updater.iterations());
+        }
+        assertTrue(updater.sightings() > 0);
+    }
+
+    private static Blip24[][] sightings(
+            AprilTagFieldLayoutWithCorrectOrientation layout,
+            List<Camera> cameras) {
+        Blip24[][] sightings = new Blip24[cameras.size()][];
+        for (int i = 0; i < cameras.size(); ++i) {
+            sightings[i] = SimulatedTagDetector.blips(
+                    layout, cameras.get(i), new Pose3d(ROBOT_POSE), Alliance.Red);
+        }
+        return sightings;
+    }
+
+    /** finishUpdate() gets the alliance from the driver station. */
+    private static void red() {
+        DriverStationSim.setAllianceStationId(AllianceStationID.Red1);
+        DriverStationSim.notifyNewData();
+    }
+
+    private static void run(
+            int cycles,
+            OdometryUpdater ou,
+            AprilTagRobotLocalizer localizer,
+            List<Camera> cameras,
+            Blip24[][] sightings) {
+        for (int cycle = 1; cycle <= cycles; ++cycle) {
+            step(cycle, ou, localizer, cameras, sightings);
+        }
+    }
+
+    /** One frame from each camera per cycle, as a batch. */
+    private static void step(
+            int cycle,
+            OdometryUpdater ou,
+            AprilTagRobotLocalizer localizer,
+            List<Camera> cameras,
+            Blip24[][] sightings) {
+        double t = cycle * DT;
+        ou.update(t);
+        localizer.beginUpdate();
+        for (int i = 0; i < cameras.size(); ++i) {
+            localizer.perValue(cameras.get(i).getOffset(), frameTime(t, i), sightings[i]);
+        }
+        localizer.finishUpdate();
+    }
+
+    /** Camera latencies of 40 to 120 ms. */
+    private static double frameTime(double t, int camera) {
+        return t - 0.04 - 0.02 * camera;
+    }
+}
@@ -0,0 +1,120 @@
+package org.team100.lib.localization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+import java.util.function.DoubleSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.sensor.gyro.MockGyro;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePosition100;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
+import org.team100.lib.testing.Timeless;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+
+class OdometryThreadTest implements Timeless {
+    private static final boolean DEBUG = false;
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+    private static final double V = 1.0;
+    private static final double OMEGA = 0.5;
+
+    private final SwerveModulePosition100 p0 = new SwerveModulePosition100(0, Optional.of(Rotation2d.kZero));
+    private final SwerveModulePositions positionZero = new SwerveModulePositions(p0, p0, p0, p0);
+
+    /**
+     * Driving in an arc at 250 Hz, the history matches the true pose at the
+     * latest sample.
+     */
+    @Test
+    void testArc() throws InterruptedException {
+        SwerveKinodynamics kinodynamics = SwerveKinodynamicsFactory.forTest(logger);
+        SwerveHistory history = new SwerveHistory(
+                kinodynamics, Rotation2d.kZero, positionZero, Pose2d.kZero, 0);
+        long t0 = System.nanoTime();
+        DoubleSupplier clock = () -> (System.nanoTime() - t0) / 1e9;
+        SimulatedOdometrySource source = new SimulatedOdometrySource(
+                0.004, clock, s -> arc(kinodynamics, positionZero, s));
+        try (OdometryThread thread = new OdometryThread(source)) {
+            OdometryUpdater updater = new OdometryUpdater(
+                    kinodynamics, new MockGyro(), history, () -> positionZero, thread);
+            updater.reset(Pose2d.kZero, 0);
+            // a few main-loop cycles
+            for (int i = 0; i < 5; ++i) {
+                Thread.sleep(20);
+                updater.update();
+            }
+            double t = history.lastKey();
+            Pose2d expected = Pose2d.kZero.exp(new Twist2d(V * t, 0, OMEGA * t));
+            Pose2d actual = history.apply(t).pose();
+            if (DEBUG) {
+                System.out.printf("t %.6f entries %d expected %s actual %s\n",
+                        t, history.size(), expected, actual);
+            }
+            assertTrue(t > 0.08);
+            // many samples per cycle
+            assertTrue(history.size() > 10);
+            assertEquals(expected.getX(), actual.getX(), 1e-6);
+            assertEquals(expected.getY(), actual.getY(), 1e-6);
+            assertEquals(expected.getRotation().getRadians(), actual.getRotation().getRadians(), 1e-6);
+            assertEquals(OMEGA, history.apply(t).velocity().theta(), 1e-6);
+            assertEquals(0, thread.getDropped());
+        }
+    }
+
+    /** If nobody drains the queue, the newest samples are dropped. */
+    @Test
+    void testFull() throws InterruptedException {
+        long t0 = System.nanoTime();
+        OdometrySource source = (timeoutS, out) -> {
+            out.timestampS = (System.nanoTime() - t0) / 1e9;
+            Thread.sleep(0, 100_000);
+            return true;
+        };
+        try (OdometryThread thread = new OdometryThread(source)) {
+            for (int i = 0; i < 100 && thread.getDropped() == 0; ++i) {
+                Thread.sleep(10);
+            }
+            assertTrue(thread.getDropped() > 0);
+            // stop producing, so the queue holds still.
+            thread.close();
+            assertEquals(32, thread.size());
+            // oldest first
+            double previous = -1;
+            for (OdometrySample s = thread.peek(); s != null; s = thread.peek()) {
+                assertTrue(s.timestampS > previous);
+                previous = s.timestampS;
+                thread.release();
+            }
+            assertEquals(0, thread.size());
+        }
+    }
+
+    /**
+     * Simulated modules and gyro: constant chassis speed in the robot frame, so
+     * the pose is exp(twist), and the steering is constant.
+     */
+    private static void arc(
+            SwerveKinodynamics kinodynamics,
+            SwerveModulePositions initial,
+            OdometrySample out) {
+        double t = out.timestampS;
+        SwerveModulePositions p = kinodynamics.getKinematics().toSwerveModulePositions(
+                initial, new Twist2d(V * t, 0, OMEGA * t));
+        SwerveModulePosition100[] all = p.all();
+        for (int i = 0; i < 4; ++i) {
+            out.distanceM[i] = all[i].distanceMeters;
+            out.angleRad[i] = all[i].unwrappedAngle.orElseThrow().getRadians();
+        }
+        out.yawRad = OMEGA * t;
+        out.yawRateRad_S = OMEGA;
+    }
+}
@@ -991,4 +991,59 @@ class SwerveDrivePoseEstimator100Test implements Timeless {
                 odometryPose.getRotation().getRadians(),
                 visionPose.getRotation().getRadians(), DELTA);
     }
-}
\ No newline at end of file
+
+    /**
+     * A batch of time-ordered measurements, including a repeated timestamp and
+     * an out-of-order one, gives the same history as putting them one at a
+     * time.
+     */
+    @Test
+    void testBatchMatchesSequential() {
+        SwerveKinodynamics kinodynamics = SwerveKinodynamicsFactory.forTest(logger);
+        double[] stateStdDevs = new double[] { 0.1, 0.1, 0.1 };
+        double[] visionMeasurementStdDevs = new double[] { 0.5, 0.5, Double.MAX_VALUE };
+
+        SwerveHistory sequentialHistory = new SwerveHistory(
+                kinodynamics, Rotation2d.kZero, positionZero, Pose2d.kZero, 0);
+        OdometryUpdater sequentialOu = new OdometryUpdater(
+                kinodynamics, new MockGyro(), sequentialHistory, () -> positions);
+        NudgingVisionUpdater sequential = new NudgingVisionUpdater(sequentialHistory, sequentialOu);
+
+        SwerveHistory batchHistory = new SwerveHistory(
+                kinodynamics, Rotation2d.kZero, positionZero, Pose2d.kZero, 0);
+        OdometryUpdater batchOu = new OdometryUpdater(
+                kinodynamics, new MockGyro(), batchHistory, () -> positions);
+        NudgingVisionUpdater batch = new NudgingVisionUpdater(batchHistory, batchOu);
+
+        positions = positionZero;
+        sequentialOu.reset(Pose2d.kZero, 0);
+        batchOu.reset(Pose2d.kZero, 0);
+        for (int i = 1; i <= 10; ++i) {
+            positions = SwerveDrivePoseEstimator100PerformanceTest.p(0.01 * i);
+            sequentialOu.update(0.02 * i);
+            batchOu.update(0.02 * i);
+        }
+
+        double[] times = new double[] { 0.05, 0.09, 0.09, 0.13, 0.07, 0.15 };
+        for (double t : times) {
+            sequential.put(t, visionRobotPoseMeters, stateStdDevs, visionMeasurementStdDevs);
+        }
+        batch.begin();
+        for (double t : times) {
+            batch.put(t, visionRobotPoseMeters, stateStdDevs, visionMeasurementStdDevs);
+        }
+        batch.end();
+
+        assertEquals(sequentialHistory.size(), batchHistory.size());
+        for (int i = 0; i < sequentialHistory.size(); ++i) {
+            assertEquals(sequentialHistory.timeAt(i), batchHistory.timeAt(i), DELTA);
+            Pose2d expected = sequentialHistory.recordAt(i).m_state.pose();
+            Pose2d actual = batchHistory.recordAt(i).m_state.pose();
+            assertEquals(expected.getX(), actual.getX(), 1e-9);
+            assertEquals(expected.getY(), actual.getY(), 1e-9);
+            assertEquals(expected.getRotation().getRadians(), actual.getRotation().getRadians(), 1e-9);
+        }
+        // the nudges actually did something
+        assertTrue(batchHistory.apply(0.2).pose().getX() > 0.1);
+    }
+}
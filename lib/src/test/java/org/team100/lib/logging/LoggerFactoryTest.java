@@ -0,0 +1,213 @@
+package org.team100.lib.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.geometry.HolonomicPose2d;
+import org.team100.lib.geometry.Pose2dWithMotion;
+import org.team100.lib.logging.LoggerFactory.ControlR3Logger;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.ModelR3Logger;
+import org.team100.lib.logging.LoggerFactory.Pose2dLogger;
+import org.team100.lib.logging.LoggerFactory.StructLogger;
+import org.team100.lib.logging.LoggerFactory.SwerveModulePositionsLogger;
+import org.team100.lib.logging.LoggerFactory.TimedPoseLogger;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.state.Control100;
+import org.team100.lib.state.ControlR3;
+import org.team100.lib.state.Model100;
+import org.team100.lib.state.ModelR3;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePosition100;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
+import org.team100.lib.trajectory.timing.TimedPose;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.util.struct.Struct;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+
+class LoggerFactoryTest {
+    private static final boolean DEBUG = false;
+
+    /** Counts calls to the primitive logger. */
+    static class CountingLogger extends TestPrimitiveLogger {
+        int count = 0;
+
+        @Override
+        public PrimitiveDoubleLogger doubleLogger(String label) {
+            return val -> count++;
+        }
+
+        @Override
+        public <T> PrimitiveStructLogger<T> structLogger(String label, Struct<T> struct) {
+            PrimitiveStructLogger<T> packer = super.structLogger(label, struct);
+            return val -> {
+                packer.log(val);
+                count++;
+            };
+        }
+    }
+
+    @Test
+    void testPrimitiveOverload() {
+        CountingLogger p = new CountingLogger();
+        LoggerFactory log = new LoggerFactory(() -> Level.COMP, "root", p);
+        DoubleLogger comp = log.doubleLogger(Level.COMP, "comp");
+        DoubleLogger trace = log.doubleLogger(Level.TRACE, "trace");
+        comp.log(1.0);
+        assertEquals(1, p.count);
+        trace.log(1.0);
+        // not admitted
+        assertEquals(1, p.count);
+    }
+
+    /** A composite is one publish, instead of one per field. */
+    @Test
+    void testStructOnePublish() {
+        CountingLogger p = new CountingLogger();
+        LoggerFactory log = new LoggerFactory(() -> Level.TRACE, "root", p);
+        ModelR3Logger fanout = log.modelR3Logger(Level.TRACE, "fanout");
+        StructLogger<ModelR3> struct = log.modelR3StructLogger(Level.TRACE, "struct");
+        ModelR3 m = new ModelR3(new Model100(1, 2), new Model100(3, 4), new Model100(5, 6));
+        fanout.log(() -> m);
+        assertEquals(6, p.count);
+        struct.log(m);
+        assertEquals(7, p.count);
+    }
+
+    /** With structs off, the struct loggers publish the old fan-out keys. */
+    @Test
+    void testFanOutFallback() {
+        CountingLogger p = new CountingLogger();
+        LoggerFactory log = new LoggerFactory(() -> Level.TRACE, "root", p, false);
+        // children inherit the setting
+        StructLogger<ModelR3> struct = log.name("child").modelR3StructLogger(Level.TRACE, "state");
+        ModelR3 m = new ModelR3(new Model100(1, 2), new Model100(3, 4), new Model100(5, 6));
+        struct.log(m);
+        assertEquals(6, p.count);
+        // the level still applies
+        StructLogger<ModelR3> off = new LoggerFactory(() -> Level.COMP, "root", p, false)
+                .modelR3StructLogger(Level.TRACE, "state");
+        off.log(m);
+        assertEquals(6, p.count);
+    }
+
+    /**
+     * Compares the fan-out loggers with the struct loggers, for the composites
+     * we log every loop. The primitive logger packs the structs, so this
+     * includes the encoding cost.
+     */
+    @Test
+    void testStructPerformance() {
+        TestPrimitiveLogger p = new TestPrimitiveLogger();
+        LoggerFactory log = new LoggerFactory(() -> Level.TRACE, "root", p);
+        Pose2dLogger poseFanout = log.pose2dLogger(Level.TRACE, "pose/fanout");
+        ModelR3Logger modelFanout = log.modelR3Logger(Level.TRACE, "model/fanout");
+        ControlR3Logger controlFanout = log.controlR3Logger(Level.TRACE, "control/fanout");
+        SwerveModulePositionsLogger positionsFanout = log.swerveModulePositionsLogger(Level.TRACE,
+                "positions/fanout");
+        TimedPoseLogger timedPoseFanout = log.timedPoseLogger(Level.TRACE, "timedpose/fanout");
+        StructLogger<Pose2d> poseStruct = log.pose2dStructLogger(Level.TRACE, "pose/struct");
+        StructLogger<ModelR3> modelStruct = log.modelR3StructLogger(Level.TRACE, "model/struct");
+        StructLogger<ControlR3> controlStruct = log.controlR3StructLogger(Level.TRACE, "control/struct");
+        StructLogger<SwerveModulePositions> positionsStruct = log.swerveModulePositionsStructLogger(Level.TRACE,
+                "positions/struct");
+        StructLogger<TimedPose> timedPoseStruct = log.timedPoseStructLogger(Level.TRACE, "timedpose/struct");
+
+        Pose2d pose = new Pose2d(1, 2, new Rotation2d(3));
+        ModelR3 model = new ModelR3(new Model100(1, 2), new Model100(3, 4), new Model100(5, 6));
+        ControlR3 control = new ControlR3(
+                new Control100(1, 2, 3), new Control100(4, 5, 6), new Control100(7, 8, 9));
+        SwerveModulePositions positions = new SwerveModulePositions(
+                new SwerveModulePosition100(1, Optional.of(new Rotation2d(1))),
+                new SwerveModulePosition100(2, Optional.of(new Rotation2d(2))),
+                new SwerveModulePosition100(3, Optional.of(new Rotation2d(3))),
+                new SwerveModulePosition100(4, Optional.of(new Rotation2d(4))));
+        TimedPose timedPose = new TimedPose(
+                new Pose2dWithMotion(HolonomicPose2d.make(1, 2, 3, 4), 5, 6, 7), 8, 9, 10);
+
+        int loops = 100000;
+        long start = System.nanoTime();
+        for (int i = 0; i < loops; ++i) {
+            poseFanout.log(() -> pose);
+            modelFanout.log(() -> model);
+            controlFanout.log(() -> control);
+            positionsFanout.log(() -> positions);
+            timedPoseFanout.log(() -> timedPose);
+        }
+        long fanoutEnd = System.nanoTime();
+        for (int i = 0; i < loops; ++i) {
+            poseStruct.log(pose);
+            modelStruct.log(model);
+            controlStruct.log(control);
+            positionsStruct.log(positions);
+            timedPoseStruct.log(timedPose);
+        }
+        long structEnd = System.nanoTime();
+        if (DEBUG) {
+            System.out.printf("keys %d\n", p.keyCount());
+            System.out.printf("fan-out (ns/loop) %.2f\n", (double) (fanoutEnd - start) / loops);
+            System.out.printf("struct (ns/loop) %.2f\n", (double) (structEnd - fanoutEnd) / loops);
+        }
+    }
+
+    /**
+     * Compares the old path (chooser lookup, capturing lambda) with the new one
+     * (level snapshot, primitive overload).
+     */
+    @Test
+    void testPerformance() {
+        SendableChooser<Level> chooser = new SendableChooser<>();
+        for (Level level : Level.values()) {
+            chooser.addOption(level.name(), level);
+        }
+        chooser.setDefaultOption(Level.TRACE.name(), Level.TRACE);
+        Supplier<Level> lookup = chooser::getSelected;
+        Level snapshot = chooser.getSelected();
+        Supplier<Level> field = () -> snapshot;
+
+        TestPrimitiveLogger p = new TestPrimitiveLogger();
+        LoggerFactory oldFactory = new LoggerFactory(lookup, "old", p);
+        LoggerFactory newFactory = new LoggerFactory(field, "new", p);
+        int keys = 1000;
+        int loops = 1000;
+        DoubleLogger[] oldLoggers = new DoubleLogger[keys];
+        DoubleLogger[] newLoggers = new DoubleLogger[keys];
+        for (int i = 0; i < keys; ++i) {
+            oldLoggers[i] = oldFactory.doubleLogger(Level.DEBUG, "key" + i);
+            newLoggers[i] = newFactory.doubleLogger(Level.DEBUG, "key" + i);
+        }
+
+        long start = System.nanoTime();
+        for (int loop = 0; loop < loops; ++loop) {
+            for (int i = 0; i < keys; ++i) {
+                final double val = loop * i;
+                oldLoggers[i].log(() -> val);
+            }
+        }
+        long oldEnd = System.nanoTime();
+        for (int loop = 0; loop < loops; ++loop) {
+            for (int i = 0; i < keys; ++i) {
+                final double val = loop * i;
+                newLoggers[i].log(() -> val);
+            }
+        }
+        long snapshotEnd = System.nanoTime();
+        for (int loop = 0; loop < loops; ++loop) {
+            for (int i = 0; i < keys; ++i) {
+                newLoggers[i].log(loop * i);
+            }
+        }
+        long primitiveEnd = System.nanoTime();
+        if (DEBUG) {
+            int calls = keys * loops;
+            System.out.printf("chooser + lambda (ns/call) %.2f\n", (double) (oldEnd - start) / calls);
+            System.out.printf("snapshot + lambda (ns/call) %.2f\n", (double) (snapshotEnd - oldEnd) / calls);
+            System.out.printf("snapshot + primitive (ns/call) %.2f\n", (double) (primitiveEnd - snapshotEnd) / calls);
+        }
+        chooser.close();
+    }
+}
@@ -0,0 +1,234 @@
+package org.team100.lib.logging.primitive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveBooleanLogger;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveDoubleLogger;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveStringLogger;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveStructLogger;
+import org.team100.lib.state.Model100;
+
+import edu.wpi.first.util.struct.Struct;
+
+class BufferedPrimitiveLoggerTest {
+    private static final boolean DEBUG = false;
+
+    /** Remembers the last value and the number of writes per key. */
+    static class RecordingLogger implements PrimitiveLogger {
+        final Map<String, Object> values = new HashMap<>();
+        int writes = 0;
+
+        @Override
+        public int keyCount() {
+            return values.size();
+        }
+
+        @Override
+        public PrimitiveBooleanLogger booleanLogger(String label) {
+            return val -> {
+                values.put(label, val);
+                writes++;
+            };
+        }
+
+        @Override
+        public PrimitiveDoubleLogger doubleLogger(String label) {
+            return val -> {
+                values.put(label, val);
+                writes++;
+            };
+        }
+
+        @Override
+        public PrimitiveIntLogger intLogger(String label) {
+            return val -> {
+                values.put(label, val);
+                writes++;
+            };
+        }
+
+        @Override
+        public PrimitiveDoubleArrayLogger doubleArrayLogger(String label) {
+            return val -> {
+                values.put(label, val);
+                writes++;
+            };
+        }
+
+        @Override
+        public PrimitiveLongLogger longLogger(String label) {
+            return val -> {
+                values.put(label, val);
+                writes++;
+            };
+        }
+
+        @Override
+        public PrimitiveStringLogger stringLogger(String label) {
+            return val -> {
+                values.put(label, val);
+                writes++;
+            };
+        }
+
+        @Override
+        public <T> PrimitiveStructLogger<T> structLogger(String label, Struct<T> struct) {
+            return val -> {
+                values.put(label, val);
+                writes++;
+            };
+        }
+    }
+
+    @Test
+    void testNothingUntilFlush() {
+        RecordingLogger delegate = new RecordingLogger();
+        BufferedPrimitiveLogger logger = new BufferedPrimitiveLogger(delegate);
+        PrimitiveDoubleLogger d = logger.doubleLogger("d");
+        d.log(1.0);
+        assertEquals(0, delegate.writes);
+        logger.flush();
+        assertEquals(1, delegate.writes);
+        assertEquals(1.0, delegate.values.get("d"));
+    }
+
+    @Test
+    void testLastValueWins() {
+        RecordingLogger delegate = new RecordingLogger();
+        BufferedPrimitiveLogger logger = new BufferedPrimitiveLogger(delegate);
+        PrimitiveDoubleLogger d = logger.doubleLogger("d");
+        d.log(1.0);
+        d.log(2.0);
+        logger.flush();
+        assertEquals(1, delegate.writes);
+        assertEquals(2.0, delegate.values.get("d"));
+        // nothing new, so nothing written
+        logger.flush();
+        assertEquals(1, delegate.writes);
+    }
+
+    @Test
+    void testTypes() {
+        RecordingLogger delegate = new RecordingLogger();
+        BufferedPrimitiveLogger logger = new BufferedPrimitiveLogger(delegate);
+        PrimitiveBooleanLogger b = logger.booleanLogger("b");
+        PrimitiveStringLogger s = logger.stringLogger("s");
+        logger.intLogger("i").log(3);
+        logger.longLogger("l").log(4L);
+        b.log(true);
+        s.log("foo");
+        logger.flush();
+        assertEquals(4, delegate.writes);
+        assertEquals(true, delegate.values.get("b"));
+        assertEquals("foo", delegate.values.get("s"));
+        assertEquals(3, delegate.values.get("i"));
+        assertEquals(4L, delegate.values.get("l"));
+    }
+
+    @Test
+    void testStruct() {
+        RecordingLogger delegate = new RecordingLogger();
+        BufferedPrimitiveLogger logger = new BufferedPrimitiveLogger(delegate);
+        PrimitiveStructLogger<Model100> m = logger.structLogger("m", Model100.struct);
+        m.log(new Model100(1, 2));
+        m.log(new Model100(3, 4));
+        assertEquals(0, delegate.writes);
+        logger.flush();
+        assertEquals(1, delegate.writes);
+        assertEquals(new Model100(3, 4), delegate.values.get("m"));
+    }
+
+    /** Other threads skip the buffer, and write to the delegate directly. */
+    @Test
+    void testOtherThread() throws InterruptedException {
+        RecordingLogger delegate = new RecordingLogger();
+        BufferedPrimitiveLogger logger = new BufferedPrimitiveLogger(delegate);
+        PrimitiveDoubleLogger d = logger.doubleLogger("d");
+        PrimitiveDoubleLogger e = logger.doubleLogger("e");
+        d.log(1.0);
+        logger.flush();
+        assertEquals(1, delegate.writes);
+        Thread other = new Thread(() -> e.log(2.0));
+        other.start();
+        other.join();
+        // not buffered, so it's there without a flush
+        assertEquals(1, logger.getPassedThrough());
+        assertEquals(2, delegate.writes);
+        assertEquals(2.0, delegate.values.get("e"));
+        // and the buffer doesn't write it again
+        logger.flush();
+        assertEquals(2, delegate.writes);
+        // the main thread still buffers
+        d.log(3.0);
+        assertEquals(2, delegate.writes);
+        logger.flush();
+        assertEquals(3, delegate.writes);
+        assertEquals(3.0, delegate.values.get("d"));
+    }
+
+    /** Registration past the initial capacity grows the slots. */
+    @Test
+    void testGrow() {
+        RecordingLogger delegate = new RecordingLogger();
+        BufferedPrimitiveLogger logger = new BufferedPrimitiveLogger(delegate, 2);
+        PrimitiveDoubleLogger[] loggers = new PrimitiveDoubleLogger[10];
+        for (int i = 0; i < loggers.length; ++i) {
+            loggers[i] = logger.doubleLogger("d" + i);
+        }
+        for (int i = 0; i < loggers.length; ++i) {
+            loggers[i].log(i);
+        }
+        logger.flush();
+        assertEquals(10, delegate.writes);
+        assertEquals(9.0, delegate.values.get("d9"));
+    }
+
+    /**
+     * Per-call cost with lots of keys, compared with calling the delegate
+     * directly.
+     */
+    @Test
+    void testPerformance() {
+        int keys = 5000;
+        int loops = 1000;
+        PrimitiveLogger delegate = new TestPrimitiveLogger();
+        BufferedPrimitiveLogger logger = new BufferedPrimitiveLogger(delegate);
+        PrimitiveDoubleLogger[] buffered = new PrimitiveDoubleLogger[keys];
+        PrimitiveDoubleLogger[] direct = new PrimitiveDoubleLogger[keys];
+        for (int i = 0; i < keys; ++i) {
+            buffered[i] = logger.doubleLogger("buffered" + i);
+            direct[i] = delegate.doubleLogger("direct" + i);
+        }
+        long start = System.nanoTime();
+        for (int loop = 0; loop < loops; ++loop) {
+            for (int i = 0; i < keys; ++i) {
+                buffered[i].log(loop);
+            }
+        }
+        long logEnd = System.nanoTime();
+        for (int loop = 0; loop < loops; ++loop) {
+            for (int i = 0; i < keys; ++i) {
+                buffered[i].log(loop);
+            }
+            logger.flush();
+        }
+        long flushEnd = System.nanoTime();
+        for (int loop = 0; loop < loops; ++loop) {
+            for (int i = 0; i < keys; ++i) {
+                direct[i].log(loop);
+            }
+        }
+        long directEnd = System.nanoTime();
+        if (DEBUG) {
+            int calls = keys * loops;
+            System.out.printf("keys %d\n", keys);
+            System.out.printf("buffered log (ns/call) %.2f\n", (double) (logEnd - start) / calls);
+            System.out.printf("buffered log+flush (ns/call) %.2f\n", (double) (flushEnd - logEnd) / calls);
+            System.out.printf("direct (ns/call) %.2f\n", (double) (directEnd - flushEnd) / calls);
+        }
+    }
+}
@@ -17,4 +17,4 @@ public class DummySender implements Consumer<ByteBuffer> {
     public int getCounter() {
         return m_counter;
     }
-}
\ No newline at end of file
+}
@@ -36,4 +36,21 @@ class UdpMetadataProtocolTest {
         assertEquals((byte) 119, b[14]); // w
         assertEquals((byte) 111, b[15]); // o
     }
+
+    @Test
+    void testTimestamp() {
+        long previous = UdpMetadataProtocol.timestamp;
+        try {
+            UdpMetadataProtocol.setTimestamp(0x0102030405060708L);
+            UdpMetadataProtocol p = new UdpMetadataProtocol();
+            p.clear();
+            assertEquals(8, p.buffer().position());
+            assertEquals(0x0102030405060708L, p.buffer().getLong(0));
+            // a set value isn't replaced by the system time
+            p.clear();
+            assertEquals(0x0102030405060708L, p.buffer().getLong(0));
+        } finally {
+            UdpMetadataProtocol.setTimestamp(previous);
+        }
+    }
 }
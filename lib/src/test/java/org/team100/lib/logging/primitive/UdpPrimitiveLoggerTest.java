@@ -0,0 +1,166 @@
+package org.team100.lib.logging.primitive;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.HexFormat;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.Level;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.LoggerFactory.BooleanLogger;
+import org.team100.lib.logging.LoggerFactory.DoubleArrayLogger;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
+import org.team100.lib.logging.LoggerFactory.LongLogger;
+import org.team100.lib.logging.LoggerFactory.StringLogger;
+
+class UdpPrimitiveLoggerTest {
+    private static final boolean DEBUG = false;
+
+    ByteBuffer bb; // data
+    ByteBuffer mb; // metadata
+    int packets;
+
+    /** Send some examples. */
+    @Test
+    void testSendingLocally() {
+        UdpPrimitiveLogger udpLogger = new UdpPrimitiveLogger(x -> bb = x, x -> mb = x);
+        LoggerFactory logger = new LoggerFactory(() -> Level.COMP, "root", udpLogger);
+        BooleanLogger booleanLogger = logger.booleanLogger(Level.COMP, "boolkey");
+        DoubleLogger doubleLogger = logger.doubleLogger(Level.COMP, "doublekey");
+        IntLogger intLogger = logger.intLogger(Level.COMP, "intkey");
+        DoubleArrayLogger doubleArrayLogger = logger.doubleArrayLogger(Level.COMP, "doublearraykey");
+        LongLogger longLogger = logger.longLogger(Level.COMP, "longkey");
+        StringLogger stringLogger = logger.stringLogger(Level.COMP, "stringkey");
+
+        for (int i = 0; i < 100; ++i) {
+            booleanLogger.log(() -> true);
+            doubleLogger.log(() -> 100.0);
+            intLogger.log(() -> 100);
+            doubleArrayLogger.log(() -> new double[] { 1.0, 2.0 });
+            longLogger.log(() -> (long) 100);
+            stringLogger.log(() -> "value");
+        }
+
+        udpLogger.flush();
+        assertEquals(70, bb.remaining());
+
+        HexFormat hex = HexFormat.of();
+        String expectedStr = // omit "0000000000000000" // timestamp
+                "0001" // key
+                        + "01" // type = boolean
+                        + "01" // value = true
+                        + "0002" // key
+                        + "02" // type = double
+                        + "4059000000000000" // value
+                        + "0003" // key
+                        + "03" // type = int
+                        + "00000064" // value
+                        + "0004"// key
+                        + "04" // type = double array
+                        + "02" // length = 2
+                        + "3ff0000000000000" // value
+                        + "4000000000000000"// value
+                        + "0005" // key
+                        + "05" // type = long
+                        + "0000000000000064" // value
+                        + "0006" // key
+                        + "06" // type = string
+                        + "05" // length = 5
+                        + hex.formatHex("value".getBytes());
+        byte[] expectedBB = hex.parseHex(expectedStr);
+        byte[] actualBB = new byte[62];
+        bb.get(new byte[8]); // skip
+        bb.get(actualBB);
+        assertArrayEquals(expectedBB, actualBB);
+
+        assertEquals(6, udpLogger.metadata.size());
+        assertEquals("root/boolkey", udpLogger.metadata.get(0).label());
+        assertEquals("root/stringkey", udpLogger.metadata.get(5).label());
+
+        udpLogger.dumpLabels();
+        assertEquals(114, mb.remaining());
+    }
+
+    /** Only changed values are sent. */
+    @Test
+    void testDirtyOnly() {
+        UdpPrimitiveLogger udpLogger = new UdpPrimitiveLogger(x -> bb = x, x -> mb = x);
+        PrimitiveLogger.PrimitiveDoubleLogger a = udpLogger.doubleLogger("a");
+        PrimitiveLogger.PrimitiveDoubleLogger b = udpLogger.doubleLogger("b");
+        a.log(1);
+        b.log(2);
+        udpLogger.flush();
+        // timestamp + 2 doubles
+        assertEquals(8 + 2 * 11, bb.remaining());
+        a.log(3);
+        udpLogger.flush();
+        assertEquals(8 + 11, bb.remaining());
+        udpLogger.flush();
+        // just the timestamp
+        assertEquals(8, bb.remaining());
+    }
+
+    /** Values logged on another thread are sent by the next flush. */
+    @Test
+    void testOtherThread() throws InterruptedException {
+        UdpPrimitiveLogger udpLogger = new UdpPrimitiveLogger(x -> bb = x, x -> mb = x);
+        PrimitiveLogger.PrimitiveDoubleLogger a = udpLogger.doubleLogger("a");
+        Thread other = new Thread(() -> a.log(1));
+        other.start();
+        other.join();
+        udpLogger.flush();
+        // timestamp + 1 double
+        assertEquals(8 + 11, bb.remaining());
+        bb.get(new byte[8 + 3]); // skip the timestamp, key, and type
+        assertEquals(1.0, bb.getDouble());
+    }
+
+    /** Lots of keys are split into MTU-sized packets. */
+    @Test
+    void testManyPackets() {
+        UdpPrimitiveLogger udpLogger = new UdpPrimitiveLogger(x -> {
+            packets++;
+            bb = x;
+        }, x -> mb = x);
+        final int keys = 5000;
+        PrimitiveLogger.PrimitiveDoubleLogger[] loggers = new PrimitiveLogger.PrimitiveDoubleLogger[keys];
+        for (int j = 0; j < keys; ++j) {
+            loggers[j] = udpLogger.doubleLogger("doublekey" + j);
+        }
+        for (int j = 0; j < keys; ++j) {
+            loggers[j].log(j);
+        }
+        udpLogger.flush();
+        // 133 doubles fit in a packet
+        assertEquals(38, packets);
+    }
+
+    /** Main-thread cost of logging and flushing 5000 keys, without the network. */
+    @Test
+    void testPerformance() {
+        DummySender dataSink = new DummySender();
+        UdpPrimitiveLogger udpLogger = new UdpPrimitiveLogger(dataSink, new DummySender());
+        final int keys = 5000;
+        final int iterations = 1000;
+        PrimitiveLogger.PrimitiveDoubleLogger[] loggers = new PrimitiveLogger.PrimitiveDoubleLogger[keys];
+        for (int j = 0; j < keys; ++j) {
+            loggers[j] = udpLogger.doubleLogger("doublekey" + j);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            for (int j = 0; j < keys; ++j) {
+                loggers[j].log(i);
+            }
+            udpLogger.flush();
+        }
+        long end = System.nanoTime();
+        if (DEBUG) {
+            System.out.printf("duration per flush (us) %.3f\n", 0.001 * (end - start) / iterations);
+            System.out.printf("duration per key (ns) %.3f\n", (double) (end - start) / (iterations * keys));
+            System.out.printf("packets %d\n", dataSink.getCounter());
+        }
+    }
+}
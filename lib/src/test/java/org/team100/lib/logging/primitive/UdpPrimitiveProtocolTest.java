@@ -10,7 +10,7 @@ import java.nio.ByteBuffer;
 import org.junit.jupiter.api.Test;
 import org.team100.lib.logging.primitive.UdpPrimitiveProtocol.ProtocolException;
 
-class UdpPrimitiveProtocol2Test {
+class UdpPrimitiveProtocolTest {
 
     //////////////////////////////
     //
@@ -249,6 +249,36 @@ class UdpPrimitiveProtocol2Test {
         assertEquals("hello", v);
     }
 
+    @Test
+    void testRaw() throws ProtocolException {
+        byte[] b = new byte[12];
+        ByteBuffer bb = ByteBuffer.wrap(b);
+        // encoder doesn't start at the beginning
+        bb.position(2);
+        ByteBuffer val = ByteBuffer.wrap(new byte[] { 1, 2, 3, 4 });
+        int len = UdpPrimitiveProtocol.encodeRaw(bb, 16, val);
+        assertEquals(9, len);
+        assertEquals(0, val.remaining());
+        assertEquals((byte) 0, b[0]);
+        assertEquals((byte) 0, b[1]);
+        assertEquals((byte) 0, b[2]); // key high byte
+        assertEquals((byte) 16, b[3]); // key low byte
+        assertEquals((byte) 7, b[4]); // type
+        assertEquals((byte) 0, b[5]); // length high byte
+        assertEquals((byte) 4, b[6]); // length low byte
+        assertEquals((byte) 1, b[7]);
+        assertEquals((byte) 2, b[8]);
+        assertEquals((byte) 3, b[9]);
+        assertEquals((byte) 4, b[10]);
+        assertEquals((byte) 0, b[11]);
+
+        bb.rewind();
+        bb.position(5);
+        byte[] v = UdpPrimitiveProtocol.decodeRaw(bb);
+        assertEquals(11, bb.position());
+        assertArrayEquals(new byte[] { 1, 2, 3, 4 }, v);
+    }
+
     ////////////////////////////////////////////
     //
     // multi-type buffer
@@ -347,6 +377,18 @@ class UdpPrimitiveProtocol2Test {
         assertEquals(0, len);
     }
 
+    /** Nothing is consumed if there's no room. */
+    @Test
+    void testRawOverflow() {
+        byte[] b = new byte[12];
+        ByteBuffer bb = ByteBuffer.wrap(b);
+        bb.position(8);
+        ByteBuffer val = ByteBuffer.wrap(new byte[] { 1, 2, 3, 4 });
+        int len = UdpPrimitiveProtocol.encodeRaw(bb, 16, val);
+        assertEquals(0, len);
+        assertEquals(4, val.remaining());
+    }
+
     ///////////////////////////////////////
     //
     // Malformed packets
@@ -0,0 +1,192 @@
+package org.team100.lib.logging.receiver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveDoubleLogger;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveStringLogger;
+import org.team100.lib.logging.primitive.PrimitiveLogger.PrimitiveStructLogger;
+import org.team100.lib.logging.primitive.UdpAsyncSender;
+import org.team100.lib.logging.primitive.UdpPrimitiveLogger;
+import org.team100.lib.logging.primitive.UdpSender;
+import org.team100.lib.logging.primitive.UdpType;
+import org.team100.lib.state.Model100;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+
+/** End-to-end tests using localhost. */
+class UdpReceiverTest {
+
+    /** Remembers the labels and the last value of each double, string, and raw. */
+    static class RecordingConsumers implements UdpConsumersInterface {
+        final Map<Integer, String> labels = new ConcurrentHashMap<>();
+        final Map<Integer, Double> doubles = new ConcurrentHashMap<>();
+        final Map<Integer, String> strings = new ConcurrentHashMap<>();
+        final Map<Integer, byte[]> raws = new ConcurrentHashMap<>();
+
+        @Override
+        public boolean validateTimestamp(long timestamp) {
+            return true;
+        }
+
+        @Override
+        public void acceptBoolean(int key, boolean val) {
+        }
+
+        @Override
+        public void acceptDouble(int key, double val) {
+            doubles.put(key, val);
+        }
+
+        @Override
+        public void acceptInt(int key, int val) {
+        }
+
+        @Override
+        public void acceptLong(int key, long val) {
+        }
+
+        @Override
+        public void acceptDoubleArray(int key, double[] val) {
+        }
+
+        @Override
+        public void acceptString(int key, String val) {
+            strings.put(key, val);
+        }
+
+        @Override
+        public void acceptRaw(int key, byte[] val) {
+            raws.put(key, val);
+        }
+
+        @Override
+        public void acceptMeta(int key, UdpType type, String val) {
+            labels.put(key, val);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /** Wait up to a second for the condition. */
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100; ++i) {
+            if (condition.getAsBoolean())
+                return;
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testLoopback() throws InterruptedException {
+        RecordingConsumers consumers = new RecordingConsumers();
+        UdpReceiver receiver = new UdpReceiver(consumers, 0, 0);
+        receiver.start();
+        UdpAsyncSender data = new UdpAsyncSender(UdpSender.loopback(receiver.getDataPort()), "data");
+        UdpAsyncSender meta = new UdpAsyncSender(UdpSender.loopback(receiver.getMetaPort()), "meta");
+        UdpPrimitiveLogger logger = new UdpPrimitiveLogger(data, meta);
+        PrimitiveDoubleLogger d = logger.doubleLogger("foo/double");
+        PrimitiveStringLogger s = logger.stringLogger("foo/string");
+        logger.sendAllLabels();
+        d.log(1.5);
+        s.log("hello");
+        logger.flush();
+        await(() -> consumers.doubles.size() == 1 && consumers.strings.size() == 1);
+        receiver.close();
+        data.close();
+        meta.close();
+
+        assertEquals("foo/double", consumers.labels.get(1));
+        assertEquals("foo/string", consumers.labels.get(2));
+        assertEquals(1.5, consumers.doubles.get(1));
+        assertEquals("hello", consumers.strings.get(2));
+    }
+
+    /** Structs arrive as packed bytes, which unpack to the same value. */
+    @Test
+    void testStruct() throws InterruptedException {
+        RecordingConsumers consumers = new RecordingConsumers();
+        UdpReceiver receiver = new UdpReceiver(consumers, 0, 0);
+        receiver.start();
+        UdpAsyncSender data = new UdpAsyncSender(UdpSender.loopback(receiver.getDataPort()), "data");
+        UdpAsyncSender meta = new UdpAsyncSender(UdpSender.loopback(receiver.getMetaPort()), "meta");
+        UdpPrimitiveLogger logger = new UdpPrimitiveLogger(data, meta);
+        PrimitiveStructLogger<Model100> m = logger.structLogger("foo/model", Model100.struct);
+        logger.sendAllLabels();
+        m.log(new Model100(1, 2));
+        logger.flush();
+        await(() -> consumers.raws.size() == 1);
+        receiver.close();
+        data.close();
+        meta.close();
+
+        assertEquals("foo/model", consumers.labels.get(1));
+        ByteBuffer bb = ByteBuffer.wrap(consumers.raws.get(1));
+        bb.order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(new Model100(1, 2), Model100.struct.unpack(bb));
+    }
+
+    /** The receiver writes a file that the WPILib reader understands. */
+    @Test
+    void testWpilog() throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("udplog");
+        File file = dir.resolve("test.wpilog").toFile();
+        UdpReceiver receiver = new UdpReceiver(new UdpLogWriter(file.getPath()), 0, 0);
+        receiver.start();
+        UdpAsyncSender data = new UdpAsyncSender(UdpSender.loopback(receiver.getDataPort()), "data");
+        UdpAsyncSender meta = new UdpAsyncSender(UdpSender.loopback(receiver.getMetaPort()), "meta");
+        UdpPrimitiveLogger logger = new UdpPrimitiveLogger(data, meta);
+        PrimitiveDoubleLogger d = logger.doubleLogger("foo/double");
+        logger.sendAllLabels();
+        await(meta::idle);
+        // give the meta reader a moment to create the entries.
+        Thread.sleep(50);
+        for (int i = 0; i < 10; ++i) {
+            d.log(i);
+            logger.flush();
+        }
+        await(data::idle);
+        Thread.sleep(50);
+        receiver.close();
+        data.close();
+        meta.close();
+
+        DataLogReader reader = new DataLogReader(file.getPath());
+        assertTrue(reader.isValid());
+        Set<String> names = new HashSet<>();
+        int entry = -1;
+        int values = 0;
+        for (DataLogRecord record : reader) {
+            if (record.isStart()) {
+                DataLogRecord.StartRecordData start = record.getStartData();
+                names.add(start.name);
+                if (start.name.equals("foo/double"))
+                    entry = start.entry;
+            } else if (!record.isControl() && record.getEntry() == entry) {
+                values++;
+            }
+        }
+        assertTrue(names.contains("foo/double"));
+        assertEquals(10, values);
+    }
+}
@@ -0,0 +1,95 @@
+package org.team100.lib.network;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Transform3d;
+
+class CameraQueueTest {
+    private static final boolean DEBUG = false;
+
+    @Test
+    void testSimple() {
+        CameraQueue<Integer> q = new CameraQueue<>(4);
+        assertNull(q.peek());
+        CameraQueue.Message<Integer> m = q.claim();
+        m.cameraOffset = new Transform3d();
+        m.timestampS = 1;
+        m.values = new Integer[] { 1, 2 };
+        // not visible until published
+        assertNull(q.peek());
+        q.publish();
+        assertEquals(1, q.size());
+        CameraQueue.Message<Integer> n = q.peek();
+        assertEquals(1, n.timestampS);
+        assertEquals(2, n.values.length);
+        q.release();
+        assertNull(n.values);
+        assertNull(q.peek());
+        assertEquals(0, q.size());
+    }
+
+    /** When full, the producer drops. */
+    @Test
+    void testFull() {
+        CameraQueue<Integer> q = new CameraQueue<>(2);
+        q.claim().timestampS = 1;
+        q.publish();
+        q.claim().timestampS = 2;
+        q.publish();
+        assertNull(q.claim());
+        assertEquals(1, q.getDropped());
+        assertEquals(1, q.peek().timestampS);
+        q.release();
+        assertNotNull(q.claim());
+    }
+
+    @Test
+    void testCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new CameraQueue<Integer>(3));
+    }
+
+    /** One thread produces, one consumes; everything arrives in order. */
+    @Test
+    void testThreads() throws InterruptedException {
+        int count = 10000;
+        CameraQueue<Integer> q = new CameraQueue<>(32);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count;) {
+                CameraQueue.Message<Integer> m = q.claim();
+                if (m == null) {
+                    Thread.yield();
+                    continue;
+                }
+                m.timestampS = i;
+                m.values = new Integer[] { i };
+                q.publish();
+                ++i;
+            }
+        });
+        long start = System.nanoTime();
+        producer.start();
+        int received = 0;
+        while (received < count) {
+            CameraQueue.Message<Integer> m = q.peek();
+            if (m == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(received, m.timestampS);
+            assertEquals(received, m.values[0]);
+            q.release();
+            received++;
+        }
+        long end = System.nanoTime();
+        producer.join();
+        if (DEBUG) {
+            System.out.printf("dropped %d (ns/message) %.1f\n",
+                    q.getDropped(), (double) (end - start) / count);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.team100.lib.network;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StructArrayPublisher;
+import edu.wpi.first.util.struct.StructBuffer;
+
+class CameraReaderTest {
+
+    static class Reader extends CameraReader<Rotation3d> {
+        final List<Rotation3d[]> values = new ArrayList<>();
+        int updates = 0;
+
+        Reader(String root, boolean threaded) {
+            super(root, "Rotation3d", StructBuffer.create(Rotation3d.struct), threaded);
+        }
+
+        @Override
+        protected void perValue(Transform3d cameraOffset, double valueTimestamp, Rotation3d[] value) {
+            values.add(value);
+        }
+
+        @Override
+        protected void finishUpdate() {
+            updates++;
+        }
+    }
+
+    @Test
+    void testInline() {
+        NetworkTableInstance inst = NetworkTableInstance.getDefault();
+        try (Reader reader = new Reader("inlineTest", false);
+                StructArrayPublisher<Rotation3d> pub = inst.getStructArrayTopic(
+                        "inlineTest/1234/0/Rotation3d", Rotation3d.struct).publish()) {
+            pub.set(new Rotation3d[] { new Rotation3d(1, 2, 3) });
+            reader.update();
+            assertEquals(1, reader.values.size());
+            assertEquals(1, reader.values.get(0)[0].getX(), 1e-9);
+            // ignored: wrong value name
+            try (StructArrayPublisher<Rotation3d> other = inst.getStructArrayTopic(
+                    "inlineTest/1234/0/other", Rotation3d.struct).publish()) {
+                other.set(new Rotation3d[] { new Rotation3d() });
+                reader.update();
+                assertEquals(1, reader.values.size());
+            }
+        }
+    }
+
+    /** The ingest thread decodes in the background; update() just delivers. */
+    @Test
+    void testThreaded() throws InterruptedException {
+        NetworkTableInstance inst = NetworkTableInstance.getDefault();
+        try (Reader reader = new Reader("threadedTest", true);
+                StructArrayPublisher<Rotation3d> pub = inst.getStructArrayTopic(
+                        "threadedTest/1234/0/Rotation3d", Rotation3d.struct).publish()) {
+            pub.set(new Rotation3d[] { new Rotation3d(1, 2, 3), new Rotation3d() });
+            // the handoff is asynchronous, so wait for it.
+            for (int i = 0; i < 100 && reader.values.isEmpty(); ++i) {
+                Thread.sleep(10);
+                reader.update();
+            }
+            assertEquals(1, reader.values.size());
+            assertEquals(2, reader.values.get(0).length);
+            assertEquals(1, reader.values.get(0)[0].getX(), 1e-9);
+            assertEquals(0, reader.getDropped());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.team100.lib.optimization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.Vector;
+import edu.wpi.first.math.numbers.N2;
+import edu.wpi.first.math.numbers.N3;
+
+public class AnalyticNewtonsMethodTest {
+    private static final boolean DEBUG = false;
+
+    @Test
+    void testSqrt2() {
+        // f(x) = x^2 - 2, f'(x) = 2x
+        AnalyticNewtonsMethod.Function f = (x, y, j) -> {
+            y.set(0, x.get(0) * x.get(0) - 2);
+            j.set(0, 0, 2 * x.get(0));
+        };
+        AnalyticNewtonsMethod s = new AnalyticNewtonsMethod(
+                1, 1, f, new double[] { 0 }, new double[] { 2 }, 1e-3, 10, 1);
+        double[] x = { 1 };
+        assertTrue(s.solve(x, 1, true));
+        assertEquals(1.414, x[0], 1e-3);
+    }
+
+    /** The two-link case in NewtonsMethodTest, with the Jacobian written out. */
+    @Test
+    void testTwoLink() {
+        double[] x = { 0, Math.PI / 2 };
+        AnalyticNewtonsMethod s = twoLink();
+        assertTrue(s.solve(x, 5, true));
+        assertEquals(0.524, x[0], 1e-3);
+        assertEquals(2.094, x[1], 1e-3);
+        // starting from the answer takes just one evaluation.
+        assertTrue(s.solve(x, 5, true));
+        assertEquals(1, s.getLastIterations());
+    }
+
+    @Test
+    void testFailure() {
+        // x^2 + 1 has no zero.
+        AnalyticNewtonsMethod.Function f = (x, y, j) -> {
+            y.set(0, x.get(0) * x.get(0) + 1);
+            j.set(0, 0, 2 * x.get(0));
+        };
+        AnalyticNewtonsMethod s = new AnalyticNewtonsMethod(
+                1, 1, f, new double[] { -2 }, new double[] { 2 }, 1e-3, 5, 1);
+        assertThrows(IllegalArgumentException.class, () -> s.solve(new double[] { 1 }, 1, true));
+        assertFalse(s.solve(new double[] { 1 }, 1, false));
+    }
+
+    /** Compare with the numerical Jacobian. */
+    @Test
+    void testPerformance() {
+        Function<Vector<N2>, Vector<N3>> err = q -> VecBuilder.fill(
+                Math.cos(q.get(0)) + Math.cos(q.get(0) + q.get(1)) - 0,
+                Math.sin(q.get(0)) + Math.sin(q.get(0) + q.get(1)) - 1,
+                MathUtil.angleModulus(q.get(0) + q.get(1) - 2.618));
+        Vector<N2> minQ = VecBuilder.fill(-Math.PI, -Math.PI);
+        Vector<N2> maxQ = VecBuilder.fill(Math.PI, Math.PI);
+        NewtonsMethod<N2, N3> numeric = new NewtonsMethod<>(
+                Nat.N2(), Nat.N3(), err, minQ, maxQ, 1e-3, 10, 1);
+        AnalyticNewtonsMethod analytic = twoLink();
+        int reps = 10000;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < reps; ++i) {
+            numeric.solve2(VecBuilder.fill(0, Math.PI / 2), 5, true);
+        }
+        long t1 = System.nanoTime();
+        double[] x = new double[2];
+        for (int i = 0; i < reps; ++i) {
+            x[0] = 0;
+            x[1] = Math.PI / 2;
+            analytic.solve(x, 5, true);
+        }
+        long t2 = System.nanoTime();
+        if (DEBUG) {
+            System.out.printf("numeric  (us) %6.3f\n", (t1 - t0) / 1000.0 / reps);
+            System.out.printf("analytic (us) %6.3f\n", (t2 - t1) / 1000.0 / reps);
+        }
+    }
+
+    /**
+     * Two unit links, goal at (0, 1) pointing 5pi/6: the answer is (pi/6,
+     * 2pi/3).
+     */
+    private static AnalyticNewtonsMethod twoLink() {
+        AnalyticNewtonsMethod.Function f = (q, y, j) -> {
+            double q0 = q.get(0);
+            double q01 = q.get(0) + q.get(1);
+            y.set(0, Math.cos(q0) + Math.cos(q01) - 0);
+            y.set(1, Math.sin(q0) + Math.sin(q01) - 1);
+            y.set(2, MathUtil.angleModulus(q01 - 2.618));
+            j.set(0, 0, -Math.sin(q0) - Math.sin(q01));
+            j.set(0, 1, -Math.sin(q01));
+            j.set(1, 0, Math.cos(q0) + Math.cos(q01));
+            j.set(1, 1, Math.cos(q01));
+            j.set(2, 0, 1);
+            j.set(2, 1, 1);
+        };
+        return new AnalyticNewtonsMethod(
+                2, 3, f,
+                new double[] { -Math.PI, -Math.PI },
+                new double[] { Math.PI, Math.PI },
+                1e-3, 10, 1);
+    }
+}
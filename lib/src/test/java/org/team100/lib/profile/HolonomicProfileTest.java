@@ -8,6 +8,8 @@ import org.team100.lib.geometry.GlobalVelocityR3;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.TestLoggerFactory;
 import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.profile.incremental.IncrementalProfile;
+import org.team100.lib.profile.incremental.TrapezoidIncrementalProfile;
 import org.team100.lib.state.ControlR3;
 import org.team100.lib.state.ModelR3;
 import org.team100.lib.testing.Timeless;
@@ -29,7 +31,8 @@ class HolonomicProfileTest implements Timeless {
                 new Pose2d(0, 2, Rotation2d.kZero), new GlobalVelocityR3(0, 0, 0));
         hp.solve(i, g);
         // scale factors
-        assertEquals(0.8125, hp.sx, DELTA);
+        // x brakes and comes back, which takes 1 + sqrt(2) at full scale.
+        assertEquals((1 + Math.sqrt(2)) / 3, hp.sx, DELTA);
         assertEquals(1.0, hp.sy, DELTA);
         assertEquals(1.0, hp.stheta, DELTA);
         // now ETA's are the same
@@ -74,6 +77,38 @@ class HolonomicProfileTest implements Timeless {
         }
     }
 
+    /**
+     * The WPI trapezoid has no closed-form ETA, so it uses the simulated one, which
+     * is quantized at 0.1 s. The coordinated axes should still arrive together.
+     */
+    @Test
+    void test2dWPI() {
+        HolonomicProfile hp = HolonomicProfile.wpi(1, 1, 1, 1);
+        ModelR3 i = new ModelR3();
+        ModelR3 g = new ModelR3(new Pose2d(1, 4, Rotation2d.kZero));
+        hp.solve(i, g);
+        // y takes 5 s at full scale, so x is slowed from 2 s to 5 s,
+        // i.e. a = 4d/T^2 = 0.16
+        assertEquals(0.16, hp.sx, 0.03);
+        assertEquals(1.0, hp.sy, DELTA);
+        ControlR3 s = i.control();
+        double xArrival = Double.NaN;
+        double yArrival = Double.NaN;
+        for (double t = 0.02; t < 10; t += 0.02) {
+            s = hp.calculate(s.model(), g);
+            if (Double.isNaN(xArrival) && s.x().model().near(g.x(), 0.01))
+                xArrival = t;
+            if (Double.isNaN(yArrival) && s.y().model().near(g.y(), 0.01))
+                yArrival = t;
+            if (DEBUG)
+                System.out.printf("%.2f %.3f %.3f\n", t, s.x().x(), s.y().x());
+        }
+        assertEquals(5, yArrival, 0.1);
+        // uncoordinated, x would arrive 3 s early; the coarse ETA is good to a
+        // few simulation steps.
+        assertEquals(yArrival, xArrival, 0.3);
+    }
+
     @Test
     void test2dWithEntrySpeed() {
         HolonomicProfile hp = HolonomicProfile.trapezoidal(logger, 1, 1, 0.01, 1, 1, 0.01);
@@ -99,7 +134,7 @@ class HolonomicProfileTest implements Timeless {
      * simulation on it, makes this much slower, 0.1 ms. Since this happens
      * once at the start of the profile (for coordination), that's fine.
      * 
-     * The SOLVE_DT constant in HolonomicProfile affects performance ~linearly.
+     * Now the ETA is closed-form; see testSolveBeforeAndAfter().
      */
     @Test
     void testSolvePerformance() {
@@ -117,4 +152,44 @@ class HolonomicProfileTest implements Timeless {
         if (DEBUG)
             System.out.printf("per op (ns)    %5.1f\n", 1e9 * (t1 - t0) / N);
     }
+
+    /**
+     * Compares the old solver, i.e. simulation for ETA and bisection over
+     * simulations for scale, with the closed-form solver, for a driver-assist
+     * sort of move: moving sideways, going to a pose up and to the right.
+     */
+    @Test
+    void testSolveBeforeAndAfter() {
+        HolonomicProfile hp = HolonomicProfile.trapezoidal(logger, 4, 10, 0.01, 10, 20, 0.01);
+        IncrementalProfile px = new TrapezoidIncrementalProfile(logger.name("x"), 4, 10, 0.01);
+        IncrementalProfile py = new TrapezoidIncrementalProfile(logger.name("y"), 4, 10, 0.01);
+        IncrementalProfile ptheta = new TrapezoidIncrementalProfile(logger.name("theta"), 10, 20, 0.01);
+        ModelR3 i = new ModelR3(new Pose2d(), new GlobalVelocityR3(0, 1, 0));
+        ModelR3 g = new ModelR3(new Pose2d(3, 1, Rotation2d.kCCW_Pi_2));
+        int N = 1000;
+        long start = System.nanoTime();
+        for (int ii = 0; ii < N; ++ii) {
+            double xETA = px.simulateForETA(0.1, i.x().control(), g.x());
+            double yETA = py.simulateForETA(0.1, i.y().control(), g.y());
+            double thetaETA = ptheta.simulateForETA(0.1, i.theta().control(), g.theta());
+            double slowETA = Math.max(xETA, Math.max(yETA, thetaETA));
+            px.solve(0.1, i.x().control(), g.x(), slowETA, 0.1);
+            py.solve(0.1, i.y().control(), g.y(), slowETA, 0.1);
+            ptheta.solve(0.1, i.theta().control(), g.theta(), slowETA, 0.1);
+        }
+        long before = System.nanoTime();
+        for (int ii = 0; ii < N; ++ii) {
+            hp.solve(i, g);
+        }
+        long after = System.nanoTime();
+        // x is the slowest; the others are slowed down to match it.
+        assertEquals(1, hp.sx, DELTA);
+        double eta = hp.ppx.eta(i.x().control(), g.x());
+        assertEquals(eta, hp.ppy.eta(i.y().control(), g.y()), 0.01);
+        assertEquals(eta, hp.pptheta.eta(i.theta().control(), g.theta()), 0.01);
+        if (DEBUG) {
+            System.out.printf("before (us) %8.3f\n", 1e-3 * (before - start) / N);
+            System.out.printf("after (us)  %8.3f\n", 1e-3 * (after - before) / N);
+        }
+    }
 }
@@ -86,4 +86,28 @@ public class CurrentLimitedExponentialProfileTest {
                         new Control100(0, -1.1, -1)));
 
     }
+
+    /** The closed-form ETA is close to the simulation. */
+    @Test
+    void testClosedFormETA() {
+        CurrentLimitedExponentialProfile profile = new CurrentLimitedExponentialProfile(2, 5, 10);
+        Control100 sample = new Control100(0, 0);
+        final Model100 end = new Model100(3, 0);
+        assertEquals(1.827, profile.eta(sample, end), DELTA);
+        assertEquals(profile.simulateForETA(0.001, sample, end), profile.eta(sample, end), 0.02);
+        // negative acceleration is current-limited all the way
+        final Model100 back = new Model100(-3, 0);
+        assertEquals(1.777, profile.eta(sample, back), DELTA);
+        assertEquals(profile.simulateForETA(0.001, sample, back), profile.eta(sample, back), 0.02);
+    }
+
+    @Test
+    void testClosedFormSolve() {
+        CurrentLimitedExponentialProfile profile = new CurrentLimitedExponentialProfile(2, 5, 10);
+        Control100 sample = new Control100(0, 0);
+        final Model100 end = new Model100(3, 0);
+        double s = profile.solveForETA(sample, end, 2.0, DELTA);
+        assertEquals(0.629, s, DELTA);
+        assertEquals(2.0, profile.scale(s).eta(sample, end), DELTA);
+    }
 }
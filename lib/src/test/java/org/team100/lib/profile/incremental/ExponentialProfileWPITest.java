@@ -64,4 +64,15 @@ public class ExponentialProfileWPITest {
         if (DEBUG)
             System.out.printf("per op (ns)    %5.1f\n", 1e9 * (t1 - t0) / N);
     }
+
+    /** The closed-form ETA is close to the simulation. */
+    @Test
+    void testClosedFormETA() {
+        ExponentialProfileWPI profile = new ExponentialProfileWPI(2, 10);
+        Control100 sample = new Control100(0, 0);
+        final Model100 end = new Model100(3, 0);
+        assertEquals(profile.simulateForETA(0.001, sample, end), profile.eta(sample, end), 0.02);
+        double s = profile.solveForETA(sample, end, 2.0, DELTA);
+        assertEquals(2.0, profile.scale(s).eta(sample, end), DELTA);
+    }
 }
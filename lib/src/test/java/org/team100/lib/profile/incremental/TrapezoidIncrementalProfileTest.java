@@ -1881,4 +1881,55 @@ class TrapezoidIncrementalProfileTest implements Timeless {
         assertEquals(goal.v(), state.v(), 0.05);
     }
 
+    /** The closed-form ETA matches simulation. */
+    @Test
+    void testClosedFormETA() {
+        TrapezoidIncrementalProfile p = new TrapezoidIncrementalProfile(logger, 1, 1, 0.01);
+        // triangle
+        Control100 initial = new Control100(0, 0);
+        Model100 goal = new Model100(1, 0);
+        assertEquals(2, p.eta(initial, goal), DELTA);
+        assertEquals(p.simulateForETA(0.001, initial, goal), p.eta(initial, goal), 0.02);
+        // trapezoid
+        goal = new Model100(2, 0);
+        assertEquals(3, p.eta(initial, goal), DELTA);
+        assertEquals(p.simulateForETA(0.001, initial, goal), p.eta(initial, goal), 0.02);
+        // brake, then come back
+        initial = new Control100(0, 1);
+        goal = new Model100(0, 0);
+        assertEquals(1 + Math.sqrt(2), p.eta(initial, goal), DELTA);
+        assertEquals(p.simulateForETA(0.001, initial, goal), p.eta(initial, goal), 0.02);
+        // at the goal
+        assertEquals(0, p.eta(new Control100(0, 0), new Model100(0, 0)), DELTA);
+    }
+
+    /** Same cases as testETASolve, but exact. */
+    @Test
+    void testClosedFormSolve() {
+        Control100 initial = new Control100(0, 0);
+        Model100 goal = new Model100(1, 0);
+        TrapezoidIncrementalProfile p = new TrapezoidIncrementalProfile(logger, 1, 1, 0.01);
+        assertEquals(1.0, p.solveForETA(initial, goal, 2, DELTA), DELTA);
+        // T = 2 sqrt(d/a)
+        assertEquals(0.444, p.solveForETA(initial, goal, 3, DELTA), DELTA);
+        assertEquals(0.25, p.solveForETA(initial, goal, 4, DELTA), DELTA);
+        assertEquals(0.0625, p.solveForETA(initial, goal, 8, DELTA), DELTA);
+        // with cruise: T = d/V + V/a
+        goal = new Model100(2, 0);
+        assertEquals(0.5, p.solveForETA(initial, goal, 4, DELTA), DELTA);
+        // the result achieves the goal ETA
+        double s = p.solveForETA(initial, goal, 4, DELTA);
+        assertEquals(4, p.scale(s).eta(initial, goal), DELTA);
+    }
+
+    /** Same case as testBrokenSolve1. */
+    @Test
+    void testClosedFormBrokenSolve1() {
+        TrapezoidIncrementalProfile px = new TrapezoidIncrementalProfile(logger, 0.01, 10, 0.01);
+        Control100 initial = new Control100(2.2, -4.5);
+        Model100 goal = new Model100(0, 0);
+        // unlike the simulation, no timeout
+        assertEquals(119.2, px.eta(initial, goal), 0.01);
+        assertEquals(1, px.solveForETA(initial, goal, 119.2, DELTA), DELTA);
+    }
 }
@@ -2,11 +2,42 @@ package org.team100.lib.state;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import org.junit.jupiter.api.Test;
 
 public class Control100Test {
     private static final double DELTA = 0.001;
 
+    @Test
+    void testStruct() {
+        ByteBuffer bb = ByteBuffer.allocate(Control100.struct.getSize());
+        bb.order(ByteOrder.LITTLE_ENDIAN);
+        Control100.struct.pack(bb, new Control100(1, 2, 3));
+        assertEquals(0, bb.remaining());
+        assertEquals(24, bb.position());
+        bb.rewind();
+        assertEquals(new Control100(1, 2, 3), Control100.struct.unpack(bb));
+    }
+
+    @Test
+    void testR3Struct() {
+        ByteBuffer bb = ByteBuffer.allocate(ControlR3.struct.getSize());
+        bb.order(ByteOrder.LITTLE_ENDIAN);
+        ControlR3.struct.pack(bb, new ControlR3(
+                new Control100(1, 2, 3),
+                new Control100(4, 5, 6),
+                new Control100(7, 8, 9)));
+        assertEquals(0, bb.remaining());
+        assertEquals(72, bb.position());
+        bb.rewind();
+        ControlR3 c = ControlR3.struct.unpack(bb);
+        assertEquals(new Control100(1, 2, 3), c.x());
+        assertEquals(new Control100(4, 5, 6), c.y());
+        assertEquals(new Control100(7, 8, 9), c.theta());
+    }
+
     @Test
     void testInterpolation1() {
         Control100 s0 = new Control100();
@@ -2,11 +2,42 @@ package org.team100.lib.state;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import org.junit.jupiter.api.Test;
 
 public class Model100Test {
     private static final double DELTA = 0.001;
 
+    @Test
+    void testStruct() {
+        ByteBuffer bb = ByteBuffer.allocate(Model100.struct.getSize());
+        bb.order(ByteOrder.LITTLE_ENDIAN);
+        Model100.struct.pack(bb, new Model100(1, 2));
+        assertEquals(0, bb.remaining());
+        assertEquals(16, bb.position());
+        bb.rewind();
+        assertEquals(new Model100(1, 2), Model100.struct.unpack(bb));
+    }
+
+    @Test
+    void testR3Struct() {
+        ByteBuffer bb = ByteBuffer.allocate(ModelR3.struct.getSize());
+        bb.order(ByteOrder.LITTLE_ENDIAN);
+        ModelR3.struct.pack(bb, new ModelR3(
+                new Model100(1, 2),
+                new Model100(3, 4),
+                new Model100(5, 6)));
+        assertEquals(0, bb.remaining());
+        assertEquals(48, bb.position());
+        bb.rewind();
+        ModelR3 m = ModelR3.struct.unpack(bb);
+        assertEquals(new Model100(1, 2), m.x());
+        assertEquals(new Model100(3, 4), m.y());
+        assertEquals(new Model100(5, 6), m.theta());
+    }
+
     @Test
     void testInterpolation1() {
         Model100 s0 = new Model100();
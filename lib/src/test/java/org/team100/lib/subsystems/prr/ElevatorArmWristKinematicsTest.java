@@ -2,8 +2,11 @@ package org.team100.lib.subsystems.prr;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import org.ejml.data.DMatrixRMaj;
 import org.junit.jupiter.api.Test;
+import org.team100.lib.optimization.AnalyticNewtonsMethod;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
@@ -139,4 +142,54 @@ public class ElevatorArmWristKinematicsTest {
         assertEquals(c.wristAngle(), c2.wristAngle(), DELTA);
     }
 
+    @Test
+    void testJacobian() {
+        ElevatorArmWristKinematics k = new ElevatorArmWristKinematics(0.3, 0.1);
+        EAWConfig c = new EAWConfig(1, 0.5, -0.7);
+        DMatrixRMaj j = new DMatrixRMaj(3, 3);
+        k.jacobian(c.shoulderAngle(), c.wristAngle(), j);
+        Pose2d p = k.forward(c);
+        double h = 1e-7;
+        Pose2d[] moved = {
+                k.forward(new EAWConfig(c.shoulderHeight() + h, c.shoulderAngle(), c.wristAngle())),
+                k.forward(new EAWConfig(c.shoulderHeight(), c.shoulderAngle() + h, c.wristAngle())),
+                k.forward(new EAWConfig(c.shoulderHeight(), c.shoulderAngle(), c.wristAngle() + h)) };
+        for (int col = 0; col < 3; ++col) {
+            assertEquals((moved[col].getX() - p.getX()) / h, j.get(0, col), 1e-6);
+            assertEquals((moved[col].getY() - p.getY()) / h, j.get(1, col), 1e-6);
+            assertEquals((moved[col].getRotation().getRadians() - p.getRotation().getRadians()) / h,
+                    j.get(2, col), 1e-6);
+        }
+    }
+
+    /** Newton's method with the analytic Jacobian, from a nearby start. */
+    @Test
+    void testNewton() {
+        ElevatorArmWristKinematics k = new ElevatorArmWristKinematics(0.3, 0.1);
+        EAWConfig c = new EAWConfig(1, Math.toRadians(60), Math.toRadians(60));
+        Pose2d goal = k.forward(c);
+        AnalyticNewtonsMethod.Function f = (q, y, j) -> {
+            Pose2d p = k.forward(new EAWConfig(q.get(0), q.get(1), q.get(2)));
+            y.set(0, p.getX() - goal.getX());
+            y.set(1, p.getY() - goal.getY());
+            y.set(2, MathUtil.angleModulus(
+                    p.getRotation().getRadians() - goal.getRotation().getRadians()));
+            k.jacobian(q.get(1), q.get(2), j);
+        };
+        AnalyticNewtonsMethod solver = new AnalyticNewtonsMethod(
+                3, 3, f,
+                new double[] { 0, -Math.PI, -Math.PI },
+                new double[] { 2, Math.PI, Math.PI },
+                1e-9, 10, 1);
+        double[] q = { 1.05, 1.0, 1.1 };
+        long startTime = System.nanoTime();
+        solver.solve(q, 0, true);
+        long finishTime = System.nanoTime();
+        if (DEBUG)
+            System.out.printf("iterations %d ET (us) %6.3f\n",
+                    solver.getLastIterations(), (finishTime - startTime) / 1000.0);
+        assertEquals(c.shoulderHeight(), q[0], DELTA);
+        assertEquals(c.shoulderAngle(), q[1], DELTA);
+        assertEquals(c.wristAngle(), q[2], DELTA);
+    }
 }
@@ -0,0 +1,228 @@
+package org.team100.lib.subsystems.swerve.kinodynamics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Optional;
+import java.util.Random;
+
+import org.ejml.simple.SimpleMatrix;
+import org.junit.jupiter.api.Test;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModuleDelta;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModuleDeltas;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePosition100;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModuleState100;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModuleStates;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+class FourModuleKinematicsTest {
+    private static final boolean DEBUG = false;
+    private static final double DELTA = 1e-12;
+    /** A rectangle, so that the pseudo-inverse isn't trivial. */
+    private static final Translation2d[] LOCATIONS = {
+            new Translation2d(0.3, 0.25),
+            new Translation2d(0.3, -0.25),
+            new Translation2d(-0.3, 0.25),
+            new Translation2d(-0.3, -0.25) };
+
+    private final SwerveDriveKinematics100 m_kinematics = new SwerveDriveKinematics100(LOCATIONS);
+    private final FourModuleKinematics m_four = new FourModuleKinematics(LOCATIONS);
+
+    /** The inverse matches the EJML matrix. */
+    @Test
+    void testInverse() {
+        Random random = new Random(0);
+        double[] out = new double[8];
+        for (int n = 0; n < 1000; ++n) {
+            double vx = random.nextGaussian();
+            double vy = random.nextGaussian();
+            double omega = random.nextGaussian();
+            m_four.toModuleVectors(vx, vy, omega, out);
+            SimpleMatrix expected = m_kinematics.m_inverseKinematics.mult(
+                    new SimpleMatrix(new double[] { vx, vy, omega }));
+            for (int i = 0; i < 8; ++i) {
+                assertEquals(expected.get(i, 0), out[i], DELTA);
+            }
+        }
+    }
+
+    /** Forward kinematics of states matches the EJML pseudo-inverse. */
+    @Test
+    void testChassisSpeeds() {
+        Random random = new Random(0);
+        ChassisSpeeds out = new ChassisSpeeds();
+        for (int n = 0; n < 1000; ++n) {
+            SwerveModuleStates states = new SwerveModuleStates(
+                    state(random), state(random), state(random), state(random));
+            m_four.toChassisSpeeds(states, out);
+            SimpleMatrix expected = m_kinematics.m_forwardKinematics.mult(vector(states));
+            assertEquals(expected.get(0, 0), out.vxMetersPerSecond, DELTA);
+            assertEquals(expected.get(1, 0), out.vyMetersPerSecond, DELTA);
+            assertEquals(expected.get(2, 0), out.omegaRadiansPerSecond, DELTA);
+        }
+    }
+
+    /** The positions and deltas versions agree, with each other and with EJML. */
+    @Test
+    void testTwist() {
+        Random random = new Random(0);
+        Twist2d fromPositions = new Twist2d();
+        Twist2d fromDeltas = new Twist2d();
+        for (int n = 0; n < 1000; ++n) {
+            SwerveModulePositions start = new SwerveModulePositions(
+                    position(random), position(random), position(random), position(random));
+            SwerveModulePositions end = new SwerveModulePositions(
+                    position(random), position(random), position(random), position(random));
+            SwerveModuleDeltas deltas = SwerveModuleDeltas.modulePositionDelta(start, end);
+            m_four.toTwist2d(start, end, fromPositions);
+            m_four.toTwist2d(deltas, fromDeltas);
+            SimpleMatrix expected = m_kinematics.m_forwardKinematics.mult(vector(deltas));
+            assertEquals(expected.get(0, 0), fromPositions.dx, DELTA);
+            assertEquals(expected.get(1, 0), fromPositions.dy, DELTA);
+            assertEquals(expected.get(2, 0), fromPositions.dtheta, DELTA);
+            assertEquals(fromPositions.dx, fromDeltas.dx, DELTA);
+            assertEquals(fromPositions.dy, fromDeltas.dy, DELTA);
+            assertEquals(fromPositions.dtheta, fromDeltas.dtheta, DELTA);
+        }
+    }
+
+    /** Stopped modules and empty angles contribute nothing. */
+    @Test
+    void testStopped() {
+        SwerveModulePosition100 p = new SwerveModulePosition100(1, Optional.of(Rotation2d.kZero));
+        SwerveModulePosition100 empty = new SwerveModulePosition100(2, Optional.empty());
+        SwerveModulePositions start = new SwerveModulePositions(p, p, p, p);
+        SwerveModulePositions end = new SwerveModulePositions(p, empty, p, p);
+        Twist2d twist = new Twist2d(1, 1, 1);
+        m_four.toTwist2d(start, end, twist);
+        assertEquals(0, twist.dx, DELTA);
+        assertEquals(0, twist.dy, DELTA);
+        assertEquals(0, twist.dtheta, DELTA);
+    }
+
+    /** The caller-owned overloads agree with the ones that return new objects. */
+    @Test
+    void testCallerOwned() {
+        Random random = new Random(0);
+        ChassisSpeeds speeds = new ChassisSpeeds();
+        Twist2d twist = new Twist2d();
+        for (int n = 0; n < 100; ++n) {
+            SwerveModuleStates states = new SwerveModuleStates(
+                    state(random), state(random), state(random), state(random));
+            ChassisSpeeds expectedSpeeds = m_kinematics.toChassisSpeeds(states);
+            m_kinematics.toChassisSpeeds(states, speeds);
+            assertEquals(expectedSpeeds.vxMetersPerSecond, speeds.vxMetersPerSecond, DELTA);
+            assertEquals(expectedSpeeds.vyMetersPerSecond, speeds.vyMetersPerSecond, DELTA);
+            assertEquals(expectedSpeeds.omegaRadiansPerSecond, speeds.omegaRadiansPerSecond, DELTA);
+
+            SwerveModuleDeltas deltas = SwerveModuleDeltas.modulePositionDelta(
+                    new SwerveModulePositions(
+                            position(random), position(random), position(random), position(random)),
+                    new SwerveModulePositions(
+                            position(random), position(random), position(random), position(random)));
+            Twist2d expectedTwist = m_kinematics.toTwist2d(deltas);
+            m_kinematics.toTwist2d(deltas, twist);
+            assertEquals(expectedTwist.dx, twist.dx, DELTA);
+            assertEquals(expectedTwist.dy, twist.dy, DELTA);
+            assertEquals(expectedTwist.dtheta, twist.dtheta, DELTA);
+        }
+    }
+
+    /**
+     * Compare the EJML path with the scalar one. This isn't a real benchmark
+     * harness, but the difference is large enough to see.
+     */
+    @Test
+    void testPerformance() {
+        Random random = new Random(0);
+        int count = 100;
+        SwerveModulePositions[] positions = new SwerveModulePositions[count];
+        for (int i = 0; i < count; ++i) {
+            positions[i] = new SwerveModulePositions(
+                    position(random), position(random), position(random), position(random));
+        }
+        int iterations = 100000;
+        Twist2d out = new Twist2d();
+        double sum = 0;
+        // warm up
+        for (int i = 0; i < iterations; ++i) {
+            sum += ejml(positions[i % count], positions[(i + 1) % count]).dx;
+            m_four.toTwist2d(positions[i % count], positions[(i + 1) % count], out);
+            sum += out.dx;
+        }
+        long startTime = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            sum += ejml(positions[i % count], positions[(i + 1) % count]).dx;
+        }
+        long ejmlTime = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            m_four.toTwist2d(positions[i % count], positions[(i + 1) % count], out);
+            sum += out.dx;
+        }
+        long scalarTime = System.nanoTime();
+        if (DEBUG) {
+            System.out.printf("EJML toTwist2d (ns) %8.1f\n",
+                    (double) (ejmlTime - startTime) / iterations);
+            System.out.printf("scalar toTwist2d (ns) %8.1f\n",
+                    (double) (scalarTime - ejmlTime) / iterations);
+            System.out.printf("sum %f\n", sum);
+        }
+    }
+
+    ///////////////////////////////////////
+
+    /** The old path: make the deltas and multiply by the EJML matrix. */
+    private Twist2d ejml(SwerveModulePositions start, SwerveModulePositions end) {
+        SimpleMatrix v = m_kinematics.m_forwardKinematics.mult(
+                vector(SwerveModuleDeltas.modulePositionDelta(start, end)));
+        return new Twist2d(v.get(0, 0), v.get(1, 0), v.get(2, 0));
+    }
+
+    private static SwerveModuleState100 state(Random random) {
+        // sometimes stopped
+        if (random.nextInt(10) == 0)
+            return new SwerveModuleState100(0, Optional.empty());
+        return new SwerveModuleState100(
+                random.nextGaussian(),
+                Optional.of(new Rotation2d(random.nextGaussian() * 3)));
+    }
+
+    private static SwerveModulePosition100 position(Random random) {
+        // sometimes the angle is unknown
+        if (random.nextInt(10) == 0)
+            return new SwerveModulePosition100(random.nextGaussian(), Optional.empty());
+        return new SwerveModulePosition100(
+                random.nextGaussian(),
+                Optional.of(new Rotation2d(random.nextGaussian() * 10)));
+    }
+
+    private static SimpleMatrix vector(SwerveModuleStates states) {
+        SimpleMatrix v = new SimpleMatrix(8, 1);
+        SwerveModuleState100[] all = states.all();
+        for (int i = 0; i < 4; ++i) {
+            SwerveModuleState100 s = all[i];
+            if (Math.abs(s.speedMetersPerSecond()) < 1e-6 || s.angle().isEmpty())
+                continue;
+            v.set(i * 2, 0, s.speedMetersPerSecond() * s.angle().get().getCos());
+            v.set(i * 2 + 1, 0, s.speedMetersPerSecond() * s.angle().get().getSin());
+        }
+        return v;
+    }
+
+    private static SimpleMatrix vector(SwerveModuleDeltas deltas) {
+        SimpleMatrix v = new SimpleMatrix(8, 1);
+        SwerveModuleDelta[] all = deltas.all();
+        for (int i = 0; i < 4; ++i) {
+            SwerveModuleDelta d = all[i];
+            if (Math.abs(d.distanceMeters) < 1e-6 || d.wrappedAngle.isEmpty())
+                continue;
+            v.set(i * 2, 0, d.distanceMeters * d.wrappedAngle.get().getCos());
+            v.set(i * 2 + 1, 0, d.distanceMeters * d.wrappedAngle.get().getSin());
+        }
+        return v;
+    }
+}
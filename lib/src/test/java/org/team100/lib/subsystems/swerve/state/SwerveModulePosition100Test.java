@@ -10,6 +10,7 @@ import org.junit.jupiter.api.Test;
 import org.team100.lib.subsystems.swerve.kinodynamics.struct.SwerveModulePosition100Struct;
 import org.team100.lib.subsystems.swerve.module.state.SwerveModuleDelta;
 import org.team100.lib.subsystems.swerve.module.state.SwerveModulePosition100;
+import org.team100.lib.subsystems.swerve.module.state.SwerveModulePositions;
 
 import edu.wpi.first.math.geometry.Rotation2d;
 
@@ -47,6 +48,25 @@ class SwerveModulePosition100Test {
         assertTrue(p2.unwrappedAngle.isEmpty());
     }
 
+    @Test
+    void testPositionsStruct() {
+        ByteBuffer bb = ByteBuffer.allocate(SwerveModulePositions.struct.getSize());
+        SwerveModulePositions p = new SwerveModulePositions(
+                new SwerveModulePosition100(1, Optional.of(Rotation2d.kZero)),
+                new SwerveModulePosition100(2, Optional.empty()),
+                new SwerveModulePosition100(3, Optional.of(Rotation2d.fromDegrees(-90))),
+                new SwerveModulePosition100(4, Optional.of(Rotation2d.kPi)));
+        SwerveModulePositions.struct.pack(bb, p);
+        assertEquals(0, bb.remaining());
+        assertEquals(68, bb.position());
+        bb.rewind();
+        SwerveModulePositions p2 = SwerveModulePositions.struct.unpack(bb);
+        assertEquals(1.0, p2.frontLeft().distanceMeters, 0.001);
+        assertTrue(p2.frontRight().unwrappedAngle.isEmpty());
+        assertEquals(-Math.PI / 2, p2.rearLeft().unwrappedAngle.get().getRadians(), 0.001);
+        assertEquals(4.0, p2.rearRight().distanceMeters, 0.001);
+    }
+
     @Test
     void testPlus() {
         {
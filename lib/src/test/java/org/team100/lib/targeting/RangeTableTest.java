@@ -0,0 +1,118 @@
+package org.team100.lib.targeting;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class RangeTableTest {
+    private static final boolean DEBUG = false;
+    private static final double DELTA = 0.001;
+    /** Same elevations as Range. */
+    private static final RangeTable.Axis ELEVATION = new RangeTable.Axis(0, 1.57, 158);
+
+    @TempDir
+    Path dir;
+
+    /** Same as RangeTest. */
+    @Test
+    void testRange() {
+        Drag d = new Drag(0.5, 0.025, 0.1, 0.1, 0.1);
+        RangeTable t = RangeTable.generate(
+                d, ELEVATION, RangeTable.Axis.of(8), RangeTable.Axis.of(50));
+        RangeTable.Sample s = new RangeTable.Sample();
+        t.get(Math.PI / 4, 8, 50, s);
+        assertEquals(2.826, s.range(), DELTA);
+        assertEquals(1.010, s.tof(), DELTA);
+        // same interpolation as Range
+        Range r = new Range(d, 8, 50);
+        for (double elevation = 0; elevation < 1.5; elevation += 0.003) {
+            t.get(elevation, 8, 50, s);
+            assertEquals(r.get(elevation).range(), s.range(), 1e-9);
+            assertEquals(r.get(elevation).tof(), s.tof(), 1e-9);
+        }
+    }
+
+    /** Between grid points in speed and spin. */
+    @Test
+    void testInterpolation() {
+        Drag d = new Drag(0.5, 0.025, 0.1, 0.1, 0.1);
+        RangeTable t = RangeTable.generate(
+                d, ELEVATION, new RangeTable.Axis(6, 10, 9), new RangeTable.Axis(0, 50, 6));
+        RangeTable.Sample s = new RangeTable.Sample();
+        for (double elevation : new double[] { 0.2, 0.5, 0.8 }) {
+            Range.Solution expected = Range.shoot(d, 8.25, 25, elevation);
+            t.get(elevation, 8.25, 25, s);
+            if (DEBUG)
+                System.out.printf("%6.3f %6.3f %6.3f\n", elevation, expected.range(), s.range());
+            assertEquals(expected.range(), s.range(), 0.01);
+            assertEquals(expected.tof(), s.tof(), 0.01);
+        }
+    }
+
+    /** The derivative is the slope of the interpolation. */
+    @Test
+    void testDerivative() {
+        Drag d = new Drag(0.5, 0.025, 0.1, 0.1, 0.1);
+        RangeTable t = RangeTable.generate(
+                d, ELEVATION, RangeTable.Axis.of(10), RangeTable.Axis.of(0));
+        RangeTable.Sample s = new RangeTable.Sample();
+        RangeTable.Sample s2 = new RangeTable.Sample();
+        double h = 1e-6;
+        t.get(0.3005, 10, 0, s);
+        t.get(0.3005 + h, 10, 0, s2);
+        assertEquals((s2.range() - s.range()) / h, s.dRange(), 1e-6);
+        assertEquals((s2.tof() - s.tof()) / h, s.dTof(), 1e-6);
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        Drag d = new Drag(0.5, 0.025, 0.1, 0.1, 0.1);
+        RangeTable t = RangeTable.generate(
+                d, ELEVATION, new RangeTable.Axis(6, 10, 3), RangeTable.Axis.of(0));
+        Path path = dir.resolve("range.bin");
+        t.write(path);
+        if (DEBUG)
+            System.out.printf("file size %d\n", Files.size(path));
+        RangeTable t2 = RangeTable.read(path);
+        RangeTable.Sample s = new RangeTable.Sample();
+        RangeTable.Sample s2 = new RangeTable.Sample();
+        for (double speed = 6; speed <= 10; speed += 0.5) {
+            t.get(0.5, speed, 0, s);
+            t2.get(0.5, speed, 0, s2);
+            assertEquals(s.range(), s2.range(), 0);
+            assertEquals(s.tof(), s2.tof(), 0);
+        }
+    }
+
+    @Test
+    void testTruncated() throws IOException {
+        Drag d = new Drag(0.5, 0.025, 0.1, 0.1, 0.1);
+        RangeTable t = RangeTable.generate(
+                d, ELEVATION, RangeTable.Axis.of(10), RangeTable.Axis.of(0));
+        Path path = dir.resolve("range.bin");
+        t.write(path);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length / 2));
+        assertThrows(IOException.class, () -> RangeTable.read(path));
+        assertThrows(IOException.class, () -> RangeTable.read(dir.resolve("missing.bin")));
+    }
+
+    /** Generating a realistic table, in parallel. */
+    @Test
+    void testGenerate() {
+        Drag d = new Drag(0.5, 0.025, 0.1, 0.1, 0.1);
+        long startTime = System.nanoTime();
+        RangeTable.generate(
+                d, ELEVATION, new RangeTable.Axis(6, 10, 9), new RangeTable.Axis(0, 50, 3));
+        long finishTime = System.nanoTime();
+        if (DEBUG)
+            System.out.printf("ET (ms): %6.3f\n", (finishTime - startTime) / 1e6);
+    }
+}
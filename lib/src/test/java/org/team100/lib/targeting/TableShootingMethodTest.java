@@ -0,0 +1,105 @@
+package org.team100.lib.targeting;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.geometry.GlobalVelocityR2;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+public class TableShootingMethodTest {
+    private static final boolean DEBUG = false;
+    private static final double DELTA = 0.00001;
+    private static final Drag DRAG = new Drag(0.5, 0.025, 0.1, 0.1, 0.1);
+    /** Same elevations as Range; 10 is a grid speed, so at 10 it matches Range. */
+    private static final RangeTable TABLE = RangeTable.generate(
+            DRAG,
+            new RangeTable.Axis(0, 1.57, 158),
+            new RangeTable.Axis(8, 12, 5),
+            RangeTable.Axis.of(0));
+
+    /** Same cases as ShootingMethodTest. */
+    @Test
+    void testSameAsShootingMethod() {
+        TableShootingMethod m = new TableShootingMethod(TABLE, 0.0001);
+        verify(m, new GlobalVelocityR2(0, 0), 0, 0.156812);
+        // driving towards the target
+        verify(m, new GlobalVelocityR2(1, 0), 0, 0.129574);
+        // driving away from the target
+        verify(m, new GlobalVelocityR2(-2, 0), 0, 0.386036);
+        // driving to the left
+        verify(m, new GlobalVelocityR2(0, 2), -0.287561, 0.167844);
+        // driving fast away from the target
+        assertTrue(m.solve(10, 0, new Translation2d(), new GlobalVelocityR2(-10, 0),
+                new Translation2d(2, 0), GlobalVelocityR2.ZERO).isEmpty());
+    }
+
+    /** Between the speed grid points, close to the direct computation. */
+    @Test
+    void testSpeed() {
+        TableShootingMethod m = new TableShootingMethod(TABLE, 0.0001);
+        ShootingMethod direct = new ShootingMethod(new Range(DRAG, 9.5, 0), 0.0001);
+        Translation2d target = new Translation2d(2, 0);
+        GlobalVelocityR2 v = new GlobalVelocityR2(0, 2);
+        ShootingMethod.Solution expected = direct.solve(
+                new Translation2d(), v, target, GlobalVelocityR2.ZERO).orElseThrow();
+        ShootingMethod.Solution actual = m.solve(
+                9.5, 0, new Translation2d(), v, target, GlobalVelocityR2.ZERO).orElseThrow();
+        assertEquals(expected.azimuth().getRadians(), actual.azimuth().getRadians(), 0.001);
+        assertEquals(expected.elevation().getRadians(), actual.elevation().getRadians(), 0.001);
+    }
+
+    /**
+     * Strafing past the target, re-solving every 20 ms, compared with
+     * ShootingMethod solving from scratch.
+     */
+    @Test
+    void testWarmStart() {
+        TableShootingMethod m = new TableShootingMethod(TABLE, 0.0001);
+        ShootingMethod direct = new ShootingMethod(new Range(DRAG, 10, 0), 0.0001);
+        GlobalVelocityR2 v = new GlobalVelocityR2(0, 2);
+        Translation2d target = new Translation2d(2, 0);
+        int steps = 50;
+        int iterations = 0;
+        long tableNs = 0;
+        long directNs = 0;
+        for (int i = 0; i < steps; ++i) {
+            Translation2d robot = new Translation2d(0, -1 + 0.04 * i);
+            long t0 = System.nanoTime();
+            ShootingMethod.Solution actual = m.solve(
+                    10, 0, robot, v, target, GlobalVelocityR2.ZERO).orElseThrow();
+            long t1 = System.nanoTime();
+            ShootingMethod.Solution expected = direct.solve(
+                    robot, v, target, GlobalVelocityR2.ZERO).orElseThrow();
+            long t2 = System.nanoTime();
+            tableNs += t1 - t0;
+            directNs += t2 - t1;
+            iterations += m.getLastIterations();
+            assertEquals(expected.azimuth().getRadians(), actual.azimuth().getRadians(), 0.001);
+            assertEquals(expected.elevation().getRadians(), actual.elevation().getRadians(), 0.001);
+        }
+        if (DEBUG) {
+            System.out.printf("table  (us) %8.3f iterations %5.2f\n",
+                    tableNs / 1000.0 / steps, (double) iterations / steps);
+            System.out.printf("direct (us) %8.3f\n", directNs / 1000.0 / steps);
+        }
+    }
+
+    private static void verify(
+            TableShootingMethod m,
+            GlobalVelocityR2 robotVelocity,
+            double azimuth,
+            double elevation) {
+        // each case starts fresh
+        m.reset();
+        Optional<ShootingMethod.Solution> o = m.solve(
+                10, 0, new Translation2d(), robotVelocity,
+                new Translation2d(2, 0), GlobalVelocityR2.ZERO);
+        ShootingMethod.Solution x = o.orElseThrow();
+        assertEquals(azimuth, x.azimuth().getRadians(), DELTA);
+        assertEquals(elevation, x.elevation().getRadians(), DELTA);
+    }
+}
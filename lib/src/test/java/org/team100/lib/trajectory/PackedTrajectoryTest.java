@@ -0,0 +1,158 @@
+package org.team100.lib.trajectory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.geometry.HolonomicPose2d;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.state.ControlR3;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.subsystems.swerve.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.testing.Timeless;
+import org.team100.lib.trajectory.timing.TimedPose;
+import org.team100.lib.trajectory.timing.TimingConstraint;
+import org.team100.lib.trajectory.timing.TimingConstraintFactory;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+class PackedTrajectoryTest implements Timeless {
+    private static final boolean DEBUG = false;
+    private static final double DELTA = 1e-9;
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+
+    @Test
+    void testEmpty() {
+        PackedTrajectory p = new Trajectory100().packed();
+        assertTrue(p.isEmpty());
+        assertEquals(0, p.duration(), DELTA);
+        assertTrue(p.toTrajectory().isEmpty());
+    }
+
+    @Test
+    void testRoundTrip() {
+        Trajectory100 t = lShape();
+        Trajectory100 t2 = t.packed().toTrajectory();
+        assertEquals(t.length(), t2.length());
+        for (int i = 0; i < t.length(); ++i) {
+            verify(t.getPoint(i), t2.getPoint(i));
+        }
+    }
+
+    /** Packed sampling agrees with object sampling, everywhere. */
+    @Test
+    void testSample() {
+        Trajectory100 t = lShape();
+        PackedTrajectory p = t.packed();
+        PackedTrajectory.Cursor cursor = p.cursor();
+        PackedTrajectory.Sample s = new PackedTrajectory.Sample();
+        double duration = t.duration();
+        for (double time = -0.1; time < duration + 0.1; time += 0.001) {
+            TimedPose expected = t.sample(time);
+            p.sample(time, s);
+            verify(expected, s.toTimedPose());
+            verify(ControlR3.fromTimedPose(expected), s.control());
+            cursor.sample(time, s);
+            verify(expected, s.toTimedPose());
+        }
+    }
+
+    /**
+     * Follower workload: current and next, every 20 ms, made into ControlR3 as
+     * TrajectoryReferenceR3 does.
+     */
+    @Test
+    void testPerformance() {
+        for (double size : new double[] { 1, 4, 10 }) {
+            Trajectory100 t = square(size);
+            PackedTrajectory p = t.packed();
+            double duration = t.duration();
+            int reps = 20;
+            int samples = 0;
+            long start = System.nanoTime();
+            for (int rep = 0; rep < reps; ++rep) {
+                Trajectory100.Cursor cursor = t.cursor();
+                for (double time = 0; time < duration; time += 0.02) {
+                    ControlR3.fromTimedPose(cursor.sample(time));
+                    samples++;
+                }
+            }
+            long objectEnd = System.nanoTime();
+            PackedTrajectory.Sample s = new PackedTrajectory.Sample();
+            for (int rep = 0; rep < reps; ++rep) {
+                PackedTrajectory.Cursor cursor = p.cursor();
+                for (double time = 0; time < duration; time += 0.02) {
+                    cursor.sample(time, s);
+                    s.control();
+                }
+            }
+            long packedEnd = System.nanoTime();
+            if (DEBUG) {
+                System.out.printf("points %5d object (ns) %8.1f packed (ns) %8.1f\n",
+                        t.length(),
+                        (double) (objectEnd - start) / samples,
+                        (double) (packedEnd - objectEnd) / samples);
+            }
+        }
+    }
+
+    private static void verify(TimedPose expected, TimedPose actual) {
+        assertEquals(expected.getTimeS(), actual.getTimeS(), DELTA);
+        HolonomicPose2d e = expected.state().getPose();
+        HolonomicPose2d a = actual.state().getPose();
+        assertEquals(e.translation().getX(), a.translation().getX(), DELTA);
+        assertEquals(e.translation().getY(), a.translation().getY(), DELTA);
+        assertEquals(0, MathUtil.angleModulus(
+                e.heading().getRadians() - a.heading().getRadians()), DELTA);
+        assertEquals(0, MathUtil.angleModulus(
+                e.course().getRadians() - a.course().getRadians()), DELTA);
+        assertEquals(expected.state().getHeadingRateRad_M(), actual.state().getHeadingRateRad_M(), DELTA);
+        assertEquals(expected.state().getCurvature(), actual.state().getCurvature(), DELTA);
+        assertEquals(expected.state().getDCurvatureDs(), actual.state().getDCurvatureDs(), DELTA);
+        assertEquals(expected.velocityM_S(), actual.velocityM_S(), DELTA);
+        assertEquals(expected.acceleration(), actual.acceleration(), DELTA);
+    }
+
+    private static void verify(ControlR3 expected, ControlR3 actual) {
+        assertEquals(expected.x().x(), actual.x().x(), DELTA);
+        assertEquals(expected.x().v(), actual.x().v(), DELTA);
+        assertEquals(expected.x().a(), actual.x().a(), DELTA);
+        assertEquals(expected.y().x(), actual.y().x(), DELTA);
+        assertEquals(expected.y().v(), actual.y().v(), DELTA);
+        assertEquals(expected.y().a(), actual.y().a(), DELTA);
+        assertEquals(0, MathUtil.angleModulus(expected.theta().x() - actual.theta().x()), DELTA);
+        assertEquals(expected.theta().v(), actual.theta().v(), DELTA);
+        assertEquals(expected.theta().a(), actual.theta().a(), DELTA);
+    }
+
+    private static Trajectory100 lShape() {
+        List<HolonomicPose2d> waypoints = List.of(
+                new HolonomicPose2d(new Translation2d(), Rotation2d.kZero, Rotation2d.kZero),
+                new HolonomicPose2d(new Translation2d(1, 0), Rotation2d.kCCW_Pi_2, Rotation2d.kCCW_Pi_2),
+                new HolonomicPose2d(new Translation2d(1, 1), Rotation2d.kPi, Rotation2d.kCCW_Pi_2));
+        return plan(waypoints);
+    }
+
+    /** Three sides of a square. */
+    private static Trajectory100 square(double size) {
+        List<HolonomicPose2d> waypoints = List.of(
+                new HolonomicPose2d(new Translation2d(), Rotation2d.kZero, Rotation2d.kZero),
+                new HolonomicPose2d(new Translation2d(size, 0), Rotation2d.kCCW_Pi_2, Rotation2d.kCCW_Pi_2),
+                new HolonomicPose2d(new Translation2d(size, size), Rotation2d.kPi, Rotation2d.kPi),
+                new HolonomicPose2d(new Translation2d(0, size), Rotation2d.kCW_Pi_2, Rotation2d.kPi));
+        return plan(waypoints);
+    }
+
+    private static Trajectory100 plan(List<HolonomicPose2d> waypoints) {
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.forTest3(logger);
+        List<TimingConstraint> constraints = new TimingConstraintFactory(limits).fast(logger);
+        TrajectoryPlanner planner = new TrajectoryPlanner(constraints);
+        return planner.restToRest(waypoints);
+    }
+}
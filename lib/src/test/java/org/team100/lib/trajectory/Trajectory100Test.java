@@ -187,4 +187,129 @@ class Trajectory100Test implements Timeless{
                     0.000001 * duration, (double) duration / (reps * times));
     }
 
+    /** The cursor and binary search agree with the linear scan, everywhere. */
+    @Test
+    void testCursor() {
+        Trajectory100 trajectory = lShape();
+        Trajectory100.Cursor cursor = trajectory.cursor();
+        double duration = trajectory.duration();
+        // forward, with a step smaller than the point spacing
+        for (double t = -0.1; t < duration + 0.1; t += 0.001) {
+            verify(linearSample(trajectory, t), trajectory.sample(t));
+            verify(linearSample(trajectory, t), cursor.sample(t));
+        }
+        // backward
+        for (double t = duration + 0.1; t > -0.1; t -= 0.003) {
+            verify(linearSample(trajectory, t), cursor.sample(t));
+        }
+        // alternating, like "current" and "next" using the same cursor
+        cursor.reset();
+        for (double t = 0; t < duration; t += 0.02) {
+            verify(linearSample(trajectory, t), cursor.sample(t));
+            verify(linearSample(trajectory, t + 0.02), cursor.sample(t + 0.02));
+        }
+        // big jumps
+        for (int i = 0; i < 100; ++i) {
+            double t = (i * 0.37) % duration;
+            verify(linearSample(trajectory, t), cursor.sample(t));
+        }
+    }
+
+    /**
+     * Compares the linear scan, binary search, and cursor, across trajectory
+     * lengths, with the follower workload: samples every 20 ms.
+     */
+    @Test
+    void testSamplerPerformance() {
+        for (double size : new double[] { 1, 4, 10 }) {
+            Trajectory100 trajectory = square(size);
+            double duration = trajectory.duration();
+            int reps = 20;
+            int samples = 0;
+            long start = System.nanoTime();
+            for (int rep = 0; rep < reps; ++rep) {
+                for (double t = 0; t < duration; t += 0.02) {
+                    linearSample(trajectory, t);
+                    samples++;
+                }
+            }
+            long linearEnd = System.nanoTime();
+            for (int rep = 0; rep < reps; ++rep) {
+                for (double t = 0; t < duration; t += 0.02) {
+                    trajectory.sample(t);
+                }
+            }
+            long binaryEnd = System.nanoTime();
+            for (int rep = 0; rep < reps; ++rep) {
+                Trajectory100.Cursor cursor = trajectory.cursor();
+                for (double t = 0; t < duration; t += 0.02) {
+                    cursor.sample(t);
+                }
+            }
+            long cursorEnd = System.nanoTime();
+            if (DEBUG) {
+                System.out.printf("points %5d linear (ns) %8.1f binary (ns) %8.1f cursor (ns) %8.1f\n",
+                        trajectory.length(),
+                        (double) (linearEnd - start) / samples,
+                        (double) (binaryEnd - linearEnd) / samples,
+                        (double) (cursorEnd - binaryEnd) / samples);
+            }
+        }
+    }
+
+    private static void verify(TimedPose expected, TimedPose actual) {
+        assertEquals(expected.getTimeS(), actual.getTimeS(), 1e-9);
+        assertEquals(expected.state().getPose().translation().getX(),
+                actual.state().getPose().translation().getX(), 1e-9);
+        assertEquals(expected.state().getPose().translation().getY(),
+                actual.state().getPose().translation().getY(), 1e-9);
+    }
+
+    /** The old sampler, for comparison. */
+    private static TimedPose linearSample(Trajectory100 trajectory, double timeS) {
+        if (timeS >= trajectory.duration()) {
+            return trajectory.getLastPoint();
+        }
+        if (timeS <= 0) {
+            return trajectory.getPoint(0);
+        }
+        for (int i = 1; i < trajectory.length(); ++i) {
+            final TimedPose ceil = trajectory.getPoint(i);
+            if (ceil.getTimeS() >= timeS) {
+                final TimedPose floor = trajectory.getPoint(i - 1);
+                double betweenPoints = ceil.getTimeS() - floor.getTimeS();
+                if (Math.abs(betweenPoints) <= 1e-12) {
+                    return ceil;
+                }
+                double t = (timeS - floor.getTimeS()) / betweenPoints;
+                return floor.interpolate2(ceil, t);
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private static Trajectory100 lShape() {
+        List<HolonomicPose2d> waypoints = List.of(
+                new HolonomicPose2d(new Translation2d(), Rotation2d.kZero, Rotation2d.kZero),
+                new HolonomicPose2d(new Translation2d(1, 0), Rotation2d.kCCW_Pi_2, Rotation2d.kCCW_Pi_2),
+                new HolonomicPose2d(new Translation2d(1, 1), Rotation2d.kPi, Rotation2d.kCCW_Pi_2));
+        return plan(waypoints);
+    }
+
+    /** Three sides of a square. */
+    private static Trajectory100 square(double size) {
+        List<HolonomicPose2d> waypoints = List.of(
+                new HolonomicPose2d(new Translation2d(), Rotation2d.kZero, Rotation2d.kZero),
+                new HolonomicPose2d(new Translation2d(size, 0), Rotation2d.kCCW_Pi_2, Rotation2d.kCCW_Pi_2),
+                new HolonomicPose2d(new Translation2d(size, size), Rotation2d.kPi, Rotation2d.kPi),
+                new HolonomicPose2d(new Translation2d(0, size), Rotation2d.kCW_Pi_2, Rotation2d.kPi));
+        return plan(waypoints);
+    }
+
+    private static Trajectory100 plan(List<HolonomicPose2d> waypoints) {
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.forTest3(logger);
+        List<TimingConstraint> constraints = new TimingConstraintFactory(limits).fast(logger);
+        TrajectoryPlanner planner = new TrajectoryPlanner(constraints);
+        return planner.restToRest(waypoints);
+    }
 }
@@ -0,0 +1,159 @@
+package org.team100.lib.trajectory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.team100.lib.geometry.HolonomicPose2d;
+import org.team100.lib.geometry.Pose2dWithMotion;
+import org.team100.lib.trajectory.timing.TimedPose;
+import org.team100.lib.trajectory.timing.TimingConstraint;
+import org.team100.lib.trajectory.timing.TimingConstraint.MinMaxAcceleration;
+import org.team100.lib.trajectory.timing.TimingConstraint.NonNegativeDouble;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+class TrajectoryLibraryTest {
+    private static final boolean DEBUG = false;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRoundTrip() throws IOException {
+        List<TrajectoryLibrary.Entry> entries = TrajectoryLibrary.plan(planner(), List.of(
+                move("one", 1),
+                move("two", 2)));
+        assertEquals(2, entries.size());
+        Path path = dir.resolve("test.bin");
+        TrajectoryLibrary.write(path, planner().fingerprint(), entries);
+        if (DEBUG)
+            System.out.printf("file size %d\n", Files.size(path));
+
+        List<TrajectoryLibrary.Entry> read = TrajectoryLibrary.read(path, planner().fingerprint());
+        assertEquals(2, read.size());
+        for (int i = 0; i < 2; ++i) {
+            TrajectoryLibrary.Entry expected = entries.get(i);
+            TrajectoryLibrary.Entry actual = read.get(i);
+            assertEquals(expected.name(), actual.name());
+            assertEquals(expected.waypoints(), actual.waypoints());
+            Trajectory100 t0 = expected.trajectory();
+            Trajectory100 t1 = actual.trajectory();
+            assertEquals(t0.length(), t1.length());
+            assertEquals(t0.duration(), t1.duration(), 0);
+            for (int j = 0; j < t0.length(); ++j) {
+                TimedPose p0 = t0.getPoint(j);
+                TimedPose p1 = t1.getPoint(j);
+                assertEquals(p0.state(), p1.state());
+                assertEquals(p0.getTimeS(), p1.getTimeS(), 0);
+                assertEquals(p0.velocityM_S(), p1.velocityM_S(), 0);
+                assertEquals(p0.acceleration(), p1.acceleration(), 0);
+            }
+        }
+    }
+
+    @Test
+    void testMissing() {
+        assertThrows(IOException.class,
+                () -> TrajectoryLibrary.read(dir.resolve("missing.bin"), 0));
+    }
+
+    @Test
+    void testTruncated() throws IOException {
+        Path path = dir.resolve("test.bin");
+        long fingerprint = planner().fingerprint();
+        TrajectoryLibrary.write(path, fingerprint,
+                TrajectoryLibrary.plan(planner(), List.of(move("one", 1))));
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length / 2));
+        assertThrows(IOException.class, () -> TrajectoryLibrary.read(path, fingerprint));
+    }
+
+    /** A library planned with different constraints or tolerances is rejected. */
+    @Test
+    void testStale() throws IOException {
+        Path path = dir.resolve("test.bin");
+        TrajectoryPlanner slow = planner(1);
+        TrajectoryLibrary.write(path, slow.fingerprint(),
+                TrajectoryLibrary.plan(slow, List.of(move("one", 1))));
+        assertEquals(1, TrajectoryLibrary.read(path, planner(1).fingerprint()).size());
+        // different constraint parameter
+        assertNotEquals(slow.fingerprint(), planner(2).fingerprint());
+        assertThrows(IOException.class,
+                () -> TrajectoryLibrary.read(path, planner(2).fingerprint()));
+        // different constraint
+        assertThrows(IOException.class,
+                () -> TrajectoryLibrary.read(path, planner().fingerprint()));
+        // different step
+        TrajectoryPlanner coarse = new TrajectoryPlanner(0.02, 0.2, 0.2, List.of(limit(1)));
+        assertThrows(IOException.class,
+                () -> TrajectoryLibrary.read(path, coarse.fingerprint()));
+    }
+
+    /**
+     * The service uses preloaded trajectories for requests within a couple of
+     * millimeters, and plans the rest, so the reference doesn't jump.
+     */
+    @Test
+    void testPreload() throws Exception {
+        TrajectoryLibrary.Entry entry = TrajectoryLibrary.plan(planner(), List.of(move("one", 1))).get(0);
+        TrajectoryPlanningService service = new TrajectoryPlanningService(planner());
+        service.preload(entry);
+        // A millimeter off
+        List<HolonomicPose2d> waypoints = List.of(
+                pose(0.001),
+                pose(1));
+        assertSame(entry.trajectory(), service.restToRest(waypoints).get());
+        assertEquals(1, service.getHits());
+        assertEquals(0, service.getMisses());
+        // A centimeter off is too far: the reference would jump at the start.
+        Trajectory100 planned = service.restToRest(List.of(pose(0.01), pose(1))).get();
+        assertEquals(1, service.getMisses());
+        assertNotSame(entry.trajectory(), planned);
+        assertEquals(0.01, planned.getPoint(0).state().getPose().translation().getX(), 1e-6);
+    }
+
+    private static TrajectoryPlanner planner() {
+        List<TimingConstraint> constraints = new ArrayList<>();
+        return new TrajectoryPlanner(constraints);
+    }
+
+    private static TrajectoryPlanner planner(double maxVelocity) {
+        return new TrajectoryPlanner(List.of(limit(maxVelocity)));
+    }
+
+    /** A constant velocity limit. */
+    private static TimingConstraint limit(double maxVelocity) {
+        return new TimingConstraint() {
+            @Override
+            public NonNegativeDouble getMaxVelocity(Pose2dWithMotion state) {
+                return new NonNegativeDouble(maxVelocity);
+            }
+
+            @Override
+            public MinMaxAcceleration getMinMaxAcceleration(Pose2dWithMotion state, double velocityM_S) {
+                return MinMaxAcceleration.NO_LIMITS;
+            }
+        };
+    }
+
+    private static TrajectoryLibrary.Entry move(String name, double x) {
+        return new TrajectoryLibrary.Entry(name, List.of(pose(0), pose(x)), 0, 0, null);
+    }
+
+    private static HolonomicPose2d pose(double x) {
+        return new HolonomicPose2d(new Translation2d(x, 0), new Rotation2d(), new Rotation2d());
+    }
+}
@@ -0,0 +1,92 @@
+package org.team100.lib.trajectory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.geometry.HolonomicPose2d;
+import org.team100.lib.trajectory.timing.TimingConstraint;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+class TrajectoryPlanningServiceTest {
+    private static final boolean DEBUG = false;
+
+    @Test
+    void testPlan() throws Exception {
+        TrajectoryPlanningService service = service();
+        CompletableFuture<Trajectory100> f = service.restToRest(line(1));
+        Trajectory100 t = f.get();
+        // same as TrajectoryPlannerTest.testLinear()
+        assertEquals(12, t.length());
+        assertEquals(0, service.getHits());
+        assertEquals(1, service.getMisses());
+    }
+
+    @Test
+    void testCache() throws Exception {
+        TrajectoryPlanningService service = service();
+        CompletableFuture<Trajectory100> f1 = service.restToRest(line(1));
+        // less than the quantum away, so it's the same trajectory
+        CompletableFuture<Trajectory100> f2 = service.restToRest(line(1.001));
+        assertSame(f1, f2);
+        assertSame(f1.get(), f2.get());
+        assertEquals(1, service.getHits());
+        assertEquals(1, service.getMisses());
+        // different enough to plan again
+        CompletableFuture<Trajectory100> f3 = service.restToRest(line(2));
+        assertFalse(f1 == f3);
+        assertTrue(f3.get().duration() > f1.get().duration());
+        assertEquals(2, service.getMisses());
+    }
+
+    @Test
+    void testClear() throws Exception {
+        TrajectoryPlanningService service = service();
+        CompletableFuture<Trajectory100> f1 = service.restToRest(line(1));
+        f1.get();
+        service.clear();
+        CompletableFuture<Trajectory100> f2 = service.restToRest(line(1));
+        assertFalse(f1 == f2);
+        assertEquals(2, service.getMisses());
+    }
+
+    /** Planning doesn't block the caller; a hit is much faster than a miss. */
+    @Test
+    void testLatency() throws Exception {
+        TrajectoryPlanningService service = service();
+        List<HolonomicPose2d> waypoints = line(3);
+        long t0 = System.nanoTime();
+        CompletableFuture<Trajectory100> f = service.restToRest(waypoints);
+        long t1 = System.nanoTime();
+        f.get();
+        long t2 = System.nanoTime();
+        service.restToRest(waypoints).get();
+        long t3 = System.nanoTime();
+        if (DEBUG) {
+            System.out.printf("request %.3f ms, plan %.3f ms, hit %.3f ms\n",
+                    (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6);
+        }
+        assertEquals(1, service.getHits());
+    }
+
+    private static TrajectoryPlanningService service() {
+        List<TimingConstraint> constraints = new ArrayList<>();
+        return new TrajectoryPlanningService(new TrajectoryPlanner(constraints));
+    }
+
+    private static List<HolonomicPose2d> line(double x) {
+        return List.of(pose(0), pose(x));
+    }
+
+    private static HolonomicPose2d pose(double x) {
+        return new HolonomicPose2d(new Translation2d(x, 0), new Rotation2d(), new Rotation2d());
+    }
+}
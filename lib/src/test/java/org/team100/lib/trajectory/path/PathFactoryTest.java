@@ -66,7 +66,10 @@ public class PathFactoryTest implements Timeless {
                         trajectory.sample(t).state().getPose().translation().getY());
         }
 
-        assertEquals(13, path.length());
+        // The finite-difference optimizer left a kink at the corner (curvature
+        // 3.9, -0.1, 3.9), which took 13 points. Gauss-Newton makes one smooth
+        // peak (3.4), and a shorter path (2.06 m, not 2.10 m), which takes 11.
+        assertEquals(11, path.length());
         Pose2dWithMotion p = path.getPoint(0);
         assertEquals(0, p.getPose().translation().getX(), DELTA);
         assertEquals(0, p.getPose().heading().getRadians(), DELTA);
@@ -224,4 +227,147 @@ public class PathFactoryTest implements Timeless {
         assertEquals(0, p.getHeadingRateRad_M(), DELTA);
     }
 
+    /** The iterative sampler picks the same points as the recursive one. */
+    @Test
+    void testSamplerMatchesRecursive() {
+        for (List<HolonomicSpline> splines : List.of(
+                splines(plannerCases().get(0)),
+                splines(plannerCases().get(1)),
+                splines(plannerCases().get(2)))) {
+            for (double tolerance : new double[] { 0.05, 0.01, 0.002 }) {
+                List<Pose2dWithMotion> expected = recursive(splines, tolerance, tolerance, tolerance);
+                List<Pose2dWithMotion> actual = PathFactory.parameterizeSplines(
+                        splines, tolerance, tolerance, tolerance);
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); ++i) {
+                    assertEquals(expected.get(i), actual.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Sampling time for the TrajectoryPlannerTest waypoints, the old recursive
+     * sampler vs the iterative Sampler in PathFactory, at the usual tolerance and
+     * tighter ones. Both are warmed up first, and both results are used, so the
+     * JIT can't drop either loop.
+     */
+    @Test
+    void testSamplerPerformance() {
+        final int iterations = 100;
+        double[] tolerances = new double[] { 0.05, 0.01, 0.002 };
+        // warm up
+        for (List<HolonomicPose2d> waypoints : plannerCases()) {
+            List<HolonomicSpline> splines = splines(waypoints);
+            for (double tolerance : tolerances) {
+                for (int i = 0; i < iterations; ++i) {
+                    recursive(splines, tolerance, tolerance, tolerance);
+                    PathFactory.parameterizeSplines(splines, tolerance, tolerance, tolerance);
+                }
+            }
+        }
+        long recursiveTotal = 0;
+        long samplerTotal = 0;
+        for (List<HolonomicPose2d> waypoints : plannerCases()) {
+            List<HolonomicSpline> splines = splines(waypoints);
+            for (double tolerance : tolerances) {
+                int recursivePoints = 0;
+                int samplerPoints = 0;
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; ++i) {
+                    recursivePoints += recursive(splines, tolerance, tolerance, tolerance).size();
+                }
+                long recursiveEnd = System.nanoTime();
+                for (int i = 0; i < iterations; ++i) {
+                    samplerPoints += PathFactory.parameterizeSplines(
+                            splines, tolerance, tolerance, tolerance).size();
+                }
+                long samplerEnd = System.nanoTime();
+                assertEquals(recursivePoints, samplerPoints);
+                recursiveTotal += recursiveEnd - start;
+                samplerTotal += samplerEnd - recursiveEnd;
+                if (DEBUG) {
+                    System.out.printf(
+                            "tolerance %5.3f points %5d recursive (us) %8.1f sampler (us) %8.1f\n",
+                            tolerance, samplerPoints / iterations,
+                            (recursiveEnd - start) / 1e3 / iterations,
+                            (samplerEnd - recursiveEnd) / 1e3 / iterations);
+                }
+            }
+        }
+        if (DEBUG) {
+            System.out.printf("total recursive (ms) %8.3f sampler (ms) %8.3f ratio %5.2f\n",
+                    recursiveTotal / 1e6, samplerTotal / 1e6, (double) recursiveTotal / samplerTotal);
+        }
+    }
+
+    /** Waypoints from TrajectoryPlannerTest. */
+    private static List<List<HolonomicPose2d>> plannerCases() {
+        return List.of(
+                // testLinear
+                List.of(
+                        new HolonomicPose2d(new Translation2d(), new Rotation2d(), new Rotation2d()),
+                        new HolonomicPose2d(new Translation2d(1, 0), new Rotation2d(), new Rotation2d())),
+                // testBackingUp
+                List.of(
+                        new HolonomicPose2d(new Translation2d(0, 0), Rotation2d.kZero, new Rotation2d(Math.PI)),
+                        new HolonomicPose2d(new Translation2d(1, 0), Rotation2d.kZero, Rotation2d.kZero)),
+                // testPerformance
+                List.of(
+                        new HolonomicPose2d(new Translation2d(), new Rotation2d(), new Rotation2d()),
+                        new HolonomicPose2d(new Translation2d(1, 1), new Rotation2d(), new Rotation2d(Math.PI / 2))));
+    }
+
+    private static List<HolonomicSpline> splines(List<HolonomicPose2d> waypoints) {
+        List<HolonomicSpline> splines = new ArrayList<>();
+        for (int i = 1; i < waypoints.size(); ++i) {
+            splines.add(new HolonomicSpline(waypoints.get(i - 1), waypoints.get(i)));
+        }
+        return splines;
+    }
+
+    /** The old recursive sampler, for comparison. */
+    private static List<Pose2dWithMotion> recursive(
+            List<HolonomicSpline> splines, double maxDx, double maxDy, double maxDTheta) {
+        List<Pose2dWithMotion> rv = new ArrayList<>();
+        rv.add(splines.get(0).getPose2dWithMotion(0.0));
+        for (HolonomicSpline s : splines) {
+            recursiveArc(s, rv, 0, 1, maxDx, maxDy, maxDTheta);
+        }
+        return rv;
+    }
+
+    private static void recursiveArc(
+            HolonomicSpline s,
+            List<Pose2dWithMotion> rv,
+            double t0,
+            double t1,
+            double maxDx,
+            double maxDy,
+            double maxDTheta) {
+        Pose2d p0 = s.getPose2d(t0);
+        Pose2d phalf = s.getPose2d(t0 + (t1 - t0) * .5);
+        Pose2d p1 = s.getPose2d(t1);
+        Twist2d twist_full = Pose2d.kZero.log(GeometryUtil.transformBy(GeometryUtil.inverse(p0), p1));
+        Pose2d phalf_predicted = GeometryUtil.transformBy(p0,
+                Pose2d.kZero.exp(GeometryUtil.scale(twist_full, 0.5)));
+        Pose2d error = GeometryUtil.transformBy(GeometryUtil.inverse(phalf), phalf_predicted);
+        if (GeometryUtil.norm(twist_full) < 1e-6) {
+            return;
+        }
+        Rotation2d course_predicted = (new Rotation2d(twist_full.dx, twist_full.dy))
+                .rotateBy(phalf_predicted.getRotation());
+        Rotation2d course_half = s.getCourse(t0 + (t1 - t0) * .5).orElse(course_predicted);
+        double course_error = course_predicted.unaryMinus().rotateBy(course_half).getRadians();
+        if (Math.abs(error.getTranslation().getY()) > maxDy ||
+                Math.abs(error.getTranslation().getX()) > maxDx ||
+                Math.abs(error.getRotation().getRadians()) > maxDTheta ||
+                Math.abs(course_error) > maxDTheta) {
+            recursiveArc(s, rv, t0, (t0 + t1) / 2, maxDx, maxDy, maxDTheta);
+            recursiveArc(s, rv, (t0 + t1) / 2, t1, maxDx, maxDy, maxDTheta);
+        } else {
+            rv.add(s.getPose2dWithMotion(t1));
+        }
+    }
+
 }
@@ -44,7 +44,8 @@ class QuinticHermiteOptimizerTest {
         splines1.add(new HolonomicSpline(e, f));
         splines1.add(new HolonomicSpline(f, g));
 
-        assertEquals(0.54, SplineUtil.optimizeSpline(splines1), 0.01);
+        // the finite-difference optimizer stopped at 0.5376
+        assertEquals(0.536, SplineUtil.optimizeSpline(splines1), 0.001);
 
         HolonomicPose2d h = new HolonomicPose2d(
                 new Translation2d(0, 0), new Rotation2d(), Rotation2d.fromDegrees(0));
@@ -97,7 +98,8 @@ class QuinticHermiteOptimizerTest {
         splines1.add(new HolonomicSpline(e, f));
         splines1.add(new HolonomicSpline(f, g));
 
-        assertEquals(0.54, SplineUtil.optimizeSpline(splines1), 0.01);
+        // the finite-difference optimizer stopped at 0.5376
+        assertEquals(0.536, SplineUtil.optimizeSpline(splines1), 0.001);
 
         HolonomicPose2d h = new HolonomicPose2d(
                 new Translation2d(0, 0), new Rotation2d(), Rotation2d.fromDegrees(0));
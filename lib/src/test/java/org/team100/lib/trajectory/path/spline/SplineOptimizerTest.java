@@ -0,0 +1,173 @@
+package org.team100.lib.trajectory.path.spline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.geometry.HolonomicPose2d;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+class SplineOptimizerTest {
+    private static final boolean DEBUG = false;
+
+    /** The analytic gradient matches finite differences. */
+    @Test
+    void testGradient() {
+        List<HolonomicSpline> splines = splines(List.of(
+                pose(0, 0, 0),
+                pose(1, 0, 90),
+                pose(1, 1, 180),
+                pose(0, 1, -90)));
+        // move away from the initial guess a bit
+        splines.set(0, splines.get(0).addToSecondDerivatives(0, 0.3, 0, -0.7));
+        splines.set(1, splines.get(1).addToSecondDerivatives(0.3, 1.1, -0.7, 0.2));
+        splines.set(2, splines.get(2).addToSecondDerivatives(1.1, 0, 0.2, 0));
+        int[] index = { 0, 2 };
+        double[][] h = new double[4][4];
+        double[] g = new double[4];
+        double cost = SplineOptimizer.linearize(splines, index, h, g);
+        assertEquals(SplineUtil.sumDCurvature2(splines), cost, 1e-9);
+        double epsilon = 1e-6;
+        for (int v = 0; v < 4; ++v) {
+            int joint = v / 2;
+            double ddx = v % 2 == 0 ? epsilon : 0;
+            double ddy = v % 2 == 0 ? 0 : epsilon;
+            List<HolonomicSpline> moved = new ArrayList<>(splines);
+            moved.set(joint, moved.get(joint).addToSecondDerivatives(0, ddx, 0, ddy));
+            moved.set(joint + 1, moved.get(joint + 1).addToSecondDerivatives(ddx, 0, ddy, 0));
+            double fd = (SplineUtil.sumDCurvature2(moved) - cost) / epsilon;
+            // g is half the gradient
+            assertEquals(fd, 2 * g[v], 1e-3 * Math.abs(fd));
+        }
+    }
+
+    /** Finds a minimum at least as good as the old method. */
+    @Test
+    void testCompare() {
+        List<List<HolonomicPose2d>> cases = cases();
+        for (List<HolonomicPose2d> waypoints : cases) {
+            List<HolonomicSpline> s0 = splines(waypoints);
+            List<HolonomicSpline> s1 = splines(waypoints);
+            SplineOptimizer.Result fd = SplineUtil.optimizeFiniteDifference(s0);
+            SplineOptimizer.Result analytic = SplineOptimizer.optimize(s1);
+            if (DEBUG) {
+                System.out.printf("finite difference %10.5f (%2d)  analytic %10.5f (%2d)\n",
+                        fd.cost(), fd.iterations(), analytic.cost(), analytic.iterations());
+            }
+            assertTrue(analytic.cost() <= fd.cost() * 1.001);
+            assertTrue(analytic.iterations() < 10);
+            assertTrue(SplineUtil.verifyC2(s1));
+        }
+    }
+
+    /** The old method stops early on this one. */
+    @Test
+    void testCorner() {
+        List<HolonomicPose2d> waypoints = List.of(
+                pose(0, 0, 0),
+                pose(1, 0, 45),
+                pose(1, 1, 90));
+        List<HolonomicSpline> s0 = splines(waypoints);
+        List<HolonomicSpline> s1 = splines(waypoints);
+        SplineOptimizer.Result fd = SplineUtil.optimizeFiniteDifference(s0);
+        SplineOptimizer.Result analytic = SplineOptimizer.optimize(s1);
+        if (DEBUG) {
+            System.out.printf("finite difference %10.5f (%2d)  analytic %10.5f (%2d)\n",
+                    fd.cost(), fd.iterations(), analytic.cost(), analytic.iterations());
+        }
+        assertTrue(analytic.cost() < fd.cost());
+    }
+
+    /** Colinear joints are left alone, as before. */
+    @Test
+    void testColinear() {
+        List<HolonomicSpline> splines = splines(List.of(
+                pose(0, 0, 0),
+                pose(1, 0, 0),
+                pose(2, 0, 0)));
+        SplineOptimizer.Result r = SplineOptimizer.optimize(splines);
+        assertEquals(0, r.iterations());
+        assertEquals(0, r.cost(), 1e-12);
+        assertEquals(0, splines.get(0).ddx(1), 1e-12);
+    }
+
+    @Test
+    void testPerformance() {
+        List<List<HolonomicPose2d>> cases = cases();
+        int reps = 20;
+        long fdNs = 0;
+        long analyticNs = 0;
+        int fdIterations = 0;
+        int analyticIterations = 0;
+        for (int rep = 0; rep < reps; ++rep) {
+            for (List<HolonomicPose2d> waypoints : cases) {
+                List<HolonomicSpline> s0 = splines(waypoints);
+                List<HolonomicSpline> s1 = splines(waypoints);
+                long t0 = System.nanoTime();
+                fdIterations += SplineUtil.optimizeFiniteDifference(s0).iterations();
+                long t1 = System.nanoTime();
+                analyticIterations += SplineOptimizer.optimize(s1).iterations();
+                long t2 = System.nanoTime();
+                fdNs += t1 - t0;
+                analyticNs += t2 - t1;
+            }
+        }
+        int n = reps * cases.size();
+        if (DEBUG) {
+            System.out.printf("finite difference %8.3f ms %5.1f iterations\n",
+                    fdNs / 1e6 / n, (double) fdIterations / n);
+            System.out.printf("analytic          %8.3f ms %5.1f iterations\n",
+                    analyticNs / 1e6 / n, (double) analyticIterations / n);
+        }
+    }
+
+    /** The QuinticHermiteOptimizerTest cases, and a long zigzag. */
+    private static List<List<HolonomicPose2d>> cases() {
+        List<HolonomicPose2d> zigzag = new ArrayList<>();
+        zigzag.add(pose(0, 0, 0));
+        for (int i = 1; i < 9; ++i) {
+            zigzag.add(pose(2 * i, i % 2 == 0 ? -1 : 1, 0));
+        }
+        zigzag.add(pose(18, 0, 0));
+        return List.of(
+                List.of(
+                        pose(0, 100, 270),
+                        pose(50, 0, 0),
+                        pose(100, 100, 90)),
+                List.of(
+                        pose(0, 0, 90),
+                        pose(0, 50, 0),
+                        pose(100, 50, -90),
+                        pose(100, 0, -180)),
+                List.of(
+                        pose(0, 0, 0),
+                        pose(50, 0, 0),
+                        pose(100, 50, 45),
+                        pose(150, 0, 270),
+                        pose(150, -50, 270)),
+                List.of(
+                        pose(0, 0, 0),
+                        pose(1, 0, 90),
+                        pose(1, 1, 180),
+                        pose(0, 1, -90)),
+                zigzag);
+    }
+
+    private static List<HolonomicSpline> splines(List<HolonomicPose2d> waypoints) {
+        List<HolonomicSpline> splines = new ArrayList<>();
+        for (int i = 1; i < waypoints.size(); ++i) {
+            splines.add(new HolonomicSpline(waypoints.get(i - 1), waypoints.get(i)));
+        }
+        return splines;
+    }
+
+    private static HolonomicPose2d pose(double x, double y, double courseDeg) {
+        return new HolonomicPose2d(
+                new Translation2d(x, y), new Rotation2d(), Rotation2d.fromDegrees(courseDeg));
+    }
+}
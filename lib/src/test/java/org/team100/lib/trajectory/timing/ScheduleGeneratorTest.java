@@ -300,4 +300,50 @@ public class ScheduleGeneratorTest {
 
     }
 
+    /**
+     * Long path with realistic constraints, with and without the parallel
+     * velocity pre-pass. The results are the same.
+     */
+    @Test
+    void testParallelPerformance() {
+        List<HolonomicPose2d> waypoints = new ArrayList<>();
+        // zig-zag, 2 m per leg, turning as it goes.
+        for (int i = 0; i < 10; ++i) {
+            waypoints.add(new HolonomicPose2d(
+                    new Translation2d(2 * i, (i % 2) * 2),
+                    new Rotation2d(i),
+                    new Rotation2d(Math.PI / 4 * ((i % 2) == 0 ? 1 : -1))));
+        }
+        Path100 path = PathFactory.pathFromWaypoints(waypoints, 0.01, 0.01, 0.05);
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.forRealisticTest(logger);
+        List<TimingConstraint> constraints = new TimingConstraintFactory(limits).medium(logger);
+        ScheduleGenerator sequential = new ScheduleGenerator(constraints, false);
+        ScheduleGenerator parallel = new ScheduleGenerator(constraints, true);
+        final double step = 0.01;
+        final int iterations = 20;
+
+        Trajectory100 t1 = new Trajectory100();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            t1 = sequential.timeParameterizeTrajectory(path, step, 0, 0);
+        }
+        long sequentialEnd = System.nanoTime();
+        Trajectory100 t2 = new Trajectory100();
+        for (int i = 0; i < iterations; ++i) {
+            t2 = parallel.timeParameterizeTrajectory(path, step, 0, 0);
+        }
+        long parallelEnd = System.nanoTime();
+        if (DEBUG) {
+            System.out.printf("points %d sequential (ms) %8.3f parallel (ms) %8.3f\n",
+                    t1.length(),
+                    (sequentialEnd - start) / 1e6 / iterations,
+                    (parallelEnd - sequentialEnd) / 1e6 / iterations);
+        }
+        assertEquals(t1.length(), t2.length());
+        for (int i = 0; i < t1.length(); ++i) {
+            assertEquals(t1.getPoint(i).getTimeS(), t2.getPoint(i).getTimeS(), 0);
+            assertEquals(t1.getPoint(i).velocityM_S(), t2.getPoint(i).velocityM_S(), 0);
+        }
+    }
+
 }
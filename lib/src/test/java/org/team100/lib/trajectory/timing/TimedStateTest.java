@@ -2,6 +2,9 @@ package org.team100.lib.trajectory.timing;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import org.junit.jupiter.api.Test;
 import org.team100.lib.geometry.HolonomicPose2d;
 import org.team100.lib.geometry.Pose2dWithMotion;
@@ -35,4 +38,27 @@ class TimedStateTest {
         assertEquals(0.5, intermediate_state.velocityM_S(), EPSILON);
         assertEquals(0.125, intermediate_state.state().getPose().translation().getX(), EPSILON);
     }
+
+    @Test
+    void testStruct() {
+        TimedPose p = new TimedPose(
+                new Pose2dWithMotion(
+                        HolonomicPose2d.make(1, 2, 0.5, 0.25), 0.1, 0.2, 0.3),
+                1.0, 2.0, 3.0);
+        ByteBuffer bb = ByteBuffer.allocate(TimedPose.struct.getSize());
+        bb.order(ByteOrder.LITTLE_ENDIAN);
+        TimedPose.struct.pack(bb, p);
+        assertEquals(0, bb.remaining());
+        // translation 16, heading 8, course 8, six doubles 48
+        assertEquals(80, bb.position());
+        bb.rewind();
+        TimedPose p2 = TimedPose.struct.unpack(bb);
+        assertEquals(p, p2);
+        assertEquals(0.1, p2.state().getHeadingRateRad_M(), EPSILON);
+        assertEquals(0.2, p2.state().getCurvature(), EPSILON);
+        assertEquals(0.3, p2.state().getDCurvatureDs(), EPSILON);
+        assertEquals(0.25, p2.state().getPose().course().getRadians(), EPSILON);
+        assertEquals(2.0, p2.velocityM_S(), EPSILON);
+        assertEquals(3.0, p2.acceleration(), EPSILON);
+    }
 }
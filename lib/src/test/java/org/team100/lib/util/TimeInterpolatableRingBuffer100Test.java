@@ -0,0 +1,181 @@
+package org.team100.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.util.TimeInterpolatableBuffer100Test.Item;
+
+class TimeInterpolatableRingBuffer100Test {
+    private static final boolean DEBUG = false;
+    private static final double DELTA = 0.001;
+
+    /** It interpolates proportionally. */
+    @Test
+    void testSimple() {
+        TimeInterpolatableRingBuffer100<Item> b = new TimeInterpolatableRingBuffer100<>(16, 10, 0, new Item(0));
+        assertEquals(0, b.get(0).value, DELTA);
+        b.put(1, new Item(10));
+        assertEquals(5, b.get(0.5).value, DELTA);
+        assertEquals(7.5, b.get(0.75).value, DELTA);
+    }
+
+    /** For off-the-end requests, it returns the end item. */
+    @Test
+    void testOffTheEnd() {
+        TimeInterpolatableRingBuffer100<Item> b = new TimeInterpolatableRingBuffer100<>(16, 10, 0, new Item(0));
+        assertEquals(0, b.get(1).value, DELTA);
+        b.put(1, new Item(10));
+        assertEquals(10, b.get(1.5).value, DELTA);
+        assertEquals(0, b.get(-1).value, DELTA);
+    }
+
+    /** Entries at least historyS older than the new one are evicted. */
+    @Test
+    void testEvict() {
+        TimeInterpolatableRingBuffer100<Item> b = new TimeInterpolatableRingBuffer100<>(16, 1, 0, new Item(0));
+        b.put(0.5, new Item(5));
+        assertEquals(2, b.size());
+        b.put(1, new Item(10));
+        assertEquals(2, b.size());
+        assertEquals(5, b.get(0).value, DELTA);
+        assertTrue(b.tooOld(-0.1));
+        assertFalse(b.tooOld(0.1));
+        assertEquals(1, b.lastKey(), DELTA);
+    }
+
+    /** Out-of-order puts are inserted in time order, and same-time puts replace. */
+    @Test
+    void testInsert() {
+        TimeInterpolatableRingBuffer100<Item> b = new TimeInterpolatableRingBuffer100<>(16, 10, 0, new Item(0));
+        b.put(2, new Item(20));
+        b.put(1, new Item(100));
+        assertEquals(3, b.size());
+        assertEquals(100, b.get(1).value, DELTA);
+        assertEquals(50, b.get(0.5).value, DELTA);
+        b.put(1, new Item(10));
+        assertEquals(3, b.size());
+        assertEquals(15, b.get(1.5).value, DELTA);
+        assertEquals(2, b.lastKey(), DELTA);
+    }
+
+    @Test
+    void testIndices() {
+        TimeInterpolatableRingBuffer100<Item> b = new TimeInterpolatableRingBuffer100<>(16, 10, 0, new Item(0));
+        b.put(1, new Item(10));
+        b.put(2, new Item(20));
+        assertEquals(-1, b.lowerIndex(0));
+        assertEquals(0, b.lowerIndex(0.5));
+        assertEquals(0, b.lowerIndex(1));
+        assertEquals(2, b.lowerIndex(3));
+        assertEquals(1, b.higherIndex(0));
+        assertEquals(2, b.higherIndex(1));
+        assertEquals(3, b.higherIndex(2));
+        assertEquals(1, b.timeAt(1), DELTA);
+        assertEquals(20, b.valueAt(2).value, DELTA);
+    }
+
+    /** The ring wraps around without losing order. */
+    @Test
+    void testWrap() {
+        TimeInterpolatableRingBuffer100<Item> b = new TimeInterpolatableRingBuffer100<>(4, 0.25, 0, new Item(0));
+        for (int i = 1; i <= 10; ++i) {
+            b.put(i * 0.1, new Item(i));
+        }
+        // 0.8, 0.9, 1.0 survive
+        assertEquals(3, b.size());
+        assertEquals(0.8, b.timeAt(0), DELTA);
+        // insert in the middle, across the wrap
+        b.put(0.85, new Item(100));
+        assertEquals(4, b.size());
+        assertEquals(100, b.get(0.85).value, DELTA);
+        assertEquals(9, b.get(0.9).value, DELTA);
+        assertEquals(10, b.get(1.0).value, DELTA);
+    }
+
+    /** When full, the oldest entry is dropped. */
+    @Test
+    void testFull() {
+        TimeInterpolatableRingBuffer100<Item> b = new TimeInterpolatableRingBuffer100<>(3, 10, 0, new Item(0));
+        b.put(1, new Item(10));
+        b.put(2, new Item(20));
+        b.put(3, new Item(30));
+        assertEquals(3, b.size());
+        assertEquals(1, b.timeAt(0), DELTA);
+        // older than everything, so it's dropped
+        b.put(0.5, new Item(5));
+        assertEquals(1, b.timeAt(0), DELTA);
+    }
+
+    @Test
+    void testReset() {
+        TimeInterpolatableRingBuffer100<Item> b = new TimeInterpolatableRingBuffer100<>(16, 10, 0, new Item(0));
+        b.put(1, new Item(10));
+        b.reset(5, new Item(50));
+        assertEquals(1, b.size());
+        assertEquals(50, b.get(0).value, DELTA);
+        assertEquals(5, b.lastKey(), DELTA);
+    }
+
+    /**
+     * Compares the two buffers with the localization workload: odometry at 50
+     * Hz, and five cameras at 50 Hz, each of which samples the history,
+     * inserts a nudged value, and replays everything after it.
+     */
+    @Test
+    void testPerformance() {
+        double history = 0.2;
+        int cycles = 100000;
+        int cameras = 5;
+        double dt = 0.02;
+        TimeInterpolatableBuffer100<Item> map = new TimeInterpolatableBuffer100<>(history, 0, new Item(0));
+        TimeInterpolatableRingBuffer100<Item> ring = new TimeInterpolatableRingBuffer100<>(512, history, 0,
+                new Item(0));
+
+        long start = System.nanoTime();
+        for (int cycle = 1; cycle <= cycles; ++cycle) {
+            double t = cycle * dt;
+            map.put(t, new Item(cycle));
+            for (int camera = 0; camera < cameras; ++camera) {
+                // latencies of 50 to 130 ms
+                double visionT = t - 0.05 - 0.02 * camera + 0.001;
+                if (map.tooOld(visionT))
+                    continue;
+                Item sample = map.get(visionT);
+                map.put(visionT, new Item(sample.value + 0.1));
+                for (Map.Entry<Double, Item> entry : map.tailMap(visionT, false).entrySet()) {
+                    map.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        long mapEnd = System.nanoTime();
+        for (int cycle = 1; cycle <= cycles; ++cycle) {
+            double t = cycle * dt;
+            ring.put(t, new Item(cycle));
+            for (int camera = 0; camera < cameras; ++camera) {
+                double visionT = t - 0.05 - 0.02 * camera + 0.001;
+                if (ring.tooOld(visionT))
+                    continue;
+                Item sample = ring.get(visionT);
+                ring.put(visionT, new Item(sample.value + 0.1));
+                double entryT = visionT;
+                for (int i = ring.higherIndex(entryT); i < ring.size(); i = ring.higherIndex(entryT)) {
+                    entryT = ring.timeAt(i);
+                    ring.put(entryT, ring.valueAt(i));
+                }
+            }
+        }
+        long ringEnd = System.nanoTime();
+        assertEquals(map.size(), ring.size());
+        assertEquals(map.lastKey(), ring.lastKey(), DELTA);
+        assertEquals(map.get(cycles * dt - 0.1).value, ring.get(cycles * dt - 0.1).value, DELTA);
+        if (DEBUG) {
+            System.out.printf("entries %d\n", ring.size());
+            System.out.printf("skip list (us/cycle) %.3f\n", (double) (mapEnd - start) / cycles / 1000);
+            System.out.printf("ring (us/cycle) %.3f\n", (double) (ringEnd - mapEnd) / cycles / 1000);
+        }
+    }
+}
@@ -1,11 +0,0 @@
-package org.team100.lib.logging;
-
-import org.junit.jupiter.api.Test;
-
-public class LoggerFactoryTest {
-    @Test
-    void testSimple() {
-        
-    }
-    
-}